@@ -0,0 +1,293 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.benchmark.causal;
+
+import org.apache.flink.runtime.causal.determinant.BufferBuiltDeterminant;
+import org.apache.flink.runtime.causal.determinant.Determinant;
+import org.apache.flink.runtime.causal.determinant.SimpleDeterminantEncoder;
+import org.apache.flink.runtime.causal.log.job.CausalLogID;
+import org.apache.flink.runtime.causal.log.job.hierarchy.PartitionCausalLogs;
+import org.apache.flink.runtime.causal.log.job.hierarchy.VertexCausalLogs;
+import org.apache.flink.runtime.causal.log.job.serde.DeltaEncodingStrategy;
+import org.apache.flink.runtime.causal.log.job.serde.DeltaSerializerDeserializer;
+import org.apache.flink.runtime.causal.log.job.serde.FlatDeltaSerializerDeserializer;
+import org.apache.flink.runtime.causal.log.job.serde.GroupingDeltaSerializerDeserializer;
+import org.apache.flink.runtime.causal.log.thread.ThreadCausalLog;
+import org.apache.flink.runtime.causal.log.thread.ThreadCausalLogImpl;
+import org.apache.flink.runtime.io.network.buffer.BufferPool;
+import org.apache.flink.runtime.io.network.buffer.NetworkBufferPool;
+import org.apache.flink.runtime.io.network.partition.consumer.InputChannelID;
+import org.apache.flink.runtime.jobgraph.IntermediateResultPartitionID;
+import org.apache.flink.runtime.jobgraph.JobVertexID;
+
+import org.apache.flink.shaded.netty4.io.netty.buffer.ByteBuf;
+import org.apache.flink.shaded.netty4.io.netty.buffer.ByteBufAllocator;
+import org.apache.flink.shaded.netty4.io.netty.buffer.PooledByteBufAllocator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the per buffer cost of piggybacking causal log deltas with the {@link FlatDeltaSerializerDeserializer}
+ * and the {@link GroupingDeltaSerializerDeserializer} in a synthetic topology.
+ *
+ * <p>The measured task has three levels of upstream vertices of the given parallelism. Every buffer it receives
+ * carries the deltas its upstream neighbours share at the given determinant sharing depth, and every buffer it
+ * sends carries the deltas of its own logs and of the upstream logs it shares. The upstream buffers are prepared
+ * outside of the measurement. {@link #process} measures receiving a buffer, {@link #processAndEnrich} additionally
+ * measures recording a buffer worth of determinants and sending a buffer, so the difference is the sending cost.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class DeltaSerdeBenchmark {
+
+	private static final int UPSTREAM_LEVELS = 3;
+
+	// The determinants the measured task records per buffer it sends
+	private static final int DETERMINANTS_PER_BUFFER = 32;
+
+	// The determinants every upstream vertex records per buffer the measured task receives
+	private static final int UPSTREAM_DETERMINANTS_PER_BUFFER = 8;
+
+	private static final int BUFFERS_PER_EPOCH = 100;
+
+	private static final int DATA_SIZE = 64;
+
+	private static final short LOCAL_VERTEX = 0;
+
+	@Param({"FLAT", "HIERARCHICAL"})
+	public DeltaEncodingStrategy strategy;
+
+	@Param({"1", "2", "-1"})
+	public int sharingDepth;
+
+	@Param({"1", "4", "16"})
+	public int parallelism;
+
+	@Param({DeterminantMix.ORDER, DeterminantMix.MIXED})
+	public String mix;
+
+	private final ByteBufAllocator alloc = PooledByteBufAllocator.DEFAULT;
+
+	private NetworkBufferPool networkBufferPool;
+	private BufferPool bufferPool;
+
+	// The upstream neighbours, merged into a single serializer holding all logs they share with the measured task
+	private Logs upstream;
+	private InputChannelID upstreamChannel;
+
+	private Logs task;
+	private InputChannelID outputChannel;
+	private ThreadCausalLog mainThreadLog;
+	private ThreadCausalLog subpartitionLog;
+
+	private Determinant[] determinants;
+	private BufferBuiltDeterminant bufferBuilt;
+
+	private ByteBuf upstreamBuffer;
+	private long epochID;
+	private int bufferInEpoch;
+
+	@Setup(Level.Iteration)
+	public void setUp() throws Exception {
+		networkBufferPool = new NetworkBufferPool(1024, 8 * 1024);
+		bufferPool = networkBufferPool.createBufferPool(1024, 1024);
+		SimpleDeterminantEncoder encoder = SimpleDeterminantEncoder.forMaxNumberOfInputChannels(parallelism, true);
+
+		Map<Short, Integer> distances = new HashMap<>();
+		distances.put(LOCAL_VERTEX, 0);
+		for (int level = 1; level <= UPSTREAM_LEVELS; level++) {
+			for (int i = 0; i < parallelism; i++) {
+				distances.put(vertexID(level, i), -level);
+			}
+		}
+
+		// The upstream neighbours share their own logs and the ones within the sharing depth
+		upstream = new Logs(distances, false);
+		int sharedLevels = sharingDepth == -1 ? UPSTREAM_LEVELS : Math.min(sharingDepth, UPSTREAM_LEVELS);
+		for (int level = 1; level <= sharedLevels; level++) {
+			for (int i = 0; i < parallelism; i++) {
+				upstream.addLocalVertex(vertexID(level, i), encoder);
+			}
+		}
+		upstreamChannel = new InputChannelID();
+		upstream.serde.registerDownstreamConsumer(upstreamChannel, new CausalLogID(vertexID(1, 0)));
+
+		task = new Logs(distances, true);
+		VertexCausalLogs localVertex = task.addLocalVertex(LOCAL_VERTEX, encoder);
+		mainThreadLog = localVertex.getMainThreadLog();
+		IntermediateResultPartitionID partitionID = new IntermediateResultPartitionID();
+		PartitionCausalLogs partition = new PartitionCausalLogs(partitionID);
+		localVertex.partitionCausalLogs.put(partitionID, partition);
+		CausalLogID subpartitionLogID = new CausalLogID(LOCAL_VERTEX, partitionID.getLowerPart(),
+			partitionID.getUpperPart(), (byte) 0);
+		subpartitionLog = new ThreadCausalLogImpl(bufferPool, subpartitionLogID, sharingDepth, encoder);
+		partition.subpartitionLogs.put((byte) 0, subpartitionLog);
+		task.threadCausalLogs.put(subpartitionLogID, subpartitionLog);
+		outputChannel = new InputChannelID();
+		task.serde.registerDownstreamConsumer(outputChannel, subpartitionLogID);
+
+		determinants = DeterminantMix.create(mix, DETERMINANTS_PER_BUFFER, parallelism);
+		bufferBuilt = new BufferBuiltDeterminant(32 * 1024);
+		epochID = 0;
+		bufferInEpoch = 0;
+	}
+
+	@Setup(Level.Invocation)
+	public void prepareUpstreamBuffer() {
+		if (++bufferInEpoch == BUFFERS_PER_EPOCH) {
+			bufferInEpoch = 0;
+			epochID++;
+			upstream.notifyCheckpointComplete(epochID);
+			task.notifyCheckpointComplete(epochID);
+		}
+
+		for (ThreadCausalLog log : upstream.threadCausalLogs.values()) {
+			for (int i = 0; i < UPSTREAM_DETERMINANTS_PER_BUFFER; i++) {
+				DeterminantMix.append(log, determinants[i], epochID);
+			}
+		}
+		upstreamBuffer = upstream.serde.enrichWithCausalLogDelta(data(), upstreamChannel, epochID, false, alloc);
+		upstreamBuffer.readerIndex(DATA_SIZE);
+	}
+
+	@TearDown(Level.Iteration)
+	public void tearDown() {
+		// The buffer prepared for an invocation that did not run
+		if (upstreamBuffer != null) {
+			upstreamBuffer.release();
+			upstreamBuffer = null;
+		}
+		upstream.close();
+		task.close();
+		bufferPool.lazyDestroy();
+		networkBufferPool.destroy();
+	}
+
+	@Benchmark
+	public void process() {
+		task.serde.processCausalLogDelta(upstreamBuffer);
+		upstreamBuffer.release();
+		upstreamBuffer = null;
+	}
+
+	@Benchmark
+	public void processAndEnrich() {
+		task.serde.processCausalLogDelta(upstreamBuffer);
+		upstreamBuffer.release();
+		upstreamBuffer = null;
+
+		for (Determinant determinant : determinants) {
+			DeterminantMix.append(mainThreadLog, determinant, epochID);
+		}
+		subpartitionLog.appendDeterminant(bufferBuilt, epochID);
+		task.serde.enrichWithCausalLogDelta(data(), outputChannel, epochID, false, alloc).release();
+	}
+
+	private ByteBuf data() {
+		ByteBuf data = alloc.directBuffer(DATA_SIZE);
+		data.writeInt(DATA_SIZE);
+		data.writerIndex(DATA_SIZE);
+		return data;
+	}
+
+	private short vertexID(int level, int index) {
+		return (short) (LOCAL_VERTEX + (level - 1) * parallelism + index + 1);
+	}
+
+	/**
+	 * The logs of a task manager, maintained the way the job causal log maintains them.
+	 */
+	private final class Logs {
+
+		private final ConcurrentMap<CausalLogID, ThreadCausalLog> threadCausalLogs = new ConcurrentHashMap<>();
+		private final ConcurrentMap<Short, VertexCausalLogs> sharedLogs = new ConcurrentHashMap<>();
+		private final ConcurrentMap<JobVertexID, Short> localTasks = new ConcurrentHashMap<>();
+		private final DeltaSerializerDeserializer serde;
+
+		Logs(Map<Short, Integer> distances, boolean enableDeltaSharingOptimizations) {
+			if (strategy == DeltaEncodingStrategy.FLAT) {
+				serde = new FlatDeltaSerializerDeserializer(threadCausalLogs, sharedLogs, distances, localTasks,
+					sharingDepth, bufferPool, enableDeltaSharingOptimizations, 0L, Long.MAX_VALUE);
+			} else {
+				serde = new GroupingDeltaSerializerDeserializer(threadCausalLogs, sharedLogs, distances, localTasks,
+					sharingDepth, bufferPool, enableDeltaSharingOptimizations, 0L, Long.MAX_VALUE);
+			}
+		}
+
+		VertexCausalLogs addLocalVertex(short vertexID, SimpleDeterminantEncoder encoder) {
+			CausalLogID mainThreadLogID = new CausalLogID(vertexID);
+			ThreadCausalLog log = new ThreadCausalLogImpl(bufferPool, mainThreadLogID, sharingDepth, encoder);
+			threadCausalLogs.put(mainThreadLogID, log);
+			localTasks.put(new JobVertexID(), vertexID);
+
+			VertexCausalLogs vertexLogs = new VertexCausalLogs(vertexID);
+			vertexLogs.mainThreadLog.set(log);
+			sharedLogs.put(vertexID, vertexLogs);
+			return vertexLogs;
+		}
+
+		void notifyCheckpointComplete(long checkpointID) {
+			for (ThreadCausalLog log : threadCausalLogs.values()) {
+				log.notifyCheckpointComplete(checkpointID);
+			}
+		}
+
+		void close() {
+			for (ThreadCausalLog log : threadCausalLogs.values()) {
+				log.close();
+			}
+		}
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+			.include(".*" + DeltaSerdeBenchmark.class.getSimpleName() + ".*")
+			.addProfiler(GCProfiler.class)
+			.build();
+
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.benchmark.causal;
+
+import org.apache.flink.runtime.causal.determinant.Determinant;
+import org.apache.flink.runtime.causal.determinant.SimpleDeterminantEncoder;
+import org.apache.flink.runtime.causal.recovery.DeterminantPool;
+
+import org.apache.flink.shaded.netty4.io.netty.buffer.ByteBuf;
+import org.apache.flink.shaded.netty4.io.netty.buffer.Unpooled;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the per determinant cost of encoding determinants into a log and of decoding them during replay with the
+ * {@link SimpleDeterminantEncoder}. Tasks with more than {@link SimpleDeterminantEncoder#MAX_SINGLE_BYTE_CHANNELS}
+ * input channels encode the channel indexes of order determinants as variable length integers.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class DeterminantEncoderBenchmark {
+
+	private static final int NUM_DETERMINANTS = 1000;
+
+	@Param({DeterminantMix.ORDER, DeterminantMix.MIXED})
+	public String mix;
+
+	@Param({"16", "1024"})
+	public int numInputChannels;
+
+	private SimpleDeterminantEncoder encoder;
+	private Determinant[] determinants;
+	private ByteBuf encoded;
+	private ByteBuf target;
+	private DeterminantPool determinantPool;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		encoder = SimpleDeterminantEncoder.forMaxNumberOfInputChannels(numInputChannels, false);
+		determinants = DeterminantMix.create(mix, NUM_DETERMINANTS, numInputChannels);
+		determinantPool = new DeterminantPool();
+
+		encoded = Unpooled.directBuffer();
+		for (Determinant determinant : determinants) {
+			encoder.encodeTo(determinant, encoded);
+		}
+		target = Unpooled.directBuffer(encoded.capacity());
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		encoded.release();
+		target.release();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(NUM_DETERMINANTS)
+	public ByteBuf encode() {
+		target.clear();
+		for (Determinant determinant : determinants) {
+			encoder.encodeTo(determinant, target);
+		}
+		return target;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(NUM_DETERMINANTS)
+	public void decode(Blackhole blackhole) {
+		encoded.readerIndex(0);
+		while (encoded.isReadable()) {
+			Determinant determinant = encoder.decodeNext(encoded, determinantPool);
+			blackhole.consume(determinant);
+			determinantPool.recycle(determinant);
+		}
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+			.include(".*" + DeterminantEncoderBenchmark.class.getSimpleName() + ".*")
+			.addProfiler(GCProfiler.class)
+			.build();
+
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.benchmark.causal;
+
+import org.apache.flink.runtime.causal.determinant.BufferBuiltDeterminant;
+import org.apache.flink.runtime.causal.determinant.Determinant;
+import org.apache.flink.runtime.causal.determinant.OrderDeterminant;
+import org.apache.flink.runtime.causal.determinant.RNGDeterminant;
+import org.apache.flink.runtime.causal.determinant.TimestampDeterminant;
+import org.apache.flink.runtime.causal.log.thread.ThreadCausalLog;
+
+import java.util.Random;
+
+/**
+ * Synthetic sequences of the determinants a task records while processing records.
+ */
+final class DeterminantMix {
+
+	/** One order determinant per record, from a random input channel. */
+	static final String ORDER = "order";
+
+	/** One order determinant per record, with runs of records from the same input channel. */
+	static final String ORDER_RUNS = "orderRuns";
+
+	/** Order determinants interleaved with timestamps, random numbers and built buffers. */
+	static final String MIXED = "mixed";
+
+	/** One built buffer after the other, the determinants of a task without inputs. */
+	static final String BUFFER_BUILT = "bufferBuilt";
+
+	private static final int RUN_LENGTH = 16;
+
+	private DeterminantMix() {
+	}
+
+	static Determinant[] create(String mix, int numDeterminants, int numInputChannels) {
+		Random random = new Random(42);
+		Determinant[] determinants = new Determinant[numDeterminants];
+		int channel = 0;
+		for (int i = 0; i < numDeterminants; i++) {
+			if (!mix.equals(ORDER_RUNS) || i % RUN_LENGTH == 0) {
+				channel = random.nextInt(numInputChannels);
+			}
+
+			if (mix.equals(BUFFER_BUILT)) {
+				determinants[i] = new BufferBuiltDeterminant(32 * 1024);
+			} else if (!mix.equals(MIXED) || i % 4 == 0) {
+				determinants[i] = new OrderDeterminant(channel);
+			} else if (i % 4 == 1) {
+				determinants[i] = new TimestampDeterminant(System.currentTimeMillis() + i);
+			} else if (i % 4 == 2) {
+				determinants[i] = new RNGDeterminant(random.nextInt());
+			} else {
+				determinants[i] = new BufferBuiltDeterminant(32 * 1024);
+			}
+		}
+		return determinants;
+	}
+
+	/**
+	 * Appends the determinant the way the task does, so that order determinants are run-length encoded if the log
+	 * supports it.
+	 */
+	static void append(ThreadCausalLog log, Determinant determinant, long epochID) {
+		if (determinant.isOrderDeterminant()) {
+			log.appendOrderDeterminant(determinant.asOrderDeterminant(), epochID);
+		} else {
+			log.appendDeterminant(determinant, epochID);
+		}
+	}
+}
@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.benchmark.causal;
+
+import org.apache.flink.runtime.causal.determinant.Determinant;
+import org.apache.flink.runtime.causal.determinant.SimpleDeterminantEncoder;
+import org.apache.flink.runtime.causal.log.job.CausalLogID;
+import org.apache.flink.runtime.causal.log.thread.SingleWriterThreadCausalLog;
+import org.apache.flink.runtime.causal.log.thread.ThreadCausalLog;
+import org.apache.flink.runtime.causal.log.thread.ThreadCausalLogImpl;
+import org.apache.flink.runtime.io.network.buffer.BufferPool;
+import org.apache.flink.runtime.io.network.buffer.NetworkBufferPool;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the per determinant cost of appending to the locking {@link ThreadCausalLogImpl} and to the
+ * {@link SingleWriterThreadCausalLog}. Every invocation appends one epoch worth of determinants and then completes
+ * the checkpoint, so the truncation cost is amortized over the appends as it would be in a running job. Order
+ * determinants are appended the way the task appends them, so the mixes containing them include the cost of run
+ * length encoding.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class ThreadCausalLogAppendBenchmark {
+
+	private static final int DETERMINANTS_PER_EPOCH = 1000;
+
+	@Param({"locking", "singleWriter"})
+	public String implementation;
+
+	@Param({DeterminantMix.BUFFER_BUILT, DeterminantMix.ORDER_RUNS, DeterminantMix.MIXED})
+	public String mix;
+
+	@Param({"16"})
+	public int numInputChannels;
+
+	private NetworkBufferPool networkBufferPool;
+	private BufferPool bufferPool;
+	private ThreadCausalLog log;
+	private Determinant[] determinants;
+	private long epochID;
+
+	@Setup(Level.Iteration)
+	public void setUp() throws Exception {
+		networkBufferPool = new NetworkBufferPool(16, 32 * 1024);
+		bufferPool = networkBufferPool.createBufferPool(16, 16);
+		CausalLogID causalLogID = new CausalLogID((short) 0);
+		SimpleDeterminantEncoder encoder = SimpleDeterminantEncoder.forMaxNumberOfInputChannels(numInputChannels, true);
+		if (implementation.equals("locking")) {
+			log = new ThreadCausalLogImpl(bufferPool, causalLogID, -1, encoder);
+		} else {
+			log = new SingleWriterThreadCausalLog(bufferPool, causalLogID, -1, encoder);
+		}
+		determinants = DeterminantMix.create(mix, DETERMINANTS_PER_EPOCH, numInputChannels);
+		epochID = 0;
+	}
+
+	@TearDown(Level.Iteration)
+	public void tearDown() {
+		log.close();
+		bufferPool.lazyDestroy();
+		networkBufferPool.destroy();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(DETERMINANTS_PER_EPOCH)
+	public void appendDeterminant() {
+		for (Determinant determinant : determinants) {
+			DeterminantMix.append(log, determinant, epochID);
+		}
+		log.notifyCheckpointComplete(++epochID);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+			.include(".*" + ThreadCausalLogAppendBenchmark.class.getSimpleName() + ".*")
+			.addProfiler(GCProfiler.class)
+			.build();
+
+		new Runner(options).run();
+	}
+}
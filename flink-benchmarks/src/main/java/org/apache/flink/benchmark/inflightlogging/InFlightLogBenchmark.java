@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.benchmark.inflightlogging;
+
+import org.apache.flink.runtime.inflightlogging.EagerSpillPolicy;
+import org.apache.flink.runtime.inflightlogging.InFlightLog;
+import org.apache.flink.runtime.inflightlogging.InFlightLogSpillService;
+import org.apache.flink.runtime.inflightlogging.InMemorySubpartitionInFlightLogger;
+import org.apache.flink.runtime.inflightlogging.SpillableSubpartitionInFlightLogger;
+import org.apache.flink.runtime.io.network.buffer.Buffer;
+import org.apache.flink.runtime.io.network.buffer.BufferPool;
+import org.apache.flink.runtime.io.network.buffer.NetworkBufferPool;
+import org.apache.flink.util.FileUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the per buffer cost of logging the buffers a subpartition sends to the {@link InMemorySubpartitionInFlightLogger}
+ * and to the {@link SpillableSubpartitionInFlightLogger}. Every invocation logs one epoch worth of buffers and then
+ * completes the checkpoint of the previous epoch, so the log holds two epochs as it would in a running job.
+ *
+ * <p>The spillable logger is measured with the eager spill policy, so every buffer is handed to the spill service.
+ * Logging blocks on the in-flight buffer pool whenever the asynchronous writes fall behind, so its cost is bounded by
+ * the spill throughput of the benchmark machine.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class InFlightLogBenchmark {
+
+	private static final int BUFFERS_PER_EPOCH = 100;
+
+	// The log holds up to two epochs, either in buffers of the output pool or of the in-flight pool
+	private static final int POOL_SIZE = 2 * BUFFERS_PER_EPOCH + 8;
+
+	@Param({"inMemory", "spillable"})
+	public String implementation;
+
+	@Param({"4096", "32768"})
+	public int bufferSize;
+
+	private NetworkBufferPool networkBufferPool;
+	private BufferPool bufferPool;
+	private BufferPool inFlightBufferPool;
+	private File spillDirectory;
+	private InFlightLogSpillService spillService;
+	private InFlightLog log;
+	private long epochID;
+
+	@Setup(Level.Iteration)
+	public void setUp() throws Exception {
+		networkBufferPool = new NetworkBufferPool(2 * POOL_SIZE + 8, bufferSize);
+		bufferPool = networkBufferPool.createBufferPool(POOL_SIZE, POOL_SIZE);
+		inFlightBufferPool = networkBufferPool.createBufferPool(POOL_SIZE, POOL_SIZE);
+		if (implementation.equals("inMemory")) {
+			log = new InMemorySubpartitionInFlightLogger();
+		} else {
+			spillDirectory = Files.createTempDirectory("in-flight-log-benchmark").toFile();
+			spillService = new InFlightLogSpillService(new File[]{spillDirectory}, 64L * 1024 * 1024, 64, false, 1);
+			BufferPool prefetchBufferPool = networkBufferPool.createBufferPool(8, 8);
+			log = new SpillableSubpartitionInFlightLogger(spillService, prefetchBufferPool, new EagerSpillPolicy());
+		}
+		log.registerBufferPool(inFlightBufferPool);
+		epochID = 0;
+	}
+
+	@TearDown(Level.Iteration)
+	public void tearDown() throws Exception {
+		log.close();
+		if (spillService != null) {
+			spillService.shutdown();
+			FileUtils.deleteDirectory(spillDirectory);
+		}
+		bufferPool.lazyDestroy();
+		inFlightBufferPool.lazyDestroy();
+		networkBufferPool.destroy();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BUFFERS_PER_EPOCH)
+	public void log() throws Exception {
+		for (int i = 0; i < BUFFERS_PER_EPOCH; i++) {
+			Buffer buffer = bufferPool.requestBufferBlocking();
+			buffer.setSize(bufferSize);
+			log.log(buffer, epochID, true);
+			// The buffer is sent downstream and recycled by the consumer
+			buffer.recycleBuffer();
+		}
+		log.notifyCheckpointComplete(epochID++);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+			.include(".*" + InFlightLogBenchmark.class.getSimpleName() + ".*")
+			.addProfiler(GCProfiler.class)
+			.build();
+
+		new Runner(options).run();
+	}
+}
@@ -25,9 +25,18 @@
 
 package org.apache.flink.api.common.services;
 
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+
 import java.io.Serializable;
 import java.util.function.Function;
 
 public interface SerializableServiceFactory {
 	<I, O extends Serializable> SerializableService<I,O> build(Function<I,O> f);
+
+	/**
+	 * Builds a service whose results are serialized with the given serializer instead of Java serialization, which
+	 * is considerably cheaper when the service is called often. Services must be built in the same order on every
+	 * run of the task, as they are identified by the order in which they were built.
+	 */
+	<I, O extends Serializable> SerializableService<I,O> build(Function<I,O> f, TypeSerializer<O> serializer);
 }
@@ -25,6 +25,8 @@
 
 package org.apache.flink.api.common.services;
 
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+
 import java.io.Serializable;
 import java.util.function.Function;
 
@@ -34,4 +36,10 @@ public class SimpleSerializableServiceFactory implements SerializableServiceFact
 	public <I, O extends Serializable> SerializableService<I, O> build(Function<I, O> f) {
 		return new SimpleSerializableService<>(f);
 	}
+
+	@Override
+	public <I, O extends Serializable> SerializableService<I, O> build(Function<I, O> f,
+																		TypeSerializer<O> serializer) {
+		return new SimpleSerializableService<>(f);
+	}
 }
@@ -133,6 +133,31 @@ public class JobManagerOptions {
 		key("jobmanager.execution.checkpoint-coordinator-backoff-base")
 			.defaultValue(10000L)
 			.withDescription("The base value to add to the checkpoint backoff checkpoints to use when recovering causally.");
+
+	public static final ConfigOption<Long> CC_CAUSAL_LOG_BUDGET =
+		key("jobmanager.execution.checkpoint-trigger.causal-log-budget")
+			.defaultValue(-1L)
+			.withDescription("The total bytes of causal logs of a job after which a checkpoint is triggered ahead of the" +
+				" checkpoint interval, truncating them. -1 disables the budget.");
+
+	public static final ConfigOption<Long> CC_IN_FLIGHT_LOG_BUDGET =
+		key("jobmanager.execution.checkpoint-trigger.in-flight-log-budget")
+			.defaultValue(-1L)
+			.withDescription("The total bytes of in-flight logs of a job after which a checkpoint is triggered ahead of" +
+				" the checkpoint interval, truncating them. -1 disables the budget.");
+
+	public static final ConfigOption<Long> CC_RECOVERY_TIME_OBJECTIVE =
+		key("jobmanager.execution.checkpoint-trigger.recovery-time-objective")
+			.defaultValue(-1L)
+			.withDescription("The time in milliseconds a causal recovery may spend replaying in-flight logs. A" +
+				" checkpoint is triggered ahead of the checkpoint interval once the largest in-flight log of a" +
+				" TaskManager would take longer to replay. -1 disables the objective.");
+
+	public static final ConfigOption<Long> CC_REPLAY_THROUGHPUT =
+		key("jobmanager.execution.checkpoint-trigger.replay-throughput")
+			.defaultValue(50L * 1024 * 1024)
+			.withDescription("The estimated bytes per second at which in-flight logs are replayed, used to project" +
+				" the replay time against the recovery time objective.");
 	/**
 	 * This option specifies the interval in order to trigger a resource manager reconnection if the connection
 	 * to the resource manager has been lost.
@@ -26,6 +26,7 @@
 package org.apache.flink.runtime.causal;
 
 import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.runtime.jobgraph.DistributionPattern;
 import org.apache.flink.runtime.jobgraph.IntermediateDataSet;
 import org.apache.flink.runtime.jobgraph.JobEdge;
 import org.apache.flink.runtime.jobgraph.JobVertex;
@@ -103,6 +104,27 @@ public class CausalGraphUtils {
 		}
 	}
 
+	/**
+	 * Computes an upper bound on the number of input channels any single task of the job consumes from.
+	 * All-to-all inputs contribute the parallelism of the producer, while pointwise inputs contribute at most the
+	 * number of producers per consumer.
+	 */
+	public static int computeMaxNumberOfInputChannels(List<JobVertex> sortedJobVertexes) {
+		int max = 0;
+		for (JobVertex jobVertex : sortedJobVertexes) {
+			int numInputChannels = 0;
+			for (JobEdge input : jobVertex.getInputs()) {
+				int producerParallelism = input.getSource().getProducer().getParallelism();
+				if (input.getDistributionPattern() == DistributionPattern.ALL_TO_ALL)
+					numInputChannels += producerParallelism;
+				else
+					numInputChannels += (producerParallelism + jobVertex.getParallelism() - 1) / jobVertex.getParallelism();
+			}
+			max = Math.max(max, numInputChannels);
+		}
+		return max;
+	}
+
 	public static Map<VertexID, Integer> computeDistances(List<JobVertex> sortedJobVertexes, JobVertexID jobVertexID) {
 		JobVertex localJobVertex = fromSortedList(sortedJobVertexes, jobVertexID);
 		HashMap<VertexID, Integer> distances = new HashMap<>();
@@ -27,13 +27,25 @@ import org.apache.flink.shaded.netty4.io.netty.buffer.ByteBuf;
 import org.apache.flink.shaded.netty4.io.netty.buffer.Unpooled;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
+/**
+ * A response to a {@link DeterminantRequestEvent}, holding the determinants of the failed vertex' logs.
+ *
+ * <p>Large responses are split into chunks, see {@link #split(int)}. Every chunk holds the determinants of each log
+ * starting at the same offset, and the last one is flagged, so that the failed vertex can replay the prefix it
+ * received while the rest is still being transferred.
+ */
 public class DeterminantResponseEvent extends TaskEvent {
 
+	public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
 	private boolean found;
 
 	private VertexID vertexID;
@@ -42,6 +54,11 @@ public class DeterminantResponseEvent extends TaskEvent {
 
 	private long correlationID;
 
+	// The offset in each log of the determinants held by this chunk
+	private int offset;
+
+	private boolean lastChunk;
+
 	public DeterminantResponseEvent() {
 	}
 
@@ -53,6 +70,7 @@ public class DeterminantResponseEvent extends TaskEvent {
 		this.found = found;
 		this.vertexID = vertexID;
 		determinants = new HashMap<>();
+		this.lastChunk = true;
 	}
 
 	public DeterminantResponseEvent(DeterminantRequestEvent determinantRequestEvent) {
@@ -60,6 +78,7 @@ public class DeterminantResponseEvent extends TaskEvent {
 		this.vertexID = determinantRequestEvent.getFailedVertex();
 		this.correlationID = determinantRequestEvent.getUpstreamCorrelationID();
 		this.determinants = new HashMap<>();
+		this.lastChunk = true;
 	}
 
 	public DeterminantResponseEvent(DeterminantRequestEvent e, Map<CausalLogID, ByteBuf> determinants) {
@@ -89,11 +108,56 @@ public class DeterminantResponseEvent extends TaskEvent {
 		this.correlationID = correlationID;
 	}
 
+	public int getOffset() {
+		return offset;
+	}
+
+	public boolean isLastChunk() {
+		return lastChunk;
+	}
+
+	public void setLastChunk(boolean lastChunk) {
+		this.lastChunk = lastChunk;
+	}
+
+	/**
+	 * Splits this response into chunks holding at most the given number of bytes of each log. The chunks hold
+	 * slices of the determinants of this response, which may not be used afterwards.
+	 */
+	public List<DeterminantResponseEvent> split(int chunkSize) {
+		int maxLength = 0;
+		for (ByteBuf buf : determinants.values())
+			maxLength = Math.max(maxLength, buf.readableBytes());
+		if (maxLength <= chunkSize)
+			return Collections.singletonList(this);
+
+		List<DeterminantResponseEvent> chunks = new ArrayList<>(maxLength / chunkSize + 1);
+		for (int chunkOffset = 0; chunkOffset < maxLength; chunkOffset += chunkSize) {
+			DeterminantResponseEvent chunk = new DeterminantResponseEvent(found, vertexID);
+			chunk.correlationID = correlationID;
+			chunk.offset = offset + chunkOffset;
+			chunk.lastChunk = lastChunk && chunkOffset + chunkSize >= maxLength;
+			for (Map.Entry<CausalLogID, ByteBuf> entry : determinants.entrySet()) {
+				ByteBuf buf = entry.getValue();
+				int length = Math.min(chunkSize, buf.readableBytes() - chunkOffset);
+				if (length > 0)
+					chunk.determinants.put(entry.getKey(),
+						buf.retainedSlice(buf.readerIndex() + chunkOffset, length));
+			}
+			chunks.add(chunk);
+		}
+		for (ByteBuf buf : determinants.values())
+			buf.release();
+		return chunks;
+	}
+
 	@Override
 	public void write(DataOutputView out) throws IOException {
 		out.writeBoolean(found);
 		out.writeShort(vertexID.getVertexID());
 		out.writeLong(correlationID);
+		out.writeInt(offset);
+		out.writeBoolean(lastChunk);
 		out.writeByte(determinants.size());
 		for (Map.Entry<CausalLogID, ByteBuf> entry : determinants.entrySet()) {
 			entry.getKey().write(out);
@@ -109,6 +173,8 @@ public class DeterminantResponseEvent extends TaskEvent {
 		this.found = in.readBoolean();
 		this.vertexID = new VertexID(in.readShort());
 		this.correlationID = in.readLong();
+		this.offset = in.readInt();
+		this.lastChunk = in.readBoolean();
 		this.determinants = new HashMap<>();
 		byte numDeterminantDeltas = in.readByte();
 		for (int i = 0; i < numDeterminantDeltas; i++) {
@@ -116,8 +182,9 @@ public class DeterminantResponseEvent extends TaskEvent {
 			causalLogID.read(in);
 
 			int numBytesOfBuf = in.readInt();
+			// The input may alias a network buffer which is recycled after the event is read, so this is copied
 			byte[] toWrap = new byte[numBytesOfBuf];
-			in.read(toWrap);
+			in.readFully(toWrap);
 			ByteBuf buf = Unpooled.wrappedBuffer(toWrap);
 
 			this.determinants.put(causalLogID, buf);
@@ -125,34 +192,14 @@ public class DeterminantResponseEvent extends TaskEvent {
 	}
 
 
-	public void merge(DeterminantResponseEvent other) {
-
-		if (!this.found && !other.found)
-			return;
-
-		if (!this.found) //The other one is found
-			this.found = true;
-
-		for (Map.Entry<CausalLogID, ByteBuf> entry : other.determinants.entrySet()) {
-			determinants.merge(entry.getKey(), entry.getValue(), (v1, v2) -> {
-				//Note, this is only ran if both are defined, in which  case the smaller one is released.
-				if (v1.readableBytes() > v2.readableBytes()) {
-					v2.release();
-					return v1;
-				} else {
-					v1.release();
-					return v2;
-				}
-			});
-		}
-	}
-
 	@Override
 	public String toString() {
 		return "DeterminantResponseEvent{" +
 			"found=" + found +
 			", vertexID=" + vertexID +
 			", correlationID=" + correlationID +
+			", offset=" + offset +
+			", lastChunk=" + lastChunk +
 			",\n determinants=[\n" + determinants.entrySet().stream()
 			.map(this::getStringDeterminantArray)
 			.collect(Collectors.joining(",\n ")) +
@@ -25,9 +25,11 @@
 
 package org.apache.flink.runtime.causal;
 
+import org.apache.flink.runtime.causal.determinant.SimpleDeterminantEncoder;
 import org.apache.flink.runtime.causal.log.job.JobCausalLogImpl;
 import org.apache.flink.runtime.causal.log.job.JobCausalLog;
 import org.apache.flink.runtime.causal.log.job.serde.DeltaEncodingStrategy;
+import org.apache.flink.runtime.io.disk.iomanager.IOManager;
 import org.apache.flink.runtime.io.network.api.writer.ResultPartitionWriter;
 import org.apache.flink.runtime.io.network.buffer.BufferPool;
 import org.apache.flink.runtime.io.network.buffer.NetworkBufferPool;
@@ -40,20 +42,35 @@ public class JobCausalLogFactory {
 	private final int numDeterminantBuffersPerTask;
 	private final DeltaEncodingStrategy deltaEncodingStrategy;
 	private final boolean enableDeltaSharingOptimizations;
+	private final boolean enableOrderDeterminantRunLengthEncoding;
+	private final boolean enableSingleWriterCausalLogs;
+	private final long deltaPiggybackIntervalMicros;
+	private final long deltaPiggybackMaxBytes;
+	private final IOManager ioManager;
+	private final float determinantSpillThreshold;
 
 	NetworkBufferPool determinantNetworkBufferPool;
 
 	protected static final Logger LOG = LoggerFactory.getLogger(JobCausalLogFactory.class);
 
 	public JobCausalLogFactory(NetworkBufferPool determinantNetworkBufferPool, int numDeterminantBuffersPerTask,
-							   DeltaEncodingStrategy deltaEncodingStrategy, boolean enableDeltaSharingOptimizations) {
+							   DeltaEncodingStrategy deltaEncodingStrategy, boolean enableDeltaSharingOptimizations,
+							   boolean enableOrderDeterminantRunLengthEncoding, boolean enableSingleWriterCausalLogs,
+							   long deltaPiggybackIntervalMicros, long deltaPiggybackMaxBytes, IOManager ioManager,
+							   float determinantSpillThreshold) {
 		this.determinantNetworkBufferPool = determinantNetworkBufferPool;
 		this.numDeterminantBuffersPerTask = numDeterminantBuffersPerTask;
 		this.deltaEncodingStrategy = deltaEncodingStrategy;
 		this.enableDeltaSharingOptimizations = enableDeltaSharingOptimizations;
+		this.enableOrderDeterminantRunLengthEncoding = enableOrderDeterminantRunLengthEncoding;
+		this.enableSingleWriterCausalLogs = enableSingleWriterCausalLogs;
+		this.deltaPiggybackIntervalMicros = deltaPiggybackIntervalMicros;
+		this.deltaPiggybackMaxBytes = deltaPiggybackMaxBytes;
+		this.ioManager = ioManager;
+		this.determinantSpillThreshold = determinantSpillThreshold;
 	}
 
-	public JobCausalLog buildJobCausalLog(int determinantSharingDepth) {
+	public JobCausalLog buildJobCausalLog(int determinantSharingDepth, VertexGraphInformation vertexGraphInformation) {
 		BufferPool taskDeterminantBufferPool;
 		try {
 			taskDeterminantBufferPool = determinantNetworkBufferPool.createBufferPool(numDeterminantBuffersPerTask,
@@ -63,6 +80,15 @@ public class JobCausalLogFactory {
 		}
 
 
-		return new JobCausalLogImpl(determinantSharingDepth, taskDeterminantBufferPool, deltaEncodingStrategy, enableDeltaSharingOptimizations);
+		//All tasks of the job on this TaskManager share the encoder, so it must fit the widest task of the job
+		SimpleDeterminantEncoder determinantEncoder = SimpleDeterminantEncoder.forMaxNumberOfInputChannels(
+			vertexGraphInformation.getMaxNumberOfInputChannels(), enableOrderDeterminantRunLengthEncoding);
+		LOG.info("Using determinant encoder with variable length channel indexes: {}",
+			determinantEncoder.isVarIntChannelIndexes());
+
+		return new JobCausalLogImpl(determinantSharingDepth, taskDeterminantBufferPool, deltaEncodingStrategy,
+			enableDeltaSharingOptimizations, determinantEncoder, enableSingleWriterCausalLogs,
+			deltaPiggybackIntervalMicros, deltaPiggybackMaxBytes,
+			ioManager != null ? ioManager.createChannelEnumerator() : null, determinantSpillThreshold);
 	}
 }
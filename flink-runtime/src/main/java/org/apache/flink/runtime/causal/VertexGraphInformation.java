@@ -50,6 +50,7 @@ public class VertexGraphInformation {
 	private final int subtaskIndex;
 	private final JobVertexID jobVertexID;
 	private final JobVertex jobVertex;
+	private final int maxNumberOfInputChannels;
 
 
 	private static final Logger LOG = LoggerFactory.getLogger(VertexGraphInformation.class);
@@ -69,6 +70,7 @@ public class VertexGraphInformation {
 		this.thisTasksVertexID = CausalGraphUtils.computeVertexId(sortedJobVertexes, jobVertexID, subtaskIndex);
 
 		this.distancesToVertex = CausalGraphUtils.computeDistances(sortedJobVertexes, jobVertexID);
+		this.maxNumberOfInputChannels = CausalGraphUtils.computeMaxNumberOfInputChannels(sortedJobVertexes);
 
 		this.upstreamVertexes = _getUpstreamVertexes();
 		this.downstreamVertexes = _getDownstreamVertexes();
@@ -141,4 +143,11 @@ public class VertexGraphInformation {
 	public Map<VertexID, Integer> getDistances() {
 		return distancesToVertex;
 	}
+
+	/**
+	 * The largest number of input channels of any task in the job, used to size the encoding of channel indexes.
+	 */
+	public int getMaxNumberOfInputChannels() {
+		return maxNumberOfInputChannels;
+	}
 }
@@ -33,6 +33,12 @@ public abstract class Determinant {
 	//Output
 	public static final byte BUFFER_BUILT_TAG = 7;
 
+	//Run-length encoded order determinants. Decoded as an OrderDeterminant with a run length larger than one.
+	public static final byte ORDER_RUN_DETERMINANT_TAG = 8;
+
+	//Values of serializable services with a registered TypeSerializer
+	public static final byte TYPED_SERIALIZABLE_DETERMINANT_TAG = 9;
+
 
 	public boolean isOrderDeterminant() {
 		return getClass() == OrderDeterminant.class;
@@ -67,6 +73,14 @@ public abstract class Determinant {
 		return (SerializableDeterminant) this;
 	}
 
+	public boolean isTypedSerializableDeterminant() {
+		return getClass() == TypedSerializableDeterminant.class;
+	}
+
+	public TypedSerializableDeterminant asTypedSerializableDeterminant() {
+		return (TypedSerializableDeterminant) this;
+	}
+
 	public boolean isBufferBuiltDeterminant() {
 		return getClass() == BufferBuiltDeterminant.class;
 	}
@@ -114,6 +128,8 @@ public abstract class Determinant {
 			return RNG_DETERMINANT_TAG;
 		if (this instanceof SerializableDeterminant)
 			return SERIALIZABLE_DETERMINANT_TAG;
+		if (this instanceof TypedSerializableDeterminant)
+			return TYPED_SERIALIZABLE_DETERMINANT_TAG;
 		if (this instanceof TimerTriggerDeterminant)
 			return TIMER_TRIGGER_DETERMINANT;
 		if (this instanceof SourceCheckpointDeterminant)
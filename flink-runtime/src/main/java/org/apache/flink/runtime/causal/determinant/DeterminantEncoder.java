@@ -27,18 +27,44 @@ import org.apache.flink.shaded.netty4.io.netty.buffer.ByteBuf;
  */
 public interface DeterminantEncoder {
 
+	/**
+	 * Whether consecutive order determinants of the same channel should be collapsed into a single run-length
+	 * encoded determinant by the logs using this encoder.
+	 */
+	boolean isOrderRunLengthEncodingEnabled();
+
+	/**
+	 * The number of bytes {@link #encodeTo} writes for the given determinant with this encoding.
+	 */
+	int getEncodedSizeInBytes(Determinant determinant);
+
 	byte[] encode(Determinant determinant);
 
 	void encodeTo(Determinant determinant, ByteBuf targetBuf);
 
 	Determinant decodeNext(ByteBuf buffer);
 
+	/**
+	 * The number of bytes of the next determinant of the buffer, without consuming it.
+	 *
+	 * @return the size, or -1 if the buffer ends before the size is known.
+	 */
+	int getEncodedSizeOfNext(ByteBuf b);
+
+	/**
+	 * Decodes the next determinant, reusing the determinants of the pool. The buffer must hold the whole determinant,
+	 * see {@link #getEncodedSizeOfNext}.
+	 */
     Determinant decodeNext(ByteBuf b, DeterminantPool determinantCache);
 
 	Determinant decodeOrderDeterminant(ByteBuf b);
 
 	Determinant decodeOrderDeterminant(ByteBuf b, OrderDeterminant reuse);
 
+	Determinant decodeOrderRunDeterminant(ByteBuf b);
+
+	Determinant decodeOrderRunDeterminant(ByteBuf b, OrderDeterminant reuse);
+
 	Determinant decodeTimestampDeterminant(ByteBuf b);
 
 	Determinant decodeTimestampDeterminant(ByteBuf b, TimestampDeterminant reuse);
@@ -18,25 +18,55 @@
 package org.apache.flink.runtime.causal.determinant;
 
 
+/**
+ * Records from which input channel the next buffer was consumed.
+ * <p>
+ * An order determinant may also stand for a run of consecutive buffers consumed from the same channel. Runs are
+ * encoded with the {@link Determinant#ORDER_RUN_DETERMINANT_TAG} and expanded again on replay.
+ */
 public final class OrderDeterminant extends Determinant {
 
-	private byte channel;
+	// The largest run that fits in the unsigned short count of a run-length encoded order determinant
+	public static final int MAX_RUN_LENGTH = 0xFFFF;
+
+	private int channel;
+
+	// The number of consecutive buffers consumed from channel
+	private int runLength;
 
 	public OrderDeterminant() {
+		this.runLength = 1;
+	}
 
+	public OrderDeterminant(int channel) {
+		this(channel, 1);
 	}
 
-	public OrderDeterminant(byte channel) {
+	public OrderDeterminant(int channel, int runLength) {
 		this.channel = channel;
+		this.runLength = runLength;
 	}
 
 
-	public byte getChannel() {
+	public int getChannel() {
 		return channel;
 	}
 
-	public OrderDeterminant replace(byte channel) {
+	public int getRunLength() {
+		return runLength;
+	}
+
+	public boolean isRun() {
+		return runLength > 1;
+	}
+
+	public OrderDeterminant replace(int channel) {
+		return replace(channel, 1);
+	}
+
+	public OrderDeterminant replace(int channel, int runLength) {
 		this.channel = channel;
+		this.runLength = runLength;
 		return this;
 	}
 
@@ -44,12 +74,18 @@ public final class OrderDeterminant extends Determinant {
 	public String toString() {
 		return "OrderDeterminant{" +
 			"channel=" + channel +
+			", runLength=" + runLength +
 			'}';
 	}
 
+	/**
+	 * The size of this determinant when channels are encoded in a single byte. The actual size depends on the channel
+	 * index width chosen by the encoder, see {@link DeterminantEncoder#getEncodedSizeInBytes(Determinant)}.
+	 */
 	@Override
 	public int getEncodedSizeInBytes() {
-		return super.getEncodedSizeInBytes() + Byte.BYTES;
+		// tag (1), channel (1), run length (2) only if this is a run
+		return super.getEncodedSizeInBytes() + Byte.BYTES + (isRun() ? Short.BYTES : 0);
 	}
 
 	public static byte getTypeTag() {
@@ -65,7 +65,8 @@ public class SerializableDeterminant extends Determinant {
 
 	@Override
 	public int getEncodedSizeInBytes() {
-		return super.getEncodedSizeInBytes() + getEncodedSizeInBytesFromSerialization();
+		// tag (1), length (4), serialized object (X)
+		return super.getEncodedSizeInBytes() + Integer.BYTES + getEncodedSizeInBytesFromSerialization();
 	}
 
 	private int getEncodedSizeInBytesFromSerialization() {
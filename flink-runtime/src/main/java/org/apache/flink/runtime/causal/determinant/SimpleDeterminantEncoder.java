@@ -31,6 +31,53 @@ import java.io.ObjectOutputStream;
 
 public class SimpleDeterminantEncoder implements DeterminantEncoder {
 
+	// The largest number of input channels whose indexes fit in a single unsigned byte
+	public static final int MAX_SINGLE_BYTE_CHANNELS = 256;
+
+	private final boolean orderRunLengthEncodingEnabled;
+
+	// If channel indexes of order determinants are written as variable length integers instead of a single byte
+	private final boolean varIntChannelIndexes;
+
+	public SimpleDeterminantEncoder() {
+		this(false, false);
+	}
+
+	public SimpleDeterminantEncoder(boolean orderRunLengthEncodingEnabled, boolean varIntChannelIndexes) {
+		this.orderRunLengthEncodingEnabled = orderRunLengthEncodingEnabled;
+		this.varIntChannelIndexes = varIntChannelIndexes;
+	}
+
+	/**
+	 * Builds an encoder using the narrowest channel index width able to represent the input channels of every task
+	 * of the job.
+	 */
+	public static SimpleDeterminantEncoder forMaxNumberOfInputChannels(int maxNumberOfInputChannels,
+																	   boolean orderRunLengthEncodingEnabled) {
+		return new SimpleDeterminantEncoder(orderRunLengthEncodingEnabled,
+			maxNumberOfInputChannels > MAX_SINGLE_BYTE_CHANNELS);
+	}
+
+	@Override
+	public boolean isOrderRunLengthEncodingEnabled() {
+		return orderRunLengthEncodingEnabled;
+	}
+
+	public boolean isVarIntChannelIndexes() {
+		return varIntChannelIndexes;
+	}
+
+	@Override
+	public int getEncodedSizeInBytes(Determinant determinant) {
+		if (determinant.isOrderDeterminant() && varIntChannelIndexes) {
+			OrderDeterminant orderDeterminant = determinant.asOrderDeterminant();
+			// tag (1), channel (1-5), run length (2) only if this is a run
+			return Byte.BYTES + varIntSize(orderDeterminant.getChannel()) +
+				(orderDeterminant.isRun() ? Short.BYTES : 0);
+		}
+		return determinant.getEncodedSizeInBytes();
+	}
+
 	@Override
 	public byte[] encode(Determinant determinant) {
 		if (determinant.isOrderDeterminant())
@@ -41,6 +88,8 @@ public class SimpleDeterminantEncoder implements DeterminantEncoder {
 			return encodeRNGDeterminant(determinant.asRNGDeterminant());
 		if (determinant.isSerializableDeterminant())
 			return encodeSerializableDeterminant(determinant.asSerializableDeterminant());
+		if (determinant.isTypedSerializableDeterminant())
+			return encodeTypedSerializableDeterminant(determinant.asTypedSerializableDeterminant());
 		if (determinant.isBufferBuiltDeterminant())
 			return encodeBufferBuiltDeterminant(determinant.asBufferBuiltDeterminant());
 		if (determinant.isTimerTriggerDeterminant())
@@ -62,6 +111,8 @@ public class SimpleDeterminantEncoder implements DeterminantEncoder {
 			encodeRNGDeterminant(determinant.asRNGDeterminant(), targetBuf);
 		else if (determinant.isSerializableDeterminant())
 			encodeSerializableDeterminant(determinant.asSerializableDeterminant(), targetBuf);
+		else if (determinant.isTypedSerializableDeterminant())
+			encodeTypedSerializableDeterminant(determinant.asTypedSerializableDeterminant(), targetBuf);
 		else if (determinant.isBufferBuiltDeterminant())
 			encodeBufferBuiltDeterminant(determinant.asBufferBuiltDeterminant(), targetBuf);
 		else if (determinant.isTimerTriggerDeterminant())
@@ -82,9 +133,11 @@ public class SimpleDeterminantEncoder implements DeterminantEncoder {
 			return null;
 		byte tag = b.readByte();
 		if (tag == Determinant.ORDER_DETERMINANT_TAG) return decodeOrderDeterminant(b);
+		if (tag == Determinant.ORDER_RUN_DETERMINANT_TAG) return decodeOrderRunDeterminant(b);
 		if (tag == Determinant.TIMESTAMP_DETERMINANT_TAG) return decodeTimestampDeterminant(b);
 		if (tag == Determinant.RNG_DETERMINANT_TAG) return decodeRNGDeterminant(b);
 		if (tag == Determinant.SERIALIZABLE_DETERMINANT_TAG) return decodeSerializableDeterminant(b);
+		if (tag == Determinant.TYPED_SERIALIZABLE_DETERMINANT_TAG) return decodeTypedSerializableDeterminant(b);
 		if (tag == Determinant.BUFFER_BUILT_TAG) return decodeBufferBuiltDeterminant(b);
 		if (tag == Determinant.TIMER_TRIGGER_DETERMINANT) return decodeTimerTriggerDeterminant(b);
 		if (tag == Determinant.SOURCE_CHECKPOINT_DETERMINANT) return decodeSourceCheckpointDeterminant(b);
@@ -101,9 +154,11 @@ public class SimpleDeterminantEncoder implements DeterminantEncoder {
 			return null;
 		byte tag = b.readByte();
 		if (tag == Determinant.ORDER_DETERMINANT_TAG) return decodeOrderDeterminant(b, determinantCache.getOrderDeterminant());
+		if (tag == Determinant.ORDER_RUN_DETERMINANT_TAG) return decodeOrderRunDeterminant(b, determinantCache.getOrderDeterminant());
 		if (tag == Determinant.TIMESTAMP_DETERMINANT_TAG) return decodeTimestampDeterminant(b, determinantCache.getTimestampDeterminant());
 		if (tag == Determinant.RNG_DETERMINANT_TAG) return decodeRNGDeterminant(b, determinantCache.getRNGDeterminant());
 		if (tag == Determinant.SERIALIZABLE_DETERMINANT_TAG) return decodeSerializableDeterminant(b, determinantCache.getSerializableDeterminant());
+		if (tag == Determinant.TYPED_SERIALIZABLE_DETERMINANT_TAG) return decodeTypedSerializableDeterminant(b, determinantCache.getTypedSerializableDeterminant());
 		if (tag == Determinant.BUFFER_BUILT_TAG) return decodeBufferBuiltDeterminant(b, determinantCache.getBufferBuiltDeterminant());
 		if (tag == Determinant.TIMER_TRIGGER_DETERMINANT) return decodeTimerTriggerDeterminant(b, determinantCache.getTimerTriggerDeterminant());
 		if (tag == Determinant.SOURCE_CHECKPOINT_DETERMINANT) return decodeSourceCheckpointDeterminant(b, determinantCache.getSourceCheckpointDeterminant());
@@ -112,22 +167,115 @@ public class SimpleDeterminantEncoder implements DeterminantEncoder {
 	}
 
 
+	@Override
+	public int getEncodedSizeOfNext(ByteBuf b) {
+		int start = b.readerIndex();
+		int end = b.writerIndex();
+		if (start == end)
+			return -1;
+		byte tag = b.getByte(start);
+		if (tag == Determinant.ORDER_DETERMINANT_TAG || tag == Determinant.ORDER_RUN_DETERMINANT_TAG) {
+			int channelSize = getChannelIndexSize(b, start + 1);
+			if (channelSize < 0)
+				return -1;
+			return Byte.BYTES + channelSize + (tag == Determinant.ORDER_RUN_DETERMINANT_TAG ? Short.BYTES : 0);
+		}
+		if (tag == Determinant.TIMESTAMP_DETERMINANT_TAG)
+			return Byte.BYTES + Long.BYTES;
+		if (tag == Determinant.RNG_DETERMINANT_TAG || tag == Determinant.BUFFER_BUILT_TAG)
+			return Byte.BYTES + Integer.BYTES;
+		if (tag == Determinant.IGNORE_CHECKPOINT_DETERMINANT)
+			return Byte.BYTES + Integer.BYTES + Long.BYTES;
+		if (tag == Determinant.SERIALIZABLE_DETERMINANT_TAG) {
+			// tag (1), length (4), serialized object (X)
+			int header = Byte.BYTES + Integer.BYTES;
+			return end - start < header ? -1 : header + b.getInt(start + 1);
+		}
+		if (tag == Determinant.TYPED_SERIALIZABLE_DETERMINANT_TAG) {
+			int serviceIDSize = getVarIntSize(b, start + 1);
+			if (serviceIDSize < 0)
+				return -1;
+			int lengthIndex = start + 1 + serviceIDSize;
+			int lengthSize = getVarIntSize(b, lengthIndex);
+			if (lengthSize < 0)
+				return -1;
+			return Byte.BYTES + serviceIDSize + lengthSize + getVarInt(b, lengthIndex);
+		}
+		if (tag == Determinant.TIMER_TRIGGER_DETERMINANT) {
+			// tag (1), record count (4), timestamp (8), type ordinal (1), name length (4) and name (X) if internal
+			int header = Byte.BYTES + Integer.BYTES + Long.BYTES + Byte.BYTES;
+			if (end - start < header)
+				return -1;
+			if (ProcessingTimeCallbackID.Type.values()[b.getByte(start + header - 1)] !=
+				ProcessingTimeCallbackID.Type.INTERNAL)
+				return header;
+			return end - start < header + Integer.BYTES ? -1 : header + Integer.BYTES + b.getInt(start + header);
+		}
+		if (tag == Determinant.SOURCE_CHECKPOINT_DETERMINANT) {
+			// tag (1), rec count (4), checkpoint (8), ts (8), type ordinal (1), has ref? (1), ref length (4), ref (X)
+			int header = Byte.BYTES + Integer.BYTES + Long.BYTES + Long.BYTES + Byte.BYTES + Byte.BYTES;
+			if (end - start < header)
+				return -1;
+			if (b.getByte(start + header - 1) == 0)
+				return header;
+			return end - start < header + Integer.BYTES ? -1 : header + Integer.BYTES + b.getInt(start + header);
+		}
+		throw new CorruptDeterminantArrayException(tag);
+	}
+
+	private int getChannelIndexSize(ByteBuf b, int index) {
+		if (varIntChannelIndexes)
+			return getVarIntSize(b, index);
+		return index < b.writerIndex() ? Byte.BYTES : -1;
+	}
+
 	@Override
 	public Determinant decodeOrderDeterminant(ByteBuf b) {
 		return decodeOrderDeterminant(b, new OrderDeterminant());
 	}
 	@Override
 	public Determinant decodeOrderDeterminant(ByteBuf b, OrderDeterminant reuse) {
-		return reuse.replace(b.readByte());
+		return reuse.replace(readChannelIndex(b));
+	}
+
+	@Override
+	public Determinant decodeOrderRunDeterminant(ByteBuf b) {
+		return decodeOrderRunDeterminant(b, new OrderDeterminant());
+	}
+
+	@Override
+	public Determinant decodeOrderRunDeterminant(ByteBuf b, OrderDeterminant reuse) {
+		int channel = readChannelIndex(b);
+		int runLength = b.readUnsignedShort();
+		return reuse.replace(channel, runLength);
 	}
 
 	private void encodeOrderDeterminant(OrderDeterminant orderDeterminant, ByteBuf buf) {
-		buf.writeByte(Determinant.ORDER_DETERMINANT_TAG);
-		buf.writeByte(orderDeterminant.getChannel());
+		if (orderDeterminant.isRun()) {
+			buf.writeByte(Determinant.ORDER_RUN_DETERMINANT_TAG);
+			writeChannelIndex(orderDeterminant.getChannel(), buf);
+			buf.writeShort(orderDeterminant.getRunLength());
+		} else {
+			buf.writeByte(Determinant.ORDER_DETERMINANT_TAG);
+			writeChannelIndex(orderDeterminant.getChannel(), buf);
+		}
+	}
+
+	private void writeChannelIndex(int channel, ByteBuf buf) {
+		if (varIntChannelIndexes)
+			writeVarInt(channel, buf);
+		else
+			buf.writeByte(channel);
+	}
+
+	private int readChannelIndex(ByteBuf b) {
+		if (varIntChannelIndexes)
+			return readVarInt(b);
+		return b.readUnsignedByte();
 	}
 
 	private byte[] encodeOrderDeterminant(OrderDeterminant orderDeterminant) {
-		byte[] bytes = new byte[orderDeterminant.getEncodedSizeInBytes()];
+		byte[] bytes = new byte[getEncodedSizeInBytes(orderDeterminant)];
 		ByteBuf buf = Unpooled.wrappedBuffer(bytes);
 		encodeOrderDeterminant(orderDeterminant, buf);
 		return bytes;
@@ -314,16 +462,22 @@ public class SimpleDeterminantEncoder implements DeterminantEncoder {
 	}
 
 	private void encodeSerializableDeterminant(SerializableDeterminant serializableDeterminant, ByteBuf buf) {
+		buf.writeByte(Determinant.SERIALIZABLE_DETERMINANT_TAG);
+		int lengthIndex = buf.writerIndex();
+		buf.writeInt(0);
 		try {
-			buf.writeByte(Determinant.SERIALIZABLE_DETERMINANT_TAG);
-			ByteBufOutputStream bbos = new ByteBufOutputStream(buf);
-			ObjectOutputStream oos = new ObjectOutputStream(bbos);
+			ObjectOutputStream oos = new ObjectOutputStream(new ByteBufOutputStream(buf));
 			oos.writeObject(serializableDeterminant.getDeterminant());
-		}catch (Exception e){e.printStackTrace();}
+			oos.flush();
+		} catch (IOException e) {
+			throw new IllegalStateException("Could not serialize determinant " + serializableDeterminant, e);
+		}
+		buf.setInt(lengthIndex, buf.writerIndex() - lengthIndex - Integer.BYTES);
 	}
 	private byte[] encodeSerializableDeterminant(SerializableDeterminant serializableDeterminant) {
 		byte[] bytes = new byte[serializableDeterminant.getEncodedSizeInBytes()];
 		ByteBuf buf = Unpooled.wrappedBuffer(bytes);
+		buf.writerIndex(0);
 		encodeSerializableDeterminant(serializableDeterminant, buf);
 		return bytes;
 	}
@@ -331,12 +485,94 @@ public class SimpleDeterminantEncoder implements DeterminantEncoder {
 		return decodeSerializableDeterminant(b, new SerializableDeterminant());
 	}
 	private Determinant decodeSerializableDeterminant(ByteBuf b, SerializableDeterminant reuse) {
-
+		int length = b.readInt();
 		try {
-			ByteBufInputStream bbis = new ByteBufInputStream(b);
-			ObjectInputStream ois = new ObjectInputStream(bbis);
+			ObjectInputStream ois = new ObjectInputStream(new ByteBufInputStream(b.readSlice(length)));
 			reuse.replace(ois.readObject());
-		}catch (Exception e) {e.printStackTrace();}
+		} catch (IOException | ClassNotFoundException e) {
+			throw new IllegalStateException("Could not deserialize a serializable determinant", e);
+		}
+		return reuse;
+	}
+
+	private void encodeTypedSerializableDeterminant(TypedSerializableDeterminant determinant, ByteBuf buf) {
+		buf.writeByte(Determinant.TYPED_SERIALIZABLE_DETERMINANT_TAG);
+		writeVarInt(determinant.getServiceID(), buf);
+		writeVarInt(determinant.getLength(), buf);
+		buf.writeBytes(determinant.getSerializedValue(), 0, determinant.getLength());
+	}
+
+	private byte[] encodeTypedSerializableDeterminant(TypedSerializableDeterminant determinant) {
+		byte[] bytes = new byte[determinant.getEncodedSizeInBytes()];
+		ByteBuf buf = Unpooled.wrappedBuffer(bytes);
+		buf.writerIndex(0);
+		encodeTypedSerializableDeterminant(determinant, buf);
+		return bytes;
+	}
+
+	private Determinant decodeTypedSerializableDeterminant(ByteBuf b) {
+		return decodeTypedSerializableDeterminant(b, new TypedSerializableDeterminant());
+	}
+
+	private Determinant decodeTypedSerializableDeterminant(ByteBuf b, TypedSerializableDeterminant reuse) {
+		int serviceID = readVarInt(b);
+		int length = readVarInt(b);
+		b.readBytes(reuse.replaceForDecoding(serviceID, length), 0, length);
 		return reuse;
 	}
+
+	/**
+	 * Writes a non-negative integer using 7 bits per byte, with the high bit signalling that more bytes follow.
+	 */
+	static void writeVarInt(int value, ByteBuf buf) {
+		while ((value & ~0x7F) != 0) {
+			buf.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		buf.writeByte(value);
+	}
+
+	static int readVarInt(ByteBuf buf) {
+		int value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = buf.readByte();
+			value |= (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return value;
+	}
+
+	static int getVarInt(ByteBuf buf, int index) {
+		int value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = buf.getByte(index++);
+			value |= (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return value;
+	}
+
+	/**
+	 * The number of bytes of the variable length integer at the given index, or -1 if the buffer ends within it.
+	 */
+	static int getVarIntSize(ByteBuf buf, int index) {
+		for (int i = index; i < buf.writerIndex(); i++) {
+			if ((buf.getByte(i) & 0x80) == 0)
+				return i - index + 1;
+		}
+		return -1;
+	}
+
+	static int varIntSize(int value) {
+		int size = 1;
+		while ((value & ~0x7F) != 0) {
+			value >>>= 7;
+			size++;
+		}
+		return size;
+	}
 }
@@ -0,0 +1,99 @@
+/*
+ *
+ *
+ *
+ *  * Licensed to the Apache Software Foundation (ASF) under one
+ *  * or more contributor license agreements.  See the NOTICE file
+ *  * distributed with this work for additional information
+ *  * regarding copyright ownership.  The ASF licenses this file
+ *  * to you under the Apache License, Version 2.0 (the
+ *  * "License"); you may not use this file except in compliance
+ *  * with the License.  You may obtain a copy of the License at
+ *  *
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ *
+ *
+ *
+ */
+package org.apache.flink.runtime.causal.determinant;
+
+import java.util.Arrays;
+
+/**
+ * A determinant holding a value which was serialized by the {@link org.apache.flink.api.common.typeutils.TypeSerializer}
+ * registered for the service which recorded it. Unlike {@link SerializableDeterminant}, the value is serialized only
+ * once and the entry only carries a small header: the service ID and the length of the serialized value.
+ */
+public class TypedSerializableDeterminant extends Determinant {
+
+	// The ID with which the recording service registered its serializer
+	private int serviceID;
+
+	private byte[] serializedValue;
+
+	private int length;
+
+	// Holds the serialized value of decoded determinants, so it may be reused between decodes
+	private byte[] decodeBuffer;
+
+	public TypedSerializableDeterminant() {
+		this.decodeBuffer = new byte[0];
+	}
+
+	/**
+	 * Replaces the contents of this determinant. The serialized value is not copied, so it must not be modified until
+	 * the determinant is encoded.
+	 */
+	public TypedSerializableDeterminant replace(int serviceID, byte[] serializedValue, int length) {
+		this.serviceID = serviceID;
+		this.serializedValue = serializedValue;
+		this.length = length;
+		return this;
+	}
+
+	/**
+	 * Prepares this determinant for decoding a value of the given length, returning the array to decode it into.
+	 */
+	byte[] replaceForDecoding(int serviceID, int length) {
+		if (decodeBuffer.length < length)
+			decodeBuffer = new byte[length];
+		return replace(serviceID, decodeBuffer, length).serializedValue;
+	}
+
+	public int getServiceID() {
+		return serviceID;
+	}
+
+	public byte[] getSerializedValue() {
+		return serializedValue;
+	}
+
+	public int getLength() {
+		return length;
+	}
+
+	@Override
+	public String toString() {
+		return "TypedSerializableDeterminant{" +
+			"serviceID=" + serviceID +
+			", serializedValue=" + Arrays.toString(Arrays.copyOf(serializedValue, length)) +
+			'}';
+	}
+
+	@Override
+	public int getEncodedSizeInBytes() {
+		return super.getEncodedSizeInBytes() + SimpleDeterminantEncoder.varIntSize(serviceID) +
+			SimpleDeterminantEncoder.varIntSize(length) + length;
+	}
+
+	public static byte getTypeTag() {
+		return TYPED_SERIALIZABLE_DETERMINANT_TAG;
+	}
+}
@@ -27,11 +27,14 @@ package org.apache.flink.runtime.causal.log;
 
 
 import org.apache.flink.api.common.JobID;
+import org.apache.flink.metrics.Gauge;
+import org.apache.flink.metrics.MetricGroup;
 import org.apache.flink.runtime.causal.JobCausalLogFactory;
 import org.apache.flink.runtime.causal.VertexGraphInformation;
 import org.apache.flink.runtime.causal.log.job.CausalLogID;
 import org.apache.flink.runtime.causal.log.job.JobCausalLog;
 import org.apache.flink.runtime.causal.log.job.serde.DeltaEncodingStrategy;
+import org.apache.flink.runtime.io.disk.iomanager.IOManager;
 import org.apache.flink.runtime.io.network.api.writer.ResultPartitionWriter;
 import org.apache.flink.runtime.io.network.buffer.NetworkBufferPool;
 import org.apache.flink.runtime.io.network.partition.consumer.InputChannelID;
@@ -68,10 +71,18 @@ public class CausalLogManager {
 
 	private final JobCausalLogFactory jobCausalLogFactory;
 
+	// The group under which the determinant memory of each job is reported, null until registered
+	private volatile MetricGroup metricGroup;
+
 	public CausalLogManager(NetworkBufferPool determinantBufferPool, int numDeterminantBuffersPerTask,
-							DeltaEncodingStrategy deltaEncodingStrategy, boolean enableDeltaSharingOptimizations) {
+							DeltaEncodingStrategy deltaEncodingStrategy, boolean enableDeltaSharingOptimizations,
+							boolean enableOrderDeterminantRunLengthEncoding, boolean enableSingleWriterCausalLogs,
+							long deltaPiggybackIntervalMicros, long deltaPiggybackMaxBytes, IOManager ioManager,
+							float determinantSpillThreshold) {
 		this.jobCausalLogFactory = new JobCausalLogFactory(determinantBufferPool, numDeterminantBuffersPerTask,
-			deltaEncodingStrategy, enableDeltaSharingOptimizations);
+			deltaEncodingStrategy, enableDeltaSharingOptimizations, enableOrderDeterminantRunLengthEncoding,
+			enableSingleWriterCausalLogs, deltaPiggybackIntervalMicros, deltaPiggybackMaxBytes, ioManager,
+			determinantSpillThreshold);
 
 		this.jobIDToManagerMap = new ConcurrentHashMap<>();
 		this.outputChannelIDToCausalLog = new ConcurrentHashMap<>();
@@ -85,7 +96,10 @@ public class CausalLogManager {
 		LOG.info("Registering task {} for JobID {} with determinant sharing depth {}.", vertexGraphInformation.getThisTasksVertexID(), jobID, determinantSharingDepth);
 		synchronized (jobIDToManagerMap) {
 			if(!jobIDToManagerMap.containsKey(jobID)) {
-				jobIDToManagerMap.put(jobID, jobCausalLogFactory.buildJobCausalLog(determinantSharingDepth));
+				JobCausalLog jobCausalLog = jobCausalLogFactory.buildJobCausalLog(determinantSharingDepth,
+					vertexGraphInformation);
+				jobIDToManagerMap.put(jobID, jobCausalLog);
+				registerJobMetrics(jobID, jobCausalLog);
 			}
 			causalLog = jobIDToManagerMap.get(jobID);
 			jobIDToManagerMap.notifyAll();
@@ -130,6 +144,29 @@ public class CausalLogManager {
 	}
 
 
+	/**
+	 * Registers the determinant memory and spilled determinants of the jobs whose causal logs are created from now on.
+	 */
+	public void registerMetrics(MetricGroup metricGroup) {
+		this.metricGroup = metricGroup;
+	}
+
+	private void registerJobMetrics(JobID jobID, JobCausalLog jobCausalLog) {
+		MetricGroup metricGroup = this.metricGroup;
+		if (metricGroup == null)
+			return;
+		MetricGroup jobMetricGroup = metricGroup.addGroup("job", jobID.toString());
+		jobMetricGroup.<Long, Gauge<Long>>gauge("DeterminantMemory", jobCausalLog::getDeterminantMemoryInBytes);
+		jobMetricGroup.<Long, Gauge<Long>>gauge("SpilledDeterminants", jobCausalLog::getSpilledDeterminantBytes);
+	}
+
+	/**
+	 * Returns the causal log of the given job, or null if no task of it was registered on this TaskManager.
+	 */
+	public JobCausalLog getJobCausalLog(JobID jobID) {
+		return jobIDToManagerMap.get(jobID);
+	}
+
 	public void unregisterTask(JobID jobID, JobVertexID jobVertexId) {
 		//JobCausalLog jobCausalLog = waitForCausalLogRegistration(jobIDToManagerMap, jobID);
 
@@ -139,14 +176,14 @@ public class CausalLogManager {
 	}
 
 	public ByteBuf enrichWithCausalLogDeltas(ByteBuf serialized, InputChannelID outputChannelID, long epochID,
-											 ByteBufAllocator alloc) {
+											 boolean forceFlush, ByteBufAllocator alloc) {
 		if (LOG.isDebugEnabled())
 			LOG.debug("Get next determinants for channel {}", outputChannelID);
 		JobCausalLog log = outputChannelIDToCausalLog.get(outputChannelID);
 		if (log == null)
 			log = waitForCausalLogRegistration(outputChannelIDToCausalLog, outputChannelID);
 
-		serialized = log.enrichWithCausalLogDelta(serialized, outputChannelID, epochID, alloc);
+		serialized = log.enrichWithCausalLogDelta(serialized, outputChannelID, epochID, forceFlush, alloc);
 		return serialized;
 	}
 
@@ -41,7 +41,7 @@ public class CausalLogID implements IOReadableWritable {
 	private boolean isMainThread;
 	private long intermediateDataSetUpper;
 	private long intermediateDataSetLower;
-	private byte subpartitionIndex;
+	private short subpartitionIndex;
 
 	public CausalLogID(CausalLogID other) {
 		this.vertexID = other.vertexID;
@@ -57,7 +57,7 @@ public class CausalLogID implements IOReadableWritable {
 	}
 
 	public CausalLogID(short vertexID, long intermediateDataSetLower, long intermediateDataSetUpper,
-					   byte subpartitionIndex) {
+					   short subpartitionIndex) {
 		this.vertexID = vertexID;
 		this.isMainThread = false;
 		this.intermediateDataSetLower = intermediateDataSetLower;
@@ -81,7 +81,7 @@ public class CausalLogID implements IOReadableWritable {
 		return intermediateDataSetLower;
 	}
 
-	public byte getSubpartitionIndex() {
+	public short getSubpartitionIndex() {
 		return subpartitionIndex;
 	}
 
@@ -97,7 +97,7 @@ public class CausalLogID implements IOReadableWritable {
 		return this.intermediateDataSetLower == lower && this.intermediateDataSetUpper == upper;
 	}
 
-	public boolean isForSubpartition(byte index) {
+	public boolean isForSubpartition(short index) {
 		return this.subpartitionIndex == index;
 	}
 
@@ -108,7 +108,7 @@ public class CausalLogID implements IOReadableWritable {
 	}
 
 	public CausalLogID replace(short vertexID, long intermediateDataSetLower, long intermediateDataSetUpper,
-							   byte subpartitionIndex) {
+							   short subpartitionIndex) {
 		this.vertexID = vertexID;
 		this.isMainThread = false;
 		this.intermediateDataSetLower = intermediateDataSetLower;
@@ -117,7 +117,7 @@ public class CausalLogID implements IOReadableWritable {
 		return this;
 	}
 
-	public CausalLogID replace(long intermediateDataSetLower, long intermediateDataSetUpper, byte subpartitionIndex) {
+	public CausalLogID replace(long intermediateDataSetLower, long intermediateDataSetUpper, short subpartitionIndex) {
 		this.isMainThread = false;
 		this.intermediateDataSetLower = intermediateDataSetLower;
 		this.intermediateDataSetUpper = intermediateDataSetUpper;
@@ -170,7 +170,7 @@ public class CausalLogID implements IOReadableWritable {
 			return;
 		out.writeLong(intermediateDataSetLower);
 		out.writeLong(intermediateDataSetUpper);
-		out.writeByte(subpartitionIndex);
+		out.writeShort(subpartitionIndex);
 
 	}
 
@@ -182,7 +182,7 @@ public class CausalLogID implements IOReadableWritable {
 			return;
 		this.intermediateDataSetLower = in.readLong();
 		this.intermediateDataSetUpper = in.readLong();
-		this.subpartitionIndex = in.readByte();
+		this.subpartitionIndex = in.readShort();
 	}
 
 	@Override
@@ -56,7 +56,7 @@ public interface JobCausalLog extends CheckpointListener {
 	void processCausalLogDelta(ByteBuf msg);
 
 	ByteBuf enrichWithCausalLogDelta(ByteBuf serialized, InputChannelID inputChannelID, long epochID,
-									 ByteBufAllocator alloc);
+									 boolean forceFlush, ByteBufAllocator alloc);
 
 	DeterminantResponseEvent respondToDeterminantRequest(DeterminantRequestEvent e);
 
@@ -68,6 +68,21 @@ public interface JobCausalLog extends CheckpointListener {
 	//================ Safety check metrics==================================================
 	int threadLogLength(CausalLogID causalLogID);
 
+	/**
+	 * The length in bytes of all thread causal logs, local and upstream, which were not truncated yet.
+	 */
+	long totalLogLength();
+
+	/**
+	 * The bytes of memory held by the thread causal logs of the job on this TaskManager.
+	 */
+	long getDeterminantMemoryInBytes();
+
+	/**
+	 * The bytes of the thread causal logs of the job which are spilled to disk and were not truncated yet.
+	 */
+	long getSpilledDeterminantBytes();
+
 	boolean unregisterTask(JobVertexID jobVertexId);
 
 	//============== Getters ======================================
@@ -29,7 +29,6 @@ import org.apache.flink.runtime.causal.DeterminantResponseEvent;
 import org.apache.flink.runtime.causal.VertexGraphInformation;
 import org.apache.flink.runtime.causal.VertexID;
 import org.apache.flink.runtime.causal.determinant.DeterminantEncoder;
-import org.apache.flink.runtime.causal.determinant.SimpleDeterminantEncoder;
 import org.apache.flink.runtime.causal.log.job.hierarchy.PartitionCausalLogs;
 import org.apache.flink.runtime.causal.log.job.hierarchy.VertexCausalLogs;
 import org.apache.flink.runtime.causal.log.job.serde.DeltaEncodingStrategy;
@@ -37,7 +36,9 @@ import org.apache.flink.runtime.causal.log.job.serde.DeltaSerializerDeserializer
 import org.apache.flink.runtime.causal.log.job.serde.FlatDeltaSerializerDeserializer;
 import org.apache.flink.runtime.causal.log.job.serde.GroupingDeltaSerializerDeserializer;
 import org.apache.flink.runtime.causal.log.thread.ThreadCausalLog;
+import org.apache.flink.runtime.causal.log.thread.SingleWriterThreadCausalLog;
 import org.apache.flink.runtime.causal.log.thread.ThreadCausalLogImpl;
+import org.apache.flink.runtime.io.disk.iomanager.FileIOChannel;
 import org.apache.flink.runtime.io.network.api.DeterminantRequestEvent;
 import org.apache.flink.runtime.io.network.api.writer.ResultPartitionWriter;
 import org.apache.flink.runtime.io.network.buffer.BufferPool;
@@ -91,12 +92,19 @@ public class JobCausalLogImpl implements JobCausalLog {
 
 	private final AtomicLong latestCompletedCheckpoint;
 
-	private final BufferAvailabilityLogger logger;
+	private final DeterminantMemoryMonitor memoryMonitor;
+
+	// Whether the subpartition logs use the lock-free single writer append path
+	private final boolean enableSingleWriterCausalLogs;
 
 	public JobCausalLogImpl(int determinantSharingDepth, BufferPool bufferPool,
-							DeltaEncodingStrategy deltaEncodingStrategy, boolean enableDeltaSharingOptimizations) {
+							DeltaEncodingStrategy deltaEncodingStrategy, boolean enableDeltaSharingOptimizations,
+							DeterminantEncoder determinantEncoder, boolean enableSingleWriterCausalLogs,
+							long deltaPiggybackIntervalMicros, long deltaPiggybackMaxBytes,
+							FileIOChannel.Enumerator spillFileEnumerator, float determinantSpillThreshold) {
 		this.determinantSharingDepth = determinantSharingDepth;
-		this.determinantEncoder = new SimpleDeterminantEncoder();
+		this.determinantEncoder = determinantEncoder;
+		this.enableSingleWriterCausalLogs = enableSingleWriterCausalLogs;
 
 		this.flatThreadCausalLogs = new ConcurrentHashMap<>();
 		this.hierarchicalThreadCausalLogsToBeShared = new ConcurrentHashMap<>();
@@ -109,15 +117,16 @@ public class JobCausalLogImpl implements JobCausalLog {
 		if (deltaEncodingStrategy.equals(DeltaEncodingStrategy.FLAT))
 			this.deltaSerdeStrategy = new FlatDeltaSerializerDeserializer(flatThreadCausalLogs,
 				hierarchicalThreadCausalLogsToBeShared, vertexIDToDistance, localTasks, determinantSharingDepth,
-				bufferPool, enableDeltaSharingOptimizations);
+				bufferPool, enableDeltaSharingOptimizations, deltaPiggybackIntervalMicros, deltaPiggybackMaxBytes);
 		else
 			this.deltaSerdeStrategy = new GroupingDeltaSerializerDeserializer(flatThreadCausalLogs,
 				hierarchicalThreadCausalLogsToBeShared, vertexIDToDistance, localTasks, determinantSharingDepth,
-				bufferPool, enableDeltaSharingOptimizations);
+				bufferPool, enableDeltaSharingOptimizations, deltaPiggybackIntervalMicros, deltaPiggybackMaxBytes);
 		this.latestCompletedCheckpoint = new AtomicLong(0);
 
-		logger = new BufferAvailabilityLogger(bufferPool);
-		Thread t = new Thread(logger);
+		memoryMonitor = new DeterminantMemoryMonitor(bufferPool, flatThreadCausalLogs.values(), spillFileEnumerator,
+			determinantSpillThreshold);
+		Thread t = new Thread(memoryMonitor);
 		t.start();
 	}
 
@@ -155,19 +164,29 @@ public class JobCausalLogImpl implements JobCausalLog {
 					hierarchicalPartitionCausalLogs);
 			}
 
-			//Register the subpartitions
 			for (int i = 0; i < writer.getNumberOfSubpartitions(); i++) {
 				CausalLogID subpartitionCausalLogID = new CausalLogID(vertexID, partitionIDLower,
-					partitionIDUpper, (byte) i);
-				ThreadCausalLog subpartitionThreadCausalLog = new ThreadCausalLogImpl(determinantBufferPool,
-					subpartitionCausalLogID, determinantSharingDepth, determinantEncoder);
+					partitionIDUpper, (short) i);
+				ThreadCausalLog subpartitionThreadCausalLog = createSubpartitionThreadCausalLog(subpartitionCausalLogID);
 				flatThreadCausalLogs.put(subpartitionCausalLogID, subpartitionThreadCausalLog);
 				if (determinantSharingDepth != 0)
-					hierarchicalPartitionCausalLogs.subpartitionLogs.put((byte) i, subpartitionThreadCausalLog);
+					hierarchicalPartitionCausalLogs.subpartitionLogs.put((short) i, subpartitionThreadCausalLog);
 			}
 		}
 	}
 
+	/*
+	 * Subpartition logs are only appended to while holding the subpartition buffers lock, so they have a single
+	 * writer at a time. The main thread log does not, as timers append to it concurrently with the main thread.
+	 */
+	private ThreadCausalLog createSubpartitionThreadCausalLog(CausalLogID causalLogID) {
+		if (enableSingleWriterCausalLogs)
+			return new SingleWriterThreadCausalLog(determinantBufferPool, causalLogID, determinantSharingDepth,
+				determinantEncoder);
+		return new ThreadCausalLogImpl(determinantBufferPool, causalLogID, determinantSharingDepth,
+			determinantEncoder);
+	}
+
 	@Override
 	public ThreadCausalLog getThreadCausalLog(CausalLogID causalLogID) {
 		return flatThreadCausalLogs.get(causalLogID);
@@ -180,8 +199,8 @@ public class JobCausalLogImpl implements JobCausalLog {
 
 	@Override
 	public ByteBuf enrichWithCausalLogDelta(ByteBuf serialized, InputChannelID outputChannelID, long epochID,
-											ByteBufAllocator alloc) {
-		return deltaSerdeStrategy.enrichWithCausalLogDelta(serialized, outputChannelID, epochID, alloc);
+											boolean forceFlush, ByteBufAllocator alloc) {
+		return deltaSerdeStrategy.enrichWithCausalLogDelta(serialized, outputChannelID, epochID, forceFlush, alloc);
 	}
 
 	@Override
@@ -213,6 +232,7 @@ public class JobCausalLogImpl implements JobCausalLog {
 		for(ThreadCausalLog threadCausalLog : flatThreadCausalLogs.values()){
 			threadCausalLog.unregisterConsumer(toCancel);
 		}
+		deltaSerdeStrategy.unregisterDownstreamConsumer(toCancel);
 		//TODO- is anything necessary really?
 	}
 
@@ -250,6 +270,30 @@ public class JobCausalLogImpl implements JobCausalLog {
 		return flatThreadCausalLogs.get(causalLogID).logLength();
 	}
 
+	@Override
+	public long totalLogLength() {
+		long totalLength = 0;
+		for (ThreadCausalLog threadCausalLog : flatThreadCausalLogs.values())
+			totalLength += threadCausalLog.logLength();
+		return totalLength;
+	}
+
+	@Override
+	public long getDeterminantMemoryInBytes() {
+		long memory = 0;
+		for (ThreadCausalLog threadCausalLog : flatThreadCausalLogs.values())
+			memory += threadCausalLog.getMemoryInBytes();
+		return memory;
+	}
+
+	@Override
+	public long getSpilledDeterminantBytes() {
+		long spilled = 0;
+		for (ThreadCausalLog threadCausalLog : flatThreadCausalLogs.values())
+			spilled += threadCausalLog.getSpilledBytes();
+		return spilled;
+	}
+
 	@Override
 	public synchronized boolean unregisterTask(JobVertexID jobVertexId) {
 		boolean noMoreLocalTasks = false;
@@ -257,7 +301,7 @@ public class JobCausalLogImpl implements JobCausalLog {
 			for (ThreadCausalLog threadCausalLog : flatThreadCausalLogs.values()) {
 				threadCausalLog.close();
 			}
-			logger.shutdown();
+			memoryMonitor.shutdown();
 			determinantBufferPool.lazyDestroy();
 			noMoreLocalTasks = true;
 		}
@@ -265,33 +309,70 @@ public class JobCausalLogImpl implements JobCausalLog {
 		return noMoreLocalTasks;
 	}
 
-	static class BufferAvailabilityLogger implements Runnable {
+	/**
+	 * Logs the availability of determinant buffers and, once the logs of the job hold more memory than the spill
+	 * threshold of the job's determinant buffers, spills the older epochs all consumers received. A slow checkpoint
+	 * then does not exhaust the determinant buffers and stall the tasks appending to their logs.
+	 */
+	static class DeterminantMemoryMonitor implements Runnable {
+
+		private static final long CHECK_INTERVAL_MILLIS = 100;
+
+		private static final int CHECKS_PER_LOG = 10;
 
 		private final BufferPool bufferPool;
-		private boolean shutdown;
+		private final Collection<ThreadCausalLog> threadCausalLogs;
+		// Null if determinants are never spilled
+		private final FileIOChannel.Enumerator spillFileEnumerator;
+		private final long spillThresholdBytes;
+		private volatile boolean shutdown;
 		private final float total;
 
-		public BufferAvailabilityLogger(BufferPool bufferPool){
+		public DeterminantMemoryMonitor(BufferPool bufferPool, Collection<ThreadCausalLog> threadCausalLogs,
+										FileIOChannel.Enumerator spillFileEnumerator, float spillThreshold) {
 			this.bufferPool = bufferPool;
+			this.threadCausalLogs = threadCausalLogs;
+			this.spillFileEnumerator = spillFileEnumerator;
 			this.shutdown = false;
 			this.total =  bufferPool.getNumBuffers();
+			this.spillThresholdBytes = (long) (spillThreshold * bufferPool.getNumBuffers() *
+				bufferPool.getMemorySegmentSize());
 		}
 
 		@Override
 		public void run() {
-			while(!shutdown){
+			for (long check = 1; !shutdown; check++) {
 				try {
-					Thread.sleep(1000);
+					Thread.sleep(CHECK_INTERVAL_MILLIS);
 				} catch (InterruptedException e) {
 					e.printStackTrace();
 				}
 				if(!bufferPool.isDestroyed()) {
-					int used = bufferPool.bestEffortGetNumOfUsedBuffers();
-					LOG.info("Determinant availability {} used/{} total={}% used", used, total, used / total * 100);
+					if (check % CHECKS_PER_LOG == 0) {
+						int used = bufferPool.bestEffortGetNumOfUsedBuffers();
+						LOG.info("Determinant availability {} used/{} total={}% used", used, total, used / total * 100);
+					}
+					maybeSpill();
 				}
 			}
 		}
 
+		void maybeSpill() {
+			if (spillFileEnumerator == null)
+				return;
+			long memory = 0;
+			for (ThreadCausalLog threadCausalLog : threadCausalLogs)
+				memory += threadCausalLog.getMemoryInBytes();
+			if (memory < spillThresholdBytes)
+				return;
+
+			long spilled = 0;
+			for (ThreadCausalLog threadCausalLog : threadCausalLogs)
+				spilled += threadCausalLog.spillConsumedEpochs(spillFileEnumerator);
+			LOG.debug("Determinant memory {} bytes exceeds {} bytes, spilled {} bytes.", memory, spillThresholdBytes,
+				spilled);
+		}
+
 		public void shutdown() {
 			this.shutdown = true;
 		}
@@ -35,7 +35,7 @@ import java.util.concurrent.ConcurrentMap;
 public class PartitionCausalLogs {
 	public final IntermediateResultPartitionID intermediateResultPartitionID;
 
-	public ConcurrentMap<Byte, ThreadCausalLog> subpartitionLogs;
+	public ConcurrentMap<Short, ThreadCausalLog> subpartitionLogs;
 
 	public PartitionCausalLogs(IntermediateResultPartitionID intermediateResultPartitionID) {
 		this.intermediateResultPartitionID = intermediateResultPartitionID;
@@ -46,7 +46,7 @@ public class PartitionCausalLogs {
 		return intermediateResultPartitionID;
 	}
 
-	public ConcurrentMap<Byte, ThreadCausalLog> getSubpartitionLogs() {
+	public ConcurrentMap<Short, ThreadCausalLog> getSubpartitionLogs() {
 		return subpartitionLogs;
 	}
 
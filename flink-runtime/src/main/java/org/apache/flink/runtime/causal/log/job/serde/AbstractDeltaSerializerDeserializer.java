@@ -40,12 +40,21 @@ import org.apache.flink.shaded.netty4.io.netty.buffer.CompositeByteBuf;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Sets up the basic serialization metadata used by all strategies.
+ * <p>
+ * The logs of the local vertices are visited for every buffer, as the buffer may depend on their latest
+ * determinants. The logs of upstream vertices are only visited for an output channel once they received a delta
+ * since they were last visited for it, and, if a piggyback interval is configured, at most once per interval unless
+ * enough delta bytes accumulated, the epoch changes or an event (e.g. a checkpoint barrier) is sent.
  */
 public abstract class AbstractDeltaSerializerDeserializer implements DeltaSerializerDeserializer {
 	protected final ConcurrentMap<CausalLogID, ThreadCausalLog> threadCausalLogs;
@@ -68,12 +77,28 @@ public abstract class AbstractDeltaSerializerDeserializer implements DeltaSerial
 
 	protected final boolean enableDeltaSharingOptimizations;
 
+	// Which upstream vertex versions were last visited, per output channel
+	private final ConcurrentMap<InputChannelID, OutputChannelDeltaState> outputChannelDeltaStates;
+
+	// The number of deltas received per upstream vertex, which output channels compare to the one they last visited
+	private final ConcurrentMap<Short, AtomicLong> upstreamDeltaVersions;
+
+	// The bytes of all upstream deltas received
+	private final AtomicLong upstreamDeltaBytes;
+
+	// Upstream deltas are piggybacked at most this often, 0 to piggyback them on every buffer
+	private final long deltaPiggybackIntervalNanos;
+
+	// Pending upstream delta bytes that force piggybacking before the interval elapsed
+	private final long deltaPiggybackMaxBytes;
+
 	public AbstractDeltaSerializerDeserializer(ConcurrentMap<CausalLogID, ThreadCausalLog> threadCausalLogs,
 											   ConcurrentMap<Short, VertexCausalLogs> hierarchicalThreadCausalLogsToBeShared,
 											   Map<Short, Integer> vertexIDToDistance,
 											   ConcurrentMap<JobVertexID, Short> localTasks, int determinantSharingDepth,
 											   BufferPool determinantBufferPool,
-											   boolean enableDeltaSharingOptimizations) {
+											   boolean enableDeltaSharingOptimizations,
+											   long deltaPiggybackIntervalMicros, long deltaPiggybackMaxBytes) {
 		this.threadCausalLogs = threadCausalLogs;
 		this.hierarchicalThreadCausalLogsToBeShared = hierarchicalThreadCausalLogsToBeShared;
 		this.outputChannelSpecificCausalLogs = new HashMap<>();
@@ -82,12 +107,17 @@ public abstract class AbstractDeltaSerializerDeserializer implements DeltaSerial
 		this.localTasks = localTasks;
 		this.determinantSharingDepth = determinantSharingDepth;
 		this.enableDeltaSharingOptimizations = enableDeltaSharingOptimizations;
+		this.outputChannelDeltaStates = new ConcurrentHashMap<>();
+		this.upstreamDeltaVersions = new ConcurrentHashMap<>();
+		this.upstreamDeltaBytes = new AtomicLong();
+		this.deltaPiggybackIntervalNanos = deltaPiggybackIntervalMicros * 1000;
+		this.deltaPiggybackMaxBytes = deltaPiggybackMaxBytes;
 	}
 
 
 	@Override
 	public ByteBuf enrichWithCausalLogDelta(ByteBuf serialized, InputChannelID outputChannelID, long epochID,
-											ByteBufAllocator alloc) {
+											boolean forceFlush, ByteBufAllocator alloc) {
 		if(determinantSharingDepth == 0)
 			return serialized;
 
@@ -98,7 +128,8 @@ public abstract class AbstractDeltaSerializerDeserializer implements DeltaSerial
 		deltaHeader.writeLong(epochID);//Epoch
 
 		// Call the strategy specific serialization routine
-		serializeDataStrategy(outputChannelID, epochID, composite, deltaHeader);
+		serializeDataStrategy(outputChannelID, epochID, composite, deltaHeader,
+			collectVerticesToVisit(outputChannelID, epochID, forceFlush));
 
 		deltaHeader.setInt(0, deltaHeader.readableBytes());
 
@@ -138,6 +169,69 @@ public abstract class AbstractDeltaSerializerDeserializer implements DeltaSerial
 		}
 	}
 
+	private List<VertexCausalLogs> collectVerticesToVisit(InputChannelID outputChannelID, long epochID,
+														  boolean forceFlush) {
+		OutputChannelDeltaState state = getOutputChannelDeltaState(outputChannelID);
+		List<VertexCausalLogs> verticesToVisit = state.verticesToVisit;
+		verticesToVisit.clear();
+
+		for (Short localVertex : localTasks.values()) {
+			VertexCausalLogs v = hierarchicalThreadCausalLogsToBeShared.get(localVertex);
+			if (v != null)
+				verticesToVisit.add(v);
+		}
+
+		long now = deltaPiggybackIntervalNanos > 0 ? System.nanoTime() : 0L;
+		long deltaBytes = upstreamDeltaBytes.get();
+		// Deltas are epoch scoped, so every upstream log may have a delta in the new epoch. A new consumer has not
+		// received anything from any upstream log yet.
+		boolean visitAll = epochID != state.lastEpochID || state.visitAllUpstream;
+		if (visitAll) {
+			state.lastEpochID = epochID;
+			state.visitAllUpstream = false;
+		} else if (!forceFlush && deltaPiggybackIntervalNanos > 0 &&
+			now - state.lastUpstreamFlushNanos < deltaPiggybackIntervalNanos &&
+			deltaBytes - state.visitedUpstreamBytes < deltaPiggybackMaxBytes) {
+			return verticesToVisit;
+		}
+
+		state.lastUpstreamFlushNanos = now;
+		state.visitedUpstreamBytes = deltaBytes;
+		for (Map.Entry<Short, VertexCausalLogs> entry : hierarchicalThreadCausalLogsToBeShared.entrySet()) {
+			Short vertexID = entry.getKey();
+			if (localTasks.containsValue(vertexID))
+				continue;
+			// Read before visiting, so that a delta arriving concurrently is visited the next time
+			AtomicLong version = upstreamDeltaVersions.get(vertexID);
+			long currentVersion = version != null ? version.get() : 0L;
+			Long visitedVersion = state.visitedUpstreamVersions.put(vertexID, currentVersion);
+			if (visitAll || visitedVersion == null || visitedVersion != currentVersion)
+				verticesToVisit.add(entry.getValue());
+		}
+		return verticesToVisit;
+	}
+
+	private OutputChannelDeltaState getOutputChannelDeltaState(InputChannelID outputChannelID) {
+		OutputChannelDeltaState state = outputChannelDeltaStates.get(outputChannelID);
+		if (state == null)
+			state = outputChannelDeltaStates.computeIfAbsent(outputChannelID, k -> new OutputChannelDeltaState());
+		return state;
+	}
+
+	/*
+	 * Only bumps the version of the vertex, which output channels compare lazily when they send, so receiving a
+	 * delta does not depend on the number of output channels.
+	 */
+	private void markUpstreamDelta(short vertexID, int bufferSize) {
+		if (!hierarchicalThreadCausalLogsToBeShared.containsKey(vertexID))
+			return;
+		AtomicLong version = upstreamDeltaVersions.get(vertexID);
+		if (version == null)
+			version = upstreamDeltaVersions.computeIfAbsent(vertexID, k -> new AtomicLong());
+		version.incrementAndGet();
+		upstreamDeltaBytes.addAndGet(bufferSize);
+	}
+
 	protected int processThreadDelta(ByteBuf msg, CausalLogID causalLogID, int deltaIndex, long epochID) {
 
 		if (!threadCausalLogs.containsKey(causalLogID)) {
@@ -158,6 +252,7 @@ public abstract class AbstractDeltaSerializerDeserializer implements DeltaSerial
 			LOG.debug("processThreadDelta: causalLogID: {}, offsetOfConsumer: {}, bufSize: {}", causalLogID,
 			offsetFromEpoch, bufferSize);
 		threadLog.processUpstreamDelta(delta, offsetFromEpoch, epochID);
+		markUpstreamDelta(causalLogID.getVertexID(), bufferSize);
 
 		return bufferSize;
 	}
@@ -210,10 +305,32 @@ public abstract class AbstractDeltaSerializerDeserializer implements DeltaSerial
 	@Override
 	public void registerDownstreamConsumer(InputChannelID outputChannelID, CausalLogID consumedCausalLog) {
 		this.outputChannelSpecificCausalLogs.put(outputChannelID, consumedCausalLog);
+		// A new consumer has not received anything from any upstream log yet
+		getOutputChannelDeltaState(outputChannelID).visitAllUpstream = true;
 	}
 
+	@Override
+	public void unregisterDownstreamConsumer(InputChannelID outputChannelID) {
+		this.outputChannelDeltaStates.remove(outputChannelID);
+	}
+
+	/**
+	 * Serializes the deltas of the given vertices for the output channel.
+	 */
 	protected abstract void serializeDataStrategy(InputChannelID outputChannelID, long epochID,
-												  CompositeByteBuf composite, ByteBuf deltaHeader);
+												  CompositeByteBuf composite, ByteBuf deltaHeader,
+												  List<VertexCausalLogs> verticesToVisit);
 
 	protected abstract int deserializeStrategyStep(ByteBuf msg, CausalLogID causalLogID, int deltaIndex, long epochID);
+
+	private static final class OutputChannelDeltaState {
+		// Set when the consumer is registered, so that the next buffer visits every upstream log
+		private volatile boolean visitAllUpstream = true;
+		// Only accessed by the netty thread serving the channel
+		private final Map<Short, Long> visitedUpstreamVersions = new HashMap<>();
+		private final List<VertexCausalLogs> verticesToVisit = new ArrayList<>();
+		private long visitedUpstreamBytes;
+		private long lastUpstreamFlushNanos;
+		private long lastEpochID = -1;
+	}
 }
@@ -39,11 +39,12 @@ public interface DeltaSerializerDeserializer {
 	 * @param serialized the data buffer to piggyback onto
 	 * @param outputChannelID the output channel to send deltas to. Used for causal log offsets.
 	 * @param epochID the epoch at which the downstream is.
+	 * @param forceFlush whether all pending upstream deltas must be piggybacked, e.g. before a checkpoint barrier.
 	 * @param alloc
 	 * @return the data buffer with piggybacked deltas, ready to be sent.
 	 */
     ByteBuf enrichWithCausalLogDelta(ByteBuf serialized, InputChannelID outputChannelID, long epochID,
-									 ByteBufAllocator alloc);
+									 boolean forceFlush, ByteBufAllocator alloc);
 
 	/**
 	 * Deserializes the piggybacked thread causal deltas.
@@ -55,4 +56,9 @@ public interface DeltaSerializerDeserializer {
 	 * Notifies the Serializer of what causalLogIDs the output channel consumes
 	 */
     void registerDownstreamConsumer(InputChannelID outputChannelID, CausalLogID consumedCausalLog);
+
+	/**
+	 * Notifies the Serializer that the output channel was released.
+	 */
+	void unregisterDownstreamConsumer(InputChannelID outputChannelID);
 }
@@ -47,19 +47,21 @@ public final class FlatDeltaSerializerDeserializer extends AbstractDeltaSerializ
 										   Map<Short, Integer> vertexIDToDistance,
 										   ConcurrentMap<JobVertexID, Short> localVertices,
 										   int determinantSharingDepth,
-										   BufferPool determinantBufferPool, boolean enableDeltaSharingOptimizations) {
+										   BufferPool determinantBufferPool, boolean enableDeltaSharingOptimizations,
+										   long deltaPiggybackIntervalMicros, long deltaPiggybackMaxBytes) {
 		super(threadCausalLogs, hierarchicalThreadCausalLogsToBeShared, vertexIDToDistance, localVertices,
 			determinantSharingDepth,
-			determinantBufferPool, enableDeltaSharingOptimizations);
+			determinantBufferPool, enableDeltaSharingOptimizations, deltaPiggybackIntervalMicros,
+			deltaPiggybackMaxBytes);
 	}
 
 	@Override
 	protected void serializeDataStrategy(InputChannelID outputChannelID, long epochID, CompositeByteBuf composite,
-										 ByteBuf deltaHeader) {
+										 ByteBuf deltaHeader, List<VertexCausalLogs> verticesToVisit) {
 		CausalLogID outputChannelSpecificCausalLog = outputChannelSpecificCausalLogs.get(outputChannelID); //TODO
 
 		List<ThreadCausalLog> flattenedToShare =
-			hierarchicalThreadCausalLogsToBeShared.values().stream().flatMap(v -> {
+			verticesToVisit.stream().flatMap(v -> {
 				Stream<ThreadCausalLog> s =
 					v.partitionCausalLogs.values().stream().flatMap(p -> p.subpartitionLogs.values().stream());
 				ThreadCausalLog mainThreadLog = v.mainThreadLog.get();
@@ -95,7 +97,7 @@ public final class FlatDeltaSerializerDeserializer extends AbstractDeltaSerializ
 		if (!currCID.isMainThread()) {
 			deltaHeader.writeLong(currCID.getIntermediateDataSetLower());
 			deltaHeader.writeLong(currCID.getIntermediateDataSetUpper());
-			deltaHeader.writeByte(currCID.getSubpartitionIndex());
+			deltaHeader.writeShort(currCID.getSubpartitionIndex());
 		}
 	}
 
@@ -113,7 +115,7 @@ public final class FlatDeltaSerializerDeserializer extends AbstractDeltaSerializ
 		} else {
 			long intermediateResultPartitionLower = msg.readLong();
 			long intermediateResultPartitionUpper = msg.readLong();
-			byte subpartitionID = msg.readByte();
+			short subpartitionID = msg.readShort();
 			causalLogID.replace(vertexID, intermediateResultPartitionLower, intermediateResultPartitionUpper,
 				subpartitionID);
 		}
@@ -35,6 +35,7 @@ import org.apache.flink.runtime.jobgraph.JobVertexID;
 import org.apache.flink.shaded.netty4.io.netty.buffer.ByteBuf;
 import org.apache.flink.shaded.netty4.io.netty.buffer.CompositeByteBuf;
 
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentMap;
 
@@ -56,9 +57,10 @@ public final class GroupingDeltaSerializerDeserializer extends AbstractDeltaSeri
 											   Map<Short, Integer> vertexIDToDistance,
 											   ConcurrentMap<JobVertexID, Short> localVertices, int determinantSharingDepth,
 											   BufferPool determinantBufferPool,
-											   boolean enableDeltaSharingOptimizations) {
+											   boolean enableDeltaSharingOptimizations,
+											   long deltaPiggybackIntervalMicros, long deltaPiggybackMaxBytes) {
 		super(threadCausalLogs, hierarchicalThreadCausalLogsToBeShared, vertexIDToDistance, localVertices, determinantSharingDepth,
-			determinantBufferPool, enableDeltaSharingOptimizations);
+			determinantBufferPool, enableDeltaSharingOptimizations, deltaPiggybackIntervalMicros, deltaPiggybackMaxBytes);
 	}
 
 
@@ -75,9 +77,9 @@ public final class GroupingDeltaSerializerDeserializer extends AbstractDeltaSeri
 		for (int p = 0; p < numPartitionDeltas; p++) {
 			long intermediateResultPartitionLower = msg.readLong();
 			long intermediateResultPartitionUpper = msg.readLong();
-			byte numSubpartitionDeltas = msg.readByte();
+			short numSubpartitionDeltas = msg.readShort();
 			for (int s = 0; s < numSubpartitionDeltas; s++) {
-				byte subpartitionID = msg.readByte();
+				short subpartitionID = msg.readShort();
 				causalLogID.replace(intermediateResultPartitionLower, intermediateResultPartitionUpper,
 					subpartitionID);
 				deltaIndexOffset += processThreadDelta(msg, causalLogID, deltaIndex + deltaIndexOffset, epochID);
@@ -89,12 +91,12 @@ public final class GroupingDeltaSerializerDeserializer extends AbstractDeltaSeri
 
 	@Override
 	protected void serializeDataStrategy(InputChannelID outputChannelID, long epochID, CompositeByteBuf composite,
-										 ByteBuf deltaHeader) {
+										 ByteBuf deltaHeader, List<VertexCausalLogs> verticesToVisit) {
 		CausalLogID outputChannelSpecificCausalLog = outputChannelSpecificCausalLogs.get(outputChannelID);
-		for (Map.Entry<Short, VertexCausalLogs> e : hierarchicalThreadCausalLogsToBeShared.entrySet())
+		for (VertexCausalLogs v : verticesToVisit)
 			//If this is not a local vertex or if it is the local vertex that this channel consumes directly
-			if(!enableDeltaSharingOptimizations || !localTasks.containsValue(e.getKey()) || outputChannelSpecificCausalLog.isForVertex(e.getKey()))
-				serializeVertex(outputChannelID, epochID, composite, deltaHeader, outputChannelSpecificCausalLog, e.getValue());
+			if(!enableDeltaSharingOptimizations || !localTasks.containsValue(v.getVertexID()) || outputChannelSpecificCausalLog.isForVertex(v.getVertexID()))
+				serializeVertex(outputChannelID, epochID, composite, deltaHeader, outputChannelSpecificCausalLog, v);
 
 
 	}
@@ -145,12 +147,12 @@ public final class GroupingDeltaSerializerDeserializer extends AbstractDeltaSeri
 
 		int numSubpartitionUpdates = 0;
 		int numSubpartitionUpdatesIndex = deltaHeader.writerIndex();
-		deltaHeader.writeByte(0); //num subpartition updates
+		deltaHeader.writeShort(0); //num subpartition updates
 		for (ThreadCausalLog s : p.subpartitionLogs.values()) {
 			if (s.hasDeltaForConsumer(outputChannelID, epochID))
 				//If this isnt the local vertex or if it is the specific channel subpartition
 				if (!enableDeltaSharingOptimizations || !outputChannelSpecificCausalLog.isForVertex(vertexID) || outputChannelSpecificCausalLog.equals(s.getCausalLogID())) {
-					deltaHeader.writeByte(s.getCausalLogID().getSubpartitionIndex());
+					deltaHeader.writeShort(s.getCausalLogID().getSubpartitionIndex());
 					serializeThreadDelta(outputChannelID, epochID, composite, deltaHeader, s);
 					numSubpartitionUpdates++;
 				}
@@ -159,7 +161,7 @@ public final class GroupingDeltaSerializerDeserializer extends AbstractDeltaSeri
 			deltaHeader.writerIndex(specificPartitionStartIndex);
 			return 0;
 		} else {
-			deltaHeader.setByte(numSubpartitionUpdatesIndex, numSubpartitionUpdates);
+			deltaHeader.setShort(numSubpartitionUpdatesIndex, numSubpartitionUpdates);
 			return 1;
 		}
 	}
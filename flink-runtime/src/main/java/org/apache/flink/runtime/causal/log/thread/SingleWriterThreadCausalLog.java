@@ -0,0 +1,665 @@
+/*
+ *
+ *
+ *
+ *  * Licensed to the Apache Software Foundation (ASF) under one
+ *  * or more contributor license agreements.  See the NOTICE file
+ *  * distributed with this work for additional information
+ *  * regarding copyright ownership.  The ASF licenses this file
+ *  * to you under the Apache License, Version 2.0 (the
+ *  * "License"); you may not use this file except in compliance
+ *  * with the License.  You may obtain a copy of the License at
+ *  *
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ *
+ *
+ *
+ */
+
+package org.apache.flink.runtime.causal.log.thread;
+
+import org.apache.flink.runtime.causal.determinant.Determinant;
+import org.apache.flink.runtime.causal.determinant.DeterminantEncoder;
+import org.apache.flink.runtime.causal.determinant.OrderDeterminant;
+import org.apache.flink.runtime.causal.log.job.CausalLogID;
+import org.apache.flink.runtime.io.disk.iomanager.FileIOChannel;
+import org.apache.flink.runtime.io.network.buffer.Buffer;
+import org.apache.flink.runtime.io.network.buffer.BufferPool;
+import org.apache.flink.runtime.io.network.partition.consumer.InputChannelID;
+import org.apache.flink.shaded.netty4.io.netty.buffer.ByteBuf;
+import org.apache.flink.shaded.netty4.io.netty.buffer.ByteBufAllocator;
+import org.apache.flink.shaded.netty4.io.netty.buffer.CompositeByteBuf;
+import org.apache.flink.shaded.netty4.io.netty.buffer.Unpooled;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A {@link ThreadCausalLog} for local logs which have a single writer at a time, i.e. whose writers are serialized
+ * by some other monitor, such as the subpartition buffers lock.
+ *
+ * <p>Unlike {@link ThreadCausalLogImpl}, the append path takes no locks. The writer encodes determinants into
+ * memory segments it owns and publishes them by advancing a volatile writer index. Readers (delta serialization,
+ * determinant requests) only ever read up to the published index.
+ *
+ * <p>All offsets are logical and never move. Checkpoint completion does not rewrite offsets under a write lock,
+ * instead it hands off a new segment table without the truncated segments, which is swapped atomically against the
+ * writer appending new segments. Truncated segments are released under a lock shared only with readers, so the
+ * writer never blocks on either of them.
+ *
+ * <p>Runs of order determinants are not folded, as they could only be flushed by the writer.
+ *
+ * <p>Full segments which all consumers received are spilled like the components of {@link ThreadCausalLogImpl}.
+ * They are written outside of the reader lock and only dropped from the segment table afterwards, unless a
+ * checkpoint completed in the meantime. The segment the writer owns is never spilled.
+ */
+public class SingleWriterThreadCausalLog implements ThreadCausalLog {
+	private static final Logger LOG = LoggerFactory.getLogger(SingleWriterThreadCausalLog.class);
+
+	// We use this buffer pool to fetch the memory segments which hold the determinants
+	private final BufferPool bufferPool;
+
+	// The encoding strategy for encoding local determinants
+	private final DeterminantEncoder determinantEncoder;
+
+	private final CausalLogID causalLogID;
+
+	private final int determinantSharingDepth;
+
+	private final int bufferComponentSize;
+
+	// Tracks the logical start of epochs in the determinant log. Entries are never modified, only removed on
+	// checkpoint completion.
+	private final ConcurrentMap<Long, EpochStartOffset> epochStartOffsets;
+
+	// Tracks the consumer offsets in this causal log
+	private final ConcurrentMap<InputChannelID, ConsumerOffset> channelOffsetMap;
+
+	// Held by readers while slicing segments and by checkpoint completions while releasing truncated segments
+	private final Object readerLock;
+
+	// The segments of the log which have not been truncated yet
+	private final AtomicReference<ComponentTable> componentTable;
+
+	// The logical offset up to which determinants are fully written and readable
+	private volatile long publishedWriterIndex;
+
+	// The spilled segments, which precede the segments in memory. The file holds the logical offsets starting at
+	// spillFileStartOffset, of which the ones between spilledFrom and spilledUpTo were not truncated yet. Guarded by
+	// the readerLock, spills write past spilledUpTo outside of it.
+	private File spillFilePath;
+	private FileChannel spillFile;
+	private long spillFileStartOffset;
+	private long spilledFrom;
+	private long spilledUpTo;
+
+	// Bumped whenever a truncation empties the spill file. Guarded by the readerLock.
+	private long spillFileVersion;
+
+	// Set once the log is closed. Guarded by the readerLock.
+	private boolean closed;
+
+	// Set while segments are written to the spill file
+	private final AtomicBoolean spilling;
+
+	//========================= WRITER STATE =========================================================
+	private ByteBuf writeComponent;
+
+	private long writerIndex;
+
+	private long currentEpochID;
+
+	// Used to encode determinants which do not fit in the remainder of the current segment
+	private ByteBuf straddleBuffer;
+
+	public SingleWriterThreadCausalLog(BufferPool determinantBufferPool, CausalLogID causalLogID,
+									   int determinantSharingDepth, DeterminantEncoder determinantEncoder) {
+		this.bufferPool = determinantBufferPool;
+		this.causalLogID = causalLogID;
+		this.determinantEncoder = determinantEncoder;
+		this.determinantSharingDepth = determinantSharingDepth;
+		this.bufferComponentSize = bufferPool.getMemorySegmentSize();
+
+		this.epochStartOffsets = new ConcurrentHashMap<>();
+		this.channelOffsetMap = new ConcurrentHashMap<>();
+		this.readerLock = new Object();
+		this.spilling = new AtomicBoolean(false);
+
+		this.componentTable = new AtomicReference<>(new ComponentTable(new ByteBuf[0], 0));
+		this.publishedWriterIndex = 0;
+
+		this.writerIndex = 0;
+		this.currentEpochID = -1;
+		this.straddleBuffer = Unpooled.buffer(64);
+		addComponent();
+	}
+
+	//========================= ONLY FOR UPSTREAM LOGS ==================================================
+	@Override
+	public void processUpstreamDelta(ByteBuf delta, int offsetFromEpoch, long epochID) {
+		throw new UnsupportedOperationException("Single writer logs are only used for local logs");
+	}
+
+	//========================= ONLY FOR LOCAL LOGS =========================================================
+	@Override
+	public void appendDeterminant(Determinant determinant, long epochID) {
+		if (determinantSharingDepth == 0)
+			return;
+		int determinantEncodedSize = determinantEncoder.getEncodedSizeInBytes(determinant);
+		if (LOG.isDebugEnabled())
+			LOG.debug("appendDeterminant: Determinant: {}, epochID: {}, encodedSize: {}", determinant, epochID,
+				determinantEncodedSize);
+
+		if (epochID != currentEpochID) {
+			// Registered before publishing, so readers never see bytes of an epoch they cannot find the start of
+			epochStartOffsets.putIfAbsent(epochID, new EpochStartOffset(epochID, writerIndex));
+			currentEpochID = epochID;
+		}
+
+		if (writeComponent.writableBytes() >= determinantEncodedSize)
+			determinantEncoder.encodeTo(determinant, writeComponent);
+		else
+			encodeAcrossComponents(determinant);
+
+		writerIndex += determinantEncodedSize;
+		publishedWriterIndex = writerIndex;
+	}
+
+	@Override
+	public void appendOrderDeterminant(OrderDeterminant determinant, long epochID) {
+		appendDeterminant(determinant, epochID);
+	}
+
+	@Override
+	public int logLength() {
+		long published = publishedWriterIndex;
+		Optional<Long> maybeFirstKey = epochStartOffsets.keySet().stream().min(Long::compareTo);
+		long firstEpochOffset = maybeFirstKey.map(epochStartOffsets::get).map(EpochStartOffset::getOffset).orElse(0L);
+		return (int) (published - firstEpochOffset);
+	}
+
+	@Override
+	public int spillConsumedEpochs(FileIOChannel.Enumerator spillFileEnumerator) {
+		if (determinantSharingDepth == 0 || !spilling.compareAndSet(false, true))
+			return 0;
+		ByteBuf[] consumed = null;
+		try {
+			ComponentTable table;
+			int numToSpill;
+			long fileOffset;
+			long version;
+			synchronized (readerLock) {
+				table = componentTable.get();
+				numToSpill = (int) Math.min(computeSpillEnd() / bufferComponentSize - table.firstComponentIndex,
+					table.components.length - 1);
+				if (closed || numToSpill <= 0)
+					return 0;
+
+				if (spillFile == null) {
+					spillFilePath = spillFileEnumerator.next().getPathFile();
+					spillFile = FileChannel.open(spillFilePath.toPath(), StandardOpenOption.CREATE,
+						StandardOpenOption.READ, StandardOpenOption.WRITE);
+				}
+				consumed = new ByteBuf[numToSpill];
+				for (int i = 0; i < numToSpill; i++)
+					consumed[i] = table.components[i].retainedDuplicate();
+				// The in-memory segments always follow the spilled ones, an empty spill file is reused from its start
+				fileOffset = spilledFrom == spilledUpTo ? 0 : spilledUpTo - spillFileStartOffset;
+				version = spillFileVersion;
+			}
+
+			for (int i = 0; i < numToSpill; i++) {
+				long position = fileOffset + (long) i * bufferComponentSize;
+				for (int written = 0; written < bufferComponentSize; )
+					written += consumed[i].getBytes(written, spillFile, position + written,
+						bufferComponentSize - written);
+			}
+
+			synchronized (readerLock) {
+				// A checkpoint completed in the meantime, which truncated the spill file or the consumed segments
+				if (closed || version != spillFileVersion || componentTable.get().firstComponentIndex !=
+					table.firstComponentIndex)
+					return 0;
+				long spillStart = table.firstComponentIndex * bufferComponentSize;
+				if (spilledFrom == spilledUpTo) {
+					spillFileStartOffset = spillStart;
+					spilledFrom = spillStart;
+				}
+				spilledUpTo = spillStart + (long) numToSpill * bufferComponentSize;
+				final int numSpilled = numToSpill;
+				componentTable.getAndUpdate(t -> t.dropFirst(numSpilled));
+				for (int i = 0; i < numToSpill; i++)
+					table.components[i].release();
+				if (LOG.isDebugEnabled())
+					LOG.debug("Spilled {} segments of causal log {} to {}", numToSpill, causalLogID, spillFilePath);
+				return numToSpill * bufferComponentSize;
+			}
+		} catch (IOException e) {
+			LOG.warn("Could not spill determinants of causal log {}, keeping them in memory.", causalLogID, e);
+			return 0;
+		} finally {
+			if (consumed != null)
+				for (ByteBuf segment : consumed)
+					segment.release();
+			spilling.set(false);
+		}
+	}
+
+	@Override
+	public long getMemoryInBytes() {
+		return (long) componentTable.get().components.length * bufferComponentSize;
+	}
+
+	@Override
+	public long getSpilledBytes() {
+		synchronized (readerLock) {
+			return spilledUpTo - spilledFrom;
+		}
+	}
+
+	//========================= FOR ALL LOGS =========================================================
+	@Override
+	public boolean hasDeltaForConsumer(InputChannelID outputChannelID, long epochID) {
+		if (determinantSharingDepth == 0)
+			return false;
+		EpochStartOffset epochStartOffset = epochStartOffsets.get(epochID);
+		if (epochStartOffset == null) { //If the epoch does not exist, there is certainly no delta
+			if (LOG.isDebugEnabled())
+				LOG.debug("hasDeltaForConsumer: outputChannel: {}, epochID: {}, returns early because " +
+					"epochStartOffset does not exist", outputChannelID, epochID);
+			return false;
+		}
+
+		ConsumerOffset consumerOffset = channelOffsetMap.computeIfAbsent(outputChannelID,
+			k -> new ConsumerOffset(epochStartOffset));
+
+		long currentConsumerEpochID = consumerOffset.getEpochStart().getId();
+		if (currentConsumerEpochID != epochID) {
+			if (currentConsumerEpochID > epochID)
+				throw new RuntimeException("Consumer went backwards, current epoch " + currentConsumerEpochID +
+					" requested " + epochID);
+			consumerOffset.epochStart = epochStartOffset;
+			consumerOffset.offset = 0;
+		}
+
+		long physicalConsumerOffset = consumerOffset.epochStart.offset + consumerOffset.offset;
+		int numBytesToSend = computeNumberOfBytesToSend(epochID, physicalConsumerOffset);
+
+		if (LOG.isDebugEnabled())
+			LOG.debug("hasDeltaForConsumer: outputChannel: {}, epochID: {}, physicalConsumerOffset: {}, " +
+				"numBytesToSend: {}", outputChannelID, epochID, physicalConsumerOffset, numBytesToSend);
+		//If the epoch exists, then there is a delta if there are any bytes to send
+		return numBytesToSend != 0;
+	}
+
+	@Override
+	public int getOffsetFromEpochForConsumer(InputChannelID outputChannelID, long epochID) {
+		//Certainly exists because protected by hasDeltaForConsumer
+		return channelOffsetMap.get(outputChannelID).getOffset();
+	}
+
+	@Override
+	public ByteBuf getDeltaForConsumer(InputChannelID outputChannelID, long epochID) {
+		//Exists because protected by hasDeltaForConsumer
+		ConsumerOffset consumerOffset = channelOffsetMap.get(outputChannelID);
+
+		long physicalConsumerOffset = consumerOffset.epochStart.offset + consumerOffset.offset;
+		int numBytesToSend = computeNumberOfBytesToSend(epochID, physicalConsumerOffset);
+
+		if (LOG.isDebugEnabled())
+			LOG.debug("getDeltaForConsumer: epoch {}, physConsOffset {}. numBytesToSend {}, consumerOffset: {}",
+				epochID, physicalConsumerOffset, numBytesToSend, consumerOffset.getOffset());
+		ByteBuf update;
+		if (numBytesToSend == 0)
+			update = Unpooled.EMPTY_BUFFER;
+		else
+			update = makeDelta(physicalConsumerOffset, numBytesToSend);
+
+		consumerOffset.setOffset(consumerOffset.getOffset() + numBytesToSend);
+		return update;
+	}
+
+	@Override
+	public CausalLogID getCausalLogID() {
+		return causalLogID;
+	}
+
+	@Override
+	public ByteBuf getDeterminants(long startEpochID) {
+		if (determinantSharingDepth == 0)
+			return Unpooled.EMPTY_BUFFER;
+
+		long published = publishedWriterIndex;
+		EpochStartOffset offset = epochStartOffsets.get(startEpochID);
+		if (offset == null)
+			offset = epochStartOffsets.keySet().stream().min(Long::compareTo).map(epochStartOffsets::get)
+				.orElse(null);
+		long startIndex = offset != null ? offset.getOffset() : 0;
+
+		return makeDelta(startIndex, (int) (published - startIndex));
+	}
+
+	@Override
+	public void close() {
+		while (!fullyConsumed()) {
+			try {
+				Thread.sleep(100);
+			} catch (InterruptedException e) {
+				e.printStackTrace();
+			}
+		}
+		synchronized (readerLock) {
+			closed = true;
+			ComponentTable table = componentTable.getAndSet(new ComponentTable(new ByteBuf[0], 0));
+			for (ByteBuf component : table.components)
+				component.release();
+			if (spillFile != null) {
+				try {
+					spillFile.close();
+				} catch (IOException e) {
+					LOG.debug("Could not close determinant spill file {}.", spillFilePath, e);
+				}
+				if (!spillFilePath.delete())
+					LOG.debug("Could not delete determinant spill file {}.", spillFilePath);
+			}
+		}
+		straddleBuffer.release();
+	}
+
+	@Override
+	public void unregisterConsumer(InputChannelID toCancel) {
+		channelOffsetMap.remove(toCancel);
+	}
+
+	@Override
+	public void notifyCheckpointComplete(long checkpointId) {
+		if (LOG.isDebugEnabled())
+			LOG.debug("Notify checkpoint complete for id {}", checkpointId);
+		long published = publishedWriterIndex;
+		// The task already passed the barrier, so the writer can only register this epoch at the published index
+		EpochStartOffset followingEpoch = epochStartOffsets.computeIfAbsent(checkpointId,
+			epochID -> new EpochStartOffset(epochID, published));
+		epochStartOffsets.keySet().removeIf(epochID -> epochID < checkpointId);
+
+		if (LOG.isDebugEnabled())
+			LOG.debug("chkComplete publishedWriterIndex {}, followingEpochOffset {}", published,
+				followingEpoch.getOffset());
+		releaseComponentsBefore(followingEpoch.getOffset());
+	}
+
+	private boolean fullyConsumed() {
+		long published = publishedWriterIndex;
+		for (ConsumerOffset co : channelOffsetMap.values())
+			if (co.getEpochStart().getOffset() + co.getOffset() < published)
+				return false;
+		return true;
+	}
+
+	/*
+	 * Determinants may only be spilled once all consumers received them, and only up to the start of the latest
+	 * epoch, which newly registered consumers start reading from.
+	 */
+	private long computeSpillEnd() {
+		Optional<Long> latestEpochID = epochStartOffsets.keySet().stream().max(Long::compareTo);
+		if (!latestEpochID.isPresent())
+			return 0;
+		EpochStartOffset latestEpoch = epochStartOffsets.get(latestEpochID.get());
+		long limit = Math.min(publishedWriterIndex, latestEpoch != null ? latestEpoch.getOffset() : 0);
+		for (ConsumerOffset consumerOffset : channelOffsetMap.values()) {
+			EpochStartOffset consumerEpochStart = consumerOffset.getEpochStart();
+			// Consumers of truncated epochs move on to the following epoch when they read next
+			if (epochStartOffsets.get(consumerEpochStart.getId()) == consumerEpochStart)
+				limit = Math.min(limit, consumerEpochStart.getOffset() + consumerOffset.getOffset());
+		}
+		return limit;
+	}
+
+	private int computeNumberOfBytesToSend(long epochID, long physicalConsumerOffset) {
+		long currentWriteIndex = publishedWriterIndex;
+		EpochStartOffset nextEpochStartOffset = epochStartOffsets.get(epochID + 1);
+
+		if (nextEpochStartOffset != null)
+			return (int) (nextEpochStartOffset.getOffset() - physicalConsumerOffset);
+		return (int) (currentWriteIndex - physicalConsumerOffset);
+	}
+
+	/*
+	 * Builds a composite byte buffer of retained slices of the log segments. The slices keep the segments alive even
+	 * if the writer releases them in the meantime, so no data has to be copied.
+	 */
+	private ByteBuf makeDelta(long srcOffset, int numBytesToSend) {
+		CompositeByteBuf result = ByteBufAllocator.DEFAULT.compositeDirectBuffer(Integer.MAX_VALUE);
+
+		synchronized (readerLock) {
+			ComponentTable table = componentTable.get();
+			long currIndex = srcOffset;
+			int numBytesLeft = numBytesToSend;
+			long inMemoryStart = table.firstComponentIndex * bufferComponentSize;
+			if (currIndex < inMemoryStart && numBytesLeft != 0) {
+				if (currIndex < spilledFrom || spilledUpTo != inMemoryStart)
+					throw new IllegalStateException("Determinants at offset " + currIndex + " of log " +
+						causalLogID + " were already truncated");
+				// The determinants were spilled, page them back in
+				int numSpilledBytes = (int) Math.min(numBytesLeft, inMemoryStart - currIndex);
+				result.addComponent(true, readSpilled(currIndex, numSpilledBytes));
+				numBytesLeft -= numSpilledBytes;
+				currIndex += numSpilledBytes;
+			}
+			while (numBytesLeft != 0) {
+				int bufferIndex = (int) (currIndex / bufferComponentSize - table.firstComponentIndex);
+				if (bufferIndex < 0)
+					throw new IllegalStateException("Determinants at offset " + currIndex + " of log " +
+						causalLogID + " were already truncated");
+				int indexInBuffer = (int) (currIndex % bufferComponentSize);
+				int numBytesFromBuf = Math.min(numBytesLeft, bufferComponentSize - indexInBuffer);
+				result.addComponent(true, table.components[bufferIndex].retainedSlice(indexInBuffer,
+					numBytesFromBuf));
+
+				numBytesLeft -= numBytesFromBuf;
+				currIndex += numBytesFromBuf;
+			}
+		}
+		return result;
+	}
+
+	/*
+	 * NOTE: Uses must be synchronized on the readerLock
+	 */
+	private ByteBuf readSpilled(long srcOffset, int length) {
+		ByteBuf paged = ByteBufAllocator.DEFAULT.directBuffer(length, length);
+		try {
+			long position = srcOffset - spillFileStartOffset;
+			while (paged.isWritable())
+				if (paged.writeBytes(spillFile, position + paged.writerIndex(), paged.writableBytes()) < 0)
+					throw new IOException("Unexpected end of determinant spill file " + spillFilePath);
+		} catch (IOException e) {
+			paged.release();
+			throw new RuntimeException("Could not read spilled determinants of " + causalLogID, e);
+		}
+		return paged;
+	}
+
+	//========================= WRITER ONLY =========================================================
+
+	/*
+	 * Determinants which do not fit in the current segment are encoded aside and split over the segments.
+	 */
+	private void encodeAcrossComponents(Determinant determinant) {
+		straddleBuffer.clear();
+		determinantEncoder.encodeTo(determinant, straddleBuffer);
+		while (straddleBuffer.isReadable()) {
+			if (!writeComponent.isWritable())
+				addComponent();
+			straddleBuffer.readBytes(writeComponent, Math.min(writeComponent.writableBytes(),
+				straddleBuffer.readableBytes()));
+		}
+	}
+
+	private void addComponent() {
+		if (LOG.isDebugEnabled())
+			LOG.debug("Adding component, writerIndex: {}", writerIndex);
+		Buffer buffer;
+		try {
+			buffer = bufferPool.requestBufferBlocking();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while requesting a segment for causal log " + causalLogID, e);
+		} catch (IOException e) {
+			throw new RuntimeException("Could not request a segment for causal log " + causalLogID, e);
+		}
+		ByteBuf byteBuf = buffer.asByteBuf();
+		byteBuf.clear();
+
+		// Published before any byte is written to it, so readers of those bytes always find it
+		componentTable.getAndUpdate(table -> table.append(byteBuf));
+		writeComponent = byteBuf;
+	}
+
+	//========================= CHECKPOINT COMPLETION ONLY =========================================================
+
+	/*
+	 * Releases the segments which only hold determinants before the truncation offset. Such segments are full and
+	 * published, so the writer never writes to them again. The spill file is emptied once all its determinants are
+	 * truncated, until then the truncated ones are only skipped.
+	 */
+	private void releaseComponentsBefore(long truncationOffset) {
+		synchronized (readerLock) {
+			truncateSpilled(truncationOffset);
+			ComponentTable table = componentTable.get();
+			int numTruncated = (int) Math.min(truncationOffset / bufferComponentSize - table.firstComponentIndex,
+				table.components.length);
+			if (numTruncated <= 0)
+				return;
+			if (LOG.isDebugEnabled())
+				LOG.debug("Releasing {} truncated components", numTruncated);
+			componentTable.getAndUpdate(t -> t.dropFirst(numTruncated));
+			for (int i = 0; i < numTruncated; i++)
+				table.components[i].release();
+		}
+	}
+
+	/*
+	 * NOTE: Uses must be synchronized on the readerLock
+	 */
+	private void truncateSpilled(long truncationOffset) {
+		if (spilledFrom == spilledUpTo || truncationOffset <= spilledFrom)
+			return;
+		if (truncationOffset < spilledUpTo) {
+			spilledFrom = truncationOffset;
+			return;
+		}
+		try {
+			spillFile.truncate(0);
+		} catch (IOException e) {
+			throw new RuntimeException("Could not truncate spilled determinants of " + causalLogID, e);
+		}
+		spilledFrom = spilledUpTo;
+		spillFileVersion++;
+	}
+
+	/**
+	 * An immutable view of the live segments of the log. The segment at position i holds the logical offsets
+	 * starting at (firstComponentIndex + i) * segmentSize.
+	 */
+	private static class ComponentTable {
+		private final ByteBuf[] components;
+		private final long firstComponentIndex;
+
+		ComponentTable(ByteBuf[] components, long firstComponentIndex) {
+			this.components = components;
+			this.firstComponentIndex = firstComponentIndex;
+		}
+
+		ComponentTable append(ByteBuf component) {
+			ByteBuf[] newComponents = Arrays.copyOf(components, components.length + 1);
+			newComponents[components.length] = component;
+			return new ComponentTable(newComponents, firstComponentIndex);
+		}
+
+		ComponentTable dropFirst(int numComponents) {
+			return new ComponentTable(Arrays.copyOfRange(components, numComponents, components.length),
+				firstComponentIndex + numComponents);
+		}
+	}
+
+	private static class EpochStartOffset {
+		//The checkpoint id that initiates this epoch
+		private final long id;
+		//The logical offset in the log of the first element after the checkpoint
+		private final long offset;
+
+		public EpochStartOffset(long id, long offset) {
+			this.id = id;
+			this.offset = offset;
+		}
+
+		public long getId() {
+			return id;
+		}
+
+		public long getOffset() {
+			return offset;
+		}
+
+		@Override
+		public String toString() {
+			return "CheckpointOffset{" +
+				"id=" + id +
+				", offset=" + offset +
+				'}';
+		}
+	}
+
+	/**
+	 * Marks the next element to be read by the downstream consumer
+	 */
+	private static class ConsumerOffset {
+		// Refers to the epoch that the downstream is currently in
+		private EpochStartOffset epochStart;
+
+		// The logical offset from that epoch
+		private int offset;
+
+		public ConsumerOffset(EpochStartOffset epochStart) {
+			this.epochStart = epochStart;
+			this.offset = 0;
+		}
+
+		public EpochStartOffset getEpochStart() {
+			return epochStart;
+		}
+
+		public int getOffset() {
+			return offset;
+		}
+
+		public void setOffset(int offset) {
+			this.offset = offset;
+		}
+
+		@Override
+		public String toString() {
+			return "DownstreamChannelOffset{" +
+				"epochStart=" + epochStart +
+				", offset=" + offset +
+				'}';
+		}
+	}
+}
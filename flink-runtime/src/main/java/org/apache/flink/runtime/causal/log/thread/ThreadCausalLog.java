@@ -26,7 +26,9 @@
 package org.apache.flink.runtime.causal.log.thread;
 
 import org.apache.flink.runtime.causal.determinant.Determinant;
+import org.apache.flink.runtime.causal.determinant.OrderDeterminant;
 import org.apache.flink.runtime.causal.log.job.CausalLogID;
+import org.apache.flink.runtime.io.disk.iomanager.FileIOChannel;
 import org.apache.flink.runtime.io.network.partition.consumer.InputChannelID;
 import org.apache.flink.shaded.netty4.io.netty.buffer.ByteBuf;
 
@@ -46,9 +48,30 @@ public interface ThreadCausalLog {
 	 */
 	int logLength();
 
+	/**
+	 * Moves the determinants of epochs older than the latest one, which all consumers have received, from memory to a
+	 * spill file. They remain part of the log and are paged back in when requested. Does nothing if the log is
+	 * concurrently truncated or spilled.
+	 * @param spillFileEnumerator provides the spill file on the first spill
+	 * @return the number of bytes spilled
+	 */
+	int spillConsumedEpochs(FileIOChannel.Enumerator spillFileEnumerator);
 
 	/**
-	 * Processes and appends a delta to the log, deduplicating determinants if needed
+	 * The bytes of memory held by the log, whether taken from the determinant buffer pool or received upstream.
+	 */
+	long getMemoryInBytes();
+
+	/**
+	 * The bytes of the log which are spilled and were not truncated yet.
+	 */
+	long getSpilledBytes();
+
+
+	/**
+	 * Processes and appends a delta to the log, deduplicating determinants if needed.
+	 * Only logs of upstream tasks receive deltas. Logs of the local task, such as its subpartition logs, are only
+	 * appended to and may throw {@link UnsupportedOperationException}.
 	 * @param delta the delta itself
 	 * @param offsetFromEpoch how far from the start of the epoch epochID this delta starts
 	 * @param epochID the epoch to which the delta belongs.
@@ -62,6 +85,16 @@ public interface ThreadCausalLog {
 	 */
 	void appendDeterminant(Determinant determinant, long epochID);
 
+	/**
+	 * Appends an order determinant, which, if the encoder has run-length encoding enabled, may be folded into a run of
+	 * order determinants of the same channel. The run is only encoded once it is broken or the log is read.
+	 * Replayed order determinants must instead be appended through {@link #appendDeterminant} so that they are
+	 * encoded exactly as they were recorded.
+	 * @param determinant the order determinant to be appended
+	 * @param epochID the current epoch the producer is in.
+	 */
+	void appendOrderDeterminant(OrderDeterminant determinant, long epochID);
+
 	/**
 	 * Checks whether this log has an update for the provided output channel in the provided epoch
 	 */
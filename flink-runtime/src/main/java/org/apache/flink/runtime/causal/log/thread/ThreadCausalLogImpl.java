@@ -27,7 +27,9 @@ package org.apache.flink.runtime.causal.log.thread;
 
 import org.apache.flink.runtime.causal.determinant.Determinant;
 import org.apache.flink.runtime.causal.determinant.DeterminantEncoder;
+import org.apache.flink.runtime.causal.determinant.OrderDeterminant;
 import org.apache.flink.runtime.causal.log.job.CausalLogID;
+import org.apache.flink.runtime.io.disk.iomanager.FileIOChannel;
 import org.apache.flink.runtime.io.network.buffer.Buffer;
 import org.apache.flink.runtime.io.network.buffer.BufferPool;
 import org.apache.flink.runtime.io.network.partition.consumer.InputChannelID;
@@ -38,11 +40,16 @@ import org.apache.flink.shaded.netty4.io.netty.buffer.Unpooled;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
@@ -51,10 +58,20 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
 public class ThreadCausalLogImpl implements ThreadCausalLog {
 	private static final Logger LOG = LoggerFactory.getLogger(ThreadCausalLogImpl.class);
 
+	// Upstream logs compact their trailing received slices once this many accumulated
+	private static final int MAX_RETAINED_SLICES = 64;
+
+	// or once the network buffers they keep alive grow larger than this
+	private static final long MAX_RETAINED_SLICE_CAPACITY = 1024 * 1024;
+
+	// The spilled determinants still needed after a checkpoint are moved to the start of the spill file in chunks
+	private static final int SPILL_COMPACTION_CHUNK_SIZE = 64 * 1024;
+
 	// We use this buffer pool to fetch memory segments to fill the composite bellow
 	private final BufferPool bufferPool;
 
-	// This composite is used to create an indefinitely growing buffer of determinants
+	// This composite is used to create an indefinitely growing buffer of determinants. Local logs write into
+	// fixed size components of the buffer pool, while upstream logs add slices of the received network buffers.
 	private final CompositeByteBuf buf;
 
 	// The encoding strategy for encoding local determinants
@@ -79,7 +96,37 @@ public class ThreadCausalLogImpl implements ThreadCausalLog {
 
 	private final int determinantSharingDepth;
 
-	private final int bufferComponentSize;
+	// Whether consecutive order determinants of the same channel are collapsed into runs before being encoded
+	private final boolean orderRunLengthEncodingEnabled;
+
+	// The run of order determinants which has not been encoded yet, as it may still be extended. It is encoded as
+	// soon as it is broken or the log is read. Protected by the buf monitor.
+	private final OrderDeterminant pendingOrderRun;
+	private long pendingOrderRunEpochID;
+	private int pendingOrderRunLength;
+
+	// The trailing components of an upstream log which are retained slices of received network buffers, and an
+	// upper bound of the capacity they keep alive. Protected by the buf monitor.
+	private int numRetainedSlices;
+	private long retainedSliceCapacity;
+
+	// The determinants of older epochs which were spilled to disk. They precede the in-memory log, so negative
+	// physical offsets refer to them, at position spillFileSize + offset of the file. The size only changes under
+	// the epochWriteLock and the file is read under the buf monitor. Spills write past the size outside of the locks.
+	private File spillFilePath;
+	private FileChannel spillFile;
+	private long spillFileSize;
+
+	// Bumped whenever a truncation rewrites the spill file. Written under the epochWriteLock.
+	private long spillFileVersion;
+
+	// The bytes discarded from the front of the in-memory log so far, which relate physical offsets before and after
+	// a discard. Written under the epochWriteLock.
+	private long discardedBytes;
+
+	// Set while determinants are written to the spill file outside of the locks
+	private final AtomicBoolean spilling;
+
 	/**
 	 * This constructor is used for upstream logs as they do not require a determinant encoder
 	 */
@@ -99,16 +146,23 @@ public class ThreadCausalLogImpl implements ThreadCausalLog {
 		this.determinantSharingDepth = determinantSharingDepth;
 
 		buf = ByteBufAllocator.DEFAULT.compositeDirectBuffer(Integer.MAX_VALUE);
-		addComponent();
+		// Upstream logs only ever add received slices
+		if (determinantEncoder != null)
+			addComponent();
 
 		epochStartOffsets = new ConcurrentHashMap<>();
 		channelOffsetMap = new ConcurrentHashMap<>();
 		visibleWriterIndex = new AtomicInteger(0);
+		spilling = new AtomicBoolean(false);
 
 		ReadWriteLock epochLock = new ReentrantReadWriteLock();
 		epochReadLock = epochLock.readLock();
 		epochWriteLock = epochLock.writeLock();
-		this.bufferComponentSize = bufferPool.getMemorySegmentSize();
+
+		this.orderRunLengthEncodingEnabled = determinantEncoder != null &&
+			determinantEncoder.isOrderRunLengthEncodingEnabled();
+		this.pendingOrderRun = new OrderDeterminant();
+		this.pendingOrderRunLength = 0;
 	}
 
 
@@ -132,17 +186,13 @@ public class ThreadCausalLogImpl implements ThreadCausalLog {
 					int numNewDeterminants = (offsetFromEpoch + determinantSize) - currentLogicalOffsetFromEpoch;
 
 					if (numNewDeterminants > 0) {
-
-						while (notEnoughSpaceFor(numNewDeterminants))
-							addComponent();
 						if (LOG.isDebugEnabled())
 							LOG.debug("processUpstreamDelta: writeIndex: {}, epochStartOffset: {}," +
 									" currentLogicalOffsetFromEpoch: {}, numNewDeterminants: {}",
 								writeIndex, epochStartOffset.getOffset(), currentLogicalOffsetFromEpoch,
 								numNewDeterminants);
-						delta.readerIndex(determinantSize - numNewDeterminants);
-						//add the new determinants
-						buf.writeBytes(delta, numNewDeterminants);
+						//add the new determinants, without copying them out of the received buffer
+						appendRetainedSliceUnsafe(delta, determinantSize - numNewDeterminants, numNewDeterminants);
 						visibleWriterIndex.addAndGet(numNewDeterminants);
 					}
 				}
@@ -158,18 +208,43 @@ public class ThreadCausalLogImpl implements ThreadCausalLog {
 	public void appendDeterminant(Determinant determinant, long epochID) {
 		if (determinantSharingDepth == 0)
 			return;
-		int determinantEncodedSize = determinant.getEncodedSizeInBytes();
+		int determinantEncodedSize = determinantEncoder.getEncodedSizeInBytes(determinant);
 		if (LOG.isDebugEnabled())
 			LOG.debug("appendDeterminant: Determinant: {}, epochID: {}, encodedSize: {}", determinant, epochID,
 				determinantEncodedSize);
 		epochReadLock.lock();
 		try {
 			synchronized (buf) {
+				flushPendingOrderRunUnsafe();
 				epochStartOffsets.computeIfAbsent(epochID, k -> new EpochStartOffset(k, visibleWriterIndex.get()));
-				while (notEnoughSpaceFor(determinantEncodedSize))
-					addComponent();
-				determinantEncoder.encodeTo(determinant, buf);
-				visibleWriterIndex.addAndGet(determinantEncodedSize);
+				encodeUnsafe(determinant, determinantEncodedSize);
+			}
+		} finally {
+			epochReadLock.unlock();
+		}
+	}
+
+	@Override
+	public void appendOrderDeterminant(OrderDeterminant determinant, long epochID) {
+		if (!orderRunLengthEncodingEnabled || determinant.isRun()) {
+			appendDeterminant(determinant, epochID);
+			return;
+		}
+		if (determinantSharingDepth == 0)
+			return;
+		epochReadLock.lock();
+		try {
+			synchronized (buf) {
+				if (pendingOrderRunLength != 0 && (pendingOrderRun.getChannel() != determinant.getChannel() ||
+					pendingOrderRunEpochID != epochID || pendingOrderRunLength == OrderDeterminant.MAX_RUN_LENGTH))
+					flushPendingOrderRunUnsafe();
+
+				if (pendingOrderRunLength == 0) {
+					epochStartOffsets.computeIfAbsent(epochID, k -> new EpochStartOffset(k, visibleWriterIndex.get()));
+					pendingOrderRun.replace(determinant.getChannel());
+					pendingOrderRunEpochID = epochID;
+				}
+				pendingOrderRunLength++;
 			}
 		} finally {
 			epochReadLock.unlock();
@@ -181,6 +256,7 @@ public class ThreadCausalLogImpl implements ThreadCausalLog {
 		int result;
 		epochReadLock.lock();
 		try {
+			flushPendingOrderRun();
 			Optional<Long> maybeFirstKey = epochStartOffsets.keySet().stream().min(Long::compareTo);
 			result = maybeFirstKey
 				.map(firstKey -> visibleWriterIndex.get() - epochStartOffsets.get(firstKey).getOffset())
@@ -198,6 +274,7 @@ public class ThreadCausalLogImpl implements ThreadCausalLog {
 			return false;
 		epochReadLock.lock();
 		try {
+			flushPendingOrderRun();
 			EpochStartOffset epochStartOffset = epochStartOffsets.get(epochID);
 			if (epochStartOffset == null) { //If the epoch does not exist, there is certainly no delta
 				if (LOG.isDebugEnabled())
@@ -291,6 +368,7 @@ public class ThreadCausalLogImpl implements ThreadCausalLog {
 
 		epochReadLock.lock();
 		try {
+			flushPendingOrderRun();
 			EpochStartOffset offset = epochStartOffsets.get(startEpochID);
 			if (offset != null)
 				startIndex = offset.getOffset();
@@ -324,6 +402,15 @@ public class ThreadCausalLogImpl implements ThreadCausalLog {
 		}
 		epochWriteLock.lock();
 		buf.release();
+		if (spillFile != null) {
+			try {
+				spillFile.close();
+			} catch (IOException e) {
+				LOG.debug("Could not close determinant spill file {}.", spillFilePath, e);
+			}
+			if (!spillFilePath.delete())
+				LOG.debug("Could not delete determinant spill file {}.", spillFilePath);
+		}
 		epochWriteLock.unlock();
 	}
 
@@ -338,6 +425,7 @@ public class ThreadCausalLogImpl implements ThreadCausalLog {
 	private boolean fullyConsumed() {
 		boolean fullyConsumed = true;
 		epochWriteLock.lock();
+		flushPendingOrderRun();
 		for (ConsumerOffset co : channelOffsetMap.values())
 			if (co.getEpochStart().getOffset() + co.getOffset() < visibleWriterIndex.get()) {
 				fullyConsumed = false;
@@ -348,6 +436,80 @@ public class ThreadCausalLogImpl implements ThreadCausalLog {
 	}
 
 
+	/*
+	 * Encodes the pending run of order determinants, so that it becomes visible to readers.
+	 *
+	 * NOTE: Uses must be wrapped by reader or writer lock
+	 */
+	private void flushPendingOrderRun() {
+		if (!orderRunLengthEncodingEnabled)
+			return;
+		synchronized (buf) {
+			flushPendingOrderRunUnsafe();
+		}
+	}
+
+	/*
+	 * NOTE: Uses must be wrapped by reader or writer lock and synchronized on buf
+	 */
+	private void flushPendingOrderRunUnsafe() {
+		if (pendingOrderRunLength == 0)
+			return;
+		pendingOrderRun.replace(pendingOrderRun.getChannel(), pendingOrderRunLength);
+		if (LOG.isDebugEnabled())
+			LOG.debug("Flushing pending order run: {}, epochID: {}", pendingOrderRun, pendingOrderRunEpochID);
+		encodeUnsafe(pendingOrderRun, determinantEncoder.getEncodedSizeInBytes(pendingOrderRun));
+		pendingOrderRunLength = 0;
+	}
+
+	/*
+	 * NOTE: Uses must be wrapped by reader or writer lock and synchronized on buf
+	 */
+	private void encodeUnsafe(Determinant determinant, int determinantEncodedSize) {
+		while (notEnoughSpaceFor(determinantEncodedSize))
+			addComponent();
+		determinantEncoder.encodeTo(determinant, buf);
+		visibleWriterIndex.addAndGet(determinantEncodedSize);
+	}
+
+	/*
+	 * NOTE: Uses must be wrapped by reader or writer lock and synchronized on buf
+	 */
+	private void appendRetainedSliceUnsafe(ByteBuf delta, int index, int length) {
+		buf.addComponent(true, delta.retainedSlice(index, length));
+		numRetainedSlices++;
+		ByteBuf networkBuffer = delta.unwrap() != null ? delta.unwrap() : delta;
+		retainedSliceCapacity += networkBuffer.capacity();
+
+		if (numRetainedSlices >= MAX_RETAINED_SLICES || retainedSliceCapacity > MAX_RETAINED_SLICE_CAPACITY)
+			compactRetainedSlicesUnsafe();
+	}
+
+	/*
+	 * Copies the trailing retained slices into a single component, releasing the network buffers they keep alive.
+	 * The bytes keep their offsets, so epoch and consumer offsets remain valid. Deltas sliced from the removed
+	 * components hold their own references.
+	 *
+	 * NOTE: Uses must be wrapped by reader or writer lock and synchronized on buf
+	 */
+	private void compactRetainedSlicesUnsafe() {
+		int firstSlice = buf.numComponents() - numRetainedSlices;
+		int start = buf.toByteIndex(firstSlice);
+		int length = buf.capacity() - start;
+		if (LOG.isDebugEnabled())
+			LOG.debug("Compacting {} retained slices of {} bytes, retaining {} bytes", numRetainedSlices, length,
+				retainedSliceCapacity);
+
+		ByteBuf compacted = ByteBufAllocator.DEFAULT.directBuffer(length, length);
+		buf.getBytes(start, compacted, length);
+		// The writer index is left untouched, as the compacted component restores the capacity
+		buf.removeComponents(firstSlice, numRetainedSlices);
+		buf.addComponent(false, compacted);
+
+		numRetainedSlices = 0;
+		retainedSliceCapacity = 0;
+	}
+
 	private boolean notEnoughSpaceFor(int length) {
 		return buf.writableBytes() < length;
 	}
@@ -367,11 +529,19 @@ public class ThreadCausalLogImpl implements ThreadCausalLog {
 
 		int currIndex = srcOffset;
 		int numBytesLeft = numBytesToSend;
+		if (currIndex < 0) {
+			// The determinants were spilled, page them back in
+			int numSpilledBytes = Math.min(numBytesLeft, -currIndex);
+			result.addComponent(true, readSpilledUnsafe(currIndex, numSpilledBytes));
+			numBytesLeft -= numSpilledBytes;
+			currIndex += numSpilledBytes;
+		}
 		while (numBytesLeft != 0) {
-			int bufferIndex = currIndex / bufferComponentSize;
-			int indexInBuffer = currIndex % bufferComponentSize;
+			// Components of upstream logs have varying sizes
+			int bufferIndex = buf.toComponentIndex(currIndex);
+			int indexInBuffer = currIndex - buf.toByteIndex(bufferIndex);
 			ByteBuf component = buf.internalComponent(bufferIndex);
-			int numBytesFromBuf = Math.min(numBytesLeft, bufferComponentSize - indexInBuffer);
+			int numBytesFromBuf = Math.min(numBytesLeft, component.capacity() - indexInBuffer);
 			if (numBytesFromBuf > 0)
 				result.addComponent(true, component.retainedSlice(indexInBuffer, numBytesFromBuf));
 
@@ -381,6 +551,23 @@ public class ThreadCausalLogImpl implements ThreadCausalLog {
 		return result;
 	}
 
+	/*
+	 * NOTE: Uses must be wrapped by reader lock and synchronized on buf
+	 */
+	private ByteBuf readSpilledUnsafe(int srcOffset, int length) {
+		ByteBuf paged = ByteBufAllocator.DEFAULT.directBuffer(length, length);
+		try {
+			long position = spillFileSize + srcOffset;
+			while (paged.isWritable())
+				if (paged.writeBytes(spillFile, position + paged.writerIndex(), paged.writableBytes()) < 0)
+					throw new IOException("Unexpected end of determinant spill file " + spillFilePath);
+		} catch (IOException e) {
+			paged.release();
+			throw new RuntimeException("Could not read spilled determinants of " + causalLogID, e);
+		}
+		return paged;
+	}
+
 	private int computeNumberOfBytesToSend(long epochID, int physicalConsumerOffset) {
 		int currentWriteIndex = visibleWriterIndex.get();
 		EpochStartOffset nextEpochStartOffset =
@@ -400,6 +587,7 @@ public class ThreadCausalLogImpl implements ThreadCausalLog {
 			LOG.debug("Notify checkpoint complete for id {}", checkpointId);
 		epochWriteLock.lock();
 		try {
+			flushPendingOrderRun();
 			int visibleWriter = visibleWriterIndex.get();
 			EpochStartOffset followingEpoch =
 				epochStartOffsets.computeIfAbsent(checkpointId,
@@ -413,27 +601,189 @@ public class ThreadCausalLogImpl implements ThreadCausalLog {
 			if (LOG.isDebugEnabled())
 				LOG.debug("chkComplete visWriterIndex {}, followingEpochOffset {}", visibleWriter,
 					followingEpochOffset);
-			buf.readerIndex(followingEpochOffset);
-			buf.discardReadComponents();
-			int move = followingEpochOffset - buf.readerIndex();
+			// If the following epoch was spilled, the in-memory log is still needed
+			if (followingEpochOffset >= 0)
+				discardUpToUnsafe(followingEpochOffset);
+			truncateSpillFile(followingEpochOffset);
+		} finally {
+			epochWriteLock.unlock();
+		}
+	}
 
-			if (LOG.isDebugEnabled())
-				LOG.debug("Offsets moved by {} bytes.", move);
-			for (Map.Entry<Long, EpochStartOffset> entry :
-				epochStartOffsets.entrySet()) {
-				EpochStartOffset eso = entry.getValue();
-				int currentOffset = eso.getOffset();
-				LOG.debug("Epoch {} currently at {} moved by {} and moved to {}", entry.getKey(), currentOffset, move,
-					currentOffset - move);
-
-				eso.setOffset(currentOffset - move);
+
+	/*
+	 * The consumed components are retained under the locks, but written to the spill file outside of them, so that
+	 * appends and reads do not wait for the disk. The spill only takes effect if no checkpoint completed meanwhile,
+	 * as the completion may have truncated the spill file or the consumed determinants.
+	 */
+	@Override
+	public int spillConsumedEpochs(FileIOChannel.Enumerator spillFileEnumerator) {
+		if (determinantSharingDepth == 0 || !spilling.compareAndSet(false, true))
+			return 0;
+		ByteBuf consumed = null;
+		try {
+			int length;
+			long logicalSpillStart;
+			long spillFileOffset;
+			long version;
+			if (!epochWriteLock.tryLock())
+				return 0;
+			try {
+				synchronized (buf) {
+					int spillEnd = computeSpillEndUnsafe();
+					int spillStart = Math.max(0, epochStartOffsets.values().stream()
+						.mapToInt(EpochStartOffset::getOffset).min().orElse(spillEnd));
+					if (spillEnd <= spillStart)
+						return 0;
+
+					length = spillEnd - spillStart;
+					if (spillFile == null) {
+						spillFilePath = spillFileEnumerator.next().getPathFile();
+						spillFile = FileChannel.open(spillFilePath.toPath(), StandardOpenOption.CREATE,
+							StandardOpenOption.READ, StandardOpenOption.WRITE);
+					}
+					consumed = makeDeltaUnsafe(spillStart, length);
+					logicalSpillStart = discardedBytes + spillStart;
+					spillFileOffset = spillFileSize;
+					version = spillFileVersion;
+				}
+			} finally {
+				epochWriteLock.unlock();
+			}
+
+			// Readers only read the spill file up to its size, so they never see this region before it is committed
+			for (int written = 0; written < length; )
+				written += consumed.getBytes(written, spillFile, spillFileOffset + written, length - written);
+
+			epochWriteLock.lock();
+			try {
+				synchronized (buf) {
+					int spillStart = (int) (logicalSpillStart - discardedBytes);
+					if (buf.refCnt() == 0 || version != spillFileVersion || spillStart < 0)
+						return 0;
+					spillFileSize += length;
+					discardUpToUnsafe(spillStart + length);
+					if (LOG.isDebugEnabled())
+						LOG.debug("Spilled {} bytes of causal log {} to {}", length, causalLogID, spillFilePath);
+					return length;
+				}
+			} finally {
+				epochWriteLock.unlock();
 			}
-			visibleWriterIndex.set(visibleWriterIndex.get() - move);
+		} catch (IOException e) {
+			LOG.warn("Could not spill determinants of causal log {}, keeping them in memory.", causalLogID, e);
+			return 0;
 		} finally {
-			epochWriteLock.unlock();
+			if (consumed != null)
+				consumed.release();
+			spilling.set(false);
 		}
 	}
 
+	/*
+	 * Determinants may only be spilled once all consumers received them, and only up to the start of the latest
+	 * epoch, which newly registered consumers start reading from. Only whole components are spilled, so that the
+	 * one being written into stays in memory.
+	 *
+	 * NOTE: Uses must be wrapped by writer lock and synchronized on buf
+	 */
+	private int computeSpillEndUnsafe() {
+		if (epochStartOffsets.isEmpty() || buf.numComponents() < 2)
+			return 0;
+		long latestEpochID = epochStartOffsets.keySet().stream().max(Long::compareTo).get();
+		int limit = Math.min(visibleWriterIndex.get(), epochStartOffsets.get(latestEpochID).getOffset());
+		for (ConsumerOffset consumerOffset : channelOffsetMap.values()) {
+			EpochStartOffset consumerEpochStart = consumerOffset.getEpochStart();
+			// Consumers of truncated epochs move on to the following epoch when they read next
+			if (epochStartOffsets.get(consumerEpochStart.getId()) == consumerEpochStart)
+				limit = Math.min(limit, consumerEpochStart.getOffset() + consumerOffset.getOffset());
+		}
+		if (limit <= 0)
+			return 0;
+
+		int lastComponent = buf.numComponents() - 1;
+		int component = limit >= buf.capacity() ? lastComponent : Math.min(buf.toComponentIndex(limit), lastComponent);
+		return buf.toByteIndex(component);
+	}
+
+	/*
+	 * Discards the components before the given offset, moving all offsets back by the discarded bytes.
+	 *
+	 * NOTE: Uses must be wrapped by writer lock
+	 */
+	private void discardUpToUnsafe(int offset) {
+		buf.readerIndex(offset);
+		buf.discardReadComponents();
+		int move = offset - buf.readerIndex();
+		discardedBytes += move;
+		// Discarded components are taken from the front, retained slices are the trailing ones
+		numRetainedSlices = Math.min(numRetainedSlices, buf.numComponents());
+		if (numRetainedSlices == 0)
+			retainedSliceCapacity = 0;
+
+		if (LOG.isDebugEnabled())
+			LOG.debug("Offsets moved by {} bytes.", move);
+		for (Map.Entry<Long, EpochStartOffset> entry :
+			epochStartOffsets.entrySet()) {
+			EpochStartOffset eso = entry.getValue();
+			int currentOffset = eso.getOffset();
+			LOG.debug("Epoch {} currently at {} moved by {} and moved to {}", entry.getKey(), currentOffset, move,
+				currentOffset - move);
+
+			eso.setOffset(currentOffset - move);
+		}
+		visibleWriterIndex.set(visibleWriterIndex.get() - move);
+	}
+
+	/*
+	 * Drops the spilled determinants before the given offset, once the log was truncated up to it. The spilled
+	 * determinants from the offset on are moved to the start of the spill file, so that their offsets stay valid.
+	 *
+	 * NOTE: Uses must be wrapped by writer lock
+	 */
+	private void truncateSpillFile(int offset) {
+		if (spillFile == null || spillFileSize == 0)
+			return;
+		long retained = Math.min(spillFileSize, Math.max(0L, -(long) offset));
+		if (retained == spillFileSize)
+			return;
+		try {
+			// The retained determinants are copied front to back, so the copy never overwrites unread ones
+			ByteBuffer chunk = ByteBuffer.allocateDirect((int) Math.min(retained, SPILL_COMPACTION_CHUNK_SIZE));
+			for (long copied = 0; copied < retained; copied += chunk.position()) {
+				chunk.clear();
+				chunk.limit((int) Math.min(chunk.capacity(), retained - copied));
+				while (chunk.hasRemaining())
+					if (spillFile.read(chunk, spillFileSize - retained + copied + chunk.position()) < 0)
+						throw new IOException("Unexpected end of determinant spill file " + spillFilePath);
+				chunk.flip();
+				while (chunk.hasRemaining())
+					spillFile.write(chunk, copied + chunk.position());
+			}
+			spillFile.truncate(retained);
+		} catch (IOException e) {
+			throw new RuntimeException("Could not truncate spilled determinants of " + causalLogID, e);
+		}
+		spillFileSize = retained;
+		spillFileVersion++;
+	}
+
+	@Override
+	public long getMemoryInBytes() {
+		synchronized (buf) {
+			return buf.capacity();
+		}
+	}
+
+	@Override
+	public long getSpilledBytes() {
+		epochReadLock.lock();
+		try {
+			return spillFileSize;
+		} finally {
+			epochReadLock.unlock();
+		}
+	}
 
 	private void addComponent() {
 		if (LOG.isDebugEnabled())
@@ -108,17 +108,19 @@ public abstract class AbstractState implements State {
 		RecoveryManagerContext.UnansweredDeterminantRequest udr =
 			context.unansweredDeterminantRequests.get(e.getVertexID(), e.getCorrelationID());
 		if (udr != null) {
-			udr.incResponsesReceived();
-			udr.getCurrentResponse().merge(e);
-			if (udr.getNumResponsesReceived() == context.getNumberOfDirectDownstreamNeighbourVertexes()) {
+			//Chunks are forwarded as they arrive, the forwarded response ends with the last chunk of all neighbours
+			if (e.isLastChunk())
+				udr.incResponsesReceived();
+			boolean lastChunk =
+				udr.getNumResponsesReceived() == context.getNumberOfDirectDownstreamNeighbourVertexes();
+			if (lastChunk)
 				context.unansweredDeterminantRequests.remove(e.getVertexID(), e.getCorrelationID());
-				try {
-					DeterminantResponseEvent toRespond = udr.getCurrentResponse();
-					context.inputGate.getInputChannel(udr.getRequestingChannel()).sendTaskEvent(toRespond);
-					//TODO udr.getVertexCausalLogDelta().release(); Cant release here because sendTaskEvent is async
-				} catch (IOException | InterruptedException ex) {
-					ex.printStackTrace();
-				}
+			e.setCorrelationID(udr.getResponseCorrelationID());
+			e.setLastChunk(lastChunk);
+			try {
+				context.inputGate.getInputChannel(udr.getRequestingChannel()).sendTaskEvent(e);
+			} catch (IOException | InterruptedException ex) {
+				ex.printStackTrace();
 			}
 		} else
 			logInfoWithVertexID("Do not know what this determinant response event refers to...");
@@ -128,8 +130,9 @@ public abstract class AbstractState implements State {
 	@Override
 	public void notifyDeterminantRequestEvent(DeterminantRequestEvent e, int channelRequestArrivedFrom) {
 		logInfoWithVertexID("Received {}", e);
-		//If we are a sink and doing transactional recovery, just answer with nothing
-		if (!context.vertexGraphInformation.hasDownstream() && RecoveryManager.sinkRecoveryStrategy == RecoveryManager.SinkRecoveryStrategy.TRANSACTIONAL) {
+		//If we are a sink, there is no one to forward the request to. While recovering our own log is incomplete,
+		// so just answer with nothing
+		if (!context.vertexGraphInformation.hasDownstream()) {
 			try {
 				context.inputGate.getInputChannel(channelRequestArrivedFrom).sendTaskEvent(new DeterminantResponseEvent(e));
 			} catch (IOException | InterruptedException ex) {
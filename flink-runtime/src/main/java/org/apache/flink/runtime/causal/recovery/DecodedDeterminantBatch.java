@@ -0,0 +1,195 @@
+/*
+ *
+ *
+ *
+ *  * Licensed to the Apache Software Foundation (ASF) under one
+ *  * or more contributor license agreements.  See the NOTICE file
+ *  * distributed with this work for additional information
+ *  * regarding copyright ownership.  The ASF licenses this file
+ *  * to you under the Apache License, Version 2.0 (the
+ *  * "License"); you may not use this file except in compliance
+ *  * with the License.  You may obtain a copy of the License at
+ *  *
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ *
+ *
+ *
+ */
+
+package org.apache.flink.runtime.causal.recovery;
+
+import org.apache.flink.runtime.causal.determinant.AsyncDeterminant;
+import org.apache.flink.runtime.causal.determinant.Determinant;
+import org.apache.flink.runtime.causal.determinant.OrderDeterminant;
+
+/**
+ * A batch of decoded determinants of a log being replayed. The values of order, timestamp and RNG determinants are
+ * copied into primitive arrays per type, so that replaying them neither dispatches on the determinant class nor
+ * synchronizes with the {@link DeterminantStream} the batch is decoded from. The tags keep the order of the batch.
+ *
+ * <p>Async, serializable and typed serializable determinants are kept as objects. Taking one of them from the batch
+ * hands it over to the caller, which recycles it once it was replayed.
+ */
+final class DecodedDeterminantBatch {
+
+	static final int DEFAULT_CAPACITY = 512;
+
+	private final byte[] tags;
+	private int size;
+	private int position;
+
+	private final int[] channels;
+	private final int[] runLengths;
+	private int numOrderDeterminants;
+	private int orderPosition;
+
+	private final long[] timestamps;
+	private int numTimestamps;
+	private int timestampPosition;
+
+	private final int[] randomInts;
+	private int numRandomInts;
+	private int randomIntPosition;
+
+	// The record counts of the async determinants among the objects, known without touching the objects
+	private final int[] asyncRecordCounts;
+	private int numAsyncDeterminants;
+	private int asyncPosition;
+
+	private final Determinant[] objects;
+	private int numObjects;
+	private int objectPosition;
+
+	DecodedDeterminantBatch() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	DecodedDeterminantBatch(int capacity) {
+		this.tags = new byte[capacity];
+		this.channels = new int[capacity];
+		this.runLengths = new int[capacity];
+		this.timestamps = new long[capacity];
+		this.randomInts = new int[capacity];
+		this.asyncRecordCounts = new int[capacity];
+		this.objects = new Determinant[capacity];
+	}
+
+	/**
+	 * Adds the decoded determinant to the batch. Determinants whose values are copied are recycled right away.
+	 */
+	void add(Determinant determinant, DeterminantPool determinantPool) {
+		byte tag = determinant.getTag();
+		switch (tag) {
+			case Determinant.ORDER_DETERMINANT_TAG:
+				OrderDeterminant orderDeterminant = determinant.asOrderDeterminant();
+				channels[numOrderDeterminants] = orderDeterminant.getChannel();
+				runLengths[numOrderDeterminants++] = orderDeterminant.getRunLength();
+				determinantPool.recycle(determinant);
+				break;
+			case Determinant.TIMESTAMP_DETERMINANT_TAG:
+				timestamps[numTimestamps++] = determinant.asTimestampDeterminant().getTimestamp();
+				determinantPool.recycle(determinant);
+				break;
+			case Determinant.RNG_DETERMINANT_TAG:
+				randomInts[numRandomInts++] = determinant.asRNGDeterminant().getNumber();
+				determinantPool.recycle(determinant);
+				break;
+			case Determinant.TIMER_TRIGGER_DETERMINANT:
+			case Determinant.SOURCE_CHECKPOINT_DETERMINANT:
+			case Determinant.IGNORE_CHECKPOINT_DETERMINANT:
+				asyncRecordCounts[numAsyncDeterminants++] = ((AsyncDeterminant) determinant).getRecordCount();
+				objects[numObjects++] = determinant;
+				break;
+			default:
+				objects[numObjects++] = determinant;
+		}
+		tags[size++] = tag;
+	}
+
+	boolean isFull() {
+		return size == tags.length;
+	}
+
+	boolean hasNext() {
+		return position < size;
+	}
+
+	/**
+	 * The number of determinants added since the batch was last cleared.
+	 */
+	int size() {
+		return size;
+	}
+
+	byte peekTag() {
+		return tags[position];
+	}
+
+	boolean isNextAsync() {
+		byte tag = tags[position];
+		return tag == Determinant.TIMER_TRIGGER_DETERMINANT || tag == Determinant.SOURCE_CHECKPOINT_DETERMINANT ||
+			tag == Determinant.IGNORE_CHECKPOINT_DETERMINANT;
+	}
+
+	int peekChannel() {
+		return channels[orderPosition];
+	}
+
+	int peekRunLength() {
+		return runLengths[orderPosition];
+	}
+
+	void skipOrderDeterminant() {
+		orderPosition++;
+		position++;
+	}
+
+	long nextTimestamp() {
+		position++;
+		return timestamps[timestampPosition++];
+	}
+
+	int nextRandomInt() {
+		position++;
+		return randomInts[randomIntPosition++];
+	}
+
+	int peekAsyncRecordCount() {
+		return asyncRecordCounts[asyncPosition];
+	}
+
+	AsyncDeterminant nextAsyncDeterminant() {
+		asyncPosition++;
+		return (AsyncDeterminant) nextObject();
+	}
+
+	Determinant nextObject() {
+		position++;
+		Determinant determinant = objects[objectPosition];
+		objects[objectPosition++] = null;
+		return determinant;
+	}
+
+	/**
+	 * Empties the batch, recycling the objects which were not taken.
+	 */
+	void clear(DeterminantPool determinantPool) {
+		for (int i = objectPosition; i < numObjects; i++) {
+			determinantPool.recycle(objects[i]);
+			objects[i] = null;
+		}
+		size = position = 0;
+		numOrderDeterminants = orderPosition = 0;
+		numTimestamps = timestampPosition = 0;
+		numRandomInts = randomIntPosition = 0;
+		numAsyncDeterminants = asyncPosition = 0;
+		numObjects = objectPosition = 0;
+	}
+}
@@ -41,7 +41,7 @@ public class DeterminantPool {
 	Queue<Determinant>[] determinantCache;
 
 	public DeterminantPool(){
-		determinantCache = new Queue[8];
+		determinantCache = new Queue[10];
 
 		determinantCache[OrderDeterminant.getTypeTag()] = new ArrayDeque<>();
 		for(int i = 0; i < NUM_BASE_DETERMINANTS; i++)
@@ -59,6 +59,10 @@ public class DeterminantPool {
 		for(int i = 0; i < NUM_BASE_DETERMINANTS; i++)
 			determinantCache[SerializableDeterminant.getTypeTag()].add(new SerializableDeterminant());
 
+		determinantCache[TypedSerializableDeterminant.getTypeTag()] = new ArrayDeque<>();
+		for(int i = 0; i < NUM_BASE_DETERMINANTS; i++)
+			determinantCache[TypedSerializableDeterminant.getTypeTag()].add(new TypedSerializableDeterminant());
+
 		determinantCache[TimerTriggerDeterminant.getTypeTag()] = new ArrayDeque<>();
 		for(int i = 0; i < NUM_BASE_DETERMINANTS; i++)
 			determinantCache[TimerTriggerDeterminant.getTypeTag()].add(new TimerTriggerDeterminant());
@@ -138,4 +142,11 @@ public class DeterminantPool {
 			q.add(new SerializableDeterminant());
 		return (SerializableDeterminant) q.poll();
 	}
+
+	public TypedSerializableDeterminant getTypedSerializableDeterminant() {
+		Queue<Determinant> q = determinantCache[Determinant.TYPED_SERIALIZABLE_DETERMINANT_TAG];
+		if(q.isEmpty())
+			q.add(new TypedSerializableDeterminant());
+		return (TypedSerializableDeterminant) q.poll();
+	}
 }
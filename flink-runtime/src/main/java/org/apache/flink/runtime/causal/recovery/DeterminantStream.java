@@ -0,0 +1,177 @@
+/*
+ *
+ *
+ *
+ *  * Licensed to the Apache Software Foundation (ASF) under one
+ *  * or more contributor license agreements.  See the NOTICE file
+ *  * distributed with this work for additional information
+ *  * regarding copyright ownership.  The ASF licenses this file
+ *  * to you under the Apache License, Version 2.0 (the
+ *  * "License"); you may not use this file except in compliance
+ *  * with the License.  You may obtain a copy of the License at
+ *  *
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ *
+ *
+ *
+ */
+
+package org.apache.flink.runtime.causal.recovery;
+
+import org.apache.flink.runtime.causal.determinant.Determinant;
+import org.apache.flink.runtime.causal.determinant.DeterminantEncoder;
+import org.apache.flink.shaded.netty4.io.netty.buffer.ByteBuf;
+import org.apache.flink.shaded.netty4.io.netty.buffer.ByteBufAllocator;
+import org.apache.flink.shaded.netty4.io.netty.buffer.CompositeByteBuf;
+
+import static org.apache.flink.util.Preconditions.checkState;
+
+/**
+ * The determinants of a log of a recovering vertex, as far as they were received. Determinants can be decoded while
+ * the rest of the log is still being received, waiting for it when needed.
+ *
+ * <p>All responses hold prefixes of the same log and each is received in order, so the log is extended by every
+ * chunk that goes beyond the received prefix, and a chunk never starts beyond it.
+ */
+public class DeterminantStream {
+
+	// The received determinants which were not decoded yet
+	private final CompositeByteBuf buffer;
+
+	// The number of bytes of the log received so far
+	private int length;
+
+	private boolean complete;
+
+	public DeterminantStream() {
+		this.buffer = ByteBufAllocator.DEFAULT.compositeDirectBuffer(Integer.MAX_VALUE);
+		this.length = 0;
+		this.complete = false;
+	}
+
+	/**
+	 * Appends the part of the chunk of determinants starting at the given offset which was not received yet. Takes
+	 * ownership of the chunk.
+	 */
+	public synchronized void append(int offset, ByteBuf chunk) {
+		checkState(offset <= length, "Received determinants at offset %s beyond the received log of length %s",
+			offset, length);
+		int end = offset + chunk.readableBytes();
+		if (end <= length) {
+			chunk.release();
+			return;
+		}
+		chunk.skipBytes(length - offset);
+		buffer.addComponent(true, chunk);
+		length = end;
+		notifyAll();
+	}
+
+	/**
+	 * Marks that all responses were received.
+	 */
+	public synchronized void complete() {
+		complete = true;
+		notifyAll();
+	}
+
+	/**
+	 * Decodes the next determinant if it was received.
+	 *
+	 * @return the determinant, or null if it was not received yet or the log is exhausted.
+	 */
+	public synchronized Determinant pollNext(DeterminantEncoder encoder, DeterminantPool determinantPool) {
+		if (!isNextReceived(encoder))
+			return null;
+		Determinant determinant = encoder.decodeNext(buffer, determinantPool);
+		buffer.discardReadComponents();
+		return determinant;
+	}
+
+	/**
+	 * Decodes the next determinant, waiting until it is received.
+	 *
+	 * @return the determinant, or null if the log is exhausted.
+	 */
+	public synchronized Determinant awaitNext(DeterminantEncoder encoder, DeterminantPool determinantPool)
+		throws InterruptedException {
+		Determinant determinant;
+		while ((determinant = pollNext(encoder, determinantPool)) == null && !complete)
+			wait();
+		return determinant;
+	}
+
+	/**
+	 * Decodes the received determinants into the batch until it is full, holding the lock of the stream once for
+	 * all of them.
+	 *
+	 * @return the number of decoded determinants.
+	 */
+	synchronized int pollBatch(DeterminantEncoder encoder, DeterminantPool determinantPool,
+		DecodedDeterminantBatch batch) {
+		int numDecoded = 0;
+		while (!batch.isFull() && isNextReceived(encoder)) {
+			batch.add(encoder.decodeNext(buffer, determinantPool), determinantPool);
+			numDecoded++;
+		}
+		buffer.discardReadComponents();
+		return numDecoded;
+	}
+
+	/**
+	 * Whether the next determinant was received completely.
+	 */
+	private boolean isNextReceived(DeterminantEncoder encoder) {
+		if (!buffer.isReadable())
+			return false;
+		int size = encoder.getEncodedSizeOfNext(buffer);
+		boolean received = size >= 0 && size <= buffer.readableBytes();
+		checkState(received || !complete, "The received log of length %s ends within a determinant", length);
+		return received;
+	}
+
+	/**
+	 * Decodes the received determinants into the batch, waiting until at least one is received.
+	 *
+	 * @return the number of decoded determinants, 0 if the log is exhausted.
+	 */
+	synchronized int awaitBatch(DeterminantEncoder encoder, DeterminantPool determinantPool,
+		DecodedDeterminantBatch batch) throws InterruptedException {
+		int numDecoded;
+		while ((numDecoded = pollBatch(encoder, determinantPool, batch)) == 0 && !complete)
+			wait();
+		return numDecoded;
+	}
+
+	public synchronized boolean isExhausted() {
+		return complete && !buffer.isReadable();
+	}
+
+	public synchronized int getLength() {
+		return length;
+	}
+
+	public synchronized int getRemainingBytes() {
+		return buffer.readableBytes();
+	}
+
+	public synchronized void release() {
+		buffer.release();
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "DeterminantStream{" +
+			"length=" + length +
+			", remaining=" + buffer.readableBytes() +
+			", complete=" + complete +
+			'}';
+	}
+}
@@ -0,0 +1,105 @@
+/*
+ *
+ *
+ *
+ *  * Licensed to the Apache Software Foundation (ASF) under one
+ *  * or more contributor license agreements.  See the NOTICE file
+ *  * distributed with this work for additional information
+ *  * regarding copyright ownership.  The ASF licenses this file
+ *  * to you under the Apache License, Version 2.0 (the
+ *  * "License"); you may not use this file except in compliance
+ *  * with the License.  You may obtain a copy of the License at
+ *  *
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ *
+ *
+ *
+ */
+
+package org.apache.flink.runtime.causal.recovery;
+
+import org.apache.flink.runtime.causal.DeterminantResponseEvent;
+import org.apache.flink.runtime.causal.log.job.CausalLogID;
+import org.apache.flink.shaded.netty4.io.netty.buffer.ByteBuf;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The {@link DeterminantStream}s of the logs of a recovering vertex, fed by the chunked responses to its determinant
+ * request. The streams are complete once the last chunk of every expected response was received.
+ */
+public class DeterminantStreams {
+
+	private final Map<CausalLogID, DeterminantStream> streams;
+
+	private final int numResponsesExpected;
+
+	private int numResponsesReceived;
+
+	public DeterminantStreams(int numResponsesExpected) {
+		this.streams = new HashMap<>();
+		this.numResponsesExpected = numResponsesExpected;
+		this.numResponsesReceived = 0;
+	}
+
+	public synchronized void add(DeterminantResponseEvent chunk) {
+		for (Map.Entry<CausalLogID, ByteBuf> entry : chunk.getDeterminants().entrySet())
+			getStream(entry.getKey()).append(chunk.getOffset(), entry.getValue());
+
+		if (chunk.isLastChunk() && ++numResponsesReceived == numResponsesExpected)
+			for (DeterminantStream stream : streams.values())
+				stream.complete();
+	}
+
+	public synchronized DeterminantStream getStream(CausalLogID causalLogID) {
+		DeterminantStream stream = streams.get(causalLogID);
+		if (stream == null) {
+			stream = new DeterminantStream();
+			if (isComplete())
+				stream.complete();
+			streams.put(new CausalLogID(causalLogID), stream);
+		}
+		return stream;
+	}
+
+	/**
+	 * @return the number of bytes of the logs received so far.
+	 */
+	public synchronized long getReceivedBytes() {
+		long receivedBytes = 0;
+		for (DeterminantStream stream : streams.values())
+			receivedBytes += stream.getLength();
+		return receivedBytes;
+	}
+
+	/**
+	 * @return the number of bytes of the logs received which were not replayed yet.
+	 */
+	public synchronized long getRemainingBytes() {
+		long remainingBytes = 0;
+		for (DeterminantStream stream : streams.values())
+			remainingBytes += stream.getRemainingBytes();
+		return remainingBytes;
+	}
+
+	public synchronized boolean isComplete() {
+		return numResponsesReceived == numResponsesExpected;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "DeterminantStreams{" +
+			"streams=" + streams +
+			", numResponsesExpected=" + numResponsesExpected +
+			", numResponsesReceived=" + numResponsesReceived +
+			'}';
+	}
+}
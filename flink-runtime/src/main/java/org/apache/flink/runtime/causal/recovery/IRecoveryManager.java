@@ -26,6 +26,7 @@
 package org.apache.flink.runtime.causal.recovery;
 
 import org.apache.flink.runtime.causal.*;
+import org.apache.flink.runtime.event.InFlightLogPositionEvent;
 import org.apache.flink.runtime.event.InFlightLogRequestEvent;
 import org.apache.flink.runtime.io.network.api.DeterminantRequestEvent;
 import org.apache.flink.runtime.io.network.partition.consumer.InputChannel;
@@ -42,6 +43,8 @@ public interface IRecoveryManager {
 
 	void notifyInFlightLogRequestEvent(InFlightLogRequestEvent e);
 
+	void notifyInFlightLogPositionEvent(InFlightLogPositionEvent e);
+
 	void notifyDeterminantResponseEvent(DeterminantResponseEvent e);
 
 	void notifyDeterminantRequestEvent(DeterminantRequestEvent e,int channelRequestArrivedFrom);
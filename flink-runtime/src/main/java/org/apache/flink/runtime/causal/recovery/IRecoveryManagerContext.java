@@ -26,7 +26,6 @@
 package org.apache.flink.runtime.causal.recovery;
 
 import org.apache.flink.runtime.causal.CheckpointForceable;
-import org.apache.flink.runtime.causal.DeterminantResponseEvent;
 import org.apache.flink.runtime.causal.EpochTracker;
 import org.apache.flink.runtime.causal.ProcessingTimeForceable;
 import org.apache.flink.runtime.causal.determinant.AsyncDeterminant;
@@ -52,17 +51,18 @@ public interface IRecoveryManagerContext {
 
 	int getNumberOfDirectDownstreamNeighbourVertexes();
 
+	RecoveryMetrics getRecoveryMetrics();
+
 	public static class UnansweredDeterminantRequest {
 		private int numResponsesReceived;
 		private final int requestingChannel;
 
-		private final DeterminantResponseEvent response;
+		private final long responseCorrelationID;
 
 		public UnansweredDeterminantRequest(DeterminantRequestEvent event, int requestingChannel) {
 			this.numResponsesReceived = 0;
 			this.requestingChannel = requestingChannel;
-			this.response = new DeterminantResponseEvent(event);
-			this.response.setCorrelationID(event.getUpstreamCorrelationID());
+			this.responseCorrelationID = event.getUpstreamCorrelationID();
 		}
 
 		public int getNumResponsesReceived() {
@@ -78,8 +78,8 @@ public interface IRecoveryManagerContext {
 			numResponsesReceived++;
 		}
 
-		public DeterminantResponseEvent getCurrentResponse() {
-			return response;
+		public long getResponseCorrelationID() {
+			return responseCorrelationID;
 		}
 
 	}
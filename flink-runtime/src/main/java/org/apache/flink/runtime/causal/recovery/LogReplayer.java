@@ -25,17 +25,31 @@
 
 package org.apache.flink.runtime.causal.recovery;
 
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+
 public interface LogReplayer {
 
 	void triggerAsyncEvent();
 
 	int replayRandomInt();
 
-	byte replayNextChannel();
+	int replayNextChannel();
+
+	/**
+	 * Returns the run length of the recorded order determinant whose first decision the next call to
+	 * {@link #replayNextChannel()} replays, or 0 if that call continues a run which has already been started.
+	 */
+	int getNextOrderRunLength();
 
 	long replayNextTimestamp();
 
 	void checkFinished();
 
     Object replaySerializableDeterminant();
+
+	/**
+	 * Replays the value recorded by the serializable service registered with the given service ID, deserializing it
+	 * with that service's serializer.
+	 */
+	<T> T replayTypedSerializableDeterminant(int serviceID, TypeSerializer<T> serializer);
 }
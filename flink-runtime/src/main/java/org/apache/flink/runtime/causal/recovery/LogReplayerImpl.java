@@ -25,83 +25,143 @@
 
 package org.apache.flink.runtime.causal.recovery;
 
-import org.apache.flink.runtime.causal.determinant.*;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.core.memory.DataInputDeserializer;
+import org.apache.flink.runtime.causal.determinant.AsyncDeterminant;
+import org.apache.flink.runtime.causal.determinant.Determinant;
+import org.apache.flink.runtime.causal.determinant.DeterminantEncoder;
+import org.apache.flink.runtime.causal.determinant.SerializableDeterminant;
+import org.apache.flink.runtime.causal.determinant.TypedSerializableDeterminant;
 import org.apache.flink.runtime.causal.log.job.CausalLogID;
-import org.apache.flink.shaded.netty4.io.netty.buffer.ByteBuf;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.Serializable;
+import java.io.IOException;
 
+/**
+ * Replays the main thread log of a recovering task. Determinants are decoded ahead of their consumption in batches,
+ * so the task thread only synchronizes with the stream of received determinants once per batch.
+ *
+ * <p>Only the task thread replays determinants once the task started. Async events may replay determinants of their
+ * own while being processed, so they, and the transition out of the replaying state, remain synchronized.
+ */
 public class LogReplayerImpl implements LogReplayer {
 
 	private static final Logger LOG = LoggerFactory.getLogger(LogReplayer.class);
 
 	private final DeterminantEncoder determinantEncoder;
 
-	private final ByteBuf log;
+	private final DeterminantStream log;
 
 	private final DeterminantPool determinantPool;
 	private final RecoveryManagerContext context;
 
-	Determinant nextDeterminant;
+	// The decoded determinants which were not replayed yet
+	private final DecodedDeterminantBatch batch;
+
+	// The number of decisions of the run-length encoded order determinant being replayed which are still to be replayed
+	private int remainingOrderRunLength;
 
 	private boolean done;
 
-	public LogReplayerImpl(ByteBuf log, RecoveryManagerContext recoveryManagerContext) {
+	// Used to deserialize the values of typed serializable determinants
+	private final DataInputDeserializer typedValueDeserializer;
+
+	public LogReplayerImpl(DeterminantStream log, RecoveryManagerContext recoveryManagerContext) {
 		this.context = recoveryManagerContext;
 		this.determinantEncoder = context.causalLog.getDeterminantEncoder();
 		this.log = log;
 		this.determinantPool = new DeterminantPool();
-		deserializeNext();
+		this.batch = new DecodedDeterminantBatch();
+		this.remainingOrderRunLength = 0;
+		this.typedValueDeserializer = new DataInputDeserializer();
 		done = false;
 	}
 
+	/**
+	 * Decodes the received determinants without waiting for more, as the task may only start replaying once the
+	 * first one is known.
+	 *
+	 * @return true if the first determinant is known or the log is exhausted.
+	 */
+	public synchronized boolean tryStart() {
+		if (!batch.hasNext())
+			log.pollBatch(determinantEncoder, determinantPool, batch);
+		return batch.hasNext() || log.isExhausted();
+	}
+
 	@Override
-	public synchronized int replayRandomInt() {
-		assert nextDeterminant instanceof RNGDeterminant;
-		final RNGDeterminant rngDeterminant = (RNGDeterminant) nextDeterminant;
-		deserializeNext();
-		int toReturn = rngDeterminant.getNumber();
-		postHook(rngDeterminant);
+	public int replayRandomInt() {
+		assert batch.peekTag() == Determinant.RNG_DETERMINANT_TAG;
+		int toReturn = batch.nextRandomInt();
+		postHook();
 		return toReturn;
 	}
 
 	@Override
-	public synchronized byte replayNextChannel() {
-		assert nextDeterminant instanceof OrderDeterminant;
-		final OrderDeterminant orderDeterminant = ((OrderDeterminant) nextDeterminant);
-		deserializeNext();
-		byte toReturn = orderDeterminant.getChannel();
-		postHook(orderDeterminant);
+	public int replayNextChannel() {
+		assert batch.peekTag() == Determinant.ORDER_DETERMINANT_TAG;
+		int toReturn = batch.peekChannel();
+		if (remainingOrderRunLength == 0)
+			remainingOrderRunLength = batch.peekRunLength();
+		//Only move on to the next determinant once the whole run has been replayed
+		if (--remainingOrderRunLength > 0)
+			return toReturn;
+		batch.skipOrderDeterminant();
+		postHook();
 		return toReturn;
 	}
 
 	@Override
-	public synchronized  long replayNextTimestamp() {
-		assert nextDeterminant instanceof TimestampDeterminant;
-		final TimestampDeterminant timestampDeterminant = ((TimestampDeterminant) nextDeterminant);
-		deserializeNext();
-		long toReturn = timestampDeterminant.getTimestamp();
-		postHook(timestampDeterminant);
+	public int getNextOrderRunLength() {
+		assert batch.peekTag() == Determinant.ORDER_DETERMINANT_TAG;
+		if (remainingOrderRunLength != 0)
+			return 0;
+		return batch.peekRunLength();
+	}
+
+	@Override
+	public long replayNextTimestamp() {
+		assert batch.peekTag() == Determinant.TIMESTAMP_DETERMINANT_TAG;
+		long toReturn = batch.nextTimestamp();
+		postHook();
 		return toReturn;
 	}
 
 	@Override
-	public synchronized Object replaySerializableDeterminant() {
-		assert nextDeterminant instanceof SerializableDeterminant;
-		final SerializableDeterminant serializableDeterminant = (SerializableDeterminant) nextDeterminant;
-		deserializeNext();
+	public Object replaySerializableDeterminant() {
+		assert batch.peekTag() == Determinant.SERIALIZABLE_DETERMINANT_TAG;
+		final SerializableDeterminant serializableDeterminant = (SerializableDeterminant) batch.nextObject();
 		Object toReturn = serializableDeterminant.getDeterminant();
-		postHook(serializableDeterminant);
+		determinantPool.recycle(serializableDeterminant);
+		postHook();
+		return toReturn;
+	}
+
+	@Override
+	public <T> T replayTypedSerializableDeterminant(int serviceID, TypeSerializer<T> serializer) {
+		assert batch.peekTag() == Determinant.TYPED_SERIALIZABLE_DETERMINANT_TAG;
+		final TypedSerializableDeterminant typedDeterminant = (TypedSerializableDeterminant) batch.nextObject();
+		if (typedDeterminant.getServiceID() != serviceID)
+			throw new IllegalStateException("Replaying a value of service " + serviceID + ", but service " +
+				typedDeterminant.getServiceID() + " recorded the next determinant");
+		typedValueDeserializer.setBuffer(typedDeterminant.getSerializedValue(), 0, typedDeterminant.getLength());
+		T toReturn;
+		try {
+			toReturn = serializer.deserialize(typedValueDeserializer);
+		} catch (IOException e) {
+			throw new RuntimeException("Could not deserialize the value recorded by service " + serviceID, e);
+		}
+		determinantPool.recycle(typedDeterminant);
+		postHook();
 		return toReturn;
 	}
 
 
 	@Override
 	public synchronized void triggerAsyncEvent() {
-		assert nextDeterminant instanceof AsyncDeterminant;
-		AsyncDeterminant asyncDeterminant = (AsyncDeterminant) nextDeterminant;
+		assert batch.isNextAsync();
+		AsyncDeterminant asyncDeterminant = batch.nextAsyncDeterminant();
 		int currentRecordCount = context.epochTracker.getRecordCount();
 
 		if (LOG.isDebugEnabled())
@@ -110,49 +170,52 @@ public class LogReplayerImpl implements LogReplayer {
 		if (currentRecordCount != asyncDeterminant.getRecordCount())
 			throw new RuntimeException("Current record count is not the determinants record count. Current: " + currentRecordCount + ", determinant: " + asyncDeterminant.getRecordCount());
 
-		// This async event might use another nondeterministic event in its callback, so we deserialize next first
-		deserializeNext();
-		//Then we process the actual event
+		// This async event might use other nondeterministic events in its callback, which are replayed from the batch
 		asyncDeterminant.process(context);
+		determinantPool.recycle(asyncDeterminant);
 		//Only then can we actually set the next target, possibly triggering another async event of the same record count.
-		postHook(asyncDeterminant);
+		postHook();
 	}
 
 	public synchronized void checkFinished() {
 		if (!done) {
 			if (isFinished()) {
-				if (log != null) {
-					done = true;
-					//Safety check that recovery brought us to the exact same causal log state as pre-failure
-					assert log.capacity() ==
-						context.causalLog.threadLogLength(new CausalLogID(context.getTaskVertexID()));
-					log.release();
-				}
+				done = true;
+				//Safety check that recovery brought us to the exact same causal log state as pre-failure
+				assert log.getLength() ==
+					context.causalLog.threadLogLength(new CausalLogID(context.getTaskVertexID()));
+				log.release();
 				LOG.info("Finished recovering main thread! Transitioning to RunningState!");
 				context.owner.setState(new RunningState(context.owner, context));
 			}
 		}
 	}
 
-
-	private void deserializeNext() {
-		nextDeterminant = null;
-		if (log != null && log.isReadable()) {
-			nextDeterminant = determinantEncoder.decodeNext(log, determinantPool);
-			if (LOG.isDebugEnabled())
-				LOG.debug("Deserialized nextDeterminant: {}", nextDeterminant);
+	private void nextBatch() {
+		context.recoveryMetrics.getNumDeterminantsReplayed().inc(batch.size());
+		batch.clear(determinantPool);
+		// The next determinant has to be known before the task continues, as it may be an async event
+		try {
+			log.awaitBatch(determinantEncoder, determinantPool, batch);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while waiting for the determinants to replay", e);
 		}
+		if (LOG.isDebugEnabled())
+			LOG.debug("Decoded a batch of {} determinants", batch.size());
 	}
 
-	private void postHook(Determinant determinant) {
-		determinantPool.recycle(determinant);
-		if (nextDeterminant instanceof AsyncDeterminant)
-			context.epochTracker.setRecordCountTarget(((AsyncDeterminant) nextDeterminant).getRecordCount());
-		checkFinished();
+	private void postHook() {
+		if (!batch.hasNext())
+			nextBatch();
+		if (!batch.hasNext())
+			checkFinished();
+		else if (batch.isNextAsync())
+			context.epochTracker.setRecordCountTarget(batch.peekAsyncRecordCount());
 	}
 
 	private boolean isFinished() {
-		return nextDeterminant == null;
+		return !batch.hasNext() && log.isExhausted();
 	}
 
 }
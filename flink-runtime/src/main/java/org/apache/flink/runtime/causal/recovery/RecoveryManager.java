@@ -26,6 +26,7 @@
 package org.apache.flink.runtime.causal.recovery;
 
 import org.apache.flink.runtime.causal.*;
+import org.apache.flink.runtime.event.InFlightLogPositionEvent;
 import org.apache.flink.runtime.event.InFlightLogRequestEvent;
 import org.apache.flink.runtime.io.network.api.DeterminantRequestEvent;
 import org.apache.flink.runtime.io.network.partition.consumer.InputChannel;
@@ -38,11 +39,11 @@ public class RecoveryManager implements IRecoveryManager {
 
 	private static final Logger LOG = LoggerFactory.getLogger(RecoveryManager.class);
 
-	public static final SinkRecoveryStrategy sinkRecoveryStrategy = SinkRecoveryStrategy.TRANSACTIONAL;
-
 	public enum SinkRecoveryStrategy {
+		// Sinks drop their determinants, their output only becomes visible on checkpoint completion
 		TRANSACTIONAL,
-		KAFKA
+		// Sinks read their determinants back from a durable DeterminantStore
+		DETERMINANT_STORE
 	}
 
 	private State currentState;
@@ -57,6 +58,7 @@ public class RecoveryManager implements IRecoveryManager {
 
 		this.currentState = context.readyToReplayFuture == null ? new RunningState(this, context) :
 			new StandbyState(this, context);
+		context.recoveryMetrics.notifyStateEntered(currentState);
 		LOG.info("Starting recovery manager in state {}", currentState);
 	}
 
@@ -105,8 +107,17 @@ public class RecoveryManager implements IRecoveryManager {
 		this.currentState.notifyInFlightLogRequestEvent(e);
 	}
 
+	@Override
+	public synchronized void notifyInFlightLogPositionEvent(InFlightLogPositionEvent e) {
+		//Positions are only used once a replay is requested, so they are recorded regardless of the state
+		context.subpartitionTable.get(e.getIntermediateResultPartitionID(), e.getSubpartitionIndex())
+			.notifyReplayPosition(e.getCheckpointId(), e.getAfterCheckpointId(), e.getNumberOfBuffers(),
+				e.getNumberOfBytes());
+	}
+
 	public synchronized void setState(State state) {
 		this.currentState = state;
+		context.recoveryMetrics.notifyStateEntered(state);
 		this.currentState.executeEnter();
 	}
 
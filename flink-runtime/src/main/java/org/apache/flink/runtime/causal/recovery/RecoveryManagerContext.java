@@ -25,11 +25,12 @@
 
 package org.apache.flink.runtime.causal.recovery;
 
-import com.google.common.collect.HashBasedTable;
-import com.google.common.collect.Table;
+import org.apache.flink.shaded.guava18.com.google.common.collect.HashBasedTable;
+import org.apache.flink.shaded.guava18.com.google.common.collect.Table;
 import org.apache.flink.runtime.causal.*;
 import org.apache.flink.runtime.causal.determinant.AsyncDeterminant;
 import org.apache.flink.runtime.causal.log.job.JobCausalLog;
+import org.apache.flink.runtime.causal.store.DeterminantStoreWriter;
 import org.apache.flink.runtime.event.InFlightLogRequestEvent;
 import org.apache.flink.runtime.io.network.api.DeterminantRequestEvent;
 import org.apache.flink.runtime.io.network.partition.PipelinedSubpartition;
@@ -39,6 +40,7 @@ import org.apache.flink.runtime.io.network.partition.consumer.InputGate;
 import org.apache.flink.runtime.jobgraph.IntermediateResultPartitionID;
 import org.apache.flink.runtime.jobgraph.tasks.AbstractInvokable;
 
+import javax.annotation.Nullable;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 
@@ -66,11 +68,28 @@ public class RecoveryManagerContext implements IRecoveryManagerContext {
 	final AbstractInvokable invokable;
 	final CompletableFuture<Void> readyToReplayFuture;
 
+	final RecoveryManager.SinkRecoveryStrategy sinkRecoveryStrategy;
+
+	// Only set for sinks recovering with the DETERMINANT_STORE strategy
+	@Nullable
+	final DeterminantStoreWriter determinantStoreWriter;
+
+	final RecoveryMetrics recoveryMetrics;
+
 
 	public RecoveryManagerContext(AbstractInvokable invokable, JobCausalLog causalLog,
 								  CompletableFuture<Void> readyToReplayFuture, VertexGraphInformation vertexGraphInformation,
 								  EpochTracker epochTracker, CheckpointForceable checkpointForceable,
 								  ResultPartition[] partitions) {
+		this(invokable, causalLog, readyToReplayFuture, vertexGraphInformation, epochTracker, checkpointForceable,
+			partitions, RecoveryManager.SinkRecoveryStrategy.TRANSACTIONAL, null);
+	}
+
+	public RecoveryManagerContext(AbstractInvokable invokable, JobCausalLog causalLog,
+								  CompletableFuture<Void> readyToReplayFuture, VertexGraphInformation vertexGraphInformation,
+								  EpochTracker epochTracker, CheckpointForceable checkpointForceable,
+								  ResultPartition[] partitions, RecoveryManager.SinkRecoveryStrategy sinkRecoveryStrategy,
+								  @Nullable DeterminantStoreWriter determinantStoreWriter) {
 		this.invokable = invokable;
 		this.causalLog = causalLog;
 		this.readyToReplayFuture = readyToReplayFuture;
@@ -83,6 +102,9 @@ public class RecoveryManagerContext implements IRecoveryManagerContext {
 
 		this.epochTracker = epochTracker;
 		this.checkpointForceable = checkpointForceable;
+		this.sinkRecoveryStrategy = sinkRecoveryStrategy;
+		this.determinantStoreWriter = determinantStoreWriter;
+		this.recoveryMetrics = new RecoveryMetrics();
 
 		this.unansweredRPCRequests = new LinkedList<>();
 		int maxNumSubpart =
@@ -148,6 +170,11 @@ public class RecoveryManagerContext implements IRecoveryManagerContext {
 	public int getNumberOfDirectDownstreamNeighbourVertexes(){
 		return subpartitionTable.size();
 	}
+
+	@Override
+	public RecoveryMetrics getRecoveryMetrics() {
+		return recoveryMetrics;
+	}
 //=======================================================================
 
 }
@@ -0,0 +1,165 @@
+/*
+ *
+ *
+ *
+ *  * Licensed to the Apache Software Foundation (ASF) under one
+ *  * or more contributor license agreements.  See the NOTICE file
+ *  * distributed with this work for additional information
+ *  * regarding copyright ownership.  The ASF licenses this file
+ *  * to you under the Apache License, Version 2.0 (the
+ *  * "License"); you may not use this file except in compliance
+ *  * with the License.  You may obtain a copy of the License at
+ *  *
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ *
+ *
+ *
+ */
+
+package org.apache.flink.runtime.causal.recovery;
+
+import org.apache.flink.metrics.Counter;
+import org.apache.flink.metrics.Gauge;
+import org.apache.flink.metrics.MeterView;
+import org.apache.flink.metrics.MetricGroup;
+import org.apache.flink.runtime.metrics.MetricNames;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The metrics of the recovery of a task: the time spent in each state of its {@link RecoveryManager} and the progress
+ * of the replay, which tell whether a slow recovery is bound by state restoration, determinant collection or replay.
+ *
+ * <p>The in-flight buffers replayed are the ones this task replays to a recovering downstream task.
+ */
+public class RecoveryMetrics {
+
+	// The time spent in each state that was left
+	private final Map<Class<? extends State>, Long> timeInLeftStates;
+
+	private State currentState;
+
+	private long currentStateEnteredTimestamp;
+
+	// The determinants of the current or last recovery, null if the task never recovered
+	private volatile DeterminantStreams determinantStreams;
+
+	private final Counter numDeterminantsReplayed;
+
+	private final Counter numInFlightBuffersReplayed;
+
+	public RecoveryMetrics() {
+		this.timeInLeftStates = new HashMap<>();
+		this.numDeterminantsReplayed = new AtomicCounter();
+		this.numInFlightBuffersReplayed = new AtomicCounter();
+	}
+
+	public void registerMetrics(MetricGroup metricGroup) {
+		metricGroup.<String, Gauge<String>>gauge(MetricNames.RECOVERY_STATE, this::getCurrentStateName);
+		metricGroup.<Long, Gauge<Long>>gauge(MetricNames.RECOVERY_STANDBY_TIME,
+			() -> getTimeInState(StandbyState.class));
+		metricGroup.<Long, Gauge<Long>>gauge(MetricNames.RECOVERY_WAITING_CONNECTIONS_TIME,
+			() -> getTimeInState(WaitingConnectionsState.class));
+		metricGroup.<Long, Gauge<Long>>gauge(MetricNames.RECOVERY_WAITING_DETERMINANTS_TIME,
+			() -> getTimeInState(WaitingDeterminantsState.class));
+		metricGroup.<Long, Gauge<Long>>gauge(MetricNames.RECOVERY_REPLAYING_TIME,
+			() -> getTimeInState(ReplayingState.class));
+		metricGroup.<Long, Gauge<Long>>gauge(MetricNames.RECOVERY_DETERMINANT_BYTES_RECEIVED,
+			this::getDeterminantBytesReceived);
+		metricGroup.<Long, Gauge<Long>>gauge(MetricNames.RECOVERY_REMAINING_DETERMINANT_BYTES,
+			this::getRemainingDeterminantBytes);
+
+		metricGroup.counter(MetricNames.RECOVERY_NUM_DETERMINANTS_REPLAYED, numDeterminantsReplayed);
+		metricGroup.meter(MetricNames.RECOVERY_NUM_DETERMINANTS_REPLAYED_RATE,
+			new MeterView(numDeterminantsReplayed, 60));
+		metricGroup.counter(MetricNames.RECOVERY_NUM_IN_FLIGHT_BUFFERS_REPLAYED, numInFlightBuffersReplayed);
+		metricGroup.meter(MetricNames.RECOVERY_NUM_IN_FLIGHT_BUFFERS_REPLAYED_RATE,
+			new MeterView(numInFlightBuffersReplayed, 60));
+	}
+
+	synchronized void notifyStateEntered(State state) {
+		long now = System.currentTimeMillis();
+		if (currentState != null)
+			timeInLeftStates.merge(currentState.getClass(), now - currentStateEnteredTimestamp, Long::sum);
+		currentState = state;
+		currentStateEnteredTimestamp = now;
+	}
+
+	void setDeterminantStreams(DeterminantStreams determinantStreams) {
+		this.determinantStreams = determinantStreams;
+	}
+
+	public Counter getNumDeterminantsReplayed() {
+		return numDeterminantsReplayed;
+	}
+
+	public Counter getNumInFlightBuffersReplayed() {
+		return numInFlightBuffersReplayed;
+	}
+
+	public synchronized String getCurrentStateName() {
+		return currentState == null ? "" : currentState.getClass().getSimpleName();
+	}
+
+	/**
+	 * @return the milliseconds spent in the given state, including the time spent so far if it is the current one.
+	 */
+	public synchronized long getTimeInState(Class<? extends State> stateClass) {
+		long time = timeInLeftStates.getOrDefault(stateClass, 0L);
+		if (currentState != null && currentState.getClass() == stateClass)
+			time += System.currentTimeMillis() - currentStateEnteredTimestamp;
+		return time;
+	}
+
+	public long getDeterminantBytesReceived() {
+		DeterminantStreams streams = determinantStreams;
+		return streams == null ? 0L : streams.getReceivedBytes();
+	}
+
+	public long getRemainingDeterminantBytes() {
+		DeterminantStreams streams = determinantStreams;
+		return streams == null ? 0L : streams.getRemainingBytes();
+	}
+
+	/**
+	 * A {@link Counter} which may be incremented by several threads, e.g. the recovery threads of the subpartitions.
+	 */
+	private static class AtomicCounter implements Counter {
+
+		private final AtomicLong count = new AtomicLong();
+
+		@Override
+		public void inc() {
+			count.incrementAndGet();
+		}
+
+		@Override
+		public void inc(long n) {
+			count.addAndGet(n);
+		}
+
+		@Override
+		public void dec() {
+			count.decrementAndGet();
+		}
+
+		@Override
+		public void dec(long n) {
+			count.addAndGet(-n);
+		}
+
+		@Override
+		public long getCount() {
+			return count.get();
+		}
+	}
+}
@@ -25,7 +25,6 @@
 
 package org.apache.flink.runtime.causal.recovery;
 
-import com.google.common.collect.Table;
 import org.apache.flink.api.common.operators.Order;
 import org.apache.flink.runtime.causal.DeterminantResponseEvent;
 import org.apache.flink.runtime.causal.determinant.*;
@@ -35,8 +34,7 @@ import org.apache.flink.runtime.io.network.partition.PipelinedSubpartition;
 import org.apache.flink.runtime.io.network.partition.consumer.InputChannel;
 import org.apache.flink.runtime.io.network.partition.consumer.RemoteInputChannel;
 import org.apache.flink.runtime.jobgraph.IntermediateResultPartitionID;
-import org.apache.flink.shaded.netty4.io.netty.buffer.ByteBuf;
-import org.apache.flink.shaded.netty4.io.netty.buffer.Unpooled;
+import org.apache.flink.shaded.guava18.com.google.common.collect.Table;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import sun.rmi.runtime.Log;
@@ -46,6 +44,9 @@ import java.io.IOException;
 /**
  * In this state we do the actual process of recovery. Once done transition to {@link RunningState}
  * <p>
+ * Determinants keep being received in this state. Replay consumes the prefix of the logs received so far and waits
+ * for the rest when it needs it.
+ * <p>
  * A downstream failure in this state does not matter, requests simply get added to the queue of unanswered requests.
  * Only when we finish our recovery do we answer those requests.
  * <p>
@@ -57,22 +58,42 @@ public class ReplayingState extends AbstractState {
 
 	private static final Logger LOG = LoggerFactory.getLogger(ReplayingState.class);
 
-	private final LogReplayer logReplayer;
+	private final LogReplayerImpl logReplayer;
+
+	private final DeterminantStreams determinantStreams;
 
 	public ReplayingState(RecoveryManager recoveryManager, RecoveryManagerContext context,
-						  DeterminantResponseEvent determinantAccumulator) {
+						  DeterminantStreams determinantStreams) {
 		super(recoveryManager, context);
-		logInfoWithVertexID("Entered replaying state with determinants: {}", determinantAccumulator);
+		logInfoWithVertexID("Entered replaying state with determinants: {}", determinantStreams);
 
-		ByteBuf log =
-			determinantAccumulator.getDeterminants().get(new CausalLogID(context.getTaskVertexID()));
-		logReplayer = new LogReplayerImpl(log, context);
-		createSubpartitionRecoveryThreads(determinantAccumulator);
+		this.determinantStreams = determinantStreams;
+		context.recoveryMetrics.setDeterminantStreams(determinantStreams);
+		logReplayer = new LogReplayerImpl(determinantStreams.getStream(new CausalLogID(context.getTaskVertexID())),
+			context);
+		createSubpartitionRecoveryThreads(determinantStreams);
 	}
 
 	public void executeEnter() {
-		logReplayer.checkFinished();
-		context.readyToReplayFuture.complete(null);//allow task to start running
+		maybeStartReplay();
+	}
+
+	@Override
+	public void notifyDeterminantResponseEvent(DeterminantResponseEvent e) {
+		if (e.getVertexID().equals(context.vertexGraphInformation.getThisTasksVertexID())) {
+			logDebugWithVertexID("Received a chunk of determinants to replay: {}", e);
+			determinantStreams.add(e);
+			maybeStartReplay();
+		} else
+			super.notifyDeterminantResponseEvent(e);
+	}
+
+	private synchronized void maybeStartReplay() {
+		// Once the task started, only it consumes the log, so responses racing the start must not decode any further
+		if (!context.readyToReplayFuture.isDone() && logReplayer.tryStart()) {
+			logReplayer.checkFinished();
+			context.readyToReplayFuture.complete(null);//allow task to start running
+		}
 	}
 
 	@Override
@@ -105,7 +126,7 @@ public class ReplayingState extends AbstractState {
 		return "ReplayingState{}";
 	}
 
-	private void createSubpartitionRecoveryThreads(DeterminantResponseEvent determinantResponseEvent) {
+	private void createSubpartitionRecoveryThreads(DeterminantStreams determinantStreams) {
 
 		CausalLogID id = new CausalLogID(context.vertexGraphInformation.getThisTasksVertexID().getVertexID());
 
@@ -118,33 +139,30 @@ public class ReplayingState extends AbstractState {
 
 			id.replace(partitionID.getLowerPart(), partitionID.getUpperPart(), index);
 
-			ByteBuf subpartitionBuf = determinantResponseEvent.getDeterminants().get(id);
-			ByteBuf recoveryBuffer = Unpooled.EMPTY_BUFFER;
-			if (subpartitionBuf != null)
-				recoveryBuffer = subpartitionBuf;
+			DeterminantStream recoveryStream = determinantStreams.getStream(id);
 
-			Thread t = new SubpartitionRecoveryThread(recoveryBuffer, subpartition, context, partitionID,
+			Thread t = new SubpartitionRecoveryThread(recoveryStream, subpartition, context, partitionID,
 				index);
 			t.setDaemon(true);
 			t.start();
 
 			logDebugWithVertexID("Created recovery thread for Partition {} subpartition index {} with buffer {}", cell.getRowKey(),
-				cell.getColumnKey(), recoveryBuffer);
+				cell.getColumnKey(), recoveryStream);
 		}
 	}
 
 	private static class SubpartitionRecoveryThread extends Thread {
 		private final PipelinedSubpartition pipelinedSubpartition;
-		private final ByteBuf recoveryBuffer;
+		private final DeterminantStream recoveryStream;
 		private final DeterminantEncoder determinantEncoder;
 		private final RecoveryManagerContext context;
 		private final IntermediateResultPartitionID partitionID;
 		private final int index;
 
-		public SubpartitionRecoveryThread(ByteBuf recoveryBuffer, PipelinedSubpartition pipelinedSubpartition,
+		public SubpartitionRecoveryThread(DeterminantStream recoveryStream, PipelinedSubpartition pipelinedSubpartition,
 										  RecoveryManagerContext context, IntermediateResultPartitionID partitionID,
 										  int index) {
-			this.recoveryBuffer = recoveryBuffer;
+			this.recoveryStream = recoveryStream;
 			this.pipelinedSubpartition = pipelinedSubpartition;
 			this.determinantEncoder = context.causalLog.getDeterminantEncoder();
 			this.context = context;
@@ -160,14 +178,18 @@ public class ReplayingState extends AbstractState {
 
 			//2. Rebuild in-flight log and subpartition state
 			Determinant determinant;
-			while (recoveryBuffer.isReadable()) {
+			while (true) {
 				try {
-					determinant = determinantEncoder.decodeNext(recoveryBuffer, determinantPool);
+					determinant = recoveryStream.awaitNext(determinantEncoder, determinantPool);
+				} catch (InterruptedException e) {
+					return;
 				} catch (Exception e) {
 					LOG.error("Vertex {} - Recovery thread for partition {} index {} found exception",
 						context.getTaskVertexID(), partitionID, index, e);
 					throw e;
 				}
+				if (determinant == null)
+					break;
 
 				if (!(determinant instanceof BufferBuiltDeterminant))
 					throw new RuntimeException("Vertex " + context.getTaskVertexID() + " - " +
@@ -187,13 +209,14 @@ public class ReplayingState extends AbstractState {
 					return;
 				}
 				determinantPool.recycle(determinant);
+				context.recoveryMetrics.getNumDeterminantsReplayed().inc();
 			}
 			LOG.info("Vertex {} - Done recovering pipelined subpartition", context.getTaskVertexID());
 			//Safety check that recovery brought us to the exact same state as pre-failure
 			int logLengthAfterRecovery =
 				context.causalLog.threadLogLength(new CausalLogID(context.getTaskVertexID(),
-					partitionID.getLowerPart(), partitionID.getUpperPart(), (byte) index));
-			assert recoveryBuffer.capacity() == logLengthAfterRecovery;
+					partitionID.getLowerPart(), partitionID.getUpperPart(), (short) index));
+			assert recoveryStream.getLength() == logLengthAfterRecovery;
 
 			// If there is a replay request, we have to prepare it, before setting isRecovering to true
 			InFlightLogRequestEvent unansweredRequest =
@@ -208,7 +231,7 @@ public class ReplayingState extends AbstractState {
 			//3. Tell netty to restart requesting buffers.
 			pipelinedSubpartition.setIsRecoveringSubpartitionInFlightState(false);
 			pipelinedSubpartition.notifyDataAvailable();
-			recoveryBuffer.release();
+			recoveryStream.release();
 			LOG.debug("Subpartition is free to restart sending buffers.");
 
 		}
@@ -87,7 +87,10 @@ public class RunningState extends AbstractState {
 				context.causalLog.respondToDeterminantRequest(e);
 			logInfoWithVertexID("Responding with: {}", responseEvent);
 
-			context.inputGate.getInputChannel(channelRequestArrivedFrom).sendTaskEvent(responseEvent);
+			//Chunks let the failed vertex start replaying before the whole response was transferred
+			InputChannel inputChannel = context.inputGate.getInputChannel(channelRequestArrivedFrom);
+			for (DeterminantResponseEvent chunk : responseEvent.split(DeterminantResponseEvent.DEFAULT_CHUNK_SIZE))
+				inputChannel.sendTaskEvent(chunk);
 		} catch (IOException | InterruptedException ex) {
 			ex.printStackTrace();
 		}
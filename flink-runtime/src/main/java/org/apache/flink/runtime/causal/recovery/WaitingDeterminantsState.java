@@ -40,21 +40,19 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 
 /**
- * When transitioning into this state, we send out Determinant Requests on all output channels and wait for all
+ * When transitioning into this state, we send out Determinant Requests on all output channels and wait for the
  * responses to arrive.
- * When all responses arrive we transition to state {@link ReplayingState}
+ * As soon as the first chunk of a response arrives we transition to state {@link ReplayingState}, which keeps
+ * receiving the rest while replaying.
  */
 public class WaitingDeterminantsState extends AbstractState {
 
 	private static final Logger LOG = LoggerFactory.getLogger(WaitingDeterminantsState.class);
 
-	int numResponsesReceived;
-	int numResponsesExpected;
-	final DeterminantResponseEvent determinantAccumulator;
+	DeterminantStreams determinantStreams;
 
 	public WaitingDeterminantsState(RecoveryManager recoveryManager, RecoveryManagerContext context) {
 		super(recoveryManager, context);
-		determinantAccumulator = new DeterminantResponseEvent(true, new VertexID(context.getTaskVertexID()));
 	}
 
 	@Override
@@ -62,31 +60,31 @@ public class WaitingDeterminantsState extends AbstractState {
 		//Send all Replay requests, regardless of how we recover (causally or not), ensuring at-least-once processing
 		sendInFlightLogReplayRequests();
 
-		//By default, we should expect as many determinant responses as we have downstream neighbours
-		numResponsesExpected = context.getNumberOfDirectDownstreamNeighbourVertexes();
-
 		//If determinant sharing depth is 0, then we are not recovering causally, we can skip to the next state
 		if (context.causalLog.getDeterminantSharingDepth() == 0) {
-			numResponsesExpected = 0;
-			maybeGoToReplayingState();
+			goToReplayingWithoutDeterminants();
 			return;
 		}
 
 		//If we are a sink
 		if (!context.vertexGraphInformation.hasDownstream()) {
 			//With the transactional strategy, all determinants are dropped and we immediately switch to replaying
-			if (RecoveryManager.sinkRecoveryStrategy == RecoveryManager.SinkRecoveryStrategy.TRANSACTIONAL) {
-				numResponsesExpected = 0;
-				maybeGoToReplayingState();
+			if (context.sinkRecoveryStrategy == RecoveryManager.SinkRecoveryStrategy.TRANSACTIONAL ||
+				context.determinantStoreWriter == null) {
+				goToReplayingWithoutDeterminants();
 				return;
 			}
-			//This strategy (not implemented yet), will obtain a single message from kafka, containing determinants
-			else if (RecoveryManager.sinkRecoveryStrategy == RecoveryManager.SinkRecoveryStrategy.KAFKA) {
-				numResponsesExpected = 1;
+			//With the determinant store strategy, the store answers in place of the downstream
+			else {
+				determinantStreams = new DeterminantStreams(1);
+				readDeterminantsFromStore();
 				return;
 			}
 		}
 
+		//By default, we should expect as many determinant responses as we have downstream neighbours
+		determinantStreams = new DeterminantStreams(context.getNumberOfDirectDownstreamNeighbourVertexes());
+
 		//Send all Determinant requests
 		sendDeterminantRequests();
 
@@ -98,11 +96,10 @@ public class WaitingDeterminantsState extends AbstractState {
 		if (e.getVertexID().equals(context.vertexGraphInformation.getThisTasksVertexID())) {
 
 			logInfoWithVertexID("Received a DeterminantResponseEvent that is a direct response to my request: {}", e);
-			numResponsesReceived++;
-			determinantAccumulator.merge(e);
-
-			maybeGoToReplayingState();
-
+			determinantStreams.add(e);
+			//Replay starts with the first chunk, the rest is received while replaying
+			logInfoWithVertexID("Received first determinants, transitioning to Replaying state!");
+			recoveryManager.setState(new ReplayingState(recoveryManager, context, determinantStreams));
 
 		} else
 			super.notifyDeterminantResponseEvent(e);
@@ -159,6 +156,20 @@ public class WaitingDeterminantsState extends AbstractState {
 		}
 	}
 
+	private void readDeterminantsFromStore() {
+		VertexID vertexID = context.vertexGraphInformation.getThisTasksVertexID();
+		context.determinantStoreWriter.readDeterminants(context.getEpochTracker().getCurrentEpoch())
+			.whenComplete((determinants, t) -> {
+				DeterminantResponseEvent response = new DeterminantResponseEvent(t == null, vertexID);
+				if (t != null)
+					LOG.error("Could not read determinants from the determinant store, recovering without them.", t);
+				else
+					response.getDeterminants().putAll(determinants);
+				logInfoWithVertexID("Read determinants from the determinant store: {}", response);
+				recoveryManager.notifyDeterminantResponseEvent(response);
+			});
+	}
+
 	private void sendDeterminantRequests() {
 		if (context.vertexGraphInformation.hasDownstream()) {
 			DeterminantRequestEvent determinantRequestEvent =
@@ -169,13 +180,10 @@ public class WaitingDeterminantsState extends AbstractState {
 		}
 	}
 
-	private void maybeGoToReplayingState() {
-		logDebugWithVertexID("Go to replaying? Received {}, Expected {}", numResponsesReceived, numResponsesExpected
-			);
-		if (numResponsesReceived == numResponsesExpected ) {
-			logInfoWithVertexID("Received all determinants, transitioning to Replaying state!");
-			recoveryManager.setState(new ReplayingState(recoveryManager, context, determinantAccumulator));
-		}
+	private void goToReplayingWithoutDeterminants() {
+		logInfoWithVertexID("Expecting no determinants, transitioning to Replaying state!");
+		determinantStreams = new DeterminantStreams(0);
+		recoveryManager.setState(new ReplayingState(recoveryManager, context, determinantStreams));
 	}
 
 }
@@ -27,6 +27,7 @@ package org.apache.flink.runtime.causal.services;
 
 import org.apache.flink.api.common.services.SerializableService;
 import org.apache.flink.api.common.services.SerializableServiceFactory;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
 import org.apache.flink.runtime.causal.log.job.JobCausalLog;
 import org.apache.flink.runtime.causal.recovery.IRecoveryManager;
 
@@ -37,14 +38,29 @@ public class CausalSerializableServiceFactory implements SerializableServiceFact
 
 	private final JobCausalLog jobCausalLog;
 	private final IRecoveryManager recoveryManager;
+	private final SerializableServiceRegistry serviceRegistry;
 
 	public CausalSerializableServiceFactory(IRecoveryManager recoveryManager, JobCausalLog jobCausalLog){
 		this.recoveryManager = recoveryManager;
 		this.jobCausalLog = jobCausalLog;
+		this.serviceRegistry = new SerializableServiceRegistry();
 	}
 
 	@Override
 	public <I, O extends Serializable> SerializableService<I, O> build(Function<I, O> f) {
 		return new SerializableCausalService<>(jobCausalLog, recoveryManager, f);
 	}
+
+	@Override
+	public <I, O extends Serializable> SerializableService<I, O> build(Function<I, O> f,
+																		TypeSerializer<O> serializer) {
+		//Serializers are not thread safe, so every service gets its own
+		TypeSerializer<O> serviceSerializer = serializer.duplicate();
+		int serviceID = serviceRegistry.register(serviceSerializer);
+		return new TypedSerializableCausalService<>(jobCausalLog, recoveryManager, f, serviceSerializer, serviceID);
+	}
+
+	public SerializableServiceRegistry getServiceRegistry() {
+		return serviceRegistry;
+	}
 }
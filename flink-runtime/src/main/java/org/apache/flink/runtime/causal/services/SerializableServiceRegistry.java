@@ -0,0 +1,61 @@
+/*
+ *
+ *
+ *
+ *  * Licensed to the Apache Software Foundation (ASF) under one
+ *  * or more contributor license agreements.  See the NOTICE file
+ *  * distributed with this work for additional information
+ *  * regarding copyright ownership.  The ASF licenses this file
+ *  * to you under the Apache License, Version 2.0 (the
+ *  * "License"); you may not use this file except in compliance
+ *  * with the License.  You may obtain a copy of the License at
+ *  *
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ *
+ *
+ *
+ */
+
+package org.apache.flink.runtime.causal.services;
+
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Maps the IDs of the typed serializable services of a task to their serializers. IDs are assigned in registration
+ * order, so a task which builds its services in the same order on every run gets the same IDs, which is what allows
+ * recorded values to be matched to the service replaying them.
+ */
+public class SerializableServiceRegistry {
+
+	private final List<TypeSerializer<?>> serializers;
+
+	public SerializableServiceRegistry() {
+		this.serializers = new ArrayList<>();
+	}
+
+	/**
+	 * Registers the serializer of a new service, returning the ID of that service.
+	 */
+	public synchronized int register(TypeSerializer<?> serializer) {
+		serializers.add(serializer);
+		return serializers.size() - 1;
+	}
+
+	public synchronized TypeSerializer<?> getSerializer(int serviceID) {
+		return serializers.get(serviceID);
+	}
+
+	public synchronized int getNumberOfRegisteredServices() {
+		return serializers.size();
+	}
+}
@@ -0,0 +1,91 @@
+/*
+ *
+ *
+ *
+ *  * Licensed to the Apache Software Foundation (ASF) under one
+ *  * or more contributor license agreements.  See the NOTICE file
+ *  * distributed with this work for additional information
+ *  * regarding copyright ownership.  The ASF licenses this file
+ *  * to you under the Apache License, Version 2.0 (the
+ *  * "License"); you may not use this file except in compliance
+ *  * with the License.  You may obtain a copy of the License at
+ *  *
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ *
+ *
+ *
+ */
+
+package org.apache.flink.runtime.causal.services;
+
+import org.apache.flink.api.common.services.SerializableService;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.core.memory.DataOutputSerializer;
+import org.apache.flink.runtime.causal.determinant.TypedSerializableDeterminant;
+import org.apache.flink.runtime.causal.log.job.JobCausalLog;
+import org.apache.flink.runtime.causal.recovery.IRecoveryManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.function.Function;
+
+/**
+ * A serializable service whose results are recorded using a {@link TypeSerializer}. The result is serialized once,
+ * into a buffer reused across calls, and recorded under the ID the service was registered with.
+ */
+public class TypedSerializableCausalService<I, O extends Serializable> extends AbstractCausalService implements SerializableService<I, O> {
+
+	private static final Logger LOG = LoggerFactory.getLogger(TypedSerializableCausalService.class);
+
+	private final Function<I, O> f;
+	private final TypeSerializer<O> serializer;
+	private final int serviceID;
+
+	private final DataOutputSerializer serializationBuffer;
+	private final TypedSerializableDeterminant reuse;
+
+	public TypedSerializableCausalService(JobCausalLog causalLog, IRecoveryManager recoveryManager, Function<I, O> f,
+										  TypeSerializer<O> serializer, int serviceID) {
+		super(causalLog, recoveryManager);
+		this.f = f;
+		this.serializer = serializer;
+		this.serviceID = serviceID;
+		this.serializationBuffer = new DataOutputSerializer(64);
+		this.reuse = new TypedSerializableDeterminant();
+	}
+
+	@Override
+	public O apply(I i) {
+		O result;
+
+		if (isRecovering()) {
+			result = recoveryManager.getLogReplayer().replayTypedSerializableDeterminant(serviceID, serializer);
+			if (LOG.isDebugEnabled())
+				LOG.debug("state: RECOVERING - Restored {}", result);
+		} else {
+			result = f.apply(i);
+			if (LOG.isDebugEnabled())
+				LOG.debug("state: RUNNING - Created {}", result);
+		}
+
+		serializationBuffer.clear();
+		try {
+			serializer.serialize(result, serializationBuffer);
+		} catch (IOException e) {
+			throw new RuntimeException("Could not serialize the result of service " + serviceID, e);
+		}
+		threadCausalLog.appendDeterminant(reuse.replace(serviceID, serializationBuffer.getSharedBuffer(),
+			serializationBuffer.length()), epochTracker.getCurrentEpoch());
+
+		return result;
+	}
+}
@@ -0,0 +1,165 @@
+/*
+ *
+ *
+ *
+ *  * Licensed to the Apache Software Foundation (ASF) under one
+ *  * or more contributor license agreements.  See the NOTICE file
+ *  * distributed with this work for additional information
+ *  * regarding copyright ownership.  The ASF licenses this file
+ *  * to you under the Apache License, Version 2.0 (the
+ *  * "License"); you may not use this file except in compliance
+ *  * with the License.  You may obtain a copy of the License at
+ *  *
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ *
+ *
+ *
+ */
+
+package org.apache.flink.runtime.causal.store;
+
+import org.apache.flink.core.memory.DataInputView;
+import org.apache.flink.core.memory.DataOutputView;
+import org.apache.flink.runtime.causal.log.job.CausalLogID;
+import org.apache.flink.shaded.netty4.io.netty.buffer.ByteBuf;
+import org.apache.flink.shaded.netty4.io.netty.buffer.ByteBufAllocator;
+import org.apache.flink.shaded.netty4.io.netty.buffer.CompositeByteBuf;
+import org.apache.flink.shaded.netty4.io.netty.buffer.Unpooled;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The deltas of the thread causal logs of a sink logged in a single epoch, as appended to a
+ * {@link DeterminantStore}.
+ */
+public final class DeterminantBatch {
+
+	private final long epochID;
+
+	private final List<Delta> deltas;
+
+	public DeterminantBatch(long epochID) {
+		this.epochID = epochID;
+		this.deltas = new ArrayList<>(2);
+	}
+
+	public long getEpochID() {
+		return epochID;
+	}
+
+	public boolean isEmpty() {
+		return deltas.isEmpty();
+	}
+
+	/**
+	 * Adds a delta of the log, which starts at the given offset from the start of the epoch in the log.
+	 * The batch takes ownership of the delta.
+	 */
+	public void add(CausalLogID causalLogID, int offsetFromEpoch, ByteBuf delta) {
+		deltas.add(new Delta(new CausalLogID(causalLogID), offsetFromEpoch, delta));
+	}
+
+	public void release() {
+		for (Delta delta : deltas)
+			delta.determinants.release();
+		deltas.clear();
+	}
+
+	public void write(DataOutputView out) throws IOException {
+		out.writeLong(epochID);
+		out.writeInt(deltas.size());
+		for (Delta delta : deltas) {
+			delta.causalLogID.write(out);
+			out.writeInt(delta.offsetFromEpoch);
+			ByteBuf determinants = delta.determinants;
+			out.writeInt(determinants.readableBytes());
+			byte[] bytes = new byte[determinants.readableBytes()];
+			determinants.getBytes(determinants.readerIndex(), bytes);
+			out.write(bytes);
+		}
+	}
+
+	public static DeterminantBatch read(DataInputView in) throws IOException {
+		DeterminantBatch batch = new DeterminantBatch(in.readLong());
+		int numDeltas = in.readInt();
+		for (int i = 0; i < numDeltas; i++) {
+			CausalLogID causalLogID = new CausalLogID();
+			causalLogID.read(in);
+			int offsetFromEpoch = in.readInt();
+			byte[] bytes = new byte[in.readInt()];
+			in.readFully(bytes);
+			batch.deltas.add(new Delta(causalLogID, offsetFromEpoch, Unpooled.wrappedBuffer(bytes)));
+		}
+		return batch;
+	}
+
+	/**
+	 * Merges stored batches, in any order and possibly overlapping, into the determinants of each log starting at
+	 * the given epoch. The batches are released.
+	 */
+	public static Map<CausalLogID, ByteBuf> merge(Iterable<DeterminantBatch> batches, long startEpochID) {
+		Map<CausalLogID, TreeMap<Long, List<Delta>>> deltasPerLogAndEpoch = new HashMap<>();
+		for (DeterminantBatch batch : batches) {
+			for (Delta delta : batch.deltas) {
+				if (batch.epochID < startEpochID) {
+					delta.determinants.release();
+					continue;
+				}
+				deltasPerLogAndEpoch.computeIfAbsent(delta.causalLogID, k -> new TreeMap<>())
+					.computeIfAbsent(batch.epochID, k -> new ArrayList<>()).add(delta);
+			}
+			batch.deltas.clear();
+		}
+
+		Map<CausalLogID, ByteBuf> determinants = new HashMap<>();
+		for (Map.Entry<CausalLogID, TreeMap<Long, List<Delta>>> log : deltasPerLogAndEpoch.entrySet()) {
+			CompositeByteBuf merged = ByteBufAllocator.DEFAULT.compositeDirectBuffer(Integer.MAX_VALUE);
+			for (List<Delta> epochDeltas : log.getValue().values())
+				mergeEpoch(epochDeltas, merged);
+			determinants.put(log.getKey(), merged);
+		}
+		return determinants;
+	}
+
+	private static void mergeEpoch(List<Delta> epochDeltas, CompositeByteBuf merged) {
+		epochDeltas.sort(Comparator.comparingInt(d -> d.offsetFromEpoch));
+		int epochLength = 0;
+		for (Delta delta : epochDeltas) {
+			ByteBuf determinants = delta.determinants;
+			int end = delta.offsetFromEpoch + determinants.readableBytes();
+			// Deltas are contiguous, a gap means the rest of the epoch was lost
+			if (delta.offsetFromEpoch <= epochLength && end > epochLength) {
+				int skip = epochLength - delta.offsetFromEpoch;
+				merged.addComponent(true, determinants.retainedSlice(determinants.readerIndex() + skip,
+					end - epochLength));
+				epochLength = end;
+			}
+			determinants.release();
+		}
+	}
+
+	private static final class Delta {
+		private final CausalLogID causalLogID;
+		private final int offsetFromEpoch;
+		private final ByteBuf determinants;
+
+		private Delta(CausalLogID causalLogID, int offsetFromEpoch, ByteBuf determinants) {
+			this.causalLogID = causalLogID;
+			this.offsetFromEpoch = offsetFromEpoch;
+			this.determinants = determinants;
+		}
+	}
+}
@@ -0,0 +1,58 @@
+/*
+ *
+ *
+ *
+ *  * Licensed to the Apache Software Foundation (ASF) under one
+ *  * or more contributor license agreements.  See the NOTICE file
+ *  * distributed with this work for additional information
+ *  * regarding copyright ownership.  The ASF licenses this file
+ *  * to you under the Apache License, Version 2.0 (the
+ *  * "License"); you may not use this file except in compliance
+ *  * with the License.  You may obtain a copy of the License at
+ *  *
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ *
+ *
+ *
+ */
+
+package org.apache.flink.runtime.causal.store;
+
+import org.apache.flink.runtime.causal.log.job.CausalLogID;
+import org.apache.flink.shaded.netty4.io.netty.buffer.ByteBuf;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * A durable store of the determinants of a sink. Sinks have no downstream vertices which replicate their
+ * determinants, so a recovering sink reads them back from this store instead.
+ * <p>
+ * Batches are appended by a single thread, but may be appended again by a later attempt of the sink while it
+ * replays. As batches record the offset of their deltas in the epoch, such duplicates are merged on read.
+ */
+public interface DeterminantStore extends Closeable {
+
+	/**
+	 * Durably appends the batch. The batch is not released.
+	 */
+	void append(DeterminantBatch batch) throws IOException;
+
+	/**
+	 * Drops the determinants of all epochs preceding the completed checkpoint.
+	 */
+	void notifyCheckpointComplete(long checkpointId) throws IOException;
+
+	/**
+	 * Reads back the determinants of all thread causal logs of the sink, starting at the given epoch.
+	 */
+	Map<CausalLogID, ByteBuf> read(long startEpochID) throws IOException;
+}
@@ -0,0 +1,110 @@
+/*
+ *
+ *
+ *
+ *  * Licensed to the Apache Software Foundation (ASF) under one
+ *  * or more contributor license agreements.  See the NOTICE file
+ *  * distributed with this work for additional information
+ *  * regarding copyright ownership.  The ASF licenses this file
+ *  * to you under the Apache License, Version 2.0 (the
+ *  * "License"); you may not use this file except in compliance
+ *  * with the License.  You may obtain a copy of the License at
+ *  *
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ *
+ *
+ *
+ */
+
+package org.apache.flink.runtime.causal.store;
+
+import org.apache.flink.api.common.JobID;
+import org.apache.flink.configuration.ConfigOption;
+import org.apache.flink.configuration.ConfigOptions;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.configuration.IllegalConfigurationException;
+import org.apache.flink.core.fs.Path;
+import org.apache.flink.runtime.causal.VertexID;
+import org.apache.flink.runtime.causal.recovery.RecoveryManager;
+import org.apache.flink.util.InstantiationUtil;
+
+import java.io.IOException;
+
+/**
+ * Configures how sinks recover their determinants, and the {@link DeterminantStore} they use to do so.
+ */
+public class DeterminantStoreConfig {
+
+	public static final ConfigOption<String> SINK_RECOVERY_STRATEGY = ConfigOptions
+		.key("taskmanager.causal.sink-recovery-strategy")
+		.defaultValue("transactional")
+		.withDescription("How sinks recover. \"transactional\" for sinks which only make their output visible on " +
+			"checkpoint completion and thus drop their determinants, \"determinant-store\" for sinks which append " +
+			"their determinants to a durable determinant store and read them back on recovery.");
+
+	public static final ConfigOption<String> DETERMINANT_STORE_TYPE = ConfigOptions
+		.key("taskmanager.causal.determinant-store.type")
+		.defaultValue("filesystem")
+		.withDescription("The determinant store of sinks. \"filesystem\" for one writing to a directory of a " +
+			"(distributed) file system, or the class name of a DeterminantStoreFactory.");
+
+	public static final ConfigOption<Long> DETERMINANT_STORE_FLUSH_INTERVAL = ConfigOptions
+		.key("taskmanager.causal.determinant-store.flush-interval")
+		.defaultValue(100L)
+		.withDescription("The interval in milliseconds at which sinks append their new determinants to the store. " +
+			"Determinants of an epoch are also appended once the epoch ends.");
+
+	public static final ConfigOption<String> DETERMINANT_STORE_FILESYSTEM_PATH = ConfigOptions
+		.key("taskmanager.causal.determinant-store.filesystem.path")
+		.noDefaultValue()
+		.withDescription("The directory of the \"filesystem\" determinant store. It must be reachable by the " +
+			"TaskManagers sinks may be recovered on.");
+
+	private final Configuration configuration;
+
+	public DeterminantStoreConfig(Configuration configuration) {
+		this.configuration = configuration;
+	}
+
+	public RecoveryManager.SinkRecoveryStrategy getSinkRecoveryStrategy() {
+		String strategy = configuration.getString(SINK_RECOVERY_STRATEGY);
+		if (strategy.equalsIgnoreCase("determinant-store"))
+			return RecoveryManager.SinkRecoveryStrategy.DETERMINANT_STORE;
+		else if (strategy.equalsIgnoreCase("transactional"))
+			return RecoveryManager.SinkRecoveryStrategy.TRANSACTIONAL;
+		else
+			throw new IllegalConfigurationException("Unknown sink recovery strategy: " + strategy);
+	}
+
+	public long getFlushInterval() {
+		return configuration.getLong(DETERMINANT_STORE_FLUSH_INTERVAL);
+	}
+
+	public DeterminantStore createDeterminantStore(JobID jobID, VertexID vertexID, ClassLoader classLoader)
+		throws IOException {
+		String type = configuration.getString(DETERMINANT_STORE_TYPE);
+		if (type.equals("filesystem")) {
+			String path = configuration.getString(DETERMINANT_STORE_FILESYSTEM_PATH);
+			if (path == null)
+				throw new IOException("The filesystem determinant store requires " +
+					DETERMINANT_STORE_FILESYSTEM_PATH.key() + " to be set.");
+			return new FileSystemDeterminantStore(
+				new Path(new Path(path, jobID.toString()), Short.toString(vertexID.getVertexID())));
+		}
+
+		DeterminantStoreFactory factory;
+		try {
+			factory = InstantiationUtil.instantiate(type, DeterminantStoreFactory.class, classLoader);
+		} catch (ClassNotFoundException e) {
+			throw new IOException("Could not load determinant store factory " + type + '.', e);
+		}
+		return factory.createDeterminantStore(configuration, jobID, vertexID);
+	}
+}
@@ -0,0 +1,163 @@
+/*
+ *
+ *
+ *
+ *  * Licensed to the Apache Software Foundation (ASF) under one
+ *  * or more contributor license agreements.  See the NOTICE file
+ *  * distributed with this work for additional information
+ *  * regarding copyright ownership.  The ASF licenses this file
+ *  * to you under the Apache License, Version 2.0 (the
+ *  * "License"); you may not use this file except in compliance
+ *  * with the License.  You may obtain a copy of the License at
+ *  *
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ *
+ *
+ *
+ */
+
+package org.apache.flink.runtime.causal.store;
+
+import org.apache.flink.runtime.causal.EpochStartListener;
+import org.apache.flink.runtime.causal.log.job.CausalLogID;
+import org.apache.flink.runtime.causal.log.thread.ThreadCausalLog;
+import org.apache.flink.runtime.io.network.partition.consumer.InputChannelID;
+import org.apache.flink.runtime.state.CheckpointListener;
+import org.apache.flink.runtime.util.ExecutorThreadFactory;
+import org.apache.flink.shaded.netty4.io.netty.buffer.ByteBuf;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Asynchronously appends the determinants of a sink to its {@link DeterminantStore}. It consumes the thread causal
+ * logs of the sink like a downstream channel would, appending a batch per epoch every flush interval and once the
+ * epoch ends.
+ * <p>
+ * Determinants logged in the last flush interval before a failure may not have been stored yet, so output the sink
+ * produced based on them may not be reproduced exactly.
+ */
+public class DeterminantStoreWriter implements EpochStartListener, CheckpointListener, Closeable {
+
+	private static final Logger LOG = LoggerFactory.getLogger(DeterminantStoreWriter.class);
+
+	private final DeterminantStore store;
+
+	private final Collection<ThreadCausalLog> logs;
+
+	// The consumer offsets of the writer in the logs
+	private final InputChannelID consumerID;
+
+	// Runs all accesses to the store
+	private final ScheduledExecutorService executor;
+
+	// The latest epoch the sink started, accessed by the executor
+	private volatile long latestEpochID;
+
+	// The earliest epoch which may still have determinants that are not stored, only accessed by the executor
+	private long storedEpochID;
+
+	public DeterminantStoreWriter(DeterminantStore store, Collection<ThreadCausalLog> logs, long flushInterval,
+								  String taskName) {
+		this.store = store;
+		this.logs = logs;
+		this.consumerID = new InputChannelID();
+		this.executor = Executors.newSingleThreadScheduledExecutor(
+			new ExecutorThreadFactory("Determinant store writer for " + taskName));
+		this.latestEpochID = 0;
+		this.storedEpochID = 0;
+
+		executor.scheduleWithFixedDelay(this::flush, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public void notifyEpochStart(long epochID) {
+		latestEpochID = epochID;
+		executor.execute(this::flush);
+	}
+
+	@Override
+	public void notifyCheckpointComplete(long checkpointId) {
+		executor.execute(() -> {
+			try {
+				store.notifyCheckpointComplete(checkpointId);
+			} catch (IOException e) {
+				LOG.warn("Could not truncate the determinant store at checkpoint {}.", checkpointId, e);
+			}
+		});
+	}
+
+	/**
+	 * Reads back the determinants stored from the given epoch on, which becomes the epoch the writer continues
+	 * from.
+	 */
+	public CompletableFuture<Map<CausalLogID, ByteBuf>> readDeterminants(long startEpochID) {
+		return CompletableFuture.supplyAsync(() -> {
+			latestEpochID = Math.max(latestEpochID, startEpochID);
+			storedEpochID = Math.max(storedEpochID, startEpochID);
+			try {
+				return store.read(startEpochID);
+			} catch (IOException e) {
+				throw new CompletionException(e);
+			}
+		}, executor);
+	}
+
+	private void flush() {
+		long latest = latestEpochID;
+		try {
+			for (long epochID = storedEpochID; epochID <= latest; epochID++) {
+				DeterminantBatch batch = new DeterminantBatch(epochID);
+				for (ThreadCausalLog log : logs) {
+					if (log.hasDeltaForConsumer(consumerID, epochID)) {
+						int offsetFromEpoch = log.getOffsetFromEpochForConsumer(consumerID, epochID);
+						batch.add(log.getCausalLogID(), offsetFromEpoch, log.getDeltaForConsumer(consumerID, epochID));
+					}
+				}
+				if (!batch.isEmpty()) {
+					try {
+						store.append(batch);
+					} finally {
+						batch.release();
+					}
+				}
+			}
+			// Earlier epochs ended, so all their determinants are stored
+			storedEpochID = latest;
+		} catch (Throwable t) {
+			LOG.error("Could not append determinants to the determinant store.", t);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		executor.execute(this::flush);
+		executor.shutdown();
+		try {
+			if (!executor.awaitTermination(10, TimeUnit.SECONDS))
+				LOG.warn("Determinant store writer did not finish its last flush.");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		// Do not keep the logs from being closed
+		for (ThreadCausalLog log : logs)
+			log.unregisterConsumer(consumerID);
+		store.close();
+	}
+}
@@ -0,0 +1,117 @@
+/*
+ *
+ *
+ *
+ *  * Licensed to the Apache Software Foundation (ASF) under one
+ *  * or more contributor license agreements.  See the NOTICE file
+ *  * distributed with this work for additional information
+ *  * regarding copyright ownership.  The ASF licenses this file
+ *  * to you under the Apache License, Version 2.0 (the
+ *  * "License"); you may not use this file except in compliance
+ *  * with the License.  You may obtain a copy of the License at
+ *  *
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ *
+ *
+ *
+ */
+
+package org.apache.flink.runtime.causal.store;
+
+import org.apache.flink.core.fs.FSDataInputStream;
+import org.apache.flink.core.fs.FSDataOutputStream;
+import org.apache.flink.core.fs.FileStatus;
+import org.apache.flink.core.fs.FileSystem;
+import org.apache.flink.core.fs.Path;
+import org.apache.flink.core.memory.DataInputViewStreamWrapper;
+import org.apache.flink.core.memory.DataOutputViewStreamWrapper;
+import org.apache.flink.runtime.causal.log.job.CausalLogID;
+import org.apache.flink.shaded.netty4.io.netty.buffer.ByteBuf;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A {@link DeterminantStore} writing each batch to its own file in a directory of a (distributed) file system.
+ * File names start with the epoch of their batch, so that truncation only has to list the directory.
+ */
+public class FileSystemDeterminantStore implements DeterminantStore {
+
+	private static final Logger LOG = LoggerFactory.getLogger(FileSystemDeterminantStore.class);
+
+	private final FileSystem fileSystem;
+
+	private final Path directory;
+
+	// Distinguishes the files of different attempts of the sink
+	private final String attemptID;
+
+	private long nextBatchNumber;
+
+	public FileSystemDeterminantStore(Path directory) throws IOException {
+		this.fileSystem = directory.getFileSystem();
+		this.directory = directory;
+		this.attemptID = UUID.randomUUID().toString();
+		this.nextBatchNumber = 0;
+		fileSystem.mkdirs(directory);
+	}
+
+	@Override
+	public void append(DeterminantBatch batch) throws IOException {
+		Path file = new Path(directory, batch.getEpochID() + "-" + attemptID + "-" + nextBatchNumber++);
+		try (FSDataOutputStream out = fileSystem.create(file, FileSystem.WriteMode.NO_OVERWRITE)) {
+			batch.write(new DataOutputViewStreamWrapper(out));
+			out.sync();
+		}
+	}
+
+	@Override
+	public void notifyCheckpointComplete(long checkpointId) throws IOException {
+		for (FileStatus status : listFiles())
+			if (getEpochID(status.getPath()) < checkpointId)
+				fileSystem.delete(status.getPath(), false);
+	}
+
+	@Override
+	public Map<CausalLogID, ByteBuf> read(long startEpochID) throws IOException {
+		List<DeterminantBatch> batches = new ArrayList<>();
+		for (FileStatus status : listFiles()) {
+			if (getEpochID(status.getPath()) < startEpochID)
+				continue;
+			try (FSDataInputStream in = fileSystem.open(status.getPath())) {
+				batches.add(DeterminantBatch.read(new DataInputViewStreamWrapper(in)));
+			} catch (EOFException e) {
+				// An earlier attempt failed while appending the batch
+				LOG.warn("Skipping incomplete determinant batch {}.", status.getPath());
+			}
+		}
+		return DeterminantBatch.merge(batches, startEpochID);
+	}
+
+	@Override
+	public void close() {
+	}
+
+	private FileStatus[] listFiles() throws IOException {
+		FileStatus[] files = fileSystem.listStatus(directory);
+		return files == null ? new FileStatus[0] : files;
+	}
+
+	private static long getEpochID(Path file) {
+		String name = file.getName();
+		return Long.parseLong(name.substring(0, name.indexOf('-')));
+	}
+}
@@ -451,6 +451,20 @@ public class CheckpointCoordinator {
 		return triggerCheckpoint(timestamp, checkpointProperties, null, isPeriodic).isSuccess();
 	}
 
+	/**
+	 * Triggers a periodic checkpoint from the trigger timer instead of the calling thread, e.g. the main thread of the
+	 * JobMaster, which must not block on the master hooks and the trigger RPCs.
+	 */
+	public void triggerPeriodicCheckpointAsync() {
+		synchronized (lock) {
+			// the timer is shut down with the coordinator
+			if (shutdown) {
+				return;
+			}
+			timer.execute(new ScheduledTrigger());
+		}
+	}
+
 	@VisibleForTesting
 	public CheckpointTriggerResult triggerCheckpoint(
 		long timestamp,
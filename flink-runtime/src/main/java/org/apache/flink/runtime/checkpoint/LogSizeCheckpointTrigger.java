@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.checkpoint;
+
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.configuration.JobManagerOptions;
+import org.apache.flink.runtime.clusterframework.types.ResourceID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Triggers checkpoints ahead of the checkpoint interval when the logs a causal recovery depends on grow too large.
+ * The causal logs and in-flight logs are only truncated by completed checkpoints, so their size bounds both the
+ * memory they hold and the time spent replaying them after a failure.
+ *
+ * <p>The TaskManagers report the sizes of the logs of a job with every heartbeat. A checkpoint is triggered once
+ * <ul>
+ *     <li>the causal logs of all TaskManagers exceed {@link JobManagerOptions#CC_CAUSAL_LOG_BUDGET},</li>
+ *     <li>the in-flight logs of all TaskManagers exceed {@link JobManagerOptions#CC_IN_FLIGHT_LOG_BUDGET}, or</li>
+ *     <li>replaying the largest in-flight log of a TaskManager at {@link JobManagerOptions#CC_REPLAY_THROUGHPUT}
+ *     would exceed {@link JobManagerOptions#CC_RECOVERY_TIME_OBJECTIVE}.</li>
+ * </ul>
+ *
+ * <p>Triggered checkpoints are periodic ones, so they are declined while the periodic scheduler is stopped, e.g.
+ * while the job recovers, and respect the minimum pause between checkpoints.
+ */
+public class LogSizeCheckpointTrigger {
+
+	private static final Logger LOG = LoggerFactory.getLogger(LogSizeCheckpointTrigger.class);
+
+	private final long causalLogBudget;
+
+	private final long inFlightLogBudget;
+
+	private final long recoveryTimeObjective;
+
+	private final long replayThroughput;
+
+	// The latest causal and in-flight log sizes reported by each TaskManager
+	private final Map<ResourceID, Tuple2<Long, Long>> reportedLogSizes;
+
+	public LogSizeCheckpointTrigger(long causalLogBudget, long inFlightLogBudget, long recoveryTimeObjective,
+									long replayThroughput) {
+		this.causalLogBudget = causalLogBudget;
+		this.inFlightLogBudget = inFlightLogBudget;
+		this.recoveryTimeObjective = recoveryTimeObjective;
+		this.replayThroughput = replayThroughput;
+		this.reportedLogSizes = new HashMap<>();
+	}
+
+	public static LogSizeCheckpointTrigger fromConfiguration(Configuration configuration) {
+		return new LogSizeCheckpointTrigger(
+			configuration.getLong(JobManagerOptions.CC_CAUSAL_LOG_BUDGET),
+			configuration.getLong(JobManagerOptions.CC_IN_FLIGHT_LOG_BUDGET),
+			configuration.getLong(JobManagerOptions.CC_RECOVERY_TIME_OBJECTIVE),
+			configuration.getLong(JobManagerOptions.CC_REPLAY_THROUGHPUT));
+	}
+
+	public boolean isEnabled() {
+		return causalLogBudget >= 0 || inFlightLogBudget >= 0 || (recoveryTimeObjective >= 0 && replayThroughput > 0);
+	}
+
+	/**
+	 * Records the log sizes reported by a TaskManager, negative sizes are unknown and count as empty.
+	 */
+	public synchronized void reportLogSizes(ResourceID resourceID, long causalLogBytes, long inFlightLogBytes) {
+		if (isEnabled())
+			reportedLogSizes.put(resourceID, Tuple2.of(Math.max(causalLogBytes, 0), Math.max(inFlightLogBytes, 0)));
+	}
+
+	public synchronized void removeTaskManager(ResourceID resourceID) {
+		reportedLogSizes.remove(resourceID);
+	}
+
+	/**
+	 * Triggers a checkpoint if a budget is exceeded and no checkpoint is pending, which would truncate the logs
+	 * anyway. The checkpoint is triggered from the timer of the coordinator, as this is called from the heartbeats
+	 * of the JobMaster.
+	 *
+	 * @return true if a checkpoint was requested.
+	 */
+	public synchronized boolean maybeTriggerCheckpoint(@Nullable CheckpointCoordinator checkpointCoordinator) {
+		if (checkpointCoordinator == null || checkpointCoordinator.getNumberOfPendingCheckpoints() > 0)
+			return false;
+
+		String exceededBudget = getExceededBudget();
+		if (exceededBudget == null)
+			return false;
+
+		LOG.info("Triggering a checkpoint ahead of the checkpoint interval: {}.", exceededBudget);
+		// The reported sizes predate the truncation, wait for fresh reports before triggering again
+		reportedLogSizes.clear();
+		checkpointCoordinator.triggerPeriodicCheckpointAsync();
+		return true;
+	}
+
+	/**
+	 * Returns a description of the budget exceeded by the reported log sizes, or null if none is.
+	 */
+	@Nullable
+	@VisibleForTesting
+	synchronized String getExceededBudget() {
+		long causalLogBytes = 0;
+		long inFlightLogBytes = 0;
+		long maxInFlightLogBytes = 0;
+		for (Tuple2<Long, Long> logSizes : reportedLogSizes.values()) {
+			causalLogBytes += logSizes.f0;
+			inFlightLogBytes += logSizes.f1;
+			maxInFlightLogBytes = Math.max(maxInFlightLogBytes, logSizes.f1);
+		}
+
+		if (causalLogBudget >= 0 && causalLogBytes > causalLogBudget)
+			return "causal logs hold " + causalLogBytes + " bytes, budget is " + causalLogBudget;
+		if (inFlightLogBudget >= 0 && inFlightLogBytes > inFlightLogBudget)
+			return "in-flight logs hold " + inFlightLogBytes + " bytes, budget is " + inFlightLogBudget;
+		if (recoveryTimeObjective >= 0 && replayThroughput > 0) {
+			long projectedReplayMillis = maxInFlightLogBytes * 1000 / replayThroughput;
+			if (projectedReplayMillis > recoveryTimeObjective)
+				return "projected replay takes " + projectedReplayMillis + " ms, recovery time objective is " +
+					recoveryTimeObjective + " ms";
+		}
+		return null;
+	}
+}
@@ -25,22 +25,19 @@ public class DeterminantResponseEventListener implements EventListener<TaskEvent
 
 	private final ClassLoader userCodeClassLoader;
 	private final RecoveryManager recoveryManager;
-	private final Object checkpointLock;
 
 
-	public DeterminantResponseEventListener(ClassLoader userCodeClassLoader, RecoveryManager recoveryManager,
-											Object checkpointLock) {
+	public DeterminantResponseEventListener(ClassLoader userCodeClassLoader, RecoveryManager recoveryManager) {
 		this.userCodeClassLoader = userCodeClassLoader;
 		this.recoveryManager = recoveryManager;
-		this.checkpointLock = checkpointLock;
 	}
 
 	@Override
 	public void onEvent(TaskEvent event) {
 		if (event instanceof DeterminantResponseEvent) {
-			synchronized (checkpointLock) {
-				recoveryManager.notifyDeterminantResponseEvent((DeterminantResponseEvent) event);
-			}
+			// Not delivered under the checkpoint lock, as the task may hold it while it waits for determinants to
+			// replay. The recovery manager is synchronized itself.
+			recoveryManager.notifyDeterminantResponseEvent((DeterminantResponseEvent) event);
 		}
 		else {
 			throw new IllegalArgumentException(String.format("Unknown event type: %s.", event));
@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.flink.runtime.event;
+
+import org.apache.flink.core.memory.DataInputView;
+import org.apache.flink.core.memory.DataOutputView;
+import org.apache.flink.runtime.jobgraph.IntermediateResultPartitionID;
+
+import java.io.IOException;
+
+/**
+ * Event sent from downstream when an unaligned checkpoint is taken before the barrier arrived on a channel. It
+ * references the data the consumer has not processed yet, which belongs to the checkpoint, by its position in the
+ * in-flight log of the subpartition: the number of buffers and bytes the consumer processed after the previous
+ * barrier, or after the start of the stream or replay if no barrier arrived since. A replay for the checkpoint
+ * starts at this position instead of at the barrier.
+ */
+public class InFlightLogPositionEvent extends TaskEvent {
+
+	/** Marks a position relative to the start of the stream or of the last replay. */
+	public static final long NO_BARRIER = -1L;
+
+	private IntermediateResultPartitionID intermediateResultPartitionID;
+	private int subpartitionIndex;
+	private long checkpointId;
+	private long afterCheckpointId;
+	private int numberOfBuffers;
+	private int numberOfBytes;
+
+	/**
+	 * Default constructor (should only be used for deserialization).
+	 */
+	public InFlightLogPositionEvent() {
+		// default constructor implementation.
+		// should only be used for deserialization
+	}
+
+	public InFlightLogPositionEvent(IntermediateResultPartitionID intermediateResultPartitionID,
+									int consumedSubpartitionIndex, long checkpointId, long afterCheckpointId,
+									int numberOfBuffers, int numberOfBytes) {
+		super();
+		this.intermediateResultPartitionID = intermediateResultPartitionID;
+		this.subpartitionIndex = consumedSubpartitionIndex;
+		this.checkpointId = checkpointId;
+		this.afterCheckpointId = afterCheckpointId;
+		this.numberOfBuffers = numberOfBuffers;
+		this.numberOfBytes = numberOfBytes;
+	}
+
+	public IntermediateResultPartitionID getIntermediateResultPartitionID() {
+		return intermediateResultPartitionID;
+	}
+
+	public int getSubpartitionIndex() {
+		return subpartitionIndex;
+	}
+
+	public long getCheckpointId() {
+		return checkpointId;
+	}
+
+	/**
+	 * The id of the last barrier the consumer received, or {@link #NO_BARRIER}.
+	 */
+	public long getAfterCheckpointId() {
+		return afterCheckpointId;
+	}
+
+	public int getNumberOfBuffers() {
+		return numberOfBuffers;
+	}
+
+	/**
+	 * The bytes of the next buffer the consumer already processed, because it starts with the end of a record.
+	 */
+	public int getNumberOfBytes() {
+		return numberOfBytes;
+	}
+
+	@Override
+	public void write(final DataOutputView out) throws IOException {
+		out.writeLong(intermediateResultPartitionID.getUpperPart());
+		out.writeLong(intermediateResultPartitionID.getLowerPart());
+		out.writeInt(subpartitionIndex);
+		out.writeLong(checkpointId);
+		out.writeLong(afterCheckpointId);
+		out.writeInt(numberOfBuffers);
+		out.writeInt(numberOfBytes);
+	}
+
+	@Override
+	public void read(final DataInputView in) throws IOException {
+		long upper = in.readLong();
+		long lower = in.readLong();
+		this.intermediateResultPartitionID = new IntermediateResultPartitionID(lower, upper);
+
+		this.subpartitionIndex = in.readInt();
+		this.checkpointId = in.readLong();
+		this.afterCheckpointId = in.readLong();
+		this.numberOfBuffers = in.readInt();
+		this.numberOfBytes = in.readInt();
+	}
+
+	@Override
+	public String toString() {
+		return "InFlightLogPositionEvent{" +
+			"intermediateResultPartitionID=" + intermediateResultPartitionID +
+			", subpartitionIndex=" + subpartitionIndex +
+			", checkpointId=" + checkpointId +
+			", afterCheckpointId=" + afterCheckpointId +
+			", numberOfBuffers=" + numberOfBuffers +
+			", numberOfBytes=" + numberOfBytes +
+			'}';
+	}
+}
@@ -28,7 +28,7 @@ import org.slf4j.LoggerFactory;
 
 
 /**
- * A listener to in-flight log requests for replay.
+ * A listener to in-flight log requests for replay and to the replay positions of unaligned checkpoints.
  */
 public class InFlightLogRequestEventListener implements EventListener<TaskEvent> {
 
@@ -48,6 +48,8 @@ public class InFlightLogRequestEventListener implements EventListener<TaskEvent>
 		LOG.info("{} received event {}.", this, event);
 		if (event instanceof InFlightLogRequestEvent) {
 			recoveryManager.notifyInFlightLogRequestEvent((InFlightLogRequestEvent)event);
+		} else if (event instanceof InFlightLogPositionEvent) {
+			recoveryManager.notifyInFlightLogPositionEvent((InFlightLogPositionEvent) event);
 		} else {
 			throw new IllegalArgumentException(String.format("Unknown event type: %s.", event));
 		}
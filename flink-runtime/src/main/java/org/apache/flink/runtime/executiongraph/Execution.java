@@ -151,6 +151,9 @@ public class Execution implements AccessExecution, Archiveable<ArchivedExecution
 
 	private final CompletableFuture<TaskManagerLocation> taskManagerLocationFuture;
 
+	/** Futures that complete once the Execution reaches the ExecutionState they are registered for. */
+	private final ConcurrentHashMap<ExecutionState, CompletableFuture<ExecutionState>> stateFutures;
+
 	private volatile ExecutionState state = CREATED;
 
 	private volatile LogicalSlot assignedResource;
@@ -229,6 +232,7 @@ public class Execution implements AccessExecution, Archiveable<ArchivedExecution
 		this.terminalStateFuture = new CompletableFuture<>();
 		this.releaseFuture = new CompletableFuture<>();
 		this.taskManagerLocationFuture = new CompletableFuture<>();
+		this.stateFutures = new ConcurrentHashMap<>(4);
 
 		this.assignedResource = null;
 	}
@@ -407,6 +411,26 @@ public class Execution implements AccessExecution, Archiveable<ArchivedExecution
 		return releaseFuture;
 	}
 
+	/**
+	 * Gets a future that completes once the execution reaches the given state. If the execution
+	 * reaches a different terminal state first, the future is completed exceptionally.
+	 *
+	 * @param targetState The state to wait for
+	 * @return A future which is completed once the execution has reached the given state
+	 */
+	public CompletableFuture<ExecutionState> getStateFuture(ExecutionState targetState) {
+		final CompletableFuture<ExecutionState> stateFuture =
+			stateFutures.computeIfAbsent(targetState, ignored -> new CompletableFuture<>());
+
+		// the terminal transition may have happened before the future was registered
+		final ExecutionState current = state;
+		if (current.isTerminal() && current != targetState) {
+			stateFuture.completeExceptionally(new IllegalStateException("Execution " + this +
+				" reached terminal state " + current + " before reaching " + targetState + '.'));
+		}
+		return stateFuture;
+	}
+
 	// --------------------------------------------------------------------------------------------
 	//  Actions
 	// --------------------------------------------------------------------------------------------
@@ -1505,9 +1529,17 @@ public class Execution implements AccessExecution, Archiveable<ArchivedExecution
 				LOG.info("{} ({}) {} switched from {} to {}.", getVertex().getTaskNameWithSubtaskIndex(), getAttemptId(), (isStandby ? "[STANDBY]" : ""), currentState, targetState, error);
 			}
 
+			// registering the reached state lets futures requested later complete right away
+			stateFutures.computeIfAbsent(targetState, ignored -> new CompletableFuture<>()).complete(targetState);
+
 			if (targetState.isTerminal()) {
 				// complete the terminal state future
 				terminalStateFuture.complete(targetState);
+
+				for (CompletableFuture<ExecutionState> stateFuture : stateFutures.values()) {
+					stateFuture.completeExceptionally(new IllegalStateException("Execution " + this +
+						" reached terminal state " + targetState + " before reaching the awaited state."));
+				}
 			}
 
 			// make sure that the state transition completes normally.
@@ -269,6 +269,15 @@ public class ExecutionVertex implements AccessExecutionVertex, Archiveable<Archi
 		return currentExecution.getState();
 	}
 
+	/**
+	 * Gets a future that completes once the current execution attempt reaches the given state.
+	 *
+	 * @see Execution#getStateFuture(ExecutionState)
+	 */
+	public CompletableFuture<ExecutionState> getExecutionStateFuture(ExecutionState targetState) {
+		return currentExecution.getStateFuture(targetState);
+	}
+
 	@Override
 	public long getStateTimestamp(ExecutionState state) {
 		return currentExecution.getStateTimestamp(state);
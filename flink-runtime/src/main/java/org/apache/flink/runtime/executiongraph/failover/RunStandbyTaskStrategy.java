@@ -22,6 +22,7 @@ import org.apache.flink.runtime.clusterframework.types.ResourceID;
 import org.apache.flink.runtime.concurrent.FutureUtils;
 import org.apache.flink.runtime.execution.ExecutionState;
 import org.apache.flink.runtime.executiongraph.*;
+import org.apache.flink.runtime.jobgraph.JobVertexID;
 import org.apache.flink.runtime.jobmaster.slotpool.SlotPool;
 import org.apache.flink.runtime.resourcemanager.ResourceManagerGateway;
 import org.apache.flink.util.FlinkException;
@@ -32,6 +33,7 @@ import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
 
 import static org.apache.flink.util.Preconditions.checkNotNull;
 
@@ -58,7 +60,18 @@ public class RunStandbyTaskStrategy extends FailoverStrategy {
 	private final int checkpointCoordinatorBackoffMultiplier;
 	private final long checkpointCoordinatorBackoffBaseMs;
 
-	private final HashSet<ResourceID> failedResources = new HashSet<>();
+	/** Futures of the removal of the slots of each failed TaskManager. */
+	private final HashMap<ResourceID, CompletableFuture<Void>> failedResources = new HashMap<>();
+
+	/** Vertices that failed on a TaskManager whose slots are still being removed, recovered together afterwards. */
+	private final HashMap<ResourceID, StandbyPreparation> pendingPreparations = new HashMap<>();
+
+	/** Futures of the ongoing recoveries, completed once the standby of the vertex has been run. */
+	private final HashMap<ExecutionVertex, CompletableFuture<Void>> recoveries = new HashMap<>();
+
+	/** Futures awaiting the recovery of failed vertices whose failure has not been handled yet. */
+	private final HashMap<ExecutionVertex, CompletableFuture<Void>> awaitedRecoveries = new HashMap<>();
+
 	private final static Object lock = new Object();
 
 
@@ -96,6 +109,7 @@ public class RunStandbyTaskStrategy extends FailoverStrategy {
 		// else
 		//		Sequentially remove the failed slots, then schedule a new standby and dispatch state to it. Doing this
 		//		avoids scheduling the new standby to the failed TM. Following that, start it.
+		//		Vertices failing on the same TM while its slots are removed are recovered together.
 		// If an error occurs anywhere in this process, we fallback to the global restart strategy
 
 		//It is also important to signal to other tasks to ignore any checkpoints unacknowledged by the failed task.
@@ -107,79 +121,212 @@ public class RunStandbyTaskStrategy extends FailoverStrategy {
 
 		CompletableFuture<Void> removeSlotsFuture = removeFailedSlots(taskExecution);
 
-		//By default, there should already be a standby ready
-		CompletableFuture<Void> standbyReady = CompletableFuture.completedFuture(null);
-
-		//If there isnt, we need to wait for the remove slots to complete, before scheduling a new standby
-		//This guarantees we do not reschedule to the same slot
-		if (vertexToRecover.getStandbyExecutions().size() == 0)
-			standbyReady = composePrepareNewStandby(vertexToRecover, removeSlotsFuture);
+		final CompletableFuture<Void> recovered;
+		//By default, there should already be a standby ready, which runs without waiting for the failed vertex to
+		//be removed
+		if (vertexToRecover.getStandbyExecutions().size() > 0) {
+			synchronized (lock) {
+				recovered = CompletableFuture.runAsync(() -> runStandby(vertexToRecover), callbackExecutor);
+				registerRecovery(vertexToRecover, recovered);
+			}
+		} else {
+			//If there isnt, we need to wait for the remove slots to complete, before scheduling a new standby
+			//This guarantees we do not reschedule to the same slot
+			recovered = enqueueStandbyPreparation(resourceIDOfFailedTM, vertexToRecover, removeSlotsFuture);
+		}
 
-		//If there was a standby, this runs without waiting for the failed vertex to be removed, otherwise it performs
-		//the necessary steps first
-		standbyReady.thenAcceptAsync((Void) -> {
-			LOG.info("Running the standby execution.");
-			vertexToRecover.runStandbyExecution();
-		}, callbackExecutor);
+		recovered.whenComplete((ignored, t) -> {
+			synchronized (lock) {
+				recoveries.remove(vertexToRecover, recovered);
+			}
+		});
 
 		//In case of exceptions during the whole execution, trigger full recovery
-		standbyReady.exceptionally((Throwable t) -> {
+		recovered.exceptionally((Throwable t) -> {
 			executionGraph.failGlobal(
 				new Exception("Error during standby task recovery, triggering full recovery: ", t));
 			return null;
 		});
 	}
 
-	private CompletableFuture<Void> composePrepareNewStandby(ExecutionVertex vertexToRecover,
-															 CompletableFuture<Void> releaseSlotsFuture) {
-		return releaseSlotsFuture.thenComposeAsync((Void) -> {
-			LOG.info("Waiting for upstreams to be deployed before adding standby");
-			while (vertexToRecover.getDirectUpstreamVertexes().stream().map(ExecutionVertex::getExecutionState)
-				.anyMatch(x -> x != ExecutionState.RUNNING)) ;
-			vertexToRecover.addStandbyExecution();
-			LOG.info("Waiting for standby to be ready");
-			Execution standby = vertexToRecover.getStandbyExecutions().get(0);
-			while (standby.getState() != ExecutionState.STANDBY) ;
-			LOG.info("Standby is ready.");
-			LOG.info("Dispatching latest state.");
+	private CompletableFuture<Void> enqueueStandbyPreparation(ResourceID resourceID, ExecutionVertex vertexToRecover,
+															  CompletableFuture<Void> removeSlotsFuture) {
+		final CompletableFuture<Void> recovered = new CompletableFuture<>();
+		synchronized (lock) {
+			registerRecovery(vertexToRecover, recovered);
+
+			StandbyPreparation preparation = pendingPreparations.get(resourceID);
+			if (preparation == null) {
+				final StandbyPreparation newPreparation = new StandbyPreparation();
+				removeSlotsFuture.whenCompleteAsync((ignored, t) -> {
+					final Map<ExecutionVertex, CompletableFuture<Void>> recoveredFutures;
+					synchronized (lock) {
+						pendingPreparations.remove(resourceID, newPreparation);
+						recoveredFutures = new HashMap<>(newPreparation.recoveredFutures);
+					}
+					if (t != null) {
+						recoveredFutures.values().forEach(f -> f.completeExceptionally(t));
+						return;
+					}
+					Map<ExecutionVertex, CompletableFuture<Void>> standbysRun = recoverWithNewStandbys(
+						recoveredFutures.keySet());
+					for (Map.Entry<ExecutionVertex, CompletableFuture<Void>> entry : recoveredFutures.entrySet()) {
+						standbysRun.get(entry.getKey()).whenComplete((ignoredRun, runFailure) -> {
+							if (runFailure == null)
+								entry.getValue().complete(null);
+							else
+								entry.getValue().completeExceptionally(runFailure);
+						});
+					}
+				}, callbackExecutor);
+				pendingPreparations.put(resourceID, newPreparation);
+				preparation = newPreparation;
+			}
+			preparation.recoveredFutures.put(vertexToRecover, recovered);
+		}
+		return recovered;
+	}
+
+	/**
+	 * Adds a standby execution to each of the given vertices, dispatches the latest checkpointed state to them and
+	 * runs them. The standbys are scheduled and deployed in parallel and without blocking any thread while waiting,
+	 * in topological waves, since a standby can only be deployed once its direct upstream vertices are running.
+	 * The state of each wave is dispatched at once.
+	 *
+	 * @param verticesToRecover The vertices to recover with a new standby execution
+	 * @return Futures which are completed once the standby of the respective vertex has been run
+	 */
+	public Map<ExecutionVertex, CompletableFuture<Void>> recoverWithNewStandbys(
+		Collection<ExecutionVertex> verticesToRecover) {
+
+		final Map<ExecutionVertex, CompletableFuture<Void>> standbysRun = new HashMap<>();
+		final Set<ExecutionVertex> remaining = new LinkedHashSet<>(verticesToRecover);
+		CompletableFuture<Void> previousWave = CompletableFuture.completedFuture(null);
+
+		while (!remaining.isEmpty()) {
+			final List<ExecutionVertex> wave = remaining.stream()
+				.filter(v -> v.getDirectUpstreamVertexes().stream().noneMatch(remaining::contains))
+				.collect(Collectors.toList());
+			if (wave.isEmpty())
+				throw new IllegalStateException("Cyclic dependencies between the vertices to recover.");
+			remaining.removeAll(wave);
+
+			final CompletableFuture<Void> waveRun = previousWave.thenComposeAsync(
+				ignored -> runWave(wave), callbackExecutor);
+			for (ExecutionVertex vertex : wave)
+				standbysRun.put(vertex, waveRun);
+			previousWave = waveRun;
+		}
+		return standbysRun;
+	}
+
+	private CompletableFuture<Void> runWave(List<ExecutionVertex> wave) {
+		final List<CompletableFuture<ExecutionState>> standbysReady = new ArrayList<>(wave.size());
+		for (ExecutionVertex vertexToRecover : wave)
+			standbysReady.add(composePrepareNewStandby(vertexToRecover));
+
+		return FutureUtils.waitForAll(standbysReady).thenRunAsync(() -> {
+			LOG.info("Standbys of {} vertices are ready. Dispatching latest state.", wave.size());
+			final Map<JobVertexID, ExecutionJobVertex> jobVertices = new HashMap<>();
+			for (ExecutionVertex vertexToRecover : wave)
+				jobVertices.put(vertexToRecover.getJobvertexId(), vertexToRecover.getJobVertex());
 			try {
 				executionGraph.getCheckpointCoordinator().dispatchLatestCheckpointedStateToStandbyTasks(
-					Collections.singletonMap(vertexToRecover.getJobvertexId(), vertexToRecover.getJobVertex()),
-					false, true);
+					jobVertices, false, true);
 			} catch (Exception e) {
 				throw new CompletionException(e);
 			}
-			return CompletableFuture.completedFuture(null);
+			wave.forEach(this::runStandby);
 		}, callbackExecutor);
 	}
 
-	private CompletableFuture<Void> removeFailedSlots(Execution taskExecution) {
-		return CompletableFuture.supplyAsync(() -> {
-			ResourceID resourceIDOfFailedTM = taskExecution.getAssignedResourceLocation().getResourceID();
-			LOG.info("Checking if need to remove failed slots");
+	private CompletableFuture<ExecutionState> composePrepareNewStandby(ExecutionVertex vertexToRecover) {
+		LOG.info("Waiting for upstreams of {} to be deployed before adding standby",
+			vertexToRecover.getTaskNameWithSubtaskIndex());
+		final List<CompletableFuture<ExecutionState>> upstreamsRunning = new ArrayList<>();
+		for (ExecutionVertex upstream : vertexToRecover.getDirectUpstreamVertexes()) {
+			// An upstream that is itself being recovered is awaited once its standby has been run
+			final CompletableFuture<Void> upstreamRecovered;
 			synchronized (lock) {
-				if (failedResources.contains(resourceIDOfFailedTM))
-					return null;
-				LOG.info("Failing resource {}", resourceIDOfFailedTM);
-				failedResources.add(resourceIDOfFailedTM);
-				ResourceManagerGateway rmGateway =
-					executionGraph.getResourceManagerConnection().getResourceManagerGateway();
-				SlotPool slotPool = executionGraph.getSlotPool();
-				FlinkException exception = new FlinkException("Disconnecting Task Manager");
-
-				LOG.info("Releasing task manager slots and disconnecting");
-				slotPool.releaseTaskManager(resourceIDOfFailedTM, exception);
-				rmGateway.disconnectTaskManager(resourceIDOfFailedTM, exception);
+				upstreamRecovered = getOrAwaitRecovery(upstream);
+			}
+			upstreamsRunning.add(upstreamRecovered.thenCompose(
+				ignored -> upstream.getExecutionStateFuture(ExecutionState.RUNNING)));
+		}
 
+		return FutureUtils.waitForAll(upstreamsRunning).thenComposeAsync((Void) -> {
+			final CompletableFuture<Void> schedulingFuture = vertexToRecover.addStandbyExecution();
+			final Execution standby = vertexToRecover.getStandbyExecutions().get(0);
+			LOG.info("Waiting for standby {} to be ready", standby);
+			return schedulingFuture.thenCompose(ignored -> standby.getStateFuture(ExecutionState.STANDBY));
+		}, callbackExecutor);
+	}
+
+	/**
+	 * Registers the ongoing recovery of a vertex and completes the futures which were already awaiting it. Must be
+	 * called while holding the lock.
+	 */
+	private void registerRecovery(ExecutionVertex vertexToRecover, CompletableFuture<Void> recovered) {
+		recoveries.put(vertexToRecover, recovered);
+		final CompletableFuture<Void> awaited = awaitedRecoveries.remove(vertexToRecover);
+		if (awaited != null) {
+			recovered.whenComplete((ignored, t) -> {
+				if (t == null)
+					awaited.complete(null);
+				else
+					awaited.completeExceptionally(t);
+			});
+		}
+	}
+
+	/**
+	 * Returns a future of the recovery of the given vertex, which is already completed if the vertex is not being
+	 * recovered. A vertex which failed before its failure was handled by this strategy is awaited until its recovery
+	 * is registered, as its failed execution will never reach RUNNING. Must be called while holding the lock.
+	 */
+	private CompletableFuture<Void> getOrAwaitRecovery(ExecutionVertex vertex) {
+		final CompletableFuture<Void> recovery = recoveries.get(vertex);
+		if (recovery != null)
+			return recovery;
+		if (vertex.getExecutionState() == ExecutionState.FAILED)
+			return awaitedRecoveries.computeIfAbsent(vertex, ignored -> new CompletableFuture<>());
+		return CompletableFuture.completedFuture(null);
+	}
+
+	private void runStandby(ExecutionVertex vertexToRecover) {
+		LOG.info("Running the standby execution of {}.", vertexToRecover.getTaskNameWithSubtaskIndex());
+		vertexToRecover.runStandbyExecution();
+	}
+
+	private CompletableFuture<Void> removeFailedSlots(Execution taskExecution) {
+		ResourceID resourceIDOfFailedTM = taskExecution.getAssignedResourceLocation().getResourceID();
+		synchronized (lock) {
+			CompletableFuture<Void> removeSlotsFuture = failedResources.get(resourceIDOfFailedTM);
+			if (removeSlotsFuture == null) {
+				removeSlotsFuture = CompletableFuture.runAsync(() -> {
+					LOG.info("Failing resource {}", resourceIDOfFailedTM);
+					ResourceManagerGateway rmGateway =
+						executionGraph.getResourceManagerConnection().getResourceManagerGateway();
+					SlotPool slotPool = executionGraph.getSlotPool();
+					FlinkException exception = new FlinkException("Disconnecting Task Manager");
+
+					LOG.info("Releasing task manager slots and disconnecting");
+					slotPool.releaseTaskManager(resourceIDOfFailedTM, exception);
+					rmGateway.disconnectTaskManager(resourceIDOfFailedTM, exception);
+				}, callbackExecutor);
+				failedResources.put(resourceIDOfFailedTM, removeSlotsFuture);
+			}
+
+			// Every failed task needs its unacknowledged checkpoints ignored, not only the first of its TM
+			return removeSlotsFuture.thenRunAsync(() -> {
 				LOG.info("Discarding pending checkpoints unacknowledged by failed task and restarting checkpoint " +
 					"coordinator" +
 					" " +
 					"with backoff");
 				this.executionGraph.getCheckpointCoordinator().rpcIgnoreUnacknowledgedPendingCheckpointsFor(taskExecution.getVertex(), new Exception("Task failed and is recovering causally."));
 				this.executionGraph.getCheckpointCoordinator().restartBackoffCheckpointScheduler(checkpointCoordinatorBackoffMultiplier, checkpointCoordinatorBackoffBaseMs);
-			}
-			return null;
-		}, callbackExecutor);
+			}, callbackExecutor);
+		}
 	}
 
 	@Override
@@ -189,25 +336,10 @@ public class RunStandbyTaskStrategy extends FailoverStrategy {
 		for (int i = 0; i < numStandbyTasksToMaintain; i++) {
 			for (ExecutionJobVertex executionJobVertex : newExecutionJobVerticesTopological) {
 				for (ExecutionVertex executionVertex : executionJobVertex.getTaskVertices()) {
-
-					final CompletableFuture<Void> currentExecutionFuture =
-						// TODO: Anti-affinity constraint
-						CompletableFuture.runAsync(
-							() -> waitForExecutionToReachRunningState(executionVertex));
-					currentExecutionFuture.whenComplete(
-						(Void ignored, Throwable t) -> {
-							if (t == null) {
-								// this should aalso respect the topological order
-								final CompletableFuture<Void> standbyExecutionFuture =
-									executionVertex.addStandbyExecution();
-								schedulingFutures.add(standbyExecutionFuture);
-							} else {
-								schedulingFutures.add(
-									new CompletableFuture<>());
-								schedulingFutures.get(schedulingFutures.size() - 1)
-									.completeExceptionally(t);
-							}
-						});
+					// TODO: Anti-affinity constraint
+					// this should also respect the topological order
+					schedulingFutures.add(executionVertex.getExecutionStateFuture(ExecutionState.RUNNING)
+						.thenComposeAsync(ignored -> executionVertex.addStandbyExecution(), callbackExecutor));
 				}
 			}
 		}
@@ -226,20 +358,19 @@ public class RunStandbyTaskStrategy extends FailoverStrategy {
 		});
 	}
 
-	private void waitForExecutionToReachRunningState(ExecutionVertex executionVertex) {
-		ExecutionState executionState = ExecutionState.CREATED;
-		do {
-			executionState = executionVertex.getExecutionState();
-		} while (executionState == ExecutionState.CREATED ||
-			executionState == ExecutionState.SCHEDULED ||
-			executionState == ExecutionState.DEPLOYING);
-	}
-
 	@Override
 	public String getStrategyName() {
 		return "run standby task";
 	}
 
+	/**
+	 * The vertices that failed on one TaskManager and the futures of their recovery.
+	 */
+	private static class StandbyPreparation {
+
+		private final Map<ExecutionVertex, CompletableFuture<Void>> recoveredFutures = new HashMap<>();
+	}
+
 	// ------------------------------------------------------------------------
 	//  factory
 	// ------------------------------------------------------------------------
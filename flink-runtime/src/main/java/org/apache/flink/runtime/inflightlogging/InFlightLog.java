@@ -47,6 +47,12 @@ public interface InFlightLog extends CheckpointListener {
 	 */
 	InFlightLogIterator<Buffer> getInFlightIterator(long epochID, int ignoreBuffers);
 
+	/**
+	 * Returns the number of bytes of all buffers logged in epochs which were not truncated yet, whether they are
+	 * held in memory or were spilled. This is roughly the amount of data that is replayed on a failure downstream.
+	 */
+	long getLogSizeInBytes();
+
     void destroyBufferPools();
 
 	void close();
@@ -52,7 +52,8 @@ public class InFlightLogConfig implements Serializable {
 		.withDescription("The policy to use for when to spill the in-flight log. \"eager\" for one that spills on " +
 			"write, \"availability\" for one that spills at a given buffer availability level, \"epoch\" for one " +
 			"that" +
-			" spills on every epoch completion.");
+			" spills on every epoch completion, \"byte-budget\" for one that spills once a subpartition holds more than " +
+			"the byte budget in memory.");
 
 	public static final ConfigOption<Integer> IN_FLIGHT_LOG_SPILL_NUM_PREFETCH_BUFFERS = ConfigOptions
 		.key("taskmanager.inflight.spill.num-prefetch-buffers")
@@ -71,6 +72,35 @@ public class InFlightLogConfig implements Serializable {
 		.withDescription("The availability level at and under which a flush of the inflight log is triggered.");
 
 
+	public static final ConfigOption<Long> IN_FLIGHT_LOG_SPILL_SEGMENT_SIZE = ConfigOptions
+		.key("taskmanager.inflight.spill.segment-size")
+		.defaultValue(64L * 1024 * 1024)
+		.withDescription("The size in bytes after which the spill service starts a new segment file on a disk. " +
+			"Segments are deleted once all buffers they contain have been truncated.");
+
+	public static final ConfigOption<Integer> IN_FLIGHT_LOG_SPILL_MAX_BATCH_SIZE = ConfigOptions
+		.key("taskmanager.inflight.spill.max-batch-size")
+		.defaultValue(256)
+		.withDescription("The maximum number of buffers, of any subpartition, coalesced into a single write by the " +
+			"spill service.");
+
+	public static final ConfigOption<Long> IN_FLIGHT_LOG_SPILL_BYTE_BUDGET = ConfigOptions
+		.key("taskmanager.inflight.spill.byte-budget")
+		.defaultValue(4L * 1024 * 1024)
+		.withDescription("The number of bytes each subpartition may keep in memory before spilling, when using the " +
+			"\"byte-budget\" policy.");
+
+	public static final ConfigOption<Boolean> IN_FLIGHT_LOG_SPILL_COMPRESSION = ConfigOptions
+		.key("taskmanager.inflight.spill.compression")
+		.defaultValue(false)
+		.withDescription("Whether spilled in-flight log buffers are compressed with snappy. Buffers which do not " +
+			"compress well are stored uncompressed.");
+
+	public static final ConfigOption<Integer> IN_FLIGHT_LOG_SPILL_NUM_READ_THREADS = ConfigOptions
+		.key("taskmanager.inflight.spill.num-read-threads")
+		.defaultValue(4)
+		.withDescription("The number of threads of a TaskManager reading spilled buffers in parallel during replay.");
+
 	private final Configuration config;
 
 
@@ -79,7 +109,7 @@ public class InFlightLogConfig implements Serializable {
 	}
 
 	public enum Policy {
-		EAGER, AVAILABILITY
+		EAGER, AVAILABILITY, EPOCH, BYTE_BUDGET
 	}
 
 
@@ -108,6 +138,10 @@ public class InFlightLogConfig implements Serializable {
 		switch (policy) {
 			case "availability":
 				return Policy.AVAILABILITY;
+			case "epoch":
+				return Policy.EPOCH;
+			case "byte-budget":
+				return Policy.BYTE_BUDGET;
 			case "eager":
 			default:
 				return Policy.EAGER;
@@ -126,6 +160,26 @@ public class InFlightLogConfig implements Serializable {
 		return config.getLong(IN_FLIGHT_LOG_SPILL_SLEEP);
 	}
 
+	public long getSpillByteBudget() {
+		return config.getLong(IN_FLIGHT_LOG_SPILL_BYTE_BUDGET);
+	}
+
+	public long getSpillSegmentSize() {
+		return config.getLong(IN_FLIGHT_LOG_SPILL_SEGMENT_SIZE);
+	}
+
+	public boolean isSpillCompressionEnabled() {
+		return config.getBoolean(IN_FLIGHT_LOG_SPILL_COMPRESSION);
+	}
+
+	public int getSpillNumReadThreads() {
+		return config.getInteger(IN_FLIGHT_LOG_SPILL_NUM_READ_THREADS);
+	}
+
+	public int getSpillMaxBatchSize() {
+		return config.getInteger(IN_FLIGHT_LOG_SPILL_MAX_BATCH_SIZE);
+	}
+
 
 
 	@Override
@@ -25,9 +25,15 @@
 
 package org.apache.flink.runtime.inflightlogging;
 
+import org.apache.flink.metrics.MetricGroup;
+
 
 public interface InFlightLogFactory {
     InFlightLog build();
 
     InFlightLogConfig getInFlightLogConfig();
+
+    void registerMetrics(MetricGroup metricGroup);
+
+    void shutdown();
 }
@@ -25,6 +25,7 @@
 
 package org.apache.flink.runtime.inflightlogging;
 
+import org.apache.flink.metrics.MetricGroup;
 import org.apache.flink.runtime.io.disk.iomanager.IOManager;
 import org.apache.flink.runtime.io.network.buffer.BufferPool;
 import org.apache.flink.runtime.io.network.buffer.NetworkBufferPool;
@@ -35,11 +36,14 @@ public class InFlightLogFactoryImpl implements InFlightLogFactory {
 	private final IOManager ioManager;
 	private final InFlightLogConfig config;
 	private final NetworkBufferPool networkBufferPool;
+	private final InFlightLogSpillService spillService;
 
 	public InFlightLogFactoryImpl(InFlightLogConfig config, IOManager ioManager, NetworkBufferPool networkBufferPool) {
 		this.config = config;
 		this.ioManager = ioManager;
 		this.networkBufferPool = networkBufferPool;
+		this.spillService = config.getType() == InFlightLogConfig.Type.SPILLABLE ?
+			new InFlightLogSpillService(ioManager, config) : null;
 	}
 
 	@Override
@@ -56,10 +60,7 @@ public class InFlightLogFactoryImpl implements InFlightLogFactory {
 					throw new RuntimeException(e);
 				}
 
-				if(config.getSpillPolicy() == InFlightLogConfig.Policy.EAGER)
-					return new SpillableSubpartitionInFlightLogger(ioManager, prefetchBufferPool, true);
-				else
-					return new SpillableSubpartitionInFlightLogger(ioManager, prefetchBufferPool, false);
+				return new SpillableSubpartitionInFlightLogger(spillService, prefetchBufferPool, createSpillPolicy());
 
 			case IN_MEMORY:
 			default:
@@ -67,9 +68,35 @@ public class InFlightLogFactoryImpl implements InFlightLogFactory {
 		}
 	}
 
+	private SpillPolicy createSpillPolicy() {
+		switch (config.getSpillPolicy()) {
+			case AVAILABILITY:
+				return new AvailabilitySpillPolicy(config.getAvailabilityPolicyFillFactor());
+			case EPOCH:
+				return new EpochSpillPolicy();
+			case BYTE_BUDGET:
+				return new ByteBudgetSpillPolicy(config.getSpillByteBudget());
+			case EAGER:
+			default:
+				return new EagerSpillPolicy();
+		}
+	}
+
 	@Override
 	public InFlightLogConfig getInFlightLogConfig() {
 		return config;
 	}
 
+	@Override
+	public void registerMetrics(MetricGroup metricGroup) {
+		if (spillService != null)
+			spillService.registerMetrics(metricGroup);
+	}
+
+	@Override
+	public void shutdown() {
+		if (spillService != null)
+			spillService.shutdown();
+	}
+
 }
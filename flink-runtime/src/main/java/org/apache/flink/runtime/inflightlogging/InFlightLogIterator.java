@@ -45,6 +45,13 @@ public abstract class InFlightLogIterator<T> implements ListIterator<T> {
 	 */
 	public abstract void close();
 
+	/**
+	 * Notifies the iterator of the credit the downstream task currently has available, which iterators reading ahead
+	 * may use to size their read ahead.
+	 */
+	public void notifyDownstreamCredit(int credit) {
+	}
+
 	@Override
 	public T previous() {
 		throw new UnsupportedOperationException();
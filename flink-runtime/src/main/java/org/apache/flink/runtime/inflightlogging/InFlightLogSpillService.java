@@ -0,0 +1,529 @@
+/*
+ *
+ *
+ *
+ *  * Licensed to the Apache Software Foundation (ASF) under one
+ *  * or more contributor license agreements.  See the NOTICE file
+ *  * distributed with this work for additional information
+ *  * regarding copyright ownership.  The ASF licenses this file
+ *  * to you under the Apache License, Version 2.0 (the
+ *  * "License"); you may not use this file except in compliance
+ *  * with the License.  You may obtain a copy of the License at
+ *  *
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ *
+ *
+ *
+ */
+
+package org.apache.flink.runtime.inflightlogging;
+
+import org.apache.flink.metrics.Gauge;
+import org.apache.flink.metrics.MetricGroup;
+import org.apache.flink.runtime.io.disk.iomanager.IOManager;
+import org.apache.flink.runtime.io.disk.iomanager.RequestDoneCallback;
+import org.apache.flink.runtime.io.network.buffer.Buffer;
+import org.apache.flink.runtime.util.ExecutorThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A per TaskManager service which spills the in-flight logs of all subpartitions.
+ * <p>
+ * There is one {@link DiskSpiller} thread per spilling directory of the {@link IOManager}. Each subpartition is
+ * assigned to one of them, which appends its buffers to a sequential segment file, together with the buffers of all
+ * other subpartitions assigned to that disk. Buffers queued while a write is in progress are coalesced into a single
+ * gathering write (group commit), so that many small random writes become a few large sequential ones.
+ * <p>
+ * Each spilled buffer is indexed by a {@link SpilledBufferLocation}, which the subpartition's in-flight log keeps
+ * per (epoch, buffer index). Segment files are reference counted by the locations pointing into them and are deleted
+ * once they have been rolled over and all of their buffers have been truncated.
+ * <p>
+ * Replay reads are served by a pool of reader threads shared by all disks, so that the buffers of a subpartition are
+ * read in parallel, across epochs. Only buffers whose write completed have a location, so a buffer is never read
+ * before it has been written.
+ */
+public class InFlightLogSpillService {
+
+	private static final Logger LOG = LoggerFactory.getLogger(InFlightLogSpillService.class);
+
+	private final DiskSpiller[] spillers;
+
+	// Round robin assignment of subpartitions to disks
+	private final AtomicInteger nextSpiller;
+
+	private final SpillMetrics metrics;
+
+	private final ExecutorService readExecutor;
+
+	// Each reader thread decompresses with its own scratch buffers
+	private final ThreadLocal<SpilledBufferCompressor> readCompressor;
+
+	public InFlightLogSpillService(IOManager ioManager, InFlightLogConfig config) {
+		this(ioManager.getSpillingDirectories(), config.getSpillSegmentSize(), config.getSpillMaxBatchSize(),
+			config.isSpillCompressionEnabled(), config.getSpillNumReadThreads());
+	}
+
+	public InFlightLogSpillService(File[] directories, long segmentSize, int maxBatchSize, boolean compress,
+								   int numReadThreads) {
+		this.spillers = new DiskSpiller[directories.length];
+		this.nextSpiller = new AtomicInteger(0);
+		this.metrics = new SpillMetrics();
+		this.readExecutor = Executors.newFixedThreadPool(numReadThreads,
+			new ExecutorThreadFactory("In-Flight Log Reader"));
+		this.readCompressor = ThreadLocal.withInitial(SpilledBufferCompressor::new);
+		for (int i = 0; i < directories.length; i++) {
+			spillers[i] = new DiskSpiller(directories[i], i, segmentSize, maxBatchSize, metrics,
+				compress ? new SpilledBufferCompressor() : null);
+			spillers[i].start();
+		}
+		LOG.info("Started in-flight log spill service with {} disks, segment size {}, batches of up to {} " +
+			"buffers and compression {}.", directories.length, segmentSize, maxBatchSize, compress ? "on" : "off");
+	}
+
+	DiskSpiller nextDiskSpiller() {
+		return spillers[Math.floorMod(nextSpiller.getAndIncrement(), spillers.length)];
+	}
+
+	/**
+	 * Asynchronously reads a spilled buffer into the target buffer, completing the callback with it. Reads may
+	 * complete in any order.
+	 */
+	void readInto(SpilledBufferLocation location, Buffer target, RequestDoneCallback<Buffer> callback) {
+		location.segment.retain();
+		try {
+			readExecutor.execute(() -> read(location, target, callback));
+		} catch (RejectedExecutionException e) {
+			location.segment.release();
+			callback.requestFailed(target, new IOException("In-flight log spill service has been shut down.", e));
+		}
+	}
+
+	private void read(SpilledBufferLocation location, Buffer target, RequestDoneCallback<Buffer> callback) {
+		try {
+			int size;
+			if (location.isCompressed) {
+				SpilledBufferCompressor compressor = readCompressor.get();
+				ByteBuffer record = compressor.getRecordBuffer(location.length);
+				readFully(location, record);
+				record.flip();
+				size = compressor.decompress(record, target.getNioBuffer(0, target.getMaxCapacity()));
+			} else {
+				readFully(location, target.getNioBuffer(0, location.length));
+				size = location.length;
+			}
+			target.setSize(size);
+			if (!location.isBuffer)
+				target.tagAsEvent();
+			target.setCompressed(location.isNetworkCompressed);
+			callback.requestSuccessful(target);
+		} catch (IOException e) {
+			try {
+				callback.requestFailed(target, e);
+			} catch (Throwable t) {
+				LOG.error("The read callback threw an exception.", t);
+			}
+		} finally {
+			location.segment.release();
+		}
+	}
+
+	private static void readFully(SpilledBufferLocation location, ByteBuffer destination) throws IOException {
+		int read = 0;
+		while (read < location.length) {
+			int bytes = location.segment.channel.read(destination, location.offset + read);
+			if (bytes < 0)
+				throw new EOFException("Unexpected end of in-flight log segment " + location);
+			read += bytes;
+		}
+	}
+
+	public void shutdown() {
+		readExecutor.shutdownNow();
+		for (DiskSpiller spiller : spillers)
+			spiller.shutdown();
+	}
+
+	/**
+	 * Registers the spilled volume as written to disk and the latency from submitting a buffer until it is
+	 * written, in milliseconds.
+	 */
+	public void registerMetrics(MetricGroup metricGroup) {
+		metricGroup.<Long, Gauge<Long>>gauge("SpilledBytes", metrics.spilledBytes::get);
+		metricGroup.<Long, Gauge<Long>>gauge("SpilledBuffers", metrics.spilledBuffers::get);
+		metricGroup.<Long, Gauge<Long>>gauge("LastSpillLatency",
+			() -> TimeUnit.NANOSECONDS.toMillis(metrics.lastSpillLatencyNanos.get()));
+		metricGroup.<Long, Gauge<Long>>gauge("AverageSpillLatency", metrics::getAverageSpillLatencyMillis);
+	}
+
+	SpillMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Shared by the spillers of all disks. The latency of a batch is the one of its oldest buffer.
+	 */
+	static final class SpillMetrics {
+		private final AtomicLong spilledBytes = new AtomicLong();
+		private final AtomicLong spilledBuffers = new AtomicLong();
+		private final AtomicLong spilledBatches = new AtomicLong();
+		private final AtomicLong totalSpillLatencyNanos = new AtomicLong();
+		private final AtomicLong lastSpillLatencyNanos = new AtomicLong();
+
+		void reportBatch(long bytes, int buffers, long latencyNanos) {
+			spilledBytes.addAndGet(bytes);
+			spilledBuffers.addAndGet(buffers);
+			spilledBatches.incrementAndGet();
+			totalSpillLatencyNanos.addAndGet(latencyNanos);
+			lastSpillLatencyNanos.set(latencyNanos);
+		}
+
+		long getSpilledBytes() {
+			return spilledBytes.get();
+		}
+
+		long getAverageSpillLatencyMillis() {
+			long batches = spilledBatches.get();
+			return batches == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalSpillLatencyNanos.get() / batches);
+		}
+	}
+
+	/**
+	 * Notified by the {@link DiskSpiller} once a buffer submitted for spilling is durable or failed to be written.
+	 */
+	interface SpillCallback {
+		void spillCompleted(long epochID, int bufferIndex, SpilledBufferLocation location);
+
+		void spillFailed(long epochID, int bufferIndex, IOException cause);
+	}
+
+	/**
+	 * The position of a spilled buffer. Holds a reference to its segment file until released.
+	 */
+	static final class SpilledBufferLocation {
+		private final SegmentFile segment;
+		private final long offset;
+		private final int length;
+		private final boolean isBuffer;
+		private final boolean isCompressed;
+		//Whether the buffer was already compressed for the network, which is restored when reading it
+		private final boolean isNetworkCompressed;
+
+		SpilledBufferLocation(SegmentFile segment, long offset, int length, boolean isBuffer, boolean isCompressed,
+							  boolean isNetworkCompressed) {
+			this.segment = segment;
+			this.offset = offset;
+			this.length = length;
+			this.isBuffer = isBuffer;
+			this.isCompressed = isCompressed;
+			this.isNetworkCompressed = isNetworkCompressed;
+		}
+
+		public long getOffset() {
+			return offset;
+		}
+
+		public int getLength() {
+			return length;
+		}
+
+		public void release() {
+			segment.release();
+		}
+
+		@Override
+		public String toString() {
+			return "SpilledBufferLocation{" +
+				"segment=" + segment.file.getName() +
+				", offset=" + offset +
+				", length=" + length +
+				", compressed=" + isCompressed +
+				'}';
+		}
+	}
+
+	/**
+	 * An append only file holding the buffers of many subpartitions. Deleted when sealed and unreferenced.
+	 */
+	static final class SegmentFile {
+		private final File file;
+		private final FileChannel channel;
+		private long size;
+		private int references;
+		private boolean sealed;
+
+		SegmentFile(File file) throws IOException {
+			this.file = file;
+			this.channel = new RandomAccessFile(file, "rw").getChannel();
+			this.size = 0;
+			this.references = 0;
+			this.sealed = false;
+		}
+
+		synchronized void retain() {
+			references++;
+		}
+
+		synchronized void release() {
+			references--;
+			if (references == 0 && sealed)
+				delete();
+		}
+
+		synchronized void seal() {
+			sealed = true;
+			if (references == 0)
+				delete();
+		}
+
+		private void delete() {
+			LOG.debug("Deleting in-flight log segment {}", file);
+			try {
+				channel.close();
+			} catch (IOException e) {
+				LOG.warn("Could not close in-flight log segment {}", file, e);
+			}
+			if (!file.delete() && file.exists())
+				LOG.warn("Could not delete in-flight log segment {}", file);
+		}
+	}
+
+	private static final class WriteRequest {
+		private final Buffer buffer;
+		private final long epochID;
+		private final int bufferIndex;
+		private final SpillCallback callback;
+		private final long submitTime;
+
+		WriteRequest(Buffer buffer, long epochID, int bufferIndex, SpillCallback callback) {
+			this.buffer = buffer;
+			this.epochID = epochID;
+			this.bufferIndex = bufferIndex;
+			this.callback = callback;
+			this.submitTime = System.nanoTime();
+		}
+	}
+
+	/**
+	 * The single append stream of one disk.
+	 */
+	static final class DiskSpiller extends Thread {
+
+		private final File directory;
+		private final int diskIndex;
+		private final long segmentSize;
+		private final int maxBatchSize;
+		private final SpillMetrics metrics;
+		// Null if spilled buffers are not compressed
+		private final SpilledBufferCompressor compressor;
+
+		private final LinkedBlockingQueue<WriteRequest> requestQueue;
+
+		private volatile boolean alive;
+
+		// Only accessed by the spiller thread
+		private SegmentFile currentSegment;
+		private int nextSegmentNumber;
+		private ByteBuffer compressedBatch;
+
+		DiskSpiller(File directory, int diskIndex, long segmentSize, int maxBatchSize, SpillMetrics metrics,
+					SpilledBufferCompressor compressor) {
+			super("In-Flight Log Spiller " + diskIndex);
+			setDaemon(true);
+			this.directory = directory;
+			this.diskIndex = diskIndex;
+			this.segmentSize = segmentSize;
+			this.maxBatchSize = maxBatchSize;
+			this.metrics = metrics;
+			this.compressor = compressor;
+			this.requestQueue = new LinkedBlockingQueue<>();
+			this.alive = true;
+			this.nextSegmentNumber = 0;
+		}
+
+		/**
+		 * Asynchronously appends the buffer. The buffer is retained until written.
+		 */
+		void write(Buffer buffer, long epochID, int bufferIndex, SpillCallback callback) {
+			if (!alive) {
+				callback.spillFailed(epochID, bufferIndex, new IOException("In-flight log spiller has been shut down."));
+				return;
+			}
+			requestQueue.add(new WriteRequest(buffer.retainBuffer(), epochID, bufferIndex, callback));
+		}
+
+		@Override
+		public void run() {
+			List<WriteRequest> batch = new ArrayList<>(maxBatchSize);
+
+			while (alive) {
+				try {
+					batch.add(requestQueue.take());
+				} catch (InterruptedException e) {
+					continue;
+				}
+				requestQueue.drainTo(batch, maxBatchSize - 1);
+
+				writeBatch(batch);
+				batch.clear();
+			}
+
+			failPendingRequests();
+		}
+
+		private void writeBatch(List<WriteRequest> batch) {
+			if (batch.isEmpty())
+				return;
+
+			int[] recordLengths = new int[batch.size()];
+			boolean[] compressed = new boolean[batch.size()];
+			IOException error = null;
+			SegmentFile segment = null;
+			long startOffset = 0;
+			try {
+				segment = getSegmentForAppending();
+				startOffset = segment.size;
+
+				ByteBuffer[] data = compressor == null ?
+					gatherRaw(batch, recordLengths) : compressBatch(batch, recordLengths, compressed);
+				long batchBytes = 0;
+				for (int recordLength : recordLengths)
+					batchBytes += recordLength;
+				long remaining = batchBytes;
+				while (remaining > 0)
+					remaining -= segment.channel.write(data);
+
+				segment.size += batchBytes;
+				metrics.reportBatch(batchBytes, batch.size(), System.nanoTime() - batch.get(0).submitTime);
+			} catch (IOException e) {
+				error = e;
+				// The file position is unknown after a partial write, continue in a new segment
+				rollSegment();
+			}
+
+			if (LOG.isDebugEnabled())
+				LOG.debug("Disk {} spilled a batch of {} buffers at offset {}", diskIndex, batch.size(), startOffset);
+
+			long offset = startOffset;
+			for (int i = 0; i < batch.size(); i++) {
+				WriteRequest request = batch.get(i);
+				boolean isBuffer = request.buffer.isBuffer();
+				boolean isNetworkCompressed = request.buffer.isCompressed();
+				request.buffer.recycleBuffer();
+				try {
+					if (error == null) {
+						segment.retain();
+						request.callback.spillCompleted(request.epochID, request.bufferIndex,
+							new SpilledBufferLocation(segment, offset, recordLengths[i], isBuffer, compressed[i],
+								isNetworkCompressed));
+					} else {
+						request.callback.spillFailed(request.epochID, request.bufferIndex, error);
+					}
+				} catch (Throwable t) {
+					LOG.error("The spill callback threw an exception.", t);
+				}
+				offset += recordLengths[i];
+			}
+		}
+
+		private static ByteBuffer[] gatherRaw(List<WriteRequest> batch, int[] recordLengths) {
+			ByteBuffer[] data = new ByteBuffer[batch.size()];
+			for (int i = 0; i < data.length; i++) {
+				data[i] = getWholeBuffer(batch.get(i).buffer);
+				recordLengths[i] = data[i].remaining();
+			}
+			return data;
+		}
+
+		private ByteBuffer[] compressBatch(List<WriteRequest> batch, int[] recordLengths, boolean[] compressed)
+			throws IOException {
+			int maxLength = 0;
+			for (WriteRequest request : batch)
+				maxLength += SpilledBufferCompressor.maxRecordLength(request.buffer.getSize());
+			if (compressedBatch == null || compressedBatch.capacity() < maxLength)
+				compressedBatch = ByteBuffer.allocateDirect(maxLength);
+			compressedBatch.clear();
+
+			for (int i = 0; i < batch.size(); i++) {
+				int recordStart = compressedBatch.position();
+				compressed[i] = compressor.compress(getWholeBuffer(batch.get(i).buffer), compressedBatch);
+				recordLengths[i] = compressedBatch.position() - recordStart;
+			}
+			compressedBatch.flip();
+			return new ByteBuffer[]{compressedBatch};
+		}
+
+		// The whole buffer, regardless of how far it was already read by the network stack
+		private static ByteBuffer getWholeBuffer(Buffer buffer) {
+			return buffer.getNioBuffer(0, buffer.getSize());
+		}
+
+		private SegmentFile getSegmentForAppending() throws IOException {
+			if (currentSegment != null && currentSegment.size >= segmentSize)
+				rollSegment();
+			if (currentSegment == null) {
+				File file = new File(directory, "inflight-" + diskIndex + "-" + nextSegmentNumber++ + ".segment");
+				LOG.debug("Starting in-flight log segment {}", file);
+				currentSegment = new SegmentFile(file);
+			}
+			return currentSegment;
+		}
+
+		private void rollSegment() {
+			if (currentSegment != null) {
+				currentSegment.seal();
+				currentSegment = null;
+			}
+		}
+
+		private void failPendingRequests() {
+			IOException cause = new IOException("In-flight log spiller has been shut down.");
+			WriteRequest request;
+			while ((request = requestQueue.poll()) != null) {
+				try {
+					request.buffer.recycleBuffer();
+					request.callback.spillFailed(request.epochID, request.bufferIndex, cause);
+				} catch (Throwable t) {
+					LOG.error("The spill callback threw an exception.", t);
+				}
+			}
+			rollSegment();
+		}
+
+		void shutdown() {
+			alive = false;
+			interrupt();
+			try {
+				join(1000);
+			} catch (InterruptedException ignored) {
+				Thread.currentThread().interrupt();
+			}
+			// Requests may have raced with the shutdown
+			if (!isAlive())
+				failPendingRequests();
+		}
+	}
+}
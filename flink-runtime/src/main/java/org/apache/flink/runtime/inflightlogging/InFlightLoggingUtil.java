@@ -34,7 +34,8 @@ public class InFlightLoggingUtil {
 
 	public static boolean exchangeOwnership(Buffer buffer, BufferPool inFlightBufferPool, Object lock, boolean blocking){
 
-		if(buffer.getRecycler() != FreeingBufferRecycler.INSTANCE){
+		//Buffers broadcast to several subpartitions are logged by each of them, but only exchanged once
+		if(buffer.getRecycler() != FreeingBufferRecycler.INSTANCE && buffer.getRecycler() != inFlightBufferPool){
 			BufferRecycler owner = buffer.getRecycler();
 			Buffer replacement = null;
 
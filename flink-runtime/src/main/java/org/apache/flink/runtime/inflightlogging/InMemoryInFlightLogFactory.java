@@ -25,6 +25,8 @@
 
 package org.apache.flink.runtime.inflightlogging;
 
+import org.apache.flink.metrics.MetricGroup;
+
 
 public class InMemoryInFlightLogFactory implements InFlightLogFactory{
 	@Override
@@ -36,4 +38,12 @@ public class InMemoryInFlightLogFactory implements InFlightLogFactory{
 	public InFlightLogConfig getInFlightLogConfig() {
 		return null;
 	}
+
+	@Override
+	public void registerMetrics(MetricGroup metricGroup) {
+	}
+
+	@Override
+	public void shutdown() {
+	}
 }
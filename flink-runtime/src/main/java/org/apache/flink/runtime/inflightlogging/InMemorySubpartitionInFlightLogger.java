@@ -25,6 +25,8 @@ import org.slf4j.LoggerFactory;
 import java.util.*;
 import java.util.stream.Collectors;
 
+import static org.apache.flink.util.Preconditions.checkState;
+
 public class InMemorySubpartitionInFlightLogger implements InFlightLog {
 
 	private static final Logger LOG = LoggerFactory.getLogger(InMemorySubpartitionInFlightLogger.class);
@@ -32,6 +34,12 @@ public class InMemorySubpartitionInFlightLogger implements InFlightLog {
 	private final SortedMap<Long, List<Buffer>> slicedLog;
 	private BufferPool inFlightBufferPool;
 
+	//Bytes of all buffers in slicedLog
+	private long logSizeInBytes;
+
+	//The epochs before it were truncated
+	private long truncatedBefore = Long.MIN_VALUE;
+
 	public InMemorySubpartitionInFlightLogger() {
 		slicedLog = new TreeMap<>();
 	}
@@ -44,6 +52,7 @@ public class InMemorySubpartitionInFlightLogger implements InFlightLog {
 	public synchronized void log(Buffer buffer, long epochID, boolean isFinished) {
 		List<Buffer> epochLog = slicedLog.computeIfAbsent(epochID, k -> new LinkedList<>());
 		epochLog.add(buffer.retainBuffer());
+		logSizeInBytes += buffer.getSize();
 		LOG.debug("Logged a new buffer for epoch {}", epochID);
 	}
 
@@ -51,6 +60,7 @@ public class InMemorySubpartitionInFlightLogger implements InFlightLog {
 	public synchronized void notifyCheckpointComplete(long checkpointId) throws Exception {
 
 		LOG.debug("Got notified of checkpoint {} completion\nCurrent log: {}", checkpointId, representLogAsString(this.slicedLog));
+		truncatedBefore = Math.max(truncatedBefore, checkpointId);
 		List<Long> toRemove = new LinkedList<>();
 
 		//keys are in ascending order
@@ -64,6 +74,7 @@ public class InMemorySubpartitionInFlightLogger implements InFlightLog {
 		for (long checkpointBarrierId : toRemove) {
 			List<Buffer> slice = slicedLog.remove(checkpointBarrierId);
 			for (Buffer b : slice) {
+				logSizeInBytes -= b.getSize();
 				b.recycleBuffer();
 			}
 		}
@@ -71,6 +82,7 @@ public class InMemorySubpartitionInFlightLogger implements InFlightLog {
 
 	@Override
 	public synchronized InFlightLogIterator<Buffer> getInFlightIterator(long startEpochID, int ignoreBuffers) {
+		checkNoSkipInTruncatedEpoch(startEpochID, ignoreBuffers, truncatedBefore);
 		//The lower network stack recycles buffers, so for each replay, we must increase reference counts
 		increaseReferenceCountsUnsafe(startEpochID);
 		ReplayIterator replayIterator = new  ReplayIterator(startEpochID, slicedLog);
@@ -81,6 +93,20 @@ public class InMemorySubpartitionInFlightLogger implements InFlightLog {
 		return replayIterator;
 	}
 
+	/**
+	 * Skipping buffers of a truncated epoch would skip them in the epochs after it instead.
+	 */
+	static void checkNoSkipInTruncatedEpoch(long epochID, int ignoreBuffers, long truncatedBefore) {
+		checkState(ignoreBuffers == 0 || epochID >= truncatedBefore,
+			"Cannot skip %s buffers of epoch %s, the epochs before %s were truncated.", ignoreBuffers, epochID,
+			truncatedBefore);
+	}
+
+	@Override
+	public synchronized long getLogSizeInBytes() {
+		return logSizeInBytes;
+	}
+
 	@Override
 	public void destroyBufferPools() {
 
@@ -91,6 +117,8 @@ public class InMemorySubpartitionInFlightLogger implements InFlightLog {
 		for(List<Buffer> epoch : slicedLog.values())
 			for(Buffer b : epoch)
 				b.recycleBuffer();
+		slicedLog.clear();
+		logSizeInBytes = 0;
 	}
 
 	@Override
@@ -44,6 +44,11 @@ public class NoOpInFlightLog implements InFlightLog {
 		return null;
 	}
 
+	@Override
+	public long getLogSizeInBytes() {
+		return 0;
+	}
+
 	@Override
 	public void destroyBufferPools() {
 
@@ -0,0 +1,282 @@
+/*
+ *
+ *
+ *
+ *  * Licensed to the Apache Software Foundation (ASF) under one
+ *  * or more contributor license agreements.  See the NOTICE file
+ *  * distributed with this work for additional information
+ *  * regarding copyright ownership.  The ASF licenses this file
+ *  * to you under the Apache License, Version 2.0 (the
+ *  * "License"); you may not use this file except in compliance
+ *  * with the License.  You may obtain a copy of the License at
+ *  *
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ *
+ *
+ *
+ */
+
+package org.apache.flink.runtime.inflightlogging;
+
+import org.apache.flink.runtime.io.network.buffer.Buffer;
+import org.apache.flink.runtime.io.network.buffer.BufferPool;
+import org.apache.flink.runtime.io.network.buffer.ReadOnlySlicedNetworkBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * An in-memory in-flight log shared by all subpartitions of a partition to which every buffer is broadcast.
+ * The subpartitions send slices of the same backing buffers, so each backing buffer is retained once by this log,
+ * while the log of each subpartition only records which part of which backing buffer it sent, as a
+ * (buffer index, offset, length) entry. Replaying a subpartition slices the shared buffers again.
+ */
+public class SharedBroadcastInFlightLog {
+
+	private static final Logger LOG = LoggerFactory.getLogger(SharedBroadcastInFlightLog.class);
+
+	// The backing buffers of each epoch in the order they were first logged by any subpartition
+	private final SortedMap<Long, Epoch> epochs;
+
+	private final SubpartitionLog[] subpartitionLogs;
+
+	private BufferPool inFlightBufferPool;
+
+	//Bytes of all backing buffers, each counted once
+	private long logSizeInBytes;
+
+	private int numClosed;
+
+	public SharedBroadcastInFlightLog(int numberOfSubpartitions) {
+		this.epochs = new TreeMap<>();
+		this.subpartitionLogs = new SubpartitionLog[numberOfSubpartitions];
+		for (int i = 0; i < numberOfSubpartitions; i++)
+			subpartitionLogs[i] = new SubpartitionLog();
+	}
+
+	public InFlightLog getSubpartitionLog(int subpartitionIndex) {
+		return subpartitionLogs[subpartitionIndex];
+	}
+
+	public synchronized long getLogSizeInBytes() {
+		return logSizeInBytes;
+	}
+
+	private synchronized void log(SubpartitionLog subpartitionLog, Buffer buffer, long epochID) {
+		if (subpartitionLog.closed)
+			return;
+		Buffer parent = buffer instanceof ReadOnlySlicedNetworkBuffer ?
+			((ReadOnlySlicedNetworkBuffer) buffer).getParentBuffer() : buffer;
+		int offset = buffer.getMemorySegmentOffset() - parent.getMemorySegmentOffset();
+		int length = buffer.readableBytes();
+
+		Epoch epoch = epochs.computeIfAbsent(epochID, Epoch::new);
+		int parentIndex = epoch.indexOf(parent);
+		logSizeInBytes += epoch.extend(parentIndex, offset + length);
+		subpartitionLog.append(epochID, parentIndex, offset, length);
+		LOG.debug("Logged a slice of buffer {} of epoch {} at offset {} with length {}", parentIndex, epochID, offset,
+			length);
+	}
+
+	private synchronized void truncate(SubpartitionLog subpartitionLog, long checkpointID) {
+		subpartitionLog.truncatedBefore = Math.max(subpartitionLog.truncatedBefore, checkpointID);
+		subpartitionLog.entries.headMap(subpartitionLog.truncatedBefore).clear();
+
+		//Subpartitions may keep older epochs for their consumer, the backing buffers are released with the oldest
+		long releaseBefore = Long.MAX_VALUE;
+		for (SubpartitionLog log : subpartitionLogs)
+			if (!log.closed)
+				releaseBefore = Math.min(releaseBefore, log.truncatedBefore);
+		SortedMap<Long, Epoch> toRemove = epochs.headMap(releaseBefore);
+		for (Epoch epoch : toRemove.values())
+			logSizeInBytes -= epoch.release();
+		toRemove.clear();
+	}
+
+	private synchronized InFlightLogIterator<Buffer> replay(SubpartitionLog subpartitionLog, long startEpochID,
+															int ignoreBuffers) {
+		InMemorySubpartitionInFlightLogger.checkNoSkipInTruncatedEpoch(startEpochID, ignoreBuffers,
+			subpartitionLog.truncatedBefore);
+		SortedMap<Long, List<Buffer>> slices = new TreeMap<>();
+		long lastEpochID = subpartitionLog.entries.isEmpty() ? startEpochID :
+			Math.max(startEpochID, subpartitionLog.entries.lastKey());
+		//The replay iterator expects consecutive epochs
+		for (long epochID = startEpochID; epochID <= lastEpochID; epochID++) {
+			List<Buffer> epochSlices = new LinkedList<>();
+			Entries entries = subpartitionLog.entries.get(epochID);
+			if (entries != null) {
+				Epoch epoch = epochs.get(epochID);
+				for (int i = 0; i < entries.size; i++) {
+					Buffer parent = epoch.parents.get(entries.parentIndices[i]);
+					epochSlices.add(parent.readOnlySlice(entries.offsets[i], entries.lengths[i]).retainBuffer());
+				}
+			}
+			slices.put(epochID, epochSlices);
+		}
+
+		InFlightLogIterator<Buffer> iterator =
+			new InMemorySubpartitionInFlightLogger.ReplayIterator(startEpochID, slices);
+		for (int i = 0; i < ignoreBuffers; i++)
+			iterator.next().recycleBuffer();
+		return iterator;
+	}
+
+	private synchronized void close(SubpartitionLog subpartitionLog) {
+		if (subpartitionLog.closed)
+			return;
+		subpartitionLog.closed = true;
+		subpartitionLog.entries.clear();
+		//The subpartitions are released one by one, the backing buffers are only released with the last one
+		if (++numClosed < subpartitionLogs.length)
+			return;
+		for (Epoch epoch : epochs.values())
+			epoch.release();
+		epochs.clear();
+		logSizeInBytes = 0;
+	}
+
+	private static class Epoch {
+		private final long epochID;
+		private final List<Buffer> parents;
+		private final Map<Buffer, Integer> indices;
+		// The number of bytes of each backing buffer that were sent by any subpartition
+		private int[] extents;
+
+		Epoch(long epochID) {
+			this.epochID = epochID;
+			this.parents = new ArrayList<>();
+			this.indices = new IdentityHashMap<>();
+			this.extents = new int[16];
+		}
+
+		int indexOf(Buffer parent) {
+			Integer index = indices.get(parent);
+			if (index != null)
+				return index;
+
+			index = parents.size();
+			parents.add(parent.retainBuffer());
+			indices.put(parent, index);
+			if (index == extents.length)
+				extents = Arrays.copyOf(extents, 2 * extents.length);
+			return index;
+		}
+
+		/**
+		 * Returns by how many bytes the part of the given backing buffer held by the log grew.
+		 */
+		int extend(int parentIndex, int end) {
+			int growth = Math.max(0, end - extents[parentIndex]);
+			extents[parentIndex] += growth;
+			return growth;
+		}
+
+		long release() {
+			long size = 0;
+			for (int i = 0; i < parents.size(); i++) {
+				parents.get(i).recycleBuffer();
+				size += extents[i];
+			}
+			parents.clear();
+			indices.clear();
+			LOG.debug("Released {} buffers of epoch {}", size, epochID);
+			return size;
+		}
+	}
+
+	/**
+	 * The (buffer index, offset, length) entries of one subpartition in one epoch.
+	 */
+	private static class Entries {
+		private int[] parentIndices = new int[16];
+		private int[] offsets = new int[16];
+		private int[] lengths = new int[16];
+		private int size;
+
+		void add(int parentIndex, int offset, int length) {
+			if (size == parentIndices.length) {
+				parentIndices = Arrays.copyOf(parentIndices, 2 * size);
+				offsets = Arrays.copyOf(offsets, 2 * size);
+				lengths = Arrays.copyOf(lengths, 2 * size);
+			}
+			parentIndices[size] = parentIndex;
+			offsets[size] = offset;
+			lengths[size] = length;
+			size++;
+		}
+	}
+
+	private class SubpartitionLog implements InFlightLog {
+
+		private final SortedMap<Long, Entries> entries = new TreeMap<>();
+
+		private boolean closed;
+
+		private long truncatedBefore = Long.MIN_VALUE;
+
+		private void append(long epochID, int parentIndex, int offset, int length) {
+			entries.computeIfAbsent(epochID, k -> new Entries()).add(parentIndex, offset, length);
+		}
+
+		@Override
+		public void registerBufferPool(BufferPool bufferPool) {
+			inFlightBufferPool = bufferPool;
+		}
+
+		@Override
+		public void log(Buffer buffer, long epochID, boolean isFinished) {
+			SharedBroadcastInFlightLog.this.log(this, buffer, epochID);
+		}
+
+		@Override
+		public void notifyCheckpointComplete(long checkpointId) throws Exception {
+			truncate(this, checkpointId);
+		}
+
+		@Override
+		public InFlightLogIterator<Buffer> getInFlightIterator(long epochID, int ignoreBuffers) {
+			return replay(this, epochID, ignoreBuffers);
+		}
+
+		@Override
+		public long getLogSizeInBytes() {
+			synchronized (SharedBroadcastInFlightLog.this) {
+				long size = 0;
+				for (Entries epochEntries : entries.values())
+					for (int i = 0; i < epochEntries.size; i++)
+						size += epochEntries.lengths[i];
+				return size;
+			}
+		}
+
+		@Override
+		public void destroyBufferPools() {
+
+		}
+
+		@Override
+		public void close() {
+			SharedBroadcastInFlightLog.this.close(this);
+		}
+
+		@Override
+		public BufferPool getInFlightBufferPool() {
+			return inFlightBufferPool;
+		}
+	}
+}
@@ -0,0 +1,55 @@
+/*
+ *
+ *
+ *
+ *  * Licensed to the Apache Software Foundation (ASF) under one
+ *  * or more contributor license agreements.  See the NOTICE file
+ *  * distributed with this work for additional information
+ *  * regarding copyright ownership.  The ASF licenses this file
+ *  * to you under the Apache License, Version 2.0 (the
+ *  * "License"); you may not use this file except in compliance
+ *  * with the License.  You may obtain a copy of the License at
+ *  *
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ *
+ *
+ *
+ */
+package org.apache.flink.runtime.inflightlogging;
+
+import org.apache.flink.runtime.io.network.buffer.BufferPool;
+
+/**
+ * Decides when a {@link SpillableSubpartitionInFlightLogger} hands its in-memory buffers to the
+ * {@link InFlightLogSpillService}. Each subpartition has its own instance, so implementations may keep state.
+ * <p>
+ * Spilling is only needed for the buffers which outlive the next completed checkpoint, so lazy policies avoid writing
+ * most epochs to disk at all.
+ */
+public interface SpillPolicy {
+
+	enum Action {
+		/** Keep all buffers in memory. */
+		NONE,
+		/** Spill all buffers of epochs older than the one of the logged buffer. */
+		SPILL_COMPLETED_EPOCHS,
+		/** Spill all buffers not yet spilled. */
+		SPILL_ALL
+	}
+
+	/**
+	 * Consulted after every logged buffer, while holding the lock of the in-flight log.
+	 *
+	 * @param epochID the epoch of the logged buffer
+	 * @param unspilledBytes the bytes logged by the subpartition which are not yet submitted for spilling
+	 * @param inFlightBufferPool the pool logged buffers are accounted to, null if not yet registered
+	 */
+	Action onBufferLogged(long epochID, long unspilledBytes, BufferPool inFlightBufferPool);
+}
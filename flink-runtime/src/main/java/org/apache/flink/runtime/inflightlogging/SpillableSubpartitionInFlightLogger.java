@@ -25,7 +25,9 @@
 
 package org.apache.flink.runtime.inflightlogging;
 
-import org.apache.flink.runtime.io.disk.iomanager.*;
+import org.apache.flink.runtime.inflightlogging.InFlightLogSpillService.DiskSpiller;
+import org.apache.flink.runtime.inflightlogging.InFlightLogSpillService.SpillCallback;
+import org.apache.flink.runtime.inflightlogging.InFlightLogSpillService.SpilledBufferLocation;
 import org.apache.flink.runtime.io.network.buffer.Buffer;
 import org.apache.flink.runtime.io.network.buffer.BufferPool;
 import org.slf4j.Logger;
@@ -36,21 +38,36 @@ import java.util.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
- * An inflight logger that periodically flushed available buffers according to a policy.
- * Due to limitations of the asynchronous file api, we must flush each epoch sequentially. Otherwise we may accidentally
- * free a buffer that has not been written yet. This is because each file is output to by a different thread.
+ * An inflight logger that flushes available buffers according to a {@link SpillPolicy}.
  * <p>
- * We start a different file for each epoch so that it may be deleted upon completion.
+ * Buffers are not written by this logger itself, but handed to the {@link DiskSpiller} of the TaskManager wide
+ * {@link InFlightLogSpillService} that this subpartition was assigned to. Flushing therefore only enqueues the
+ * buffers, and the lock shared with the netty reader is never held during IO. Once a buffer is written, its
+ * {@link SpilledBufferLocation} is recorded at its (epoch, buffer index) and the in-memory copy is recycled.
+ * <p>
+ * Upon checkpoint completion the locations of the truncated epochs are released, which allows the spill service to
+ * delete segment files no longer referenced by any subpartition.
  */
 public class SpillableSubpartitionInFlightLogger implements InFlightLog {
 
 	private static final Logger LOG = LoggerFactory.getLogger(SpillableSubpartitionInFlightLogger.class);
 
 	private final SortedMap<Long, Epoch> slicedLog;
-	private final IOManager ioManager;
+	private final InFlightLogSpillService spillService;
+	private final DiskSpiller spiller;
+	private final SpillCallback spillCallback;
 
 	private final Object flushLock = new Object();
-	private final boolean eagerlySpill;
+	private final SpillPolicy spillPolicy;
+
+	//Bytes logged but not yet submitted for spilling
+	private long unspilledBytes;
+
+	//Bytes of all epochs in slicedLog, spilled or not
+	private long logSizeInBytes;
+
+	//The epochs before it were truncated
+	private long truncatedBefore = Long.MIN_VALUE;
 
 	private BufferPool inFlightBufferPool;
 	private final BufferPool prefetchBufferPool;
@@ -61,15 +78,19 @@ public class SpillableSubpartitionInFlightLogger implements InFlightLog {
 
 	private boolean closed;
 
-	public SpillableSubpartitionInFlightLogger(IOManager ioManager, BufferPool prefetchBufferPool,
-											   boolean eagerlySpill) {
-		this.ioManager = ioManager;
+	public SpillableSubpartitionInFlightLogger(InFlightLogSpillService spillService, BufferPool prefetchBufferPool,
+											   SpillPolicy spillPolicy) {
+		this.spillService = spillService;
+		this.spiller = spillService.nextDiskSpiller();
+		this.spillCallback = new FlushCompletedCallback(this);
 		this.prefetchBufferPool = prefetchBufferPool;
 
 		this.slicedLog = new TreeMap<>();
 		this.isReplaying = new AtomicBoolean(false);
 		this.currentIterator = null;
-		this.eagerlySpill = eagerlySpill;
+		this.spillPolicy = spillPolicy;
+		this.unspilledBytes = 0;
+		this.logSizeInBytes = 0;
 		this.closed = false;
 	}
 
@@ -91,10 +112,22 @@ public class SpillableSubpartitionInFlightLogger implements InFlightLog {
 				InFlightLoggingUtil.exchangeOwnership(buffer, inFlightBufferPool, flushLock, true);
 
 
-			Epoch epoch = slicedLog.computeIfAbsent(epochID, k -> new Epoch(createNewWriter(k), k));
+			Epoch epoch = slicedLog.computeIfAbsent(epochID, Epoch::new);
 			epoch.append(buffer);
-			if (eagerlySpill)
-				flushAllUnflushed();
+			unspilledBytes += buffer.getSize();
+			logSizeInBytes += buffer.getSize();
+			switch (spillPolicy.onBufferLogged(epochID, unspilledBytes, inFlightBufferPool)) {
+				case SPILL_ALL:
+					flushAllUnflushed();
+					break;
+				case SPILL_COMPLETED_EPOCHS:
+					for (Epoch e : slicedLog.headMap(epochID).values())
+						unspilledBytes -= e.flushAllUnflushed(spiller, spillCallback);
+					break;
+				case NONE:
+				default:
+					break;
+			}
 			if (isReplaying.get())
 				currentIterator.notifyNewBufferAdded(epochID);
 		}
@@ -109,6 +142,7 @@ public class SpillableSubpartitionInFlightLogger implements InFlightLog {
 		List<Epoch> epochsRemoved = new LinkedList<>();
 
 		synchronized (flushLock) {
+			truncatedBefore = Math.max(truncatedBefore, checkpointID);
 			//keys are in ascending order
 			for (long epochID : slicedLog.keySet())
 				if (epochID < checkpointID)
@@ -117,8 +151,11 @@ public class SpillableSubpartitionInFlightLogger implements InFlightLog {
 			for (long epochID : toRemove)
 				epochsRemoved.add(slicedLog.remove(epochID));
 
-			for (Epoch epoch : epochsRemoved)
-				epoch.removeEpochFile();
+			for (Epoch epoch : epochsRemoved) {
+				unspilledBytes -= epoch.getUnflushedBytes();
+				logSizeInBytes -= epoch.getSizeInBytes();
+				epoch.release();
+			}
 		}
 	}
 
@@ -129,18 +166,26 @@ public class SpillableSubpartitionInFlightLogger implements InFlightLog {
 		synchronized (flushLock) {
 			if (closed)
 				return null;
+			InMemorySubpartitionInFlightLogger.checkNoSkipInTruncatedEpoch(epochID, ignoreBuffers, truncatedBefore);
 			this.isReplaying.set(true);
 			logToReplay = slicedLog.tailMap(epochID);
 			if (logToReplay.size() == 0)
 				return null;
 
-			this.currentIterator = new SpilledReplayIterator(logToReplay, prefetchBufferPool, ioManager, flushLock,
+			this.currentIterator = new SpilledReplayIterator(logToReplay, prefetchBufferPool, spillService, flushLock,
 				ignoreBuffers,
 				isReplaying);
 			return currentIterator;
 		}
 	}
 
+	@Override
+	public long getLogSizeInBytes() {
+		synchronized (flushLock) {
+			return logSizeInBytes;
+		}
+	}
+
 	@Override
 	public void destroyBufferPools() {
 		if(prefetchBufferPool != null)
@@ -152,7 +197,9 @@ public class SpillableSubpartitionInFlightLogger implements InFlightLog {
 		synchronized (flushLock) {
 			this.closed = true;
 			for (Epoch e : slicedLog.values())
-				e.removeEpochFile();
+				e.release();
+			slicedLog.clear();
+			logSizeInBytes = 0;
 		}
 	}
 
@@ -166,7 +213,7 @@ public class SpillableSubpartitionInFlightLogger implements InFlightLog {
 			if(closed)
 				return;
 			for (Epoch e : slicedLog.values())
-				e.flushAllUnflushed();
+				unspilledBytes -= e.flushAllUnflushed(spiller, spillCallback);
 		}
 	}
 
@@ -174,125 +221,98 @@ public class SpillableSubpartitionInFlightLogger implements InFlightLog {
 		return slicedLog;
 	}
 
-	private void notifyFlushCompleted(long epochID) {
+	private void notifyFlushCompleted(long epochID, int bufferIndex, SpilledBufferLocation location) {
 		synchronized (flushLock) {
 			Epoch epoch = slicedLog.get(epochID);
-			if (epoch != null && !epoch.stable())
-				epoch.notifyFlushCompleted();
+			if (epoch != null)
+				epoch.notifyFlushCompleted(bufferIndex, location);
+			else
+				location.release(); //Epoch was truncated while the buffer was being written
 		}
 	}
 
-	private void notifyFlushFailed(long epochID) {
+	private void notifyFlushFailed(long epochID, int bufferIndex) {
 		synchronized (flushLock) {
 			Epoch epoch = slicedLog.get(epochID);
-			if (epoch != null && !epoch.stable())
-				epoch.notifyFlushFailed();
-		}
-	}
-
-
-	private BufferFileWriter createNewWriter(long epochID) {
-		BufferFileWriter writer = null;
-		try {
-			writer = ioManager.createBufferFileWriter(ioManager.createChannel(), new FlushCompletedCallback(this,
-				epochID));
-		} catch (IOException e) {
-			throw new RuntimeException("Failed to create BufferFileWriter. Reason: " + e.getMessage());
+			if (epoch != null)
+				epoch.notifyFlushFailed(bufferIndex);
 		}
-		return writer;
 	}
 
 	static class Epoch {
 		private final List<Buffer> epochBuffers;
-		private final BufferFileWriter writer;
+		//The index of the spill service, null while a buffer is only held in memory
+		private final List<SpilledBufferLocation> spillLocations;
 		private int nextBufferToFlush;
-		private int nextBufferToCompleteFlushing;
 		private final long epochID;
+		//Bytes of all buffers appended, which stays valid after they are spilled and recycled
+		private long sizeInBytes;
 
-
-		public Epoch(BufferFileWriter writer, long epochID) {
+		public Epoch(long epochID) {
 			this.epochBuffers = new ArrayList<>(500);
-			this.writer = writer;
+			this.spillLocations = new ArrayList<>(500);
 			this.nextBufferToFlush = 0;
-			this.nextBufferToCompleteFlushing = 0;
 			this.epochID = epochID;
 		}
 
 		public void append(Buffer buffer) {
 			this.epochBuffers.add(buffer.retainBuffer());
+			this.spillLocations.add(null);
+			this.sizeInBytes += buffer.getSize();
+		}
+
+		public long getSizeInBytes() {
+			return sizeInBytes;
 		}
 
 		public List<Buffer> getEpochBuffers() {
 			return epochBuffers;
 		}
 
-		public FileIOChannel.ID getFileHandle() {
-			return writer.getChannelID();
+		public SpilledBufferLocation getSpillLocation(int bufferIndex) {
+			return spillLocations.get(bufferIndex);
 		}
 
 		public long getEpochID() {
 			return epochID;
 		}
 
-		public void flushAllUnflushed() {
-			if (writer.isClosed())
-				return;
-
-			try {
-				for (; nextBufferToFlush < epochBuffers.size(); nextBufferToFlush++)
-					writer.writeBlock(epochBuffers.get(nextBufferToFlush));
+		/**
+		 * Submits the buffers not yet submitted for spilling, returning their size in bytes.
+		 */
+		public long flushAllUnflushed(DiskSpiller spiller, SpillCallback callback) {
+			long flushedBytes = getUnflushedBytes();
+			for (; nextBufferToFlush < epochBuffers.size(); nextBufferToFlush++)
+				spiller.write(epochBuffers.get(nextBufferToFlush), epochID, nextBufferToFlush, callback);
+			return flushedBytes;
+		}
 
-			} catch (IOException e) {
-				LOG.debug("Attempt to write returned exception due to writer being closed. If writer is closed," +
-					"that means epoch is stable, no need to write.");
-			}
+		public long getUnflushedBytes() {
+			long bytes = 0;
+			for (int i = nextBufferToFlush; i < epochBuffers.size(); i++)
+				bytes += epochBuffers.get(i).getSize();
+			return bytes;
 		}
 
-		public void notifyFlushCompleted() {
+		public void notifyFlushCompleted(int bufferIndex, SpilledBufferLocation location) {
 			LOG.debug("Notify flush completed");
-			Buffer buffer = epochBuffers.get(nextBufferToCompleteFlushing);
-			buffer.recycleBuffer();
-			nextBufferToCompleteFlushing++;
+			spillLocations.set(bufferIndex, location);
+			epochBuffers.get(bufferIndex).recycleBuffer();
 		}
 
-		public void notifyFlushFailed() {
+		public void notifyFlushFailed(int bufferIndex) {
 			//Do nothing and keep in memory
-			LOG.debug("Flush failed for buffer {} of epoch {}, keeping in memory", nextBufferToCompleteFlushing,
-				epochID);
-			nextBufferToCompleteFlushing++;
-
-			//synchronized (writer) {
-			//	if (!writer.isClosed()) {
-			//		//Must clear request queue, otherwise buffers are stored in wrong order
-			//		writer.clearRequestQueue();
-			//		//Resubmit requests in order
-			//		for (int i = nextBufferToCompleteFlushing; i < nextBufferToFlush; i++) {
-			//			try {
-			//				writer.writeBlock(epochBuffers.get(i).getBuffer());
-			//			} catch (IOException e) {
-			//				throw new RuntimeException("Writer could not write buffer. Cause:" + e.getMessage());
-			//			}
-			//		}
-			//	}
-			//}
-		}
-
-		public boolean stable() {
-			return nextBufferToCompleteFlushing == epochBuffers.size() || writer.isClosed();
+			LOG.debug("Flush failed for buffer {} of epoch {}, keeping in memory", bufferIndex, epochID);
 		}
 
-		public void removeEpochFile() {
-			LOG.debug("Removing epoch file of epoch {}", epochID);
-			try {
-				writer.clearRequestQueue();
-				writer.closeAndDelete();
-				for (Buffer buffer : epochBuffers) {
-					if (!buffer.isRecycled())
-						buffer.recycleBuffer(); // release the buffers left over
-
-				}
-			} catch (IOException e) {
-				throw new RuntimeException("Could not close and delete epoch. Cause: " + e.getMessage());
+		public void release() {
+			LOG.debug("Releasing epoch {}", epochID);
+			for (int i = 0; i < epochBuffers.size(); i++) {
+				SpilledBufferLocation location = spillLocations.get(i);
+				if (location != null)
+					location.release();
+				else
+					epochBuffers.get(i).recycleBuffer(); // release the buffers left over
 			}
 		}
 
@@ -310,31 +330,28 @@ public class SpillableSubpartitionInFlightLogger implements InFlightLog {
 			return "Epoch{" +
 				"size=" + epochBuffers.size() +
 				",nextBufferToFlush=" + nextBufferToFlush +
-				", nextBufferToCompleteFlushing=" + nextBufferToCompleteFlushing +
 				'}';
 		}
 
 	}
 
-	private static class FlushCompletedCallback implements RequestDoneCallback<Buffer> {
+	private static class FlushCompletedCallback implements SpillCallback {
 
 		private final SpillableSubpartitionInFlightLogger toNotify;
-		private final long epochID;
 
-		public FlushCompletedCallback(SpillableSubpartitionInFlightLogger toNotify, long epochID) {
-			this.epochID = epochID;
+		public FlushCompletedCallback(SpillableSubpartitionInFlightLogger toNotify) {
 			this.toNotify = toNotify;
 		}
 
 		@Override
-		public void requestSuccessful(Buffer request) {
-			toNotify.notifyFlushCompleted(epochID);
+		public void spillCompleted(long epochID, int bufferIndex, SpilledBufferLocation location) {
+			toNotify.notifyFlushCompleted(epochID, bufferIndex, location);
 		}
 
 		@Override
-		public void requestFailed(Buffer buffer, IOException e) {
-			LOG.debug("Flush failed. Retrying. Cause: {}", e.getMessage());
-			toNotify.notifyFlushFailed(epochID);
+		public void spillFailed(long epochID, int bufferIndex, IOException e) {
+			LOG.debug("Flush failed. Keeping buffer in memory. Cause: {}", e.getMessage());
+			toNotify.notifyFlushFailed(epochID, bufferIndex);
 		}
 	}
 
@@ -0,0 +1,118 @@
+/*
+ *
+ *
+ *
+ *  * Licensed to the Apache Software Foundation (ASF) under one
+ *  * or more contributor license agreements.  See the NOTICE file
+ *  * distributed with this work for additional information
+ *  * regarding copyright ownership.  The ASF licenses this file
+ *  * to you under the Apache License, Version 2.0 (the
+ *  * "License"); you may not use this file except in compliance
+ *  * with the License.  You may obtain a copy of the License at
+ *  *
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ *
+ *
+ *
+ */
+package org.apache.flink.runtime.inflightlogging;
+
+import org.xerial.snappy.Snappy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Snappy block compression of spilled buffers. A compressed record is a header holding the uncompressed size,
+ * followed by the compressed bytes. Buffers which do not compress well are stored raw and without header, which is
+ * recorded in their {@link InFlightLogSpillService.SpilledBufferLocation}.
+ * <p>
+ * Snappy only operates on direct memory, heap buffers are staged through a direct buffer. Not thread safe, each
+ * {@link InFlightLogSpillService.DiskSpiller} and reader thread owns one.
+ */
+final class SpilledBufferCompressor {
+
+	static final int HEADER_LENGTH = Integer.BYTES;
+
+	private static final double MIN_COMPRESSION_RATIO = 0.85d;
+
+	private ByteBuffer staging;
+
+	private ByteBuffer record;
+
+	static int maxRecordLength(int uncompressedLength) {
+		return HEADER_LENGTH + Snappy.maxCompressedLength(uncompressedLength);
+	}
+
+	/**
+	 * Appends the record of the remaining bytes of the input to the output, returning whether it was compressed.
+	 * The output must have {@link #maxRecordLength(int)} bytes remaining.
+	 */
+	boolean compress(ByteBuffer input, ByteBuffer output) throws IOException {
+		int uncompressedLength = input.remaining();
+		int recordStart = output.position();
+
+		output.putInt(uncompressedLength);
+		int compressedLength = Snappy.compress(toDirect(input), output.slice());
+		if (compressedLength > uncompressedLength * MIN_COMPRESSION_RATIO) {
+			output.position(recordStart);
+			output.put(input.duplicate());
+			return false;
+		}
+		output.position(output.position() + compressedLength);
+		return true;
+	}
+
+	/**
+	 * Decompresses the record remaining in the direct input into the output, returning the uncompressed length.
+	 */
+	int decompress(ByteBuffer record, ByteBuffer output) throws IOException {
+		int uncompressedLength = record.getInt();
+		if (uncompressedLength > output.remaining())
+			throw new IOException("Spilled buffer of " + uncompressedLength + " bytes does not fit into a buffer of " +
+				output.remaining() + " bytes.");
+
+		if (output.isDirect()) {
+			Snappy.uncompress(record, output);
+		} else {
+			ByteBuffer direct = getStaging(uncompressedLength);
+			Snappy.uncompress(record, direct);
+			output.duplicate().put(direct);
+		}
+		return uncompressedLength;
+	}
+
+	/**
+	 * Returns a direct buffer to read a record of the given length into.
+	 */
+	ByteBuffer getRecordBuffer(int length) {
+		if (record == null || record.capacity() < length)
+			record = ByteBuffer.allocateDirect(length);
+		record.clear();
+		record.limit(length);
+		return record;
+	}
+
+	private ByteBuffer toDirect(ByteBuffer input) {
+		if (input.isDirect())
+			return input;
+		ByteBuffer direct = getStaging(input.remaining());
+		direct.put(input.duplicate());
+		direct.flip();
+		return direct;
+	}
+
+	private ByteBuffer getStaging(int capacity) {
+		if (staging == null || staging.capacity() < capacity)
+			staging = ByteBuffer.allocateDirect(capacity);
+		staging.clear();
+		return staging;
+	}
+}
@@ -25,8 +25,7 @@
 
 package org.apache.flink.runtime.inflightlogging;
 
-import org.apache.flink.runtime.io.disk.iomanager.BufferFileReader;
-import org.apache.flink.runtime.io.disk.iomanager.IOManager;
+import org.apache.flink.runtime.inflightlogging.InFlightLogSpillService.SpilledBufferLocation;
 import org.apache.flink.runtime.io.disk.iomanager.RequestDoneCallback;
 import org.apache.flink.runtime.io.network.buffer.Buffer;
 import org.apache.flink.runtime.io.network.buffer.BufferPool;
@@ -35,39 +34,42 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 /**
  * {@link SpilledReplayIterator} is to be used in combination with {@link SpillableSubpartitionInFlightLogger}.
  * The {@link SpillableSubpartitionInFlightLogger} spills the in-flight log to disk asynchronously, while this
- * {@link InFlightLogIterator} implementation is able to then read those files and regenerate those buffers.
+ * {@link InFlightLogIterator} implementation is able to then read those segments back and regenerate those buffers.
  * This is done deterministically and buffers have the exact same size.
  * <p>
  * To achieve this behaviour we split the Iterator into a producer and a consumer. The producer will first lock
- * the <code>subpartitionLock</code>, preventing any in-memory buffers to be spilled. Then it uses all buffers
- * available in
- * the partition's {@link BufferPool} to create asynchronous read requests to the spill files. It produces these
- * segments through callbacks into separate {@link LinkedBlockingDeque}'s, since each epoch is in a different file,
- * and each file may be served by a separate async IO thread. Not doing so could cause interleavings of messages.
+ * the <code>subpartitionLock</code>, preventing buffers from being truncated. It then walks the log ahead of the
+ * consumer. Buffers still in memory are retained and served directly, while spilled buffers are read from their
+ * {@link SpilledBufferLocation} into buffers of the partition's prefetch {@link BufferPool}. Reads are served in
+ * parallel by the {@link InFlightLogSpillService}, across epochs, and may complete out of order, so every prefetched
+ * buffer is queued in replay order as a future.
  * <p>
- * The consumer is simple in comparison. It simply checks if the buffer is available in memory, and if it is,
- * returns it. Otherwise, it will check the appropriate deque for the buffer, blocking if necessary.
+ * The prefetch depth adapts to the consumer, bounded by the size of the prefetch pool. It is raised to the credit
+ * announced by the downstream task, and doubles whenever the consumer has to wait for a read.
+ * <p>
+ * The consumer is simple in comparison. It takes the next future, blocking if the read has not completed yet. It
+ * does not hold the <code>spillLock</code> while blocked, so a slow read does not stall the producer.
  */
 public class SpilledReplayIterator extends InFlightLogIterator<Buffer> {
 	private static final Logger LOG = LoggerFactory.getLogger(SpilledReplayIterator.class);
 
+	private static final int MIN_PREFETCH_DEPTH = 2;
+
 	private final Object spillLock;
 	private final BufferPool prefetchBufferPool;
 	private final SortedMap<Long, SpillableSubpartitionInFlightLogger.Epoch> logToReplay;
-	private final IOManager ioManager;
+	private final InFlightLogSpillService spillService;
 
-
-	//The queues to contain buffers	which are asynchronously read
-	private final ConcurrentMap<Long, LinkedBlockingDeque<Buffer>> readyBuffersPerEpoch;
+	//The prefetched buffers not yet consumed, in replay order
+	private final ArrayDeque<CompletableFuture<Buffer>> prefetchedBuffers;
 
 	//The cursor indicating the consumers position in the log
 	private final EpochCursor consumerCursor;
@@ -77,11 +79,12 @@ public class SpilledReplayIterator extends InFlightLogIterator<Buffer> {
 	//Used to signal back to flusher thread that we are done replaying and that it may resume flushing
 	private final AtomicBoolean isReplaying;
 
-	private final Map<Long, BufferFileReader> epochReaders;
+	//The number of buffers to prefetch ahead of the consumer
+	private int prefetchDepth;
 
 	public SpilledReplayIterator(SortedMap<Long, SpillableSubpartitionInFlightLogger.Epoch> logToReplay,
 								 BufferPool prefetchBufferPool,
-								 IOManager ioManager, Object spillLock, int ignoreBuffers,
+								 InFlightLogSpillService spillService, Object spillLock, int ignoreBuffers,
 								 AtomicBoolean isReplaying) {
 		if (LOG.isDebugEnabled()) {
 			LOG.debug("SpilledReplayIterator created");
@@ -100,60 +103,78 @@ public class SpilledReplayIterator extends InFlightLogIterator<Buffer> {
 			prefetchCursor.next();
 		}
 		this.spillLock = spillLock;
-		this.ioManager = ioManager;
+		this.spillService = spillService;
 		this.logToReplay = logToReplay;
-
-		readyBuffersPerEpoch = new ConcurrentHashMap<>(logToReplay.keySet().size());
-		//Initialize the queues
-		for (Map.Entry<Long, SpillableSubpartitionInFlightLogger.Epoch> entry : logToReplay.entrySet()) {
-			LinkedBlockingDeque<Buffer> queue = new LinkedBlockingDeque<>();
-			readyBuffersPerEpoch.put(entry.getKey(), queue);
-		}
-
-		this.epochReaders = new HashMap<>(logToReplay.keySet().size());
-		for (Map.Entry<Long, SpillableSubpartitionInFlightLogger.Epoch> entry : logToReplay.entrySet()) {
-			try {
-				epochReaders.put(entry.getKey(), ioManager.createBufferFileReader(entry.getValue().getFileHandle()
-					, new ReadCompletedCallback(readyBuffersPerEpoch.get(entry.getKey()))));
-			} catch (Exception e) {
-				logAndThrowAsRuntimeException(e);
-			}
-		}
+		this.prefetchedBuffers = new ArrayDeque<>();
+		this.prefetchDepth = MIN_PREFETCH_DEPTH;
 
 		prefetchNextBuffers();
 	}
 
 	private void prefetchNextBuffers() {
-		try {
-			synchronized (spillLock) {
-				while (prefetchCursor.hasNext()) {
-					long currentEpoch = prefetchCursor.getNextEpoch();
-					Buffer nextBuffer = prefetchCursor.next();
-					if (nextBuffer.isRecycled()) {
-						BufferFileReader reader = epochReaders.get(currentEpoch);
-						//We need to read it from disk into readyBuffers
-						Buffer bufferToReadInto = prefetchBufferPool.requestBuffer();
-						if (bufferToReadInto == null) {
-							prefetchCursor.previous();
-							break;
-						}
-						reader.readInto(bufferToReadInto);
-					} else {
-						//boolean exchanged = InFlightLoggingUtil.exchangeOwnership(nextBuffer, recoveryBufferPool, null, false);
-						//if(!exchanged){
-						//	prefetchCursor.previous();
-						//	break;
-						//}
-						//Retain once, so that if a spill completes, it is still in memory.
-						nextBuffer.retainBuffer();
+		synchronized (spillLock) {
+			while (prefetchCursor.hasNext() && prefetchedBuffers.size() < prefetchDepth) {
+				long currentEpoch = prefetchCursor.getNextEpoch();
+				int currentOffset = prefetchCursor.getNextEpochOffset();
+				SpilledBufferLocation location = logToReplay.get(currentEpoch).getSpillLocation(currentOffset);
+				if (location != null) {
+					//We need to read it from disk
+					Buffer bufferToReadInto;
+					try {
+						bufferToReadInto = prefetchBufferPool.requestBuffer();
+					} catch (IOException e) {
+						//Fail the replay once the consumer reaches this buffer, keeping the queue in replay order
+						LOG.error("Could not request a buffer to read offset {} of epoch {} into", currentOffset,
+							currentEpoch, e);
+						CompletableFuture<Buffer> failed = new CompletableFuture<>();
+						failed.completeExceptionally(e);
+						prefetchedBuffers.add(failed);
+						prefetchCursor.next();
+						break;
 					}
-
+					if (bufferToReadInto == null)
+						break;
+					CompletableFuture<Buffer> read = new CompletableFuture<>();
+					spillService.readInto(location, bufferToReadInto, new ReadCompletedCallback(read));
+					prefetchedBuffers.add(read);
+					prefetchCursor.next();
+				} else {
+					//Retain once, so that if a spill completes, it is still in memory.
+					prefetchedBuffers.add(CompletableFuture.completedFuture(prefetchCursor.next().retainBuffer()));
 				}
-				LOG.debug("Prefetched up to offset {} of epoch {}, {} remaining", prefetchCursor.getNextEpochOffset(), prefetchCursor.getNextEpoch(), prefetchCursor.getRemaining());
 			}
+			LOG.debug("Prefetched up to offset {} of epoch {}, {} remaining", prefetchCursor.getNextEpochOffset(), prefetchCursor.getNextEpoch(), prefetchCursor.getRemaining());
+		}
+	}
 
-		} catch (Exception e) {
-			e.printStackTrace();
+	/**
+	 * Waits until the next buffer has been prefetched, returning its future.
+	 */
+	private CompletableFuture<Buffer> awaitNextPrefetched() throws InterruptedException {
+		while (prefetchedBuffers.isEmpty()) {
+			prefetchNextBuffers();
+			//Prefetch pool exhausted, wait for the consumer to recycle buffers
+			if (prefetchedBuffers.isEmpty())
+				spillLock.wait(5);
+		}
+		CompletableFuture<Buffer> next = prefetchedBuffers.peek();
+		if (!next.isDone() && prefetchDepth < getMaxPrefetchDepth()) {
+			prefetchDepth = Math.min(prefetchDepth * 2, getMaxPrefetchDepth());
+			LOG.debug("Replay is waiting for a read, increasing prefetch depth to {}", prefetchDepth);
+		}
+		return next;
+	}
+
+	private int getMaxPrefetchDepth() {
+		return Math.max(MIN_PREFETCH_DEPTH, prefetchBufferPool.getNumBuffers());
+	}
+
+	private static Buffer getPrefetched(CompletableFuture<Buffer> prefetched) throws InterruptedException {
+		try {
+			return prefetched.get();
+		} catch (ExecutionException e) {
+			logAndThrowAsRuntimeException(e);
+			return null;
 		}
 	}
 
@@ -169,86 +190,75 @@ public class SpilledReplayIterator extends InFlightLogIterator<Buffer> {
 
 	@Override
 	public Buffer next() {
-		Buffer buffer = null;
-		synchronized (spillLock) {
-			try {
-				while (!consumerCursor.behind(prefetchCursor)) {
-					prefetchNextBuffers();
-					if (!consumerCursor.behind(prefetchCursor))
-						spillLock.wait(5);
-				}
-
-				long currentEpoch = consumerCursor.getNextEpoch();
-				buffer = consumerCursor.next();
-				if (buffer.isRecycled())
-					buffer = readyBuffersPerEpoch.get(currentEpoch).take();
+		try {
+			CompletableFuture<Buffer> next;
+			synchronized (spillLock) {
+				next = awaitNextPrefetched();
+			}
+			//Wait for the read without the lock, so that a slow read does not stall logging and spilling
+			Buffer buffer = getPrefetched(next);
+			synchronized (spillLock) {
+				if (prefetchedBuffers.peek() != next)
+					//Closed while waiting, which recycles the prefetched buffers
+					return null;
+				prefetchedBuffers.poll();
+				consumerCursor.next();
 
 				if (!consumerCursor.hasNext()) {
 					isReplaying.set(false);
-					LOG.info("Done replaying. Closing readers.");
-					//close will wait for all requests to complete before closing
-					for (BufferFileReader r : epochReaders.values())
-						if (!r.isClosed())
-							r.close();
+					LOG.info("Done replaying.");
 				}
 
 				prefetchNextBuffers();
-			} catch (InterruptedException | IOException e) {
-				Thread.currentThread().interrupt();
-				this.close();
 			}
+			return buffer;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			this.close();
+			return null;
 		}
-
-		return buffer;
 	}
 
 	@Override
 	public Buffer peekNext() {
-		Buffer buffer = null;
 		try {
+			CompletableFuture<Buffer> next;
 			synchronized (spillLock) {
-				while (!consumerCursor.behind(prefetchCursor)) {
-					prefetchNextBuffers();
-					if (!consumerCursor.behind(prefetchCursor))
-						spillLock.wait(5);
-				}
-
-				long currentEpoch = consumerCursor.getNextEpoch();
-				buffer = consumerCursor.next();
-				if (buffer.isRecycled()) {//Producer will increase refCnt if flush not complete when processed
-					buffer = readyBuffersPerEpoch.get(currentEpoch).take();
-					//After peeking push it back
-					readyBuffersPerEpoch.get(currentEpoch).putFirst(buffer);
-				}
-				consumerCursor.previous();
+				next = awaitNextPrefetched();
 			}
+			return getPrefetched(next);
 		} catch (InterruptedException e) {
 			Thread.currentThread().interrupt();
 			this.close(); //cleanup
+			return null;
 		}
-		return buffer;
+	}
+
+	/**
+	 * Prefetches at least as many buffers as the downstream task is ready to receive.
+	 */
+	@Override
+	public void notifyDownstreamCredit(int credit) {
+		synchronized (spillLock) {
+			prefetchDepth = Math.min(Math.max(credit, prefetchDepth), getMaxPrefetchDepth());
+		}
+		prefetchNextBuffers();
 	}
 
 	@Override
 	public void close() {
 		//Note, there may be a better way to do this if a new iterator is going to be built. We could avoid recycling
 		//buffers we will need
-		try {
-			synchronized (spillLock) {
-				while (consumerCursor.hasNext()) {
-					while (!consumerCursor.behind(prefetchCursor))
-						spillLock.wait(50);
-
-					long currentEpoch = consumerCursor.getNextEpoch();
-					Buffer buffer = consumerCursor.next();
-					if (buffer.isRecycled())
-						buffer = readyBuffersPerEpoch.get(currentEpoch).take();
-					buffer.recycleBuffer();
-				}
+		synchronized (spillLock) {
+			isReplaying.set(false);
+			CompletableFuture<Buffer> prefetched;
+			while ((prefetched = prefetchedBuffers.poll()) != null) {
+				//Reads still in progress recycle their buffer once done
+				prefetched.whenComplete((buffer, error) -> {
+					if (buffer != null)
+						buffer.recycleBuffer();
+				});
 			}
-		} catch (InterruptedException e) {
-			Thread.currentThread().interrupt();
-			this.close();
 		}
 	}
 
@@ -261,45 +271,31 @@ public class SpilledReplayIterator extends InFlightLogIterator<Buffer> {
 
 	public void notifyNewBufferAdded(long epochID) {
 		synchronized (spillLock) {
-			try {
-				prefetchCursor.notifyNewBuffer(epochID);
-				consumerCursor.notifyNewBuffer(epochID);
-
-				if (!readyBuffersPerEpoch.containsKey(epochID)) {
-					readyBuffersPerEpoch.put(epochID, new LinkedBlockingDeque<>());
-					epochReaders.put(epochID, ioManager.createBufferFileReader(logToReplay.get(epochID).getFileHandle()
-						, new ReadCompletedCallback(readyBuffersPerEpoch.get(epochID))));
-				}
-			} catch (Exception e) {
-				e.printStackTrace();
-			}
+			prefetchCursor.notifyNewBuffer(epochID);
+			consumerCursor.notifyNewBuffer(epochID);
 		}
 	}
 
 
 	private static class ReadCompletedCallback implements RequestDoneCallback<Buffer> {
 
-		private final LinkedBlockingDeque<Buffer> readyDataBuffers;
+		private final CompletableFuture<Buffer> read;
 
-		public ReadCompletedCallback(LinkedBlockingDeque<Buffer> readyDataBuffers) {
-			this.readyDataBuffers = readyDataBuffers;
+		public ReadCompletedCallback(CompletableFuture<Buffer> read) {
+			this.read = read;
 		}
 
 		@Override
 		public void requestSuccessful(Buffer request) {
-			try {
-				readyDataBuffers.put(request);
-
-			} catch (InterruptedException e) {
-				e.printStackTrace();
-			}
+			read.complete(request);
 		}
 
 		@Override
 		public void requestFailed(Buffer buffer, IOException e) {
 			String msg = "Read of buffer failed during replay with error: " + e.getMessage();
 			LOG.info("Error: " + msg);
-			logAndThrowAsRuntimeException(e);
+			buffer.recycleBuffer();
+			read.completeExceptionally(e);
 		}
 	}
 
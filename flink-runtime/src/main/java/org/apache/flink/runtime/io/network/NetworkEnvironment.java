@@ -26,6 +26,7 @@ import org.apache.flink.runtime.io.disk.iomanager.IOManager;
 import org.apache.flink.runtime.io.disk.iomanager.IOManager.IOMode;
 import org.apache.flink.runtime.io.network.buffer.BufferPool;
 import org.apache.flink.runtime.io.network.buffer.NetworkBufferPool;
+import org.apache.flink.runtime.io.network.partition.OutputFlusherService;
 import org.apache.flink.runtime.io.network.partition.ResultPartition;
 import org.apache.flink.runtime.io.network.partition.ResultPartitionManager;
 import org.apache.flink.runtime.io.network.partition.consumer.SingleInputGate;
@@ -95,6 +96,9 @@ public class NetworkEnvironment {
 
 	private final CausalLogManager causalLogManager;
 
+	/** Periodically flushes the result partitions of all tasks. */
+	private final OutputFlusherService outputFlusherService;
+
 	private boolean isShutdown;
 
 	public NetworkEnvironment(
@@ -166,6 +170,7 @@ public class NetworkEnvironment {
 
 		this.causalLogManager = causalLogManager;
 
+		this.outputFlusherService = new OutputFlusherService();
 
 	}
 
@@ -270,6 +275,7 @@ public class NetworkEnvironment {
 
 			inFlightBufferPool = networkBufferPool.createBufferPool(inFlightMaxNumberOfMemorySegments, inFlightMaxNumberOfMemorySegments);
 			partition.registerInFlightBufferPool(inFlightBufferPool);
+			partition.setOutputFlusherService(outputFlusherService);
 
 			resultPartitionManager.registerResultPartition(partition);
 		} catch (Throwable t) {
@@ -440,6 +446,8 @@ public class NetworkEnvironment {
 
 			taskEventDispatcher.clearAll();
 
+			outputFlusherService.shutdown();
+
 			// make sure that the global buffer pool re-acquires all buffers
 			networkBufferPool.destroyAllBufferPools();
 
@@ -47,6 +47,13 @@ public interface NetworkSequenceViewReader {
 	 */
 	void addCredit(int creditDeltas);
 
+	/**
+	 * Forwards the buffer size announced by the consumer to the subpartition view.
+	 *
+	 * @param newBufferSize The buffer size the consumer wants to receive
+	 */
+	void notifyNewBufferSize(int newBufferSize);
+
 	/**
 	 * Checks whether this reader is available or not.
 	 *
@@ -65,4 +65,10 @@ public interface RecordDeserializer<T extends IOReadableWritable> {
 	void clear();
 
 	boolean hasUnfinishedData();
+
+	/**
+	 * Returns the bytes of the record which spans over the consumed buffers, including its length, or 0 if there is
+	 * none.
+	 */
+	int getNumPartialRecordBytes();
 }
@@ -175,6 +175,11 @@ public class SpillingAdaptiveSpanningRecordDeserializer<T extends IOReadableWrit
 		return this.nonSpanningWrapper.remaining() > 0 || this.spanningWrapper.getNumGatheredBytes() > 0;
 	}
 
+	@Override
+	public int getNumPartialRecordBytes() {
+		return this.spanningWrapper.getNumGatheredBytes();
+	}
+
 
 	// -----------------------------------------------------------------------------------------------------------------
 
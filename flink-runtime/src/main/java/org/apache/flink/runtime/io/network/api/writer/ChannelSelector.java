@@ -41,5 +41,13 @@ public interface ChannelSelector<T extends IOReadableWritable> extends EpochStar
 	 */
 	int[] selectChannels(T record, int numChannels);
 
+	/**
+	 * Returns whether every record is written to all output channels, which allows the channels to share the
+	 * buffers the records are written to.
+	 */
+	default boolean isBroadcast() {
+		return false;
+	}
+
 	void setRandomService(RandomService randomService);
 }
@@ -55,6 +55,10 @@ import static org.apache.flink.util.Preconditions.checkState;
  * ensures that all produced records are written to the output stream (incl.
  * partially filled ones).
  *
+ * <p>If the {@link ChannelSelector} {@link ChannelSelector#isBroadcast() broadcasts} every record, the records are
+ * copied once into a single {@link BufferBuilder}, whose buffer is shared by all channels through one
+ * {@link BufferConsumer} copy per channel.
+ *
  * @param <T> the type of the record that can be emitted with this record writer
  */
 public class RecordWriter<T extends IOReadableWritable> implements EpochStartListener {
@@ -75,6 +79,11 @@ public class RecordWriter<T extends IOReadableWritable> implements EpochStartLis
 
 	protected final boolean flushAlways;
 
+	private final boolean isBroadcast;
+
+	// The builder shared by all channels if every record is broadcast
+	private Optional<BufferBuilder> broadcastBufferBuilder = Optional.empty();
+
 	private final EpochTracker epochTracker;
 
 	protected Counter numBytesOut = new SimpleCounter();
@@ -108,6 +117,11 @@ public class RecordWriter<T extends IOReadableWritable> implements EpochStartLis
 			broadcastChannels[i] = i;
 			bufferBuilders[i] = Optional.empty();
 		}
+
+		this.isBroadcast = channelSelector.isBroadcast();
+		if (isBroadcast) {
+			writer.enableBroadcastMode();
+		}
 	}
 
 	public ResultPartitionWriter getResultPartition() {
@@ -116,7 +130,11 @@ public class RecordWriter<T extends IOReadableWritable> implements EpochStartLis
 
 
 	public void emit(T record) throws IOException, InterruptedException {
-		emit(record, channelSelector.selectChannels(record, numChannels));
+		if (isBroadcast) {
+			broadcastEmit(record);
+		} else {
+			emit(record, channelSelector.selectChannels(record, numChannels));
+		}
 	}
 
 	/**
@@ -124,7 +142,15 @@ public class RecordWriter<T extends IOReadableWritable> implements EpochStartLis
 	 * the {@link ChannelSelector}.
 	 */
 	public void broadcastEmit(T record) throws IOException, InterruptedException {
-		emit(record, broadcastChannels);
+		if (!isBroadcast) {
+			emit(record, broadcastChannels);
+			return;
+		}
+
+		serializer.serializeRecord(record);
+		if (copyFromSerializerToAllChannels()) {
+			serializer.prune();
+		}
 	}
 
 	/**
@@ -133,7 +159,16 @@ public class RecordWriter<T extends IOReadableWritable> implements EpochStartLis
 	public void randomEmit(T record) throws IOException, InterruptedException {
 		serializer.serializeRecord(record);
 
-		if (copyFromSerializerToTargetChannel(randomService.nextInt(numChannels))) {
+		int targetChannel = randomService.nextInt(numChannels);
+		// The shared buffer must be finished before the channel gets a buffer of its own, which is finished right
+		// away so that the next shared buffer can be added behind it
+		tryFinishBroadcastBufferBuilder();
+		boolean pruneAfterCopying = copyFromSerializerToTargetChannel(targetChannel);
+		if (isBroadcast) {
+			tryFinishCurrentBufferBuilder(targetChannel);
+		}
+
+		if (pruneAfterCopying) {
 			serializer.prune();
 		}
 	}
@@ -186,6 +221,43 @@ public class RecordWriter<T extends IOReadableWritable> implements EpochStartLis
 
 		if (flushAlways) {
 			targetPartition.flush(targetChannel);
+		} else {
+			targetPartition.notifyDataWritten(targetChannel);
+		}
+		return pruneTriggered;
+	}
+
+	/**
+	 * Copies the serialized record into the buffer shared by all channels.
+	 *
+	 * @return <tt>true</tt> if the intermediate serialization buffer should be pruned
+	 */
+	private boolean copyFromSerializerToAllChannels() throws IOException, InterruptedException {
+		serializer.reset();
+
+		boolean pruneTriggered = false;
+		BufferBuilder bufferBuilder = broadcastBufferBuilder.isPresent() ?
+			broadcastBufferBuilder.get() : requestNewBroadcastBufferBuilder();
+		SerializationResult result = serializer.copyToBufferBuilder(bufferBuilder);
+		while (result.isFullBuffer()) {
+			numBytesOut.inc(bufferBuilder.finish());
+			numBuffersOut.inc();
+
+			if (result.isFullRecord()) {
+				pruneTriggered = true;
+				broadcastBufferBuilder = Optional.empty();
+				break;
+			}
+
+			bufferBuilder = requestNewBroadcastBufferBuilder();
+			result = serializer.copyToBufferBuilder(bufferBuilder);
+		}
+		checkState(!serializer.hasSerializedData(), "All data should be written at once");
+
+		if (flushAlways) {
+			flushAll();
+		} else {
+			targetPartition.notifyDataWrittenToAll();
 		}
 		return pruneTriggered;
 	}
@@ -194,6 +266,7 @@ public class RecordWriter<T extends IOReadableWritable> implements EpochStartLis
 		LOG.info("{}: RecordWriter broadcast event {}.", targetPartition.getTaskName(), event);
 
 		boolean isBarrier = event instanceof CheckpointBarrier;
+		tryFinishBroadcastBufferBuilder();
 		try (BufferConsumer eventBufferConsumer = EventSerializer.toBufferConsumer(event, epochTracker.getCurrentEpoch())) {
 			for (int targetChannel = 0; targetChannel < numChannels; targetChannel++) {
 				tryFinishCurrentBufferBuilder(targetChannel);
@@ -213,6 +286,7 @@ public class RecordWriter<T extends IOReadableWritable> implements EpochStartLis
 
 		boolean isBarrier = event instanceof CheckpointBarrier;
 
+		tryFinishBroadcastBufferBuilder();
 		try (BufferConsumer eventBufferConsumer = EventSerializer.toBufferConsumer(event, epochTracker.getCurrentEpoch())) {
 
 			tryFinishCurrentBufferBuilder(targetChannel);
@@ -235,6 +309,10 @@ public class RecordWriter<T extends IOReadableWritable> implements EpochStartLis
 		for (int targetChannel = 0; targetChannel < numChannels; targetChannel++) {
 			closeBufferBuilder(targetChannel);
 		}
+		if (broadcastBufferBuilder.isPresent()) {
+			broadcastBufferBuilder.get().finish();
+			broadcastBufferBuilder = Optional.empty();
+		}
 	}
 
 	/**
@@ -274,11 +352,42 @@ public class RecordWriter<T extends IOReadableWritable> implements EpochStartLis
 		checkState(!bufferBuilders[targetChannel].isPresent() || bufferBuilders[targetChannel].get().isFinished());
 
 		BufferBuilder bufferBuilder = targetPartition.getBufferProvider().requestBufferBuilderBlocking();
+		bufferBuilder.trim(targetPartition.getDesirableBufferSize(targetChannel));
 		bufferBuilders[targetChannel] = Optional.of(bufferBuilder);
 		targetPartition.addBufferConsumer(bufferBuilder.createBufferConsumer(epochTracker.getCurrentEpoch()), targetChannel);
 		return bufferBuilder;
 	}
 
+	private BufferBuilder requestNewBroadcastBufferBuilder() throws IOException, InterruptedException {
+		checkState(!broadcastBufferBuilder.isPresent() || broadcastBufferBuilder.get().isFinished());
+
+		BufferBuilder bufferBuilder = targetPartition.getBufferProvider().requestBufferBuilderBlocking();
+		// The shared buffer must not exceed the size desired by any of the channels
+		int desirableBufferSize = Integer.MAX_VALUE;
+		for (int targetChannel = 0; targetChannel < numChannels; targetChannel++) {
+			desirableBufferSize = Math.min(desirableBufferSize, targetPartition.getDesirableBufferSize(targetChannel));
+		}
+		bufferBuilder.trim(desirableBufferSize);
+		broadcastBufferBuilder = Optional.of(bufferBuilder);
+		try (BufferConsumer bufferConsumer = bufferBuilder.createBufferConsumer(epochTracker.getCurrentEpoch())) {
+			// Each channel reads the shared buffer through its own copy, which retains the buffer
+			for (int targetChannel = 0; targetChannel < numChannels; targetChannel++) {
+				targetPartition.addBufferConsumer(bufferConsumer.copy(), targetChannel);
+			}
+		}
+		return bufferBuilder;
+	}
+
+	private void tryFinishBroadcastBufferBuilder() {
+		if (!broadcastBufferBuilder.isPresent()) {
+			return;
+		}
+		BufferBuilder bufferBuilder = broadcastBufferBuilder.get();
+		broadcastBufferBuilder = Optional.empty();
+		numBytesOut.inc(bufferBuilder.finish());
+		numBuffersOut.inc();
+	}
+
 	private void closeBufferBuilder(int targetChannel) {
 		if (bufferBuilders[targetChannel].isPresent()) {
 			bufferBuilders[targetChannel].get().finish();
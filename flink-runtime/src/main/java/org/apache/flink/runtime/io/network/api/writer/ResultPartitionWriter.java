@@ -26,6 +26,7 @@ import org.apache.flink.runtime.io.network.partition.ResultSubpartition;
 import org.apache.flink.runtime.state.CheckpointListener;
 
 import java.io.IOException;
+import java.util.function.Consumer;
 
 /**
  * A buffer-oriented runtime result writer API for producing results.
@@ -71,4 +72,45 @@ public interface ResultPartitionWriter {
 	 */
 	String getTaskName();
 
+	/**
+	 * Notifies the writer that from now on every {@link BufferConsumer} is a copy of one that is added to all
+	 * subpartitions, so that state kept for the added buffers can be shared by the subpartitions.
+	 */
+	default void enableBroadcastMode() {
+	}
+
+	/**
+	 * Starts flushing the subpartitions which had data written to them every {@code timeout} milliseconds, using a
+	 * flusher shared with the other writers of the task manager.
+	 *
+	 * @param errorHandler is notified of errors during a periodic flush
+	 * @return <tt>false</tt> if there is no shared flusher, in which case the caller has to flush periodically itself
+	 */
+	default boolean startPeriodicFlush(long timeout, Consumer<Throwable> errorHandler) {
+		return false;
+	}
+
+	default void stopPeriodicFlush() {
+	}
+
+	/**
+	 * Notifies the writer that data was written to the current buffer of the given subpartition, which the next
+	 * periodic flush has to make available.
+	 */
+	default void notifyDataWritten(int subpartitionIndex) {
+	}
+
+	/**
+	 * Notifies the writer that data was written to the current buffers of all subpartitions.
+	 */
+	default void notifyDataWrittenToAll() {
+	}
+
+	/**
+	 * Returns the size new buffers of the given subpartition should be capped at, as announced by its consumer.
+	 */
+	default int getDesirableBufferSize(int subpartitionIndex) {
+		return Integer.MAX_VALUE;
+	}
+
 }
@@ -59,6 +59,18 @@ public interface Buffer {
 	 */
 	void tagAsEvent();
 
+	/**
+	 * Returns whether the data of this buffer was compressed by a {@link BufferCompressor}.
+	 *
+	 * @return <tt>true</tt> if the readable bytes are compressed, <tt>false</tt> otherwise
+	 */
+	boolean isCompressed();
+
+	/**
+	 * Tags this buffer as holding compressed (<tt>true</tt>) or raw (<tt>false</tt>) data.
+	 */
+	void setCompressed(boolean isCompressed);
+
 	/**
 	 * Returns the underlying memory segment. This method is dangerous since it ignores read only protections and omits
 	 * slices. Use it only along the {@link #getMemorySegmentOffset()}.
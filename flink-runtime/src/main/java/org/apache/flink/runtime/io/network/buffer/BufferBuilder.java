@@ -47,15 +47,20 @@ public class BufferBuilder {
 
 	private boolean bufferConsumerCreated = false;
 
+	/** The number of bytes this builder is filled up to, at most the size of the memory segment. */
+	private int maxCapacity;
+
 	public BufferBuilder(MemorySegment memorySegment, BufferRecycler recycler) {
 		this.memorySegment = checkNotNull(memorySegment);
 		this.recycler = checkNotNull(recycler);
+		this.maxCapacity = memorySegment.size();
 	}
 
 	public BufferBuilder(BufferBuilder bufferBuilder, MemorySegment memorySegment, BufferRecycler recycler) {
 		bufferBuilder.memorySegment.copyTo(0, memorySegment, 0, bufferBuilder.getWrittenBytes());
 		this.memorySegment = memorySegment;
 		this.recycler = recycler;
+		this.maxCapacity = Math.min(bufferBuilder.getMaxCapacity(), memorySegment.size());
 		this.positionMarker.move(bufferBuilder.getWrittenBytes());
 		LOG.debug("Created {} from {}. Copied {} to {}.", this, bufferBuilder, bufferBuilder.memorySegment, memorySegment);
 	}
@@ -138,7 +143,17 @@ public class BufferBuilder {
 	}
 
 	public int getMaxCapacity() {
-		return memorySegment.size();
+		return maxCapacity;
+	}
+
+	/**
+	 * Caps the number of bytes this builder is filled up to, so that it is {@link #isFull() full} earlier. The
+	 * capacity never drops below the bytes already written and never exceeds the size of the memory segment.
+	 *
+	 * @param newSize the desired capacity of the builder in bytes
+	 */
+	public void trim(int newSize) {
+		maxCapacity = Math.min(memorySegment.size(), Math.max(newSize, positionMarker.getCached()));
 	}
 
 	public int getMemorySegmentHash() {
@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.network.buffer;
+
+import org.xerial.snappy.Snappy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+
+/**
+ * Compresses the data of network buffers sent to remote consumers with Snappy.
+ *
+ * <p>Snappy only operates on direct memory, heap buffers are staged through a direct buffer. Not thread safe,
+ * each subpartition owns one.
+ */
+public final class BufferCompressor {
+
+	/** Buffers which do not shrink below this ratio are sent uncompressed. */
+	private static final double MIN_COMPRESSION_RATIO = 0.85d;
+
+	private ByteBuffer input;
+
+	private ByteBuffer output;
+
+	/**
+	 * Compresses the readable bytes of the given buffer into the empty target buffer and tags the target as
+	 * compressed.
+	 *
+	 * @return <tt>true</tt> if the data was compressed, <tt>false</tt> if it does not compress well, in which case
+	 * the target buffer is left untouched
+	 */
+	public boolean compress(Buffer buffer, Buffer target) throws IOException {
+		checkArgument(buffer.isBuffer(), "Events are never compressed.");
+		checkArgument(target.readableBytes() == 0, "The target buffer is not empty.");
+
+		int uncompressedLength = buffer.readableBytes();
+		ByteBuffer compressed = getOutput(Snappy.maxCompressedLength(uncompressedLength));
+		int compressedLength = Snappy.compress(toDirect(buffer.getNioBufferReadable()), compressed);
+		if (compressedLength > uncompressedLength * MIN_COMPRESSION_RATIO ||
+			compressedLength > target.getMaxCapacity()) {
+			return false;
+		}
+
+		target.asByteBuf().writeBytes(compressed);
+		target.setCompressed(true);
+		return true;
+	}
+
+	private ByteBuffer toDirect(ByteBuffer data) {
+		if (data.isDirect()) {
+			return data;
+		}
+		if (input == null || input.capacity() < data.remaining()) {
+			input = ByteBuffer.allocateDirect(data.remaining());
+		}
+		input.clear();
+		input.put(data);
+		input.flip();
+		return input;
+	}
+
+	private ByteBuffer getOutput(int capacity) {
+		if (output == null || output.capacity() < capacity) {
+			output = ByteBuffer.allocateDirect(capacity);
+		}
+		output.clear();
+		return output;
+	}
+}
@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.network.buffer;
+
+import org.xerial.snappy.Snappy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+
+/**
+ * Decompresses the data of network buffers compressed by a {@link BufferCompressor}.
+ *
+ * <p>Snappy only operates on direct memory, heap buffers are staged through direct buffers. Not thread safe,
+ * each consumer of compressed buffers owns one.
+ */
+public final class BufferDecompressor {
+
+	private ByteBuffer input;
+
+	private ByteBuffer output;
+
+	/**
+	 * Decompresses the remaining bytes of the given compressed data into the empty target buffer. The position of
+	 * the compressed data is not modified.
+	 *
+	 * @return the uncompressed length
+	 */
+	public int decompress(ByteBuffer compressed, Buffer target) throws IOException {
+		checkArgument(target.readableBytes() == 0, "The target buffer is not empty.");
+
+		ByteBuffer direct = toDirect(compressed);
+		int uncompressedLength = Snappy.uncompressedLength(direct);
+		if (uncompressedLength > target.getMaxCapacity()) {
+			throw new IOException("Compressed buffer of " + uncompressedLength + " bytes does not fit into a " +
+				"buffer of " + target.getMaxCapacity() + " bytes.");
+		}
+
+		ByteBuffer uncompressed = target.getNioBuffer(0, uncompressedLength);
+		if (uncompressed.isDirect()) {
+			Snappy.uncompress(direct, uncompressed);
+		} else {
+			ByteBuffer staging = getOutput(uncompressedLength);
+			Snappy.uncompress(direct, staging);
+			uncompressed.put(staging);
+		}
+		target.setSize(uncompressedLength);
+		return uncompressedLength;
+	}
+
+	/**
+	 * Decompresses the given compressed buffer into the empty target buffer.
+	 */
+	public void decompress(Buffer compressed, Buffer target) throws IOException {
+		checkArgument(compressed.isCompressed(), "The buffer is not compressed.");
+
+		decompress(compressed.getNioBufferReadable(), target);
+	}
+
+	private ByteBuffer toDirect(ByteBuffer data) {
+		if (data.isDirect()) {
+			return data.duplicate();
+		}
+		if (input == null || input.capacity() < data.remaining()) {
+			input = ByteBuffer.allocateDirect(data.remaining());
+		}
+		input.clear();
+		input.put(data.duplicate());
+		input.flip();
+		return input;
+	}
+
+	private ByteBuffer getOutput(int capacity) {
+		if (output == null || output.capacity() < capacity) {
+			output = ByteBuffer.allocateDirect(capacity);
+		}
+		output.clear();
+		return output;
+	}
+}
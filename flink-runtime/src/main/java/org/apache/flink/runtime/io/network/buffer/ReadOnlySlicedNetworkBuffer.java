@@ -79,6 +79,13 @@ public final class ReadOnlySlicedNetworkBuffer extends ReadOnlyByteBuf implement
 		return super.unwrap();
 	}
 
+	/**
+	 * Returns the buffer this slice was derived from, which shares its reference counter.
+	 */
+	public Buffer getParentBuffer() {
+		return getBuffer();
+	}
+
 	@Override
 	public boolean isBuffer() {
 		return getBuffer().isBuffer();
@@ -89,6 +96,16 @@ public final class ReadOnlySlicedNetworkBuffer extends ReadOnlyByteBuf implement
 		throw new ReadOnlyBufferException();
 	}
 
+	@Override
+	public boolean isCompressed() {
+		return getBuffer().isCompressed();
+	}
+
+	@Override
+	public void setCompressed(boolean isCompressed) {
+		throw new ReadOnlyBufferException();
+	}
+
 	/**
 	 * Returns the underlying memory segment.
 	 *
@@ -22,6 +22,7 @@ import org.apache.flink.core.memory.MemorySegment;
 import org.apache.flink.core.memory.MemorySegmentFactory;
 import org.apache.flink.runtime.io.network.NetworkClientHandler;
 import org.apache.flink.runtime.io.network.buffer.Buffer;
+import org.apache.flink.runtime.io.network.buffer.BufferDecompressor;
 import org.apache.flink.runtime.io.network.buffer.FreeingBufferRecycler;
 import org.apache.flink.runtime.io.network.buffer.NetworkBuffer;
 import org.apache.flink.runtime.io.network.netty.exception.LocalTransportException;
@@ -68,6 +69,9 @@ class CreditBasedPartitionRequestClientHandler extends ChannelInboundHandlerAdap
 
 	private final AtomicReference<Throwable> channelError = new AtomicReference<>();
 
+	/** Decompresses the buffers sent compressed, only used by the network I/O thread. */
+	private final BufferDecompressor bufferDecompressor = new BufferDecompressor();
+
 	private final ChannelFutureListener writeListener = new WriteAndFlushNextMessageIfPossibleListener();
 
 	/**
@@ -343,7 +347,12 @@ class CreditBasedPartitionRequestClientHandler extends ChannelInboundHandlerAdap
 				Buffer buffer = inputChannel.requestBuffer();
 				if (buffer != null) {
 					LOG.debug("decodeBufferOrEvent(): {} received buffer {}.", inputChannel, buffer);
-					nettyBuffer.readBytes(buffer.asByteBuf(), receivedSize);
+					try {
+						bufferOrEvent.readBufferTo(buffer, bufferDecompressor);
+					} catch (Throwable t) {
+						buffer.recycleBuffer();
+						throw t;
+					}
 
 					inputChannel.onBuffer(buffer, bufferOrEvent.sequenceNumber, bufferOrEvent.backlog);
 				} else if (inputChannel.isReleased()) {
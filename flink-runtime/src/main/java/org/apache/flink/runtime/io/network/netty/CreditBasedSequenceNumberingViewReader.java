@@ -108,6 +108,8 @@ class CreditBasedSequenceNumberingViewReader implements BufferAvailabilityListen
 	public void addCredit(int creditDeltas) {
 		numCreditsAvailable += creditDeltas;
 		LOG.debug("{}: added credit {}. Now {} credits available.", this, creditDeltas, numCreditsAvailable);
+		if (subpartitionView != null)
+			subpartitionView.notifyCreditAvailable(numCreditsAvailable);
 	}
 
 	@Override
@@ -228,6 +230,18 @@ class CreditBasedSequenceNumberingViewReader implements BufferAvailabilityListen
 		requestQueue.notifyReaderNonEmpty(this);
 	}
 
+	@Override
+	public void notifyNewBufferSize(int newBufferSize) {
+		if (subpartitionView != null) {
+			subpartitionView.notifyNewBufferSize(newBufferSize);
+		}
+	}
+
+	@Override
+	public boolean isRemote() {
+		return true;
+	}
+
 	@Override
 	public String toString() {
 		return "CreditBasedSequenceNumberingViewReader{" +
@@ -21,8 +21,10 @@ package org.apache.flink.runtime.io.network.netty;
 import org.apache.flink.configuration.ConfigOption;
 import org.apache.flink.configuration.ConfigOptions;
 import org.apache.flink.configuration.Configuration;
+import org.apache.flink.configuration.IllegalConfigurationException;
 import org.apache.flink.configuration.TaskManagerOptions;
 import org.apache.flink.runtime.causal.log.job.serde.DeltaEncodingStrategy;
+import org.apache.flink.runtime.io.network.partition.consumer.BufferDebloater;
 import org.apache.flink.runtime.net.SSLUtils;
 
 import org.slf4j.Logger;
@@ -102,6 +104,66 @@ public class NettyConfig {
 		.defaultValue(false)
 		.withDescription("If optimizations like unique channel consumer sharing should be enabled. Disable if slot sharing is enabled.");
 
+	public static final ConfigOption<Boolean> ENABLE_ORDER_DETERMINANT_RUN_LENGTH_ENCODING = ConfigOptions
+		.key("taskmanager.network.netty.enableOrderDeterminantRunLengthEncoding")
+		.defaultValue(false)
+		.withDescription("If consecutive order determinants of the same input channel should be collapsed into a" +
+			" single (channel, count) determinant. Reduces determinant volume for tasks with skewed or bursty inputs.");
+
+	public static final ConfigOption<Boolean> ENABLE_SINGLE_WRITER_CAUSAL_LOGS = ConfigOptions
+		.key("taskmanager.network.netty.enableSingleWriterCausalLogs")
+		.defaultValue(true)
+		.withDescription("If the subpartition causal logs of a task should use the lock-free single writer append" +
+			" path instead of locking on every appended determinant.");
+
+	public static final ConfigOption<Long> DELTA_PIGGYBACK_INTERVAL_MICROS = ConfigOptions
+		.key("taskmanager.network.netty.deltaPiggybackIntervalMicros")
+		.defaultValue(0L)
+		.withDescription("The minimum time in microseconds between two piggybacks of upstream causal log deltas on" +
+			" an output channel. Deltas of the local tasks are always piggybacked. 0 piggybacks them on every buffer.");
+
+	public static final ConfigOption<Long> DELTA_PIGGYBACK_MAX_BYTES = ConfigOptions
+		.key("taskmanager.network.netty.deltaPiggybackMaxBytes")
+		.defaultValue(32768L)
+		.withDescription("The amount of pending upstream causal log delta bytes which triggers a piggyback on an" +
+			" output channel before the piggyback interval elapsed.");
+
+	public static final ConfigOption<Float> DETERMINANT_SPILL_THRESHOLD = ConfigOptions
+		.key("taskmanager.network.netty.determinantSpillThreshold")
+		.defaultValue(0.8f)
+		.withDescription("The fraction of a job's determinant buffers which, once the causal logs of the job hold as" +
+			" much memory, causes determinants of older epochs received by all consumers to be spilled to disk until" +
+			" a checkpoint truncates them. A value above 1 effectively disables spilling.");
+
+	public static final ConfigOption<String> BUFFER_COMPRESSION_CODEC = ConfigOptions
+		.key("taskmanager.network.netty.bufferCompressionCodec")
+		.defaultValue("none")
+		.withDescription("The codec compressing the full buffers sent to tasks of other task managers, either" +
+			" \"none\" or \"snappy\". Buffers of local channels are never compressed. A job may override it in its" +
+			" job configuration.");
+
+	public static final ConfigOption<Boolean> BUFFER_DEBLOAT_ENABLED = ConfigOptions
+		.key("taskmanager.network.netty.bufferDebloatEnabled")
+		.defaultValue(false)
+		.withDescription("If input gates should measure their throughput and announce a buffer size to their" +
+			" producers, which caps the data in flight to the amount consumed within the debloat target. A job may" +
+			" override it in its job configuration.");
+
+	public static final ConfigOption<Long> BUFFER_DEBLOAT_TARGET_MILLIS = ConfigOptions
+		.key("taskmanager.network.netty.bufferDebloatTargetMillis")
+		.defaultValue(1000L)
+		.withDescription("The time in milliseconds an input gate should take to consume the data in flight to it.");
+
+	public static final ConfigOption<Long> BUFFER_DEBLOAT_PERIOD_MILLIS = ConfigOptions
+		.key("taskmanager.network.netty.bufferDebloatPeriodMillis")
+		.defaultValue(200L)
+		.withDescription("The period in milliseconds over which the throughput of an input gate is measured.");
+
+	public static final ConfigOption<Integer> BUFFER_DEBLOAT_MIN_BUFFER_SIZE = ConfigOptions
+		.key("taskmanager.network.netty.bufferDebloatMinBufferSize")
+		.defaultValue(256)
+		.withDescription("The size in bytes below which buffers are never debloated.");
+
 	public static final ConfigOption<String> TRANSPORT_TYPE = ConfigOptions
 			.key("taskmanager.network.netty.transport")
 			.defaultValue("nio")
@@ -116,10 +178,69 @@ public class NettyConfig {
 			return DeltaEncodingStrategy.HIERARCHICAL;
 	}
 
+	/**
+	 * Returns whether buffers sent to remote consumers are compressed, where the job configuration takes precedence
+	 * over the task manager configuration.
+	 */
+	public static boolean isBufferCompressionEnabled(Configuration jobConfiguration,
+													 Configuration taskManagerConfiguration) {
+		final String configValue = jobConfiguration.getString(BUFFER_COMPRESSION_CODEC.key(),
+			taskManagerConfiguration.getString(BUFFER_COMPRESSION_CODEC));
+		if (configValue.equalsIgnoreCase("none"))
+			return false;
+		else if (configValue.equalsIgnoreCase("snappy"))
+			return true;
+		else
+			throw new IllegalConfigurationException("Unknown buffer compression codec: " + configValue);
+	}
+
+	/**
+	 * Returns whether input gates debloat their buffers, where the job configuration takes precedence over the task
+	 * manager configuration.
+	 */
+	public static boolean isBufferDebloatingEnabled(Configuration jobConfiguration,
+													Configuration taskManagerConfiguration) {
+		return jobConfiguration.getBoolean(BUFFER_DEBLOAT_ENABLED.key(),
+			taskManagerConfiguration.getBoolean(BUFFER_DEBLOAT_ENABLED));
+	}
+
+	/**
+	 * Creates the buffer debloater of an input gate.
+	 *
+	 * @param maxBufferSize the size of the network memory segments
+	 */
+	public static BufferDebloater createBufferDebloater(Configuration taskManagerConfiguration, int maxBufferSize) {
+		return new BufferDebloater(
+			Math.min(taskManagerConfiguration.getInteger(BUFFER_DEBLOAT_MIN_BUFFER_SIZE), maxBufferSize),
+			maxBufferSize,
+			taskManagerConfiguration.getLong(BUFFER_DEBLOAT_TARGET_MILLIS),
+			taskManagerConfiguration.getLong(BUFFER_DEBLOAT_PERIOD_MILLIS));
+	}
+
 	public boolean getEnableDeltaSharingOptimizations() {
 		return config.getBoolean(ENABLE_DELTA_SHARING_OPTIMIZATIONS);
 	}
 
+	public boolean getEnableOrderDeterminantRunLengthEncoding() {
+		return config.getBoolean(ENABLE_ORDER_DETERMINANT_RUN_LENGTH_ENCODING);
+	}
+
+	public boolean getEnableSingleWriterCausalLogs() {
+		return config.getBoolean(ENABLE_SINGLE_WRITER_CAUSAL_LOGS);
+	}
+
+	public long getDeltaPiggybackIntervalMicros() {
+		return config.getLong(DELTA_PIGGYBACK_INTERVAL_MICROS);
+	}
+
+	public long getDeltaPiggybackMaxBytes() {
+		return config.getLong(DELTA_PIGGYBACK_MAX_BYTES);
+	}
+
+	public float getDeterminantSpillThreshold() {
+		return config.getFloat(DETERMINANT_SPILL_THRESHOLD);
+	}
+
 	// ------------------------------------------------------------------------
 
 	enum TransportType {
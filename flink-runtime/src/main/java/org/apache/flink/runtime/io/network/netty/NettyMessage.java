@@ -23,6 +23,7 @@ import org.apache.flink.runtime.event.TaskEvent;
 import org.apache.flink.runtime.executiongraph.ExecutionAttemptID;
 import org.apache.flink.runtime.io.network.api.serialization.EventSerializer;
 import org.apache.flink.runtime.io.network.buffer.Buffer;
+import org.apache.flink.runtime.io.network.buffer.BufferDecompressor;
 import org.apache.flink.runtime.io.network.partition.ResultPartitionID;
 import org.apache.flink.runtime.io.network.partition.consumer.InputChannel;
 import org.apache.flink.runtime.io.network.partition.consumer.InputChannelID;
@@ -168,7 +169,7 @@ public abstract class NettyMessage {
 					if (msg instanceof BufferResponse) {
 						BufferResponse bufferResponse = (BufferResponse) msg;
 						serialized = causalLog.enrichWithCausalLogDeltas(serialized, bufferResponse.receiverId,
-							bufferResponse.epochID, ctx.alloc());
+							bufferResponse.epochID, !bufferResponse.isBuffer, ctx.alloc());
 					}
 				} catch (Throwable t) {
 					throw new IOException("Error while serializing message: " + msg, t);
@@ -259,6 +260,9 @@ public abstract class NettyMessage {
 					case AddCredit.ID:
 						decodedMsg = AddCredit.readFrom(msg);
 						break;
+					case NewBufferSize.ID:
+						decodedMsg = NewBufferSize.readFrom(msg);
+						break;
 					default:
 						throw new ProtocolException(
 							"Received unknown message from producer: " + msg);
@@ -314,16 +318,20 @@ public abstract class NettyMessage {
 
 		final boolean isBuffer;
 
+		final boolean isCompressed;
+
 		final long epochID;
 
 		private BufferResponse(
 			ByteBuf buffer,
 			boolean isBuffer,
+			boolean isCompressed,
 			int sequenceNumber,
 			InputChannelID receiverId,
 			int backlog) {
 			this.buffer = checkNotNull(buffer);
 			this.isBuffer = isBuffer;
+			this.isCompressed = isCompressed;
 			this.sequenceNumber = sequenceNumber;
 			this.receiverId = checkNotNull(receiverId);
 			this.backlog = backlog;
@@ -346,6 +354,7 @@ public abstract class NettyMessage {
 			long epochID) {
 			this.buffer = checkNotNull(buffer).asByteBuf();
 			this.isBuffer = buffer.isBuffer();
+			this.isCompressed = buffer.isCompressed();
 			this.sequenceNumber = sequenceNumber;
 			this.receiverId = checkNotNull(receiverId);
 			this.backlog = backlog;
@@ -356,6 +365,10 @@ public abstract class NettyMessage {
 			return isBuffer;
 		}
 
+		boolean isCompressed() {
+			return isCompressed;
+		}
+
 		ByteBuf getNettyBuffer() {
 			return buffer;
 		}
@@ -364,14 +377,26 @@ public abstract class NettyMessage {
 			buffer.release();
 		}
 
+		/**
+		 * Reads the data of this response into the given empty buffer, decompressing it if it was sent compressed.
+		 */
+		void readBufferTo(Buffer target, BufferDecompressor decompressor) throws IOException {
+			if (isCompressed) {
+				decompressor.decompress(buffer.nioBuffer(), target);
+				buffer.skipBytes(buffer.readableBytes());
+			} else {
+				buffer.readBytes(target.asByteBuf(), buffer.readableBytes());
+			}
+		}
+
 		// --------------------------------------------------------------------
 		// Serialization
 		// --------------------------------------------------------------------
 
 		@Override
 		ByteBuf write(ByteBufAllocator allocator) throws IOException {
-			// receiver ID (16), sequence number (4), backlog (4), isBuffer (1), buffer size (4)
-			final int messageHeaderLength = 16 + 4 + 4 + 1 + 4;
+			// receiver ID (16), sequence number (4), backlog (4), isBuffer (1), isCompressed (1), buffer size (4)
+			final int messageHeaderLength = 16 + 4 + 4 + 1 + 1 + 4;
 
 			ByteBuf headerBuf = null;
 
@@ -388,6 +413,7 @@ public abstract class NettyMessage {
 				headerBuf.writeInt(sequenceNumber);
 				headerBuf.writeInt(backlog);
 				headerBuf.writeBoolean(isBuffer);
+				headerBuf.writeBoolean(isCompressed);
 				headerBuf.writeInt(buffer.readableBytes());
 
 				CompositeByteBuf composityBuf = allocator.compositeDirectBuffer(Integer.MAX_VALUE);
@@ -411,12 +437,13 @@ public abstract class NettyMessage {
 			int sequenceNumber = buffer.readInt();
 			int backlog = buffer.readInt();
 			boolean isBuffer = buffer.readBoolean();
+			boolean isCompressed = buffer.readBoolean();
 			int size = buffer.readInt();
 
 			ByteBuf retainedSlice = buffer.readSlice(size).retain();
 
 
-			return new BufferResponse(retainedSlice, isBuffer, sequenceNumber, receiverId, backlog);
+			return new BufferResponse(retainedSlice, isBuffer, isCompressed, sequenceNumber, receiverId, backlog);
 		}
 
 	}
@@ -737,4 +764,55 @@ public abstract class NettyMessage {
 			return String.format("AddCredit(%s : %d)", receiverId, credit);
 		}
 	}
+
+	/**
+	 * Announcement of the buffer size an input channel wants to receive, from the client to the server.
+	 */
+	static class NewBufferSize extends NettyMessage {
+
+		private static final byte ID = 7;
+
+		final int bufferSize;
+
+		final InputChannelID receiverId;
+
+		NewBufferSize(int bufferSize, InputChannelID receiverId) {
+			checkArgument(bufferSize > 0, "The announced buffer size should be greater than 0");
+
+			this.bufferSize = bufferSize;
+			this.receiverId = checkNotNull(receiverId);
+		}
+
+		@Override
+		ByteBuf write(ByteBufAllocator allocator) throws IOException {
+			ByteBuf result = null;
+
+			try {
+				result = allocateBuffer(allocator, ID, 4 + 16);
+
+				result.writeInt(bufferSize);
+				receiverId.writeTo(result);
+
+				return result;
+			} catch (Throwable t) {
+				if (result != null) {
+					result.release();
+				}
+
+				throw new IOException(t);
+			}
+		}
+
+		static NewBufferSize readFrom(ByteBuf buffer) {
+			int bufferSize = buffer.readInt();
+			InputChannelID receiverId = InputChannelID.fromByteBuf(buffer);
+
+			return new NewBufferSize(bufferSize, receiverId);
+		}
+
+		@Override
+		public String toString() {
+			return String.format("NewBufferSize(%s : %d)", receiverId, bufferSize);
+		}
+	}
 }
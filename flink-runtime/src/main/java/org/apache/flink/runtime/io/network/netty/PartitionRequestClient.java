@@ -184,6 +184,18 @@ public class PartitionRequestClient {
 		clientHandler.notifyCreditAvailable(inputChannel);
 	}
 
+	/**
+	 * Announces the buffer size the given input channel wants to receive to its producer.
+	 */
+	public void notifyNewBufferSize(RemoteInputChannel inputChannel, int bufferSize) {
+		if (closeReferenceCounter.isDisposed()) {
+			return;
+		}
+
+		tcpChannel.writeAndFlush(new NettyMessage.NewBufferSize(bufferSize, inputChannel.getInputChannelId()))
+			.addListener(ChannelFutureListener.FIRE_EXCEPTION_ON_FAILURE);
+	}
+
 	public void close(RemoteInputChannel inputChannel) throws IOException {
 
 		clientHandler.removeInputChannel(inputChannel);
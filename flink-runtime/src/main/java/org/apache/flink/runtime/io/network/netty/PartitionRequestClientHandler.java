@@ -22,6 +22,7 @@ import org.apache.flink.core.memory.MemorySegment;
 import org.apache.flink.core.memory.MemorySegmentFactory;
 import org.apache.flink.runtime.io.network.NetworkClientHandler;
 import org.apache.flink.runtime.io.network.buffer.Buffer;
+import org.apache.flink.runtime.io.network.buffer.BufferDecompressor;
 import org.apache.flink.runtime.io.network.buffer.BufferListener;
 import org.apache.flink.runtime.io.network.buffer.BufferProvider;
 import org.apache.flink.runtime.io.network.buffer.FreeingBufferRecycler;
@@ -63,6 +64,9 @@ class PartitionRequestClientHandler extends ChannelInboundHandlerAdapter impleme
 
 	private final AtomicReference<Throwable> channelError = new AtomicReference<Throwable>();
 
+	/** Decompresses the buffers sent compressed, only used by the network I/O thread. */
+	private final BufferDecompressor bufferDecompressor = new BufferDecompressor();
+
 	private final BufferListenerTask bufferListener = new BufferListenerTask();
 
 	private final Queue<Object> stagedMessages = new ArrayDeque<Object>();
@@ -312,7 +316,12 @@ class PartitionRequestClientHandler extends ChannelInboundHandlerAdapter impleme
 					Buffer buffer = bufferProvider.requestBuffer();
 
 					if (buffer != null) {
-						nettyBuffer.readBytes(buffer.asByteBuf(), receivedSize);
+						try {
+							bufferOrEvent.readBufferTo(buffer, bufferDecompressor);
+						} catch (Throwable t) {
+							buffer.recycleBuffer();
+							throw t;
+						}
 
 						inputChannel.onBuffer(buffer, bufferOrEvent.sequenceNumber, -1);
 
@@ -447,8 +456,7 @@ class PartitionRequestClientHandler extends ChannelInboundHandlerAdapter impleme
 					throw new IllegalStateException("Running buffer availability task w/o a buffer.");
 				}
 
-				ByteBuf nettyBuffer = stagedBufferResponse.getNettyBuffer();
-				nettyBuffer.readBytes(buffer.asByteBuf(), nettyBuffer.readableBytes());
+				stagedBufferResponse.readBufferTo(buffer, bufferDecompressor);
 				stagedBufferResponse.releaseBuffer();
 
 				RemoteInputChannel inputChannel = inputChannels.get(stagedBufferResponse.receiverId);
@@ -183,6 +183,23 @@ class PartitionRequestQueue extends ChannelInboundHandlerAdapter {
 		}
 	}
 
+	/**
+	 * Forwards the buffer size announced by a consumer to its subpartition.
+	 *
+	 * @param receiverId The input channel id to identify the consumer.
+	 * @param bufferSize The buffer size the consumer wants to receive.
+	 */
+	void notifyNewBufferSize(InputChannelID receiverId, int bufferSize) {
+		if (fatalError) {
+			return;
+		}
+
+		NetworkSequenceViewReader reader = allReaders.get(receiverId);
+		if (reader != null) {
+			reader.notifyNewBufferSize(bufferSize);
+		}
+	}
+
 	@Override
 	public void userEventTriggered(ChannelHandlerContext ctx, Object msg) throws Exception {
 		// The user event triggered event loop callback is used for thread-safe
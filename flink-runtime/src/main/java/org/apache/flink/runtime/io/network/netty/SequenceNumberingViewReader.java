@@ -162,6 +162,18 @@ class SequenceNumberingViewReader implements BufferAvailabilityListener, Network
 		requestQueue.notifyReaderNonEmpty(this);
 	}
 
+	@Override
+	public void notifyNewBufferSize(int newBufferSize) {
+		if (subpartitionView != null) {
+			subpartitionView.notifyNewBufferSize(newBufferSize);
+		}
+	}
+
+	@Override
+	public boolean isRemote() {
+		return true;
+	}
+
 	@Override
 	public String toString() {
 		return "SequenceNumberingViewReader{" +
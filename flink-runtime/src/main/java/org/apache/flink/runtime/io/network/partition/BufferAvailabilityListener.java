@@ -28,4 +28,11 @@ public interface BufferAvailabilityListener {
 	 * Called whenever there might be new data available.
 	 */
 	void notifyDataAvailable();
+
+	/**
+	 * Returns whether the data is consumed through the network stack, i.e. by a task of another task manager.
+	 */
+	default boolean isRemote() {
+		return false;
+	}
 }
@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.network.partition;
+
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.runtime.util.ExecutorThreadFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+
+/**
+ * Periodically flushes the result partitions of a task manager, to give an upper latency bound for records that
+ * linger in partially filled buffers. The partitions are grouped by their flush timeout, and a single thread runs
+ * one periodic tick per distinct timeout, which flushes only the subpartitions that had data written to them since
+ * the previous tick.
+ */
+public class OutputFlusherService {
+
+	private static final Logger LOG = LoggerFactory.getLogger(OutputFlusherService.class);
+
+	private final ScheduledThreadPoolExecutor executor;
+
+	/** The ticks of the registered partitions by their timeout in milliseconds. */
+	private final Map<Long, Tick> ticks = new HashMap<>();
+
+	private boolean isShutdown;
+
+	public OutputFlusherService() {
+		this.executor = new ScheduledThreadPoolExecutor(1, new ExecutorThreadFactory("OutputFlusher"));
+		this.executor.setRemoveOnCancelPolicy(true);
+	}
+
+	/**
+	 * Flushes the given partition every {@code timeout} milliseconds until it is unregistered.
+	 *
+	 * @param errorHandler is notified of errors during a flush of the partition, after which it is not flushed anymore
+	 */
+	public synchronized void register(ResultPartition partition, long timeout, Consumer<Throwable> errorHandler) {
+		checkArgument(timeout > 0, "The flush timeout must be positive.");
+		if (isShutdown) {
+			return;
+		}
+
+		Tick tick = ticks.get(timeout);
+		if (tick == null) {
+			tick = new Tick(timeout);
+			tick.future = executor.scheduleWithFixedDelay(tick, timeout, timeout, TimeUnit.MILLISECONDS);
+			ticks.put(timeout, tick);
+		}
+		tick.registrations.add(new Registration(partition, errorHandler));
+		LOG.debug("Registered {} for a periodic flush every {} ms.", partition, timeout);
+	}
+
+	public synchronized void unregister(ResultPartition partition, long timeout) {
+		Tick tick = ticks.get(timeout);
+		if (tick == null) {
+			return;
+		}
+
+		tick.registrations.removeIf(registration -> registration.partition == partition);
+		if (tick.registrations.isEmpty()) {
+			tick.future.cancel(false);
+			ticks.remove(timeout);
+		}
+	}
+
+	public synchronized void shutdown() {
+		isShutdown = true;
+		ticks.clear();
+		executor.shutdownNow();
+	}
+
+	@VisibleForTesting
+	synchronized int getNumberOfTicks() {
+		return ticks.size();
+	}
+
+	// ------------------------------------------------------------------------
+
+	private static final class Registration {
+
+		private final ResultPartition partition;
+
+		private final Consumer<Throwable> errorHandler;
+
+		private Registration(ResultPartition partition, Consumer<Throwable> errorHandler) {
+			this.partition = partition;
+			this.errorHandler = errorHandler;
+		}
+	}
+
+	private final class Tick implements Runnable {
+
+		private final long timeout;
+
+		private final List<Registration> registrations = new CopyOnWriteArrayList<>();
+
+		private ScheduledFuture<?> future;
+
+		private Tick(long timeout) {
+			this.timeout = timeout;
+		}
+
+		@Override
+		public void run() {
+			for (Registration registration : registrations) {
+				try {
+					registration.partition.flushDirtySubpartitions();
+				} catch (Throwable t) {
+					// the writer recognizes the error, the other partitions keep being flushed
+					registration.errorHandler.accept(t);
+					unregister(registration.partition, timeout);
+				}
+			}
+		}
+	}
+}
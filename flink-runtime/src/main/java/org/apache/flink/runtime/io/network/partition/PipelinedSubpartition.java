@@ -18,6 +18,10 @@
 
 package org.apache.flink.runtime.io.network.partition;
 
+import org.apache.flink.core.memory.MemorySegment;
+import org.apache.flink.core.memory.MemorySegmentFactory;
+import org.apache.flink.metrics.Counter;
+import org.apache.flink.metrics.SimpleCounter;
 import org.apache.flink.runtime.causal.EpochTracker;
 import org.apache.flink.runtime.causal.determinant.BufferBuiltDeterminant;
 import org.apache.flink.runtime.causal.log.job.CausalLogID;
@@ -28,9 +32,13 @@ import org.apache.flink.runtime.inflightlogging.*;
 import org.apache.flink.runtime.io.network.api.EndOfPartitionEvent;
 import org.apache.flink.runtime.io.network.api.serialization.EventSerializer;
 import org.apache.flink.runtime.io.network.buffer.Buffer;
+import org.apache.flink.runtime.io.network.buffer.BufferCompressor;
 import org.apache.flink.runtime.io.network.buffer.BufferConsumer;
+import org.apache.flink.runtime.io.network.buffer.FreeingBufferRecycler;
+import org.apache.flink.runtime.io.network.buffer.NetworkBuffer;
 
 import org.apache.flink.runtime.jobgraph.IntermediateResultPartitionID;
+import org.apache.flink.runtime.state.CheckpointListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -40,6 +48,8 @@ import javax.annotation.concurrent.GuardedBy;
 import java.io.IOException;
 import java.util.Deque;
 import java.util.LinkedList;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.apache.flink.util.Preconditions.checkNotNull;
@@ -60,8 +70,13 @@ import static org.apache.flink.util.Preconditions.checkState;
  * <p>Explicit calls to {@link #flush()} will force this
  * {@link PipelinedSubpartitionView#notifyDataAvailable() notification} for any
  * {@link BufferConsumer} present in the queue.
+ *
+ * <p>For unaligned checkpoints, the consumer reports the position in the in-flight log up to which it processed
+ * the data when it took a checkpoint. A replay for that checkpoint starts at this position and the log is not
+ * truncated beyond it until a later checkpoint completes. The position may arrive after the checkpoint completed, so
+ * the log is only truncated for a completed checkpoint once its position arrived.
  */
-public class PipelinedSubpartition extends ResultSubpartition {
+public class PipelinedSubpartition extends ResultSubpartition implements CheckpointListener {
 
 	private static final Logger LOG = LoggerFactory.getLogger(PipelinedSubpartition.class);
 
@@ -86,7 +101,7 @@ public class PipelinedSubpartition extends ResultSubpartition {
 	private volatile boolean isReleased;
 	// ------------------------------------------------------------------------
 
-	private final InFlightLog inFlightLog;
+	private InFlightLog inFlightLog;
 	private ThreadCausalLog subpartitionThreadCausalLog;
 	private IRecoveryManager recoveryManager;
 	private EpochTracker epochTracker;
@@ -105,6 +120,39 @@ public class PipelinedSubpartition extends ResultSubpartition {
 
 	private short vertexID;
 
+	// The buffers replayed from the in-flight log to a recovering consumer
+	private Counter numInFlightBuffersReplayed = new SimpleCounter();
+
+	// The size the consumer wants to receive buffers of, announced while it debloats its buffers
+	private volatile int desirableBufferSize = Integer.MAX_VALUE;
+
+	// Compresses the sent buffers while the consumer is remote, null otherwise. Used outside of the lock by the
+	// thread polling the buffers, a new consumer gets a new one.
+	@GuardedBy("buffers")
+	private BufferCompressor bufferCompressor;
+
+	// Where the consumer started reading, the positions it reports without a preceding barrier are relative to it
+	@GuardedBy("buffers")
+	private ReplayPosition replayStart;
+
+	// The positions unaligned checkpoints of the consumer reference its unprocessed data at, by checkpoint
+	@GuardedBy("buffers")
+	private final SortedMap<Long, ReplayPosition> checkpointPositions = new TreeMap<>();
+
+	// The bytes of the next replayed buffer which the consumer already processed before its checkpoint
+	@GuardedBy("buffers")
+	private int replayedBytesToSkip;
+
+	// Whether the consumer takes unaligned checkpoints, which report their positions
+	private volatile boolean unalignedCheckpointsEnabled;
+
+	@GuardedBy("buffers")
+	private long latestCompletedCheckpointId = -1L;
+
+	// The epochs before it were truncated from the in-flight log
+	@GuardedBy("buffers")
+	private long truncatedBefore = Long.MIN_VALUE;
+
 	PipelinedSubpartition(int index, ResultPartition parent, InFlightLog inFlightLog) {
 		super(index, parent);
 		this.inFlightLog = inFlightLog;
@@ -124,9 +172,11 @@ public class PipelinedSubpartition extends ResultSubpartition {
 		this.recoveryManager = recoveryManager;
 		this.epochTracker = recoveryManager.getContext().getEpochTracker();
 		this.vertexID = recoveryManager.getContext().getTaskVertexID();
+		this.numInFlightBuffersReplayed = recoveryManager.getContext().getRecoveryMetrics()
+			.getNumInFlightBuffersReplayed();
 		IntermediateResultPartitionID partitionID = parent.getPartitionId().getPartitionId();
 		CausalLogID causalLogID = new CausalLogID(recoveryManager.getContext().getTaskVertexID(),
-			partitionID.getLowerPart(), partitionID.getUpperPart(), (byte) index);
+			partitionID.getLowerPart(), partitionID.getUpperPart(), (short) index);
 		this.subpartitionThreadCausalLog = causalLog.getThreadCausalLog(causalLogID);
 	}
 
@@ -134,6 +184,26 @@ public class PipelinedSubpartition extends ResultSubpartition {
 		return inFlightLog;
 	}
 
+	/**
+	 * Sets whether the consumer takes unaligned checkpoints, in which case the in-flight log is not truncated for a
+	 * completed checkpoint before the consumer's position of it arrived.
+	 */
+	public void setUnalignedCheckpointsEnabled(boolean unalignedCheckpointsEnabled) {
+		this.unalignedCheckpointsEnabled = unalignedCheckpointsEnabled;
+	}
+
+	/**
+	 * Replaces the in-flight log, which may only be done before any buffer was added.
+	 */
+	void setInFlightLog(InFlightLog inFlightLog) {
+		synchronized (buffers) {
+			checkState(getTotalNumberOfBuffers() == 0, "Buffers were already logged.");
+			this.inFlightLog.close();
+			this.inFlightLog.destroyBufferPools();
+			this.inFlightLog = inFlightLog;
+		}
+	}
+
 	@Override
 	public boolean add(BufferConsumer bufferConsumer) {
 		return add(bufferConsumer, false);
@@ -290,6 +360,7 @@ public class PipelinedSubpartition extends ResultSubpartition {
 		}
 
 		BufferAndBacklog buf;
+		BufferCompressor compressor;
 		synchronized (buffers) {
 			if (inflightReplayIterator != null) {
 				LOG.debug("We are replaying index {}, get inflight logs next buffer", index);
@@ -298,6 +369,12 @@ public class PipelinedSubpartition extends ResultSubpartition {
 				LOG.debug("We are not replaying index {}, get buffer from consumers", index);
 				buf = getBufferFromQueuedBufferConsumersUnsafe();
 			}
+			compressor = bufferCompressor;
+		}
+		//The in-flight log keeps the uncompressed buffer, so the writer never waits for the compression
+		if (buf != null && compressor != null && buf.buffer().isBuffer()) {
+			buf = new BufferAndBacklog(compress(buf.buffer(), compressor), buf.isMoreAvailable(),
+				buf.buffersInBacklog(), buf.nextBufferIsEvent(), buf.getEpochID());
 		}
 		return buf;
 
@@ -307,6 +384,11 @@ public class PipelinedSubpartition extends ResultSubpartition {
 
 		long epoch = inflightReplayIterator.getEpoch();
 		Buffer buffer = inflightReplayIterator.next();
+		numInFlightBuffersReplayed.inc();
+		if (replayedBytesToSkip > 0) {
+			buffer = skipReplayedBytesUnsafe(buffer, replayedBytesToSkip);
+			replayedBytesToSkip = 0;
+		}
 
 		int numBuffersInBacklog = getBuffersInBacklog() + inflightReplayIterator.numberRemaining();
 		if (!inflightReplayIterator.hasNext()) {
@@ -369,6 +451,8 @@ public class PipelinedSubpartition extends ResultSubpartition {
 
 		subpartitionThreadCausalLog.appendDeterminant(reuseBufferBuiltDeterminant.replace(buffer.readableBytes())
 			, epochID);
+		if (replayStart == null)
+			replayStart = new ReplayPosition(epochID, 0, 0);
 		inFlightLog.log(buffer, epochID, isFinished);
 
 		updateStatistics(buffer);
@@ -385,6 +469,35 @@ public class PipelinedSubpartition extends ResultSubpartition {
 	}
 
 
+	/**
+	 * Drops the given number of bytes from the start of a replayed buffer. The in-flight log only holds
+	 * uncompressed buffers, so the replay can start at any byte of them.
+	 */
+	private Buffer skipReplayedBytesUnsafe(Buffer buffer, int numBytes) {
+		checkState(numBytes < buffer.readableBytes(), "The consumer processed the whole buffer.");
+		return buffer.readOnlySlice(buffer.getReaderIndex() + numBytes, buffer.readableBytes() - numBytes);
+	}
+
+	/**
+	 * Compresses the buffer into a buffer of the partition's pool, falling back to the raw buffer if none is
+	 * available right away or the data does not compress well.
+	 */
+	private Buffer compress(Buffer buffer, BufferCompressor compressor) {
+		Buffer compressed = null;
+		try {
+			compressed = parent.getBufferPool().requestBuffer();
+			if (compressed != null && compressor.compress(buffer, compressed)) {
+				buffer.recycleBuffer();
+				return compressed;
+			}
+		} catch (IOException e) {
+			LOG.warn("Could not compress buffer of {}, sending it uncompressed.", this, e);
+		}
+		if (compressed != null)
+			compressed.recycleBuffer();
+		return buffer;
+	}
+
 	boolean nextBufferIsEvent() {
 		synchronized (buffers) {
 			return nextBufferIsEventUnsafe();
@@ -426,6 +539,15 @@ public class PipelinedSubpartition extends ResultSubpartition {
 					parent.getPartitionId());
 			}
 
+			//A new consumer announces its own buffer size
+			desirableBufferSize = Integer.MAX_VALUE;
+
+			//Local consumers read the buffers in place, only buffers leaving the task manager are compressed
+			if (parent.isBufferCompressionEnabled() && availabilityListener.isRemote()) {
+				bufferCompressor = new BufferCompressor();
+			} else {
+				bufferCompressor = null;
+			}
 
 		}
 		//If we are recovering, when we conclude, we must notify of data availability.
@@ -485,12 +607,43 @@ public class PipelinedSubpartition extends ResultSubpartition {
 			0), 0);
 	}
 
+	void notifyNewBufferSize(int newBufferSize) {
+		LOG.debug("Consumer of {} announced a buffer size of {} bytes.", this, newBufferSize);
+		desirableBufferSize = newBufferSize;
+	}
+
+	@Override
+	public int getDesirableBufferSize() {
+		return desirableBufferSize;
+	}
+
+	void notifyCreditAvailable(int numCreditsAvailable) {
+		synchronized (buffers) {
+			if (inflightReplayIterator != null)
+				inflightReplayIterator.notifyDownstreamCredit(numCreditsAvailable);
+		}
+	}
+
 	public void requestReplay(long checkpointId, int ignoreMessages) {
 		LOG.debug("Replay requested");
 		synchronized (buffers) {
 			if (inflightReplayIterator != null)
 				inflightReplayIterator.close();
-			inflightReplayIterator = inFlightLog.getInFlightIterator(checkpointId, ignoreMessages);
+			//An unaligned checkpoint starts the replay where its consumer stopped processing
+			ReplayPosition start = checkpointPositions.get(checkpointId);
+			if (start != null) {
+				checkState(start.epochID >= truncatedBefore, "The position %s of checkpoint %s was truncated.",
+					start, checkpointId);
+			} else {
+				checkState(!unalignedCheckpointsEnabled || checkpointId != latestCompletedCheckpointId,
+					"The position of the completed checkpoint %s never arrived.", checkpointId);
+				start = new ReplayPosition(checkpointId, 0, 0);
+			}
+			if (ignoreMessages > 0)
+				start = new ReplayPosition(start.epochID, start.numberOfBuffers + ignoreMessages, 0);
+			replayStart = start;
+			replayedBytesToSkip = start.numberOfBytes;
+			inflightReplayIterator = inFlightLog.getInFlightIterator(start.epochID, start.numberOfBuffers);
 			if (inflightReplayIterator != null) {
 				LOG.debug("Replay has been requested for pipelined subpartition of id {}, index {}, skipping {} " +
 						"buffers, " +
@@ -504,6 +657,75 @@ public class PipelinedSubpartition extends ResultSubpartition {
 		}
 	}
 
+	/**
+	 * Records where the data the consumer had not processed when it took the given unaligned checkpoint starts.
+	 *
+	 * @param afterCheckpointId the last barrier the consumer received, or
+	 *                          {@link org.apache.flink.runtime.event.InFlightLogPositionEvent#NO_BARRIER}
+	 * @param numberOfBuffers the buffers the consumer processed after it
+	 * @param numberOfBytes the bytes of the next buffer the consumer processed
+	 */
+	public void notifyReplayPosition(long checkpointId, long afterCheckpointId, int numberOfBuffers,
+									 int numberOfBytes) {
+		synchronized (buffers) {
+			ReplayPosition position;
+			if (afterCheckpointId >= 0) {
+				//The barrier was the last entry of the epoch before it
+				position = new ReplayPosition(afterCheckpointId, numberOfBuffers, numberOfBytes);
+			} else {
+				ReplayPosition start = replayStart != null ? replayStart :
+					new ReplayPosition(epochTracker != null ? epochTracker.getCurrentEpoch() : 0, 0, 0);
+				position = new ReplayPosition(start.epochID, start.numberOfBuffers + numberOfBuffers,
+					numberOfBuffers == 0 ? start.numberOfBytes + numberOfBytes : numberOfBytes);
+			}
+			if (checkpointId < latestCompletedCheckpointId) {
+				LOG.debug("Ignoring position {} of checkpoint {}, which was subsumed.", position, checkpointId);
+				return;
+			}
+			LOG.debug("Checkpoint {} of the consumer of {} starts at {}.", checkpointId, this, position);
+			checkpointPositions.put(checkpointId, position);
+			try {
+				truncateInFlightLogUnsafe();
+			} catch (Exception e) {
+				throw new RuntimeException("Could not truncate the in-flight log of " + this + '.', e);
+			}
+		}
+	}
+
+	@Override
+	public void notifyCheckpointComplete(long checkpointId) throws Exception {
+		synchronized (buffers) {
+			//The consumer may still restore the completed checkpoint, which can reference older epochs
+			checkpointPositions.headMap(checkpointId).clear();
+			latestCompletedCheckpointId = Math.max(latestCompletedCheckpointId, checkpointId);
+			truncateInFlightLogUnsafe();
+		}
+	}
+
+	/**
+	 * Truncates the in-flight log before the latest completed checkpoint, but keeps the epochs that the positions of
+	 * it and of later checkpoints are in. Until the position of an unaligned checkpoint arrived, it may be in any
+	 * epoch after the previous completed checkpoint, which the log was truncated for already.
+	 */
+	private void truncateInFlightLogUnsafe() throws Exception {
+		if (latestCompletedCheckpointId < 0) {
+			return;
+		}
+		if (unalignedCheckpointsEnabled && !checkpointPositions.containsKey(latestCompletedCheckpointId)) {
+			LOG.debug("Not truncating the in-flight log of {} before the position of checkpoint {} arrived.", this,
+				latestCompletedCheckpointId);
+			return;
+		}
+
+		long truncateBefore = latestCompletedCheckpointId;
+		for (ReplayPosition position : checkpointPositions.values())
+			truncateBefore = Math.min(truncateBefore, position.epochID);
+		if (truncateBefore > truncatedBefore) {
+			truncatedBefore = truncateBefore;
+			inFlightLog.notifyCheckpointComplete(truncateBefore);
+		}
+	}
+
 
 	private boolean shouldNotifyDataAvailable() {
 		// Notify only when we added first finished buffer.
@@ -551,6 +773,18 @@ public class PipelinedSubpartition extends ResultSubpartition {
 					continue;
 				}
 
+				// Buffers may have been capped to another size before the failure, so the requested buffer may
+				// span the finished consumer and the ones behind it
+				if (consumer.isFinished() && consumer.getUnreadBytes() > 0 && consumer.getUnreadBytes() < bufferSize &&
+					consumer.isBuffer()) {
+					if (getUnreadDataBytesUnsafe() >= bufferSize) {
+						buildRequestedSpanningBuffer(bufferSize);
+						break;
+					}
+					buffers.wait(5);
+					continue;
+				}
+
 				// Erroneous state, consumer is finished without enough data, throw exception
 				if (consumer.isFinished() && consumer.getUnreadBytes() > 0 && consumer.getUnreadBytes() < bufferSize) {
 					String msg = "Vertex " + recoveryManager.getContext().getTaskVertexID() + " - Size of finished bufferConsumer ( unread: " + consumer.getUnreadBytes() +
@@ -571,6 +805,46 @@ public class PipelinedSubpartition extends ResultSubpartition {
 		LOG.debug("Done building and discarding bufer of size {}", bufferSize);
 	}
 
+	/**
+	 * Returns the unread bytes of the data consumers at the head of the queue, up to the first event.
+	 */
+	private int getUnreadDataBytesUnsafe() {
+		int unreadBytes = 0;
+		for (BufferConsumer consumer : buffers) {
+			if (!consumer.isBuffer())
+				break;
+			unreadBytes += consumer.getUnreadBytes();
+		}
+		return unreadBytes;
+	}
+
+	private void buildRequestedSpanningBuffer(int bufferSize) {
+		LOG.debug("Building the requested buffer from several buffer consumers.");
+
+		long epochID = buffers.peek().getEpochID();
+		subpartitionThreadCausalLog.appendDeterminant(reuseBufferBuiltDeterminant.replace(bufferSize), epochID);
+
+		MemorySegment segment = MemorySegmentFactory.allocateUnpooledSegment(bufferSize);
+		int written = 0;
+		while (written < bufferSize) {
+			BufferConsumer consumer = buffers.peek();
+			Buffer part = consumer.build(Math.min(bufferSize - written, consumer.getUnreadBytes()));
+			segment.put(written, part.getNioBufferReadable(), part.readableBytes());
+			written += part.readableBytes();
+			part.recycleBuffer();
+			if (consumer.isFinished() && consumer.getUnreadBytes() <= 0)
+				buffers.pop().close();
+		}
+
+		if (buffers.size() <= 1)
+			flushRequested = false;
+
+		Buffer buffer = new NetworkBuffer(segment, FreeingBufferRecycler.INSTANCE, true, bufferSize);
+		updateStatistics(buffer);
+		inFlightLog.log(buffer, epochID, true);
+		buffer.recycleBuffer(); //It is not sent downstream, so we must recycle it here.
+	}
+
 	private void buildRequestedBuffer(int bufferSize, BufferConsumer consumer) {
 		LOG.debug("There are enough bytes to build the requested buffer!");
 
@@ -606,4 +880,26 @@ public class PipelinedSubpartition extends ResultSubpartition {
 	public boolean isRecoveringSubpartititionInFlightState() {
 		return isRecoveringSubpartitionInFlightState.get();
 	}
+
+	/**
+	 * A position in the in-flight log, the buffers and bytes to skip from the start of an epoch.
+	 */
+	private static final class ReplayPosition {
+
+		private final long epochID;
+		private final int numberOfBuffers;
+		private final int numberOfBytes;
+
+		ReplayPosition(long epochID, int numberOfBuffers, int numberOfBytes) {
+			this.epochID = epochID;
+			this.numberOfBuffers = numberOfBuffers;
+			this.numberOfBytes = numberOfBytes;
+		}
+
+		@Override
+		public String toString() {
+			return "ReplayPosition{epochID=" + epochID + ", numberOfBuffers=" + numberOfBuffers +
+				", numberOfBytes=" + numberOfBytes + '}';
+		}
+	}
 }
@@ -103,6 +103,21 @@ class PipelinedSubpartitionView implements ResultSubpartitionView {
 		return parent.isAvailable();
 	}
 
+	@Override
+	public void notifyCreditAvailable(int numCreditsAvailable) {
+		parent.notifyCreditAvailable(numCreditsAvailable);
+	}
+
+	@Override
+	public void notifyNewBufferSize(int newBufferSize) {
+		parent.notifyNewBufferSize(newBufferSize);
+	}
+
+	@Override
+	public int unsynchronizedGetNumberOfQueuedBuffers() {
+		return parent.unsynchronizedGetNumberOfQueuedBuffers();
+	}
+
 	@Override
 	public JobID getJobID() {
 		return this.parent.getJobID();
@@ -21,9 +21,11 @@ package org.apache.flink.runtime.io.network.partition;
 import org.apache.flink.api.common.JobID;
 import org.apache.flink.runtime.causal.EpochTracker;
 import org.apache.flink.runtime.executiongraph.IntermediateResultPartition;
+import org.apache.flink.runtime.inflightlogging.AvailabilitySpillPolicy;
 import org.apache.flink.runtime.inflightlogging.InFlightLog;
 import org.apache.flink.runtime.inflightlogging.InFlightLogConfig;
 import org.apache.flink.runtime.inflightlogging.InFlightLogFactory;
+import org.apache.flink.runtime.inflightlogging.SharedBroadcastInFlightLog;
 import org.apache.flink.runtime.inflightlogging.SpillableSubpartitionInFlightLogger;
 import org.apache.flink.runtime.io.disk.iomanager.IOManager;
 import org.apache.flink.runtime.io.network.api.writer.ResultPartitionWriter;
@@ -45,6 +47,8 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import static org.apache.flink.util.Preconditions.checkArgument;
@@ -138,6 +142,23 @@ public class ResultPartition implements ResultPartitionWriter, BufferPoolOwner {
 
 	private FlushRunnable inFlightLogFlusherRunnable;
 
+	private final InFlightLogConfig.Type inFlightLogType;
+
+	// The in-flight log shared by the subpartitions once all records are broadcast, null otherwise
+	private SharedBroadcastInFlightLog sharedInFlightLog;
+
+	/** The flusher shared by the partitions of the task manager, null if the partition was not set up with one. */
+	private OutputFlusherService outputFlusherService;
+
+	/** The timeout of the periodic flush of this partition, non-positive if it is not flushed periodically. */
+	private volatile long flushTimeout = -1;
+
+	/** One bit per subpartition that had data written to it since its last periodic flush. */
+	private final AtomicLongArray dirtySubpartitions;
+
+	/** Whether the finished buffers sent to remote consumers are compressed. */
+	private volatile boolean isBufferCompressionEnabled;
+
 	public ResultPartition(
 		String owningTaskName,
 		TaskActions taskActions, // actions on the owning task
@@ -161,6 +182,7 @@ public class ResultPartition implements ResultPartitionWriter, BufferPoolOwner {
 		this.partitionManager = checkNotNull(partitionManager);
 		this.partitionConsumableNotifier = checkNotNull(partitionConsumableNotifier);
 		this.sendScheduleOrUpdateConsumersMessage = sendScheduleOrUpdateConsumersMessage;
+		this.dirtySubpartitions = new AtomicLongArray((numberOfSubpartitions + 63) / 64);
 
 
 		// Create the subpartitions.
@@ -170,6 +192,7 @@ public class ResultPartition implements ResultPartitionWriter, BufferPoolOwner {
 					subpartitions[i] = new SpillableSubpartition(i, this, ioManager);
 				}
 				availabilityFillFactor = 0;
+				inFlightLogType = InFlightLogConfig.Type.DISABLED;
 
 				break;
 
@@ -181,6 +204,7 @@ public class ResultPartition implements ResultPartitionWriter, BufferPoolOwner {
 				}
 				InFlightLogConfig inFlightLogConfig = inFlightLogFactory.getInFlightLogConfig();
 				availabilityFillFactor = inFlightLogConfig.getAvailabilityPolicyFillFactor();
+				inFlightLogType = inFlightLogConfig.getType();
 				long inFlightLogFlusherThreadSleepTime = inFlightLogConfig.getInFlightLogSleepTime();
 				if (inFlightLogConfig.getType() == InFlightLogConfig.Type.SPILLABLE
 					&& inFlightLogConfig.getSpillPolicy() == InFlightLogConfig.Policy.AVAILABILITY) {
@@ -226,6 +250,112 @@ public class ResultPartition implements ResultPartitionWriter, BufferPoolOwner {
 			((PipelinedSubpartition) subpartition).getInFlightLog().registerBufferPool(inFlightBufferPool);
 	}
 
+	/**
+	 * Replaces the in-memory in-flight logs of the subpartitions by one shared log, which holds each broadcast
+	 * buffer once. Spillable logs are kept, they spill the slices sent by each subpartition separately.
+	 */
+	@Override
+	public void enableBroadcastMode() {
+		if (inFlightLogType != InFlightLogConfig.Type.IN_MEMORY || sharedInFlightLog != null)
+			return;
+
+		LOG.debug("{}: Sharing the in-flight log of the subpartitions of {}", owningTaskName, this);
+		sharedInFlightLog = new SharedBroadcastInFlightLog(subpartitions.length);
+		for (int i = 0; i < subpartitions.length; i++) {
+			InFlightLog subpartitionLog = sharedInFlightLog.getSubpartitionLog(i);
+			if (inFlightBufferPool != null)
+				subpartitionLog.registerBufferPool(inFlightBufferPool);
+			((PipelinedSubpartition) subpartitions[i]).setInFlightLog(subpartitionLog);
+		}
+	}
+
+	/**
+	 * Enables the compression of the finished buffers of the subpartitions, which is applied while a subpartition
+	 * is consumed by a remote task. Must be set before the subpartitions are consumed.
+	 */
+	public void setBufferCompressionEnabled(boolean isBufferCompressionEnabled) {
+		this.isBufferCompressionEnabled = isBufferCompressionEnabled;
+	}
+
+	public boolean isBufferCompressionEnabled() {
+		return isBufferCompressionEnabled;
+	}
+
+	public void setOutputFlusherService(OutputFlusherService outputFlusherService) {
+		this.outputFlusherService = outputFlusherService;
+	}
+
+	@Override
+	public boolean startPeriodicFlush(long timeout, Consumer<Throwable> errorHandler) {
+		if (outputFlusherService == null) {
+			return false;
+		}
+
+		checkState(flushTimeout <= 0, "The partition is already flushed periodically.");
+		flushTimeout = timeout;
+		outputFlusherService.register(this, timeout, errorHandler);
+		return true;
+	}
+
+	@Override
+	public void stopPeriodicFlush() {
+		long timeout = flushTimeout;
+		if (timeout > 0) {
+			flushTimeout = -1;
+			outputFlusherService.unregister(this, timeout);
+		}
+	}
+
+	@Override
+	public int getDesirableBufferSize(int subpartitionIndex) {
+		return subpartitions[subpartitionIndex].getDesirableBufferSize();
+	}
+
+	@Override
+	public void notifyDataWritten(int subpartitionIndex) {
+		if (flushTimeout <= 0) {
+			return;
+		}
+
+		int word = subpartitionIndex >>> 6;
+		long bit = 1L << subpartitionIndex;
+		// only the first write after a flush pays for the update
+		if ((dirtySubpartitions.get(word) & bit) == 0) {
+			dirtySubpartitions.getAndAccumulate(word, bit, (current, mask) -> current | mask);
+		}
+	}
+
+	@Override
+	public void notifyDataWrittenToAll() {
+		if (flushTimeout <= 0) {
+			return;
+		}
+
+		for (int word = 0; word < dirtySubpartitions.length(); word++) {
+			if (dirtySubpartitions.get(word) != -1L) {
+				dirtySubpartitions.set(word, -1L);
+			}
+		}
+	}
+
+	/**
+	 * Flushes the subpartitions which had data written to them since their last periodic flush.
+	 */
+	void flushDirtySubpartitions() {
+		for (int word = 0; word < dirtySubpartitions.length(); word++) {
+			long dirty = dirtySubpartitions.getAndSet(word, 0L);
+			while (dirty != 0) {
+				int subpartitionIndex = (word << 6) + Long.numberOfTrailingZeros(dirty);
+				// the bits of the last word beyond the subpartitions may be set by notifyDataWrittenToAll()
+				if (subpartitionIndex >= subpartitions.length) {
+					break;
+				}
+				subpartitions[subpartitionIndex].flush();
+				dirty &= dirty - 1;
+			}
+		}
+	}
+
 	public JobID getJobId() {
 		return jobId;
 	}
@@ -297,6 +427,7 @@ public class ResultPartition implements ResultPartitionWriter, BufferPoolOwner {
 		if (subpartition.add(bufferConsumer)) {
 			notifyPipelinedConsumers();
 		}
+		notifyDataWritten(subpartitionIndex);
 	}
 
 	@Override
@@ -366,6 +497,7 @@ public class ResultPartition implements ResultPartitionWriter, BufferPoolOwner {
 			}
 			if (inFlightLogFlusherRunnable != null)
 				inFlightLogFlusherRunnable.stop();
+			stopPeriodicFlush();
 		}
 	}
 
@@ -423,6 +555,19 @@ public class ResultPartition implements ResultPartitionWriter, BufferPoolOwner {
 		return subpartitions;
 	}
 
+	/**
+	 * Returns the bytes held by the in-flight logs of all subpartitions, see {@link InFlightLog#getLogSizeInBytes()}.
+	 */
+	public long getInFlightLogSizeInBytes() {
+		if (sharedInFlightLog != null)
+			return sharedInFlightLog.getLogSizeInBytes();
+		long size = 0;
+		for (ResultSubpartition subpartition : subpartitions)
+			if (subpartition instanceof PipelinedSubpartition)
+				size += ((PipelinedSubpartition) subpartition).getInFlightLog().getLogSizeInBytes();
+		return size;
+	}
+
 	/**
 	 * Releases buffers held by this result partition.
 	 *
@@ -517,20 +662,13 @@ public class ResultPartition implements ResultPartitionWriter, BufferPoolOwner {
 	}
 
 	public boolean isPoolAvailabilityLow() {
-		float availability = computePoolAvailability();
+		float availability = AvailabilitySpillPolicy.computeAvailability(inFlightBufferPool);
 		if(LOG.isDebugEnabled())
 			LOG.debug("In-Flight buffer pool: {}% available. Trigger spill if below {}% ", availability * 100, availabilityFillFactor *100);
 
 		return availability <= availabilityFillFactor;
 	}
 
-	//Returns 1 if no buffers are used. Returns 0 if all buffers are used.
-	private float computePoolAvailability() {
-		if (inFlightBufferPool == null || inFlightBufferPool.isDestroyed())
-			return 1;
-		return 1 - ((float) inFlightBufferPool.bestEffortGetNumOfUsedBuffers()) / inFlightBufferPool.getNumBuffers();
-	}
-
 	private static class FlushRunnable implements Runnable {
 
 		private final List<SpillableSubpartitionInFlightLogger> inFlightLoggers;
@@ -140,6 +140,13 @@ public abstract class ResultSubpartition {
 	 */
 	public abstract int unsynchronizedGetNumberOfQueuedBuffers();
 
+	/**
+	 * Returns the size the buffers written to this subpartition should be capped at, as announced by its consumer.
+	 */
+	public int getDesirableBufferSize() {
+		return Integer.MAX_VALUE;
+	}
+
 	/**
 	 * Decreases the number of non-event buffers by one after fetching a non-event
 	 * buffer from this subpartition (for access by the subpartition views).
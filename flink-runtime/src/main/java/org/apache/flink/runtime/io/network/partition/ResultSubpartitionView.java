@@ -65,6 +65,25 @@ public interface ResultSubpartitionView {
 
 	boolean isAvailable();
 
+	/**
+	 * Notifies the view of the credit the consumer currently has available.
+	 */
+	default void notifyCreditAvailable(int numCreditsAvailable) {
+	}
+
+	/**
+	 * Notifies the view of the buffer size the consumer wants to receive, which caps the buffers written next.
+	 */
+	default void notifyNewBufferSize(int newBufferSize) {
+	}
+
+	/**
+	 * Makes a best effort to get the number of buffers queued in the subpartition, without acquiring any lock.
+	 */
+	default int unsynchronizedGetNumberOfQueuedBuffers() {
+		return 0;
+	}
+
     JobID getJobID();
 
     short getVertexID();
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.network.partition.consumer;
+
+import org.apache.flink.annotation.VisibleForTesting;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+
+/**
+ * Adapts the size of the buffers sent to an input gate to the rate at which the gate is consumed, so that the data in
+ * flight to the gate amounts to what the gate consumes within a target time. Less data in flight means faster
+ * barrier alignment and smaller in-flight logs of the producers.
+ *
+ * <p>The throughput is measured over periods of consumed bytes and smoothed exponentially. The desired buffer size is
+ * the target amount of in-flight bytes divided by the buffers in use by the channels of the gate. A new size is only
+ * announced once it differs enough from the last announced one. Not thread safe, only used by the task thread.
+ */
+public class BufferDebloater {
+
+	/** The weight of the last measured period in the smoothed throughput. */
+	private static final double THROUGHPUT_SMOOTHING = 0.5d;
+
+	/** The relative change of the buffer size which triggers a new announcement. */
+	private static final double ANNOUNCEMENT_THRESHOLD = 0.25d;
+
+	private final int minBufferSize;
+
+	private final int maxBufferSize;
+
+	private final long targetNanos;
+
+	private final long periodNanos;
+
+	private long periodStartNanos = -1;
+
+	private long periodBytes;
+
+	/** The smoothed throughput in bytes per second, negative before the first period completed. */
+	private double throughput = -1;
+
+	private int lastBufferSize;
+
+	public BufferDebloater(int minBufferSize, int maxBufferSize, long targetMillis, long periodMillis) {
+		checkArgument(minBufferSize > 0 && minBufferSize <= maxBufferSize,
+			"The minimum buffer size must be positive and at most the maximum buffer size.");
+		checkArgument(targetMillis > 0 && periodMillis > 0, "The target time and period must be positive.");
+
+		this.minBufferSize = minBufferSize;
+		this.maxBufferSize = maxBufferSize;
+		this.targetNanos = targetMillis * 1_000_000L;
+		this.periodNanos = periodMillis * 1_000_000L;
+		this.lastBufferSize = maxBufferSize;
+	}
+
+	/**
+	 * Records the bytes of a consumed buffer.
+	 *
+	 * @return <tt>true</tt> if a measuring period completed, after which the buffer size should be recalculated
+	 */
+	public boolean onBufferConsumed(int bytes, long nowNanos) {
+		if (periodStartNanos < 0) {
+			periodStartNanos = nowNanos;
+		}
+		periodBytes += bytes;
+
+		long elapsedNanos = nowNanos - periodStartNanos;
+		if (elapsedNanos < periodNanos) {
+			return false;
+		}
+
+		double periodThroughput = periodBytes * 1_000_000_000d / elapsedNanos;
+		throughput = throughput < 0 ? periodThroughput :
+			THROUGHPUT_SMOOTHING * periodThroughput + (1 - THROUGHPUT_SMOOTHING) * throughput;
+		periodStartNanos = nowNanos;
+		periodBytes = 0;
+		return true;
+	}
+
+	/**
+	 * Calculates the buffer size for the measured throughput.
+	 *
+	 * @param numBuffersInUse the number of buffers in use by all channels of the gate
+	 * @return the new buffer size to announce, or <tt>-1</tt> if the last announced size is still good enough
+	 */
+	public int recalculateBufferSize(int numBuffersInUse) {
+		if (throughput < 0) {
+			return -1;
+		}
+
+		long inFlightBytes = (long) (throughput * targetNanos / 1_000_000_000d);
+		int bufferSize = (int) Math.max(minBufferSize, Math.min(maxBufferSize, inFlightBytes / Math.max(1,
+			numBuffersInUse)));
+
+		// Sizes at the bounds are always announced, so that the producers eventually reach them
+		boolean isBound = bufferSize == minBufferSize || bufferSize == maxBufferSize;
+		if (bufferSize == lastBufferSize ||
+			(!isBound && Math.abs(bufferSize - lastBufferSize) < lastBufferSize * ANNOUNCEMENT_THRESHOLD)) {
+			return -1;
+		}
+
+		lastBufferSize = bufferSize;
+		return bufferSize;
+	}
+
+	double getThroughput() {
+		return throughput;
+	}
+
+	@VisibleForTesting
+	int getLastBufferSize() {
+		return lastBufferSize;
+	}
+}
@@ -161,6 +161,20 @@ public abstract class InputChannel {
 	 */
 	public abstract void sendTaskEvent(TaskEvent event) throws IOException, InterruptedException;
 
+	/**
+	 * Announces the size of the buffers this channel wants to receive to the producer of the consumed subpartition.
+	 */
+	void announceBufferSize(int newBufferSize) {
+	}
+
+	/**
+	 * Returns the number of buffers this channel currently holds or is waiting for, which share the in-flight data
+	 * of the channel.
+	 */
+	int getBuffersInUseCount() {
+		return 1;
+	}
+
 	// ------------------------------------------------------------------------
 	// Life cycle
 	// ------------------------------------------------------------------------
@@ -18,12 +18,17 @@
 
 package org.apache.flink.runtime.io.network.partition.consumer;
 
+import org.apache.flink.core.memory.MemorySegmentFactory;
 import org.apache.flink.runtime.event.InFlightLogRequestEvent;
 import org.apache.flink.runtime.event.TaskEvent;
 import org.apache.flink.runtime.execution.CancelTaskException;
 import org.apache.flink.runtime.io.network.TaskEventDispatcher;
 import org.apache.flink.runtime.io.network.ConnectionManager;
 import org.apache.flink.runtime.io.network.ConnectionID;
+import org.apache.flink.runtime.io.network.buffer.Buffer;
+import org.apache.flink.runtime.io.network.buffer.BufferDecompressor;
+import org.apache.flink.runtime.io.network.buffer.FreeingBufferRecycler;
+import org.apache.flink.runtime.io.network.buffer.NetworkBuffer;
 import org.apache.flink.runtime.io.network.partition.BufferAvailabilityListener;
 import org.apache.flink.runtime.io.network.partition.PartitionNotFoundException;
 import org.apache.flink.runtime.io.network.partition.ResultPartitionID;
@@ -65,6 +70,12 @@ public class LocalInputChannel extends InputChannel implements BufferAvailabilit
 
 	private volatile boolean isReleased;
 
+	/**
+	 * Decompresses the buffers a subpartition compressed while its consumer was remote, i.e. the buffers it
+	 * replays from its in-flight log after the consumer was recovered locally. Created on first use.
+	 */
+	private BufferDecompressor bufferDecompressor;
+
 	public LocalInputChannel(
 		SingleInputGate inputGate,
 		int channelIndex,
@@ -198,9 +209,25 @@ public class LocalInputChannel extends InputChannel implements BufferAvailabilit
 			}
 		}
 
-		numBytesIn.inc(next.buffer().getSizeUnsafe());
+		Buffer buffer = next.buffer().isCompressed() ? decompress(next.buffer()) : next.buffer();
+		numBytesIn.inc(buffer.getSizeUnsafe());
 		numBuffersIn.inc();
-		return Optional.of(new BufferAndAvailability(next.buffer(), next.isMoreAvailable(), next.buffersInBacklog()));
+		return Optional.of(new BufferAndAvailability(buffer, next.isMoreAvailable(), next.buffersInBacklog()));
+	}
+
+	private Buffer decompress(Buffer compressed) throws IOException {
+		if (bufferDecompressor == null) {
+			bufferDecompressor = new BufferDecompressor();
+		}
+
+		Buffer buffer = new NetworkBuffer(MemorySegmentFactory.allocateUnpooledSegment(
+			compressed.getMemorySegment().size()), FreeingBufferRecycler.INSTANCE);
+		try {
+			bufferDecompressor.decompress(compressed, buffer);
+		} finally {
+			compressed.recycleBuffer();
+		}
+		return buffer;
 	}
 
 	@Override
@@ -234,6 +261,20 @@ public class LocalInputChannel extends InputChannel implements BufferAvailabilit
 		}
 	}
 
+	@Override
+	void announceBufferSize(int newBufferSize) {
+		ResultSubpartitionView view = subpartitionView;
+		if (view != null) {
+			view.notifyNewBufferSize(newBufferSize);
+		}
+	}
+
+	@Override
+	int getBuffersInUseCount() {
+		ResultSubpartitionView view = subpartitionView;
+		return view == null ? 1 : Math.max(1, view.unsynchronizedGetNumberOfQueuedBuffers());
+	}
+
 	// ------------------------------------------------------------------------
 	// Life cycle
 	// ------------------------------------------------------------------------
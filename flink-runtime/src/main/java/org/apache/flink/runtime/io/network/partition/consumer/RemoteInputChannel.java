@@ -270,6 +270,26 @@ public class RemoteInputChannel extends InputChannel implements BufferRecycler,
 		partitionRequestClient.sendTaskEvent(partitionId, event, this);
 	}
 
+	@Override
+	void announceBufferSize(int newBufferSize) {
+		PartitionRequestClient client = partitionRequestClient;
+		if (client != null && subpartitionRequested.get() && !isReleased.get()) {
+			client.notifyNewBufferSize(this, newBufferSize);
+		}
+	}
+
+	@Override
+	int getBuffersInUseCount() {
+		int numBuffers;
+		synchronized (receivedBuffers) {
+			numBuffers = receivedBuffers.size();
+		}
+		synchronized (bufferQueue) {
+			numBuffers += bufferQueue.getAvailableBufferSize();
+		}
+		return Math.max(1, numBuffers);
+	}
+
 
 	// ------------------------------------------------------------------------
 	// Life cycle
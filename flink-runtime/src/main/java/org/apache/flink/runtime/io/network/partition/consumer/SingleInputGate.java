@@ -167,6 +167,9 @@ public class SingleInputGate implements InputGate {
 
 	private final boolean isCreditBased;
 
+	/** Adapts the size of the buffers sent to this gate to its throughput, null if debloating is disabled. */
+	private BufferDebloater bufferDebloater;
+
 	private boolean hasReceivedAllEndOfPartitionEvents;
 
 	/** Flag indicating whether partitions have been requested. */
@@ -336,6 +339,13 @@ public class SingleInputGate implements InputGate {
 		this.bufferPool = checkNotNull(bufferPool);
 	}
 
+	/**
+	 * Enables the debloating of the buffers sent to this gate, which the channels announce to their producers.
+	 */
+	public void setBufferDebloater(BufferDebloater bufferDebloater) {
+		this.bufferDebloater = bufferDebloater;
+	}
+
 	private void doAssignExclusiveSegments(InputChannel inputChannel) throws IOException {
 		if (inputChannel instanceof RemoteInputChannel) {
 			((RemoteInputChannel) inputChannel).assignExclusiveSegments(
@@ -753,6 +763,9 @@ public class SingleInputGate implements InputGate {
 		final Buffer buffer = result.get().buffer();
 		if (buffer.isBuffer()) {
 			LOG.debug("Buffer is a buffer!");
+			if (bufferDebloater != null) {
+				debloat(buffer.getSize());
+			}
 			return Optional.of(new BufferOrEvent(buffer, currentChannel.getChannelIndex(), moreAvailable));
 		}
 		else {
@@ -781,6 +794,28 @@ public class SingleInputGate implements InputGate {
 		}
 	}
 
+	private void debloat(int consumedBytes) {
+		if (!bufferDebloater.onBufferConsumed(consumedBytes, System.nanoTime())) {
+			return;
+		}
+
+		synchronized (requestLock) {
+			int numBuffersInUse = 0;
+			for (InputChannel inputChannel : inputChannels.values()) {
+				numBuffersInUse += inputChannel.getBuffersInUseCount();
+			}
+
+			int bufferSize = bufferDebloater.recalculateBufferSize(numBuffersInUse);
+			if (bufferSize > 0) {
+				LOG.debug("{}: Announcing a buffer size of {} bytes for a throughput of {} bytes/s.", owningTaskName,
+					bufferSize, (long) bufferDebloater.getThroughput());
+				for (InputChannel inputChannel : inputChannels.values()) {
+					inputChannel.announceBufferSize(bufferSize);
+				}
+			}
+		}
+	}
+
 	@Override
 	public void sendTaskEvent(TaskEvent event) throws IOException, InterruptedException {
 		synchronized (requestLock) {
@@ -37,6 +37,7 @@ import org.apache.flink.runtime.checkpoint.CheckpointMetrics;
 import org.apache.flink.runtime.checkpoint.CheckpointTriggerException;
 import org.apache.flink.runtime.checkpoint.Checkpoints;
 import org.apache.flink.runtime.checkpoint.CompletedCheckpoint;
+import org.apache.flink.runtime.checkpoint.LogSizeCheckpointTrigger;
 import org.apache.flink.runtime.checkpoint.TaskStateSnapshot;
 import org.apache.flink.runtime.client.JobExecutionException;
 import org.apache.flink.runtime.clusterframework.types.AllocationID;
@@ -200,6 +201,9 @@ public class JobMaster extends FencedRpcEndpoint<JobMasterId> implements JobMast
 
 	private final Map<ResourceID, Tuple2<TaskManagerLocation, TaskExecutorGateway>> registeredTaskManagers;
 
+	// Triggers checkpoints once the causal and in-flight logs reported by the TaskManagers grow too large
+	private final LogSizeCheckpointTrigger logSizeCheckpointTrigger;
+
 	// -------- Mutable fields ---------
 
 	private ExecutionGraph executionGraph;
@@ -290,6 +294,8 @@ public class JobMaster extends FencedRpcEndpoint<JobMasterId> implements JobMast
 		this.slotPoolGateway = slotPool.getSelfGateway(SlotPoolGateway.class);
 
 		this.registeredTaskManagers = new HashMap<>(4);
+		this.logSizeCheckpointTrigger = LogSizeCheckpointTrigger.fromConfiguration(
+			jobMasterConfiguration.getConfiguration());
 
 		this.backPressureStatsTracker = checkNotNull(jobManagerSharedServices.getBackPressureStatsTracker());
 		this.lastInternalSavepoint = null;
@@ -718,6 +724,7 @@ public class JobMaster extends FencedRpcEndpoint<JobMasterId> implements JobMast
 		log.debug("Disconnect TaskExecutor {} because: {}", resourceID, cause.getMessage());
 
 		taskManagerHeartbeatManager.unmonitorTarget(resourceID);
+		logSizeCheckpointTrigger.removeTaskManager(resourceID);
 		CompletableFuture<Acknowledge> releaseFuture = slotPoolGateway.releaseTaskManager(resourceID, cause);
 
 		Tuple2<TaskManagerLocation, TaskExecutorGateway> taskManagerConnection = registeredTaskManagers.remove(resourceID);
@@ -1712,6 +1719,12 @@ public class JobMaster extends FencedRpcEndpoint<JobMasterId> implements JobMast
 			for (AccumulatorSnapshot snapshot : payload.getAccumulatorSnapshots()) {
 				executionGraph.updateAccumulators(snapshot);
 			}
+
+			if (logSizeCheckpointTrigger.isEnabled()) {
+				logSizeCheckpointTrigger.reportLogSizes(
+					resourceID, payload.getCausalLogBytes(), payload.getInFlightLogBytes());
+				logSizeCheckpointTrigger.maybeTriggerCheckpoint(executionGraph.getCheckpointCoordinator());
+			}
 		}
 
 		@Override
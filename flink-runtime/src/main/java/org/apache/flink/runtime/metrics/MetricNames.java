@@ -53,6 +53,19 @@ public class MetricNames {
 	public static final String IO_CURRENT_INPUT_2_WATERMARK = "currentInput2Watermark";
 	public static final String IO_CURRENT_OUTPUT_WATERMARK = "currentOutputWatermark";
 
+	public static final String RECOVERY_STATE = "recoveryState";
+	public static final String RECOVERY_STANDBY_TIME = "standbyTime";
+	public static final String RECOVERY_WAITING_CONNECTIONS_TIME = "waitingConnectionsTime";
+	public static final String RECOVERY_WAITING_DETERMINANTS_TIME = "waitingDeterminantsTime";
+	public static final String RECOVERY_REPLAYING_TIME = "replayingTime";
+	public static final String RECOVERY_DETERMINANT_BYTES_RECEIVED = "determinantBytesReceived";
+	public static final String RECOVERY_REMAINING_DETERMINANT_BYTES = "remainingDeterminantBytes";
+	public static final String RECOVERY_NUM_DETERMINANTS_REPLAYED = "numDeterminantsReplayed";
+	public static final String RECOVERY_NUM_DETERMINANTS_REPLAYED_RATE = RECOVERY_NUM_DETERMINANTS_REPLAYED + SUFFIX_RATE;
+	public static final String RECOVERY_NUM_IN_FLIGHT_BUFFERS_REPLAYED = "numInFlightBuffersReplayed";
+	public static final String RECOVERY_NUM_IN_FLIGHT_BUFFERS_REPLAYED_RATE =
+		RECOVERY_NUM_IN_FLIGHT_BUFFERS_REPLAYED + SUFFIX_RATE;
+
 	public static final String NUM_RUNNING_JOBS = "numRunningJobs";
 	public static final String TASK_SLOTS_AVAILABLE = "taskSlotsAvailable";
 	public static final String TASK_SLOTS_TOTAL = "taskSlotsTotal";
@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.rest.handler.job;
+
+import org.apache.flink.api.common.time.Time;
+import org.apache.flink.runtime.executiongraph.AccessExecutionJobVertex;
+import org.apache.flink.runtime.metrics.MetricNames;
+import org.apache.flink.runtime.rest.handler.HandlerRequest;
+import org.apache.flink.runtime.rest.handler.RestHandlerException;
+import org.apache.flink.runtime.rest.handler.legacy.ExecutionGraphCache;
+import org.apache.flink.runtime.rest.handler.legacy.metrics.MetricFetcher;
+import org.apache.flink.runtime.rest.handler.legacy.metrics.MetricStore;
+import org.apache.flink.runtime.rest.messages.EmptyRequestBody;
+import org.apache.flink.runtime.rest.messages.JobIDPathParameter;
+import org.apache.flink.runtime.rest.messages.JobVertexMessageParameters;
+import org.apache.flink.runtime.rest.messages.JobVertexRecoveryInfo;
+import org.apache.flink.runtime.rest.messages.MessageHeaders;
+import org.apache.flink.runtime.webmonitor.RestfulGateway;
+import org.apache.flink.runtime.webmonitor.retriever.GatewayRetriever;
+import org.apache.flink.util.Preconditions;
+
+import javax.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Request handler for the live recovery progress of the subtasks of a job vertex, as reported by their recovery
+ * metrics.
+ */
+public class JobVertexRecoveryHandler extends AbstractJobVertexHandler<JobVertexRecoveryInfo, JobVertexMessageParameters> {
+
+	private final MetricFetcher<?> metricFetcher;
+
+	public JobVertexRecoveryHandler(
+			CompletableFuture<String> localRestAddress,
+			GatewayRetriever<? extends RestfulGateway> leaderRetriever,
+			Time timeout,
+			Map<String, String> responseHeaders,
+			MessageHeaders<EmptyRequestBody, JobVertexRecoveryInfo, JobVertexMessageParameters> messageHeaders,
+			ExecutionGraphCache executionGraphCache,
+			Executor executor,
+			MetricFetcher<?> metricFetcher) {
+		super(
+			localRestAddress,
+			leaderRetriever,
+			timeout,
+			responseHeaders,
+			messageHeaders,
+			executionGraphCache,
+			executor);
+		this.metricFetcher = Preconditions.checkNotNull(metricFetcher);
+	}
+
+	@Override
+	protected JobVertexRecoveryInfo handleRequest(
+			HandlerRequest<EmptyRequestBody, JobVertexMessageParameters> request,
+			AccessExecutionJobVertex jobVertex) throws RestHandlerException {
+
+		metricFetcher.update();
+		final MetricStore metricStore = metricFetcher.getMetricStore();
+		final String jobID = request.getPathParameter(JobIDPathParameter.class).toString();
+		final String vertexID = jobVertex.getJobVertexId().toString();
+
+		final List<JobVertexRecoveryInfo.SubtaskRecoveryInfo> subtasks = new ArrayList<>(jobVertex.getParallelism());
+		for (int subtask = 0; subtask < jobVertex.getParallelism(); subtask++) {
+			subtasks.add(createSubtaskRecoveryInfo(subtask,
+				metricStore.getSubtaskMetricStore(jobID, vertexID, subtask)));
+		}
+
+		return new JobVertexRecoveryInfo(System.currentTimeMillis(), subtasks);
+	}
+
+	private static JobVertexRecoveryInfo.SubtaskRecoveryInfo createSubtaskRecoveryInfo(
+			int subtask,
+			@Nullable MetricStore.ComponentMetricStore metrics) {
+		if (metrics == null) {
+			return new JobVertexRecoveryInfo.SubtaskRecoveryInfo(subtask, null, 0L, 0L, 0L, 0L, 0L, 0L, 0.0, 0.0);
+		}
+
+		return new JobVertexRecoveryInfo.SubtaskRecoveryInfo(
+			subtask,
+			metrics.getMetric(MetricNames.RECOVERY_STATE),
+			getLong(metrics, MetricNames.RECOVERY_STANDBY_TIME),
+			getLong(metrics, MetricNames.RECOVERY_WAITING_CONNECTIONS_TIME),
+			getLong(metrics, MetricNames.RECOVERY_WAITING_DETERMINANTS_TIME),
+			getLong(metrics, MetricNames.RECOVERY_REPLAYING_TIME),
+			getLong(metrics, MetricNames.RECOVERY_DETERMINANT_BYTES_RECEIVED),
+			getLong(metrics, MetricNames.RECOVERY_REMAINING_DETERMINANT_BYTES),
+			getDouble(metrics, MetricNames.RECOVERY_NUM_DETERMINANTS_REPLAYED_RATE),
+			getDouble(metrics, MetricNames.RECOVERY_NUM_IN_FLIGHT_BUFFERS_REPLAYED_RATE));
+	}
+
+	private static long getLong(MetricStore.ComponentMetricStore metrics, String name) {
+		return Long.valueOf(metrics.getMetric(name, "0"));
+	}
+
+	private static double getDouble(MetricStore.ComponentMetricStore metrics, String name) {
+		return Double.valueOf(metrics.getMetric(name, "0"));
+	}
+}
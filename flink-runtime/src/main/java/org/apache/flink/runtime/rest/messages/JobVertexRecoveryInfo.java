@@ -0,0 +1,228 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.rest.messages;
+
+import org.apache.flink.runtime.rest.handler.job.JobVertexRecoveryHandler;
+
+import org.apache.flink.shaded.jackson2.com.fasterxml.jackson.annotation.JsonCreator;
+import org.apache.flink.shaded.jackson2.com.fasterxml.jackson.annotation.JsonInclude;
+import org.apache.flink.shaded.jackson2.com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.annotation.Nullable;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * Response type of the {@link JobVertexRecoveryHandler}.
+ */
+public class JobVertexRecoveryInfo implements ResponseBody {
+
+	public static final String FIELD_NAME_TIMESTAMP = "now";
+	public static final String FIELD_NAME_SUBTASKS = "subtasks";
+
+	@JsonProperty(FIELD_NAME_TIMESTAMP)
+	private final long timestamp;
+
+	@JsonProperty(FIELD_NAME_SUBTASKS)
+	private final List<SubtaskRecoveryInfo> subtasks;
+
+	@JsonCreator
+	public JobVertexRecoveryInfo(
+			@JsonProperty(FIELD_NAME_TIMESTAMP) long timestamp,
+			@JsonProperty(FIELD_NAME_SUBTASKS) List<SubtaskRecoveryInfo> subtasks) {
+		this.timestamp = timestamp;
+		this.subtasks = checkNotNull(subtasks);
+	}
+
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	public List<SubtaskRecoveryInfo> getSubtasks() {
+		return Collections.unmodifiableList(subtasks);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (o == null || getClass() != o.getClass()) {
+			return false;
+		}
+		JobVertexRecoveryInfo that = (JobVertexRecoveryInfo) o;
+		return timestamp == that.timestamp &&
+			Objects.equals(subtasks, that.subtasks);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(timestamp, subtasks);
+	}
+
+	//---------------------------------------------------------------------------------
+	// Static helper classes
+	//---------------------------------------------------------------------------------
+
+	/**
+	 * Nested class to encapsulate the recovery progress of a subtask. Times are in milliseconds, the state is absent
+	 * if the subtask did not report its metrics yet.
+	 */
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	public static final class SubtaskRecoveryInfo {
+
+		public static final String FIELD_NAME_SUBTASK = "subtask";
+		public static final String FIELD_NAME_STATE = "state";
+		public static final String FIELD_NAME_STANDBY_TIME = "standby-time";
+		public static final String FIELD_NAME_WAITING_CONNECTIONS_TIME = "waiting-connections-time";
+		public static final String FIELD_NAME_WAITING_DETERMINANTS_TIME = "waiting-determinants-time";
+		public static final String FIELD_NAME_REPLAYING_TIME = "replaying-time";
+		public static final String FIELD_NAME_DETERMINANT_BYTES_RECEIVED = "determinant-bytes-received";
+		public static final String FIELD_NAME_REMAINING_DETERMINANT_BYTES = "remaining-determinant-bytes";
+		public static final String FIELD_NAME_DETERMINANTS_REPLAYED_RATE = "determinants-replayed-per-second";
+		public static final String FIELD_NAME_IN_FLIGHT_BUFFERS_REPLAYED_RATE = "in-flight-buffers-replayed-per-second";
+
+		@JsonProperty(FIELD_NAME_SUBTASK)
+		private final int subtask;
+
+		@JsonProperty(FIELD_NAME_STATE)
+		private final String state;
+
+		@JsonProperty(FIELD_NAME_STANDBY_TIME)
+		private final long standbyTime;
+
+		@JsonProperty(FIELD_NAME_WAITING_CONNECTIONS_TIME)
+		private final long waitingConnectionsTime;
+
+		@JsonProperty(FIELD_NAME_WAITING_DETERMINANTS_TIME)
+		private final long waitingDeterminantsTime;
+
+		@JsonProperty(FIELD_NAME_REPLAYING_TIME)
+		private final long replayingTime;
+
+		@JsonProperty(FIELD_NAME_DETERMINANT_BYTES_RECEIVED)
+		private final long determinantBytesReceived;
+
+		@JsonProperty(FIELD_NAME_REMAINING_DETERMINANT_BYTES)
+		private final long remainingDeterminantBytes;
+
+		@JsonProperty(FIELD_NAME_DETERMINANTS_REPLAYED_RATE)
+		private final double determinantsReplayedRate;
+
+		@JsonProperty(FIELD_NAME_IN_FLIGHT_BUFFERS_REPLAYED_RATE)
+		private final double inFlightBuffersReplayedRate;
+
+		@JsonCreator
+		public SubtaskRecoveryInfo(
+				@JsonProperty(FIELD_NAME_SUBTASK) int subtask,
+				@Nullable @JsonProperty(FIELD_NAME_STATE) String state,
+				@JsonProperty(FIELD_NAME_STANDBY_TIME) long standbyTime,
+				@JsonProperty(FIELD_NAME_WAITING_CONNECTIONS_TIME) long waitingConnectionsTime,
+				@JsonProperty(FIELD_NAME_WAITING_DETERMINANTS_TIME) long waitingDeterminantsTime,
+				@JsonProperty(FIELD_NAME_REPLAYING_TIME) long replayingTime,
+				@JsonProperty(FIELD_NAME_DETERMINANT_BYTES_RECEIVED) long determinantBytesReceived,
+				@JsonProperty(FIELD_NAME_REMAINING_DETERMINANT_BYTES) long remainingDeterminantBytes,
+				@JsonProperty(FIELD_NAME_DETERMINANTS_REPLAYED_RATE) double determinantsReplayedRate,
+				@JsonProperty(FIELD_NAME_IN_FLIGHT_BUFFERS_REPLAYED_RATE) double inFlightBuffersReplayedRate) {
+			this.subtask = subtask;
+			this.state = state;
+			this.standbyTime = standbyTime;
+			this.waitingConnectionsTime = waitingConnectionsTime;
+			this.waitingDeterminantsTime = waitingDeterminantsTime;
+			this.replayingTime = replayingTime;
+			this.determinantBytesReceived = determinantBytesReceived;
+			this.remainingDeterminantBytes = remainingDeterminantBytes;
+			this.determinantsReplayedRate = determinantsReplayedRate;
+			this.inFlightBuffersReplayedRate = inFlightBuffersReplayedRate;
+		}
+
+		public int getSubtask() {
+			return subtask;
+		}
+
+		@Nullable
+		public String getState() {
+			return state;
+		}
+
+		public long getStandbyTime() {
+			return standbyTime;
+		}
+
+		public long getWaitingConnectionsTime() {
+			return waitingConnectionsTime;
+		}
+
+		public long getWaitingDeterminantsTime() {
+			return waitingDeterminantsTime;
+		}
+
+		public long getReplayingTime() {
+			return replayingTime;
+		}
+
+		public long getDeterminantBytesReceived() {
+			return determinantBytesReceived;
+		}
+
+		public long getRemainingDeterminantBytes() {
+			return remainingDeterminantBytes;
+		}
+
+		public double getDeterminantsReplayedRate() {
+			return determinantsReplayedRate;
+		}
+
+		public double getInFlightBuffersReplayedRate() {
+			return inFlightBuffersReplayedRate;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (o == null || getClass() != o.getClass()) {
+				return false;
+			}
+			SubtaskRecoveryInfo that = (SubtaskRecoveryInfo) o;
+			return subtask == that.subtask &&
+				standbyTime == that.standbyTime &&
+				waitingConnectionsTime == that.waitingConnectionsTime &&
+				waitingDeterminantsTime == that.waitingDeterminantsTime &&
+				replayingTime == that.replayingTime &&
+				determinantBytesReceived == that.determinantBytesReceived &&
+				remainingDeterminantBytes == that.remainingDeterminantBytes &&
+				determinantsReplayedRate == that.determinantsReplayedRate &&
+				inFlightBuffersReplayedRate == that.inFlightBuffersReplayedRate &&
+				Objects.equals(state, that.state);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(subtask, state, standbyTime, waitingConnectionsTime, waitingDeterminantsTime,
+				replayingTime, determinantBytesReceived, remainingDeterminantBytes, determinantsReplayedRate,
+				inFlightBuffersReplayedRate);
+		}
+	}
+}
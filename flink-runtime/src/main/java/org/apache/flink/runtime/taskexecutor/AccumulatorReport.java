@@ -25,16 +25,38 @@ import java.util.Collection;
 import java.util.List;
 
 /**
- * A report about the current values of all accumulators of the TaskExecutor for a given job.
+ * A report about the current values of all accumulators of the TaskExecutor for a given job, together with the
+ * sizes of the job's causal and in-flight logs on the TaskExecutor.
  */
 public class AccumulatorReport implements Serializable {
 	private final Collection<AccumulatorSnapshot> accumulatorSnapshots;
 
+	// The bytes held by the causal logs of the job, -1 if unknown
+	private final long causalLogBytes;
+
+	// The bytes held by the in-flight logs of the job's tasks, -1 if unknown
+	private final long inFlightLogBytes;
+
 	public AccumulatorReport(List<AccumulatorSnapshot> accumulatorSnapshots) {
+		this(accumulatorSnapshots, -1L, -1L);
+	}
+
+	public AccumulatorReport(List<AccumulatorSnapshot> accumulatorSnapshots, long causalLogBytes,
+							 long inFlightLogBytes) {
 		this.accumulatorSnapshots = accumulatorSnapshots;
+		this.causalLogBytes = causalLogBytes;
+		this.inFlightLogBytes = inFlightLogBytes;
 	}
 
 	public Collection<AccumulatorSnapshot> getAccumulatorSnapshots() {
 		return accumulatorSnapshots;
 	}
+
+	public long getCausalLogBytes() {
+		return causalLogBytes;
+	}
+
+	public long getInFlightLogBytes() {
+		return inFlightLogBytes;
+	}
 }
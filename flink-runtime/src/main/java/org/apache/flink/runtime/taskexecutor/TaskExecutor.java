@@ -25,6 +25,8 @@ import org.apache.flink.runtime.accumulators.AccumulatorSnapshot;
 import org.apache.flink.runtime.blob.BlobCacheService;
 import org.apache.flink.runtime.blob.TransientBlobCache;
 import org.apache.flink.runtime.blob.TransientBlobKey;
+import org.apache.flink.runtime.causal.log.CausalLogManager;
+import org.apache.flink.runtime.causal.log.job.JobCausalLog;
 import org.apache.flink.runtime.checkpoint.CheckpointOptions;
 import org.apache.flink.runtime.checkpoint.JobManagerTaskRestore;
 import org.apache.flink.runtime.clusterframework.types.AllocationID;
@@ -50,6 +52,7 @@ import org.apache.flink.runtime.instance.HardwareDescription;
 import org.apache.flink.runtime.instance.InstanceID;
 import org.apache.flink.runtime.io.network.NetworkEnvironment;
 import org.apache.flink.runtime.io.network.netty.PartitionProducerStateChecker;
+import org.apache.flink.runtime.io.network.partition.ResultPartition;
 import org.apache.flink.runtime.io.network.partition.ResultPartitionConsumableNotifier;
 import org.apache.flink.runtime.io.network.partition.ResultPartitionID;
 import org.apache.flink.runtime.io.network.partition.consumer.SingleInputGate;
@@ -1714,12 +1717,20 @@ public class TaskExecutor extends RpcEndpoint implements TaskExecutorGateway {
 
 				List<AccumulatorSnapshot> accumulatorSnapshots = new ArrayList<>(16);
 				Iterator<Task> allTasks = taskSlotTable.getTasks(jobId);
+				long inFlightLogBytes = 0;
 
 				while (allTasks.hasNext()) {
 					Task task = allTasks.next();
 					accumulatorSnapshots.add(task.getAccumulatorRegistry().getSnapshot());
+					for (ResultPartition partition : task.getProducedPartitions())
+						inFlightLogBytes += partition.getInFlightLogSizeInBytes();
 				}
-				return CompletableFuture.completedFuture(new AccumulatorReport(accumulatorSnapshots));
+
+				CausalLogManager causalLogManager = networkEnvironment.getCausalLogManager();
+				JobCausalLog jobCausalLog = causalLogManager != null ? causalLogManager.getJobCausalLog(jobId) : null;
+				long causalLogBytes = jobCausalLog != null ? jobCausalLog.totalLogLength() : 0;
+				return CompletableFuture.completedFuture(
+					new AccumulatorReport(accumulatorSnapshots, causalLogBytes, inFlightLogBytes));
 			} else {
 				return CompletableFuture.completedFuture(new AccumulatorReport(Collections.emptyList()));
 			}
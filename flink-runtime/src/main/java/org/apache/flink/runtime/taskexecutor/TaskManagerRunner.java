@@ -375,6 +375,10 @@ public class TaskManagerRunner implements FatalErrorHandler, AutoCloseableAsync
 			taskManagerServices.getNetworkEnvironment(),
 			taskManagerServicesConfiguration.getSystemResourceMetricsProbingInterval());
 
+		taskManagerServices.getInFlightLogFactory().registerMetrics(taskManagerMetricGroup.addGroup("InFlightLog"));
+		taskManagerServices.getNetworkEnvironment().getCausalLogManager().registerMetrics(
+			taskManagerMetricGroup.addGroup("CausalLog"));
+
 		TaskManagerConfiguration taskManagerConfiguration = TaskManagerConfiguration.fromConfiguration(configuration);
 
 		String metricQueryServicePath = metricRegistry.getMetricQueryServicePath();
@@ -182,6 +182,12 @@ public class TaskManagerServices {
 			exception = ExceptionUtils.firstOrSuppressed(e, exception);
 		}
 
+		try {
+			inFlightLogFactory.shutdown();
+		} catch (Exception e) {
+			exception = ExceptionUtils.firstOrSuppressed(e, exception);
+		}
+
 		try {
 			ioManager.shutdown();
 		} catch (Exception e) {
@@ -236,7 +242,11 @@ public class TaskManagerServices {
 		// pre-start checks
 		checkTempDirs(taskManagerServicesConfiguration.getTmpDirPaths());
 
-		final NetworkEnvironment network = createNetworkEnvironment(taskManagerServicesConfiguration, maxJvmHeapMemory);
+		// start the I/O manager, it will create some temp directories.
+		final IOManager ioManager = new IOManagerAsync(taskManagerServicesConfiguration.getTmpDirPaths());
+
+		final NetworkEnvironment network = createNetworkEnvironment(taskManagerServicesConfiguration, maxJvmHeapMemory,
+			ioManager);
 		network.start();
 
 		final TaskManagerLocation taskManagerLocation = new TaskManagerLocation(
@@ -247,9 +257,6 @@ public class TaskManagerServices {
 		// this call has to happen strictly after the network stack has been initialized
 		final MemoryManager memoryManager = createMemoryManager(taskManagerServicesConfiguration, freeHeapMemoryWithDefrag, maxJvmHeapMemory);
 
-		// start the I/O manager, it will create some temp directories.
-		final IOManager ioManager = new IOManagerAsync(taskManagerServicesConfiguration.getTmpDirPaths());
-
 		final InFlightLogFactory inFlightLogFactory = new InFlightLogFactoryImpl(taskManagerServicesConfiguration.getInFlightLogConfig(), ioManager, network.getNetworkBufferPool());
 
 		final BroadcastVariableManager broadcastVariableManager = new BroadcastVariableManager();
@@ -391,12 +398,14 @@ public class TaskManagerServices {
 	 *
 	 * @param taskManagerServicesConfiguration to construct the network environment from
 	 * @param maxJvmHeapMemory the maximum JVM heap size
+	 * @param ioManager to spill determinants with
 	 * @return Network environment
 	 * @throws IOException
 	 */
 	private static NetworkEnvironment createNetworkEnvironment(
 			TaskManagerServicesConfiguration taskManagerServicesConfiguration,
-			long maxJvmHeapMemory) {
+			long maxJvmHeapMemory,
+			IOManager ioManager) {
 
 		NetworkEnvironmentConfiguration networkEnvironmentConfiguration = taskManagerServicesConfiguration.getNetworkConfig();
 
@@ -431,9 +440,14 @@ public class TaskManagerServices {
 		int numDeterminantBuffersPerJob = nettyConfig.getNumDeterminantBuffersPerJob();
 		DeltaEncodingStrategy deltaEncodingStrategy = nettyConfig.getDeltaEncodingStrategy();
 		boolean enableDeltaSharingOptimizations = nettyConfig.getEnableDeltaSharingOptimizations();
+		boolean enableOrderDeterminantRunLengthEncoding = nettyConfig.getEnableOrderDeterminantRunLengthEncoding();
+		boolean enableSingleWriterCausalLogs = nettyConfig.getEnableSingleWriterCausalLogs();
+		long deltaPiggybackIntervalMicros = nettyConfig.getDeltaPiggybackIntervalMicros();
+		long deltaPiggybackMaxBytes = nettyConfig.getDeltaPiggybackMaxBytes();
+		float determinantSpillThreshold = nettyConfig.getDeterminantSpillThreshold();
 
 
-		CausalLogManager causalLogManager = new CausalLogManager(determinantBufferPool, numDeterminantBuffersPerJob, deltaEncodingStrategy, enableDeltaSharingOptimizations);
+		CausalLogManager causalLogManager = new CausalLogManager(determinantBufferPool, numDeterminantBuffersPerJob, deltaEncodingStrategy, enableDeltaSharingOptimizations, enableOrderDeterminantRunLengthEncoding, enableSingleWriterCausalLogs, deltaPiggybackIntervalMicros, deltaPiggybackMaxBytes, ioManager, determinantSpillThreshold);
 
 		if (nettyConfig != null) {
 			connectionManager = new NettyConnectionManager(nettyConfig, causalLogManager);
@@ -52,6 +52,7 @@ import org.apache.flink.runtime.inflightlogging.InFlightLogFactory;
 import org.apache.flink.runtime.inflightlogging.InMemoryInFlightLogFactory;
 import org.apache.flink.runtime.io.disk.iomanager.IOManager;
 import org.apache.flink.runtime.io.network.NetworkEnvironment;
+import org.apache.flink.runtime.io.network.netty.NettyConfig;
 import org.apache.flink.runtime.io.network.netty.PartitionProducerStateChecker;
 import org.apache.flink.runtime.io.network.partition.ResultPartition;
 import org.apache.flink.runtime.io.network.partition.ResultPartitionConsumableNotifier;
@@ -525,6 +526,8 @@ public class Task implements Runnable, TaskActions, CheckpointListener {
 
 		int counter = 0;
 
+		final boolean isBufferCompressionEnabled = NettyConfig.isBufferCompressionEnabled(jobConfiguration, tmConfig);
+
 		for (ResultPartitionDeploymentDescriptor desc : resultPartitionDeploymentDescriptors) {
 			ResultPartitionID partitionId = new ResultPartitionID(desc.getPartitionId(), executionId);
 
@@ -543,6 +546,7 @@ public class Task implements Runnable, TaskActions, CheckpointListener {
 				inFlightLogFactory,
 				desc.sendScheduleOrUpdateConsumersMessage()
 			);
+			this.producedPartitions[counter].setBufferCompressionEnabled(isBufferCompressionEnabled);
 
 			++counter;
 		}
@@ -553,6 +557,8 @@ public class Task implements Runnable, TaskActions, CheckpointListener {
 
 		counter = 0;
 
+		final boolean isBufferDebloatingEnabled = NettyConfig.isBufferDebloatingEnabled(jobConfiguration, tmConfig);
+
 		for (InputGateDeploymentDescriptor inputGateDeploymentDescriptor : inputGateDeploymentDescriptors) {
 			SingleInputGate gate = SingleInputGate.create(
 				taskNameWithSubtaskAndId,
@@ -562,6 +568,10 @@ public class Task implements Runnable, TaskActions, CheckpointListener {
 				networkEnvironment,
 				this,
 				metricGroup.getIOMetricGroup());
+			if (isBufferDebloatingEnabled) {
+				gate.setBufferDebloater(NettyConfig.createBufferDebloater(tmConfig,
+					networkEnvironment.getNetworkBufferPool().getMemorySegmentSize()));
+			}
 
 			inputGates[counter] = gate;
 			inputGatesById.put(gate.getConsumedResultId(), gate);
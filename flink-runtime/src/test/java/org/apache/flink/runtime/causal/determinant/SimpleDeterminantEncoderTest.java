@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.causal.determinant;
+
+import org.apache.flink.api.common.typeutils.base.StringSerializer;
+import org.apache.flink.core.memory.DataInputDeserializer;
+import org.apache.flink.core.memory.DataOutputSerializer;
+import org.apache.flink.runtime.checkpoint.CheckpointType;
+import org.apache.flink.shaded.netty4.io.netty.buffer.ByteBuf;
+import org.apache.flink.shaded.netty4.io.netty.buffer.Unpooled;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SimpleDeterminantEncoderTest {
+
+	@Test
+	public void testTypedSerializableDeterminantRoundTrip() throws Exception {
+		DeterminantEncoder encoder = new SimpleDeterminantEncoder();
+		DataOutputSerializer serializationBuffer = new DataOutputSerializer(16);
+		StringSerializer.INSTANCE.serialize("nondeterministic", serializationBuffer);
+
+		TypedSerializableDeterminant determinant = new TypedSerializableDeterminant()
+			.replace(300, serializationBuffer.getSharedBuffer(), serializationBuffer.length());
+
+		ByteBuf buf = Unpooled.buffer();
+		encoder.encodeTo(determinant, buf);
+		// tag (1), service ID (2), length (1)
+		assertEquals(1 + 2 + 1 + serializationBuffer.length(), buf.readableBytes());
+		assertEquals(buf.readableBytes(), encoder.getEncodedSizeInBytes(determinant));
+
+		TypedSerializableDeterminant decoded = encoder.decodeNext(buf).asTypedSerializableDeterminant();
+		assertFalse(buf.isReadable());
+		assertEquals(300, decoded.getServiceID());
+		DataInputDeserializer deserializer = new DataInputDeserializer(decoded.getSerializedValue(), 0,
+			decoded.getLength());
+		assertEquals("nondeterministic", StringSerializer.INSTANCE.deserialize(deserializer));
+	}
+
+	@Test
+	public void testEncodedSizeOfNext() {
+		Determinant[] determinants = new Determinant[]{
+			new OrderDeterminant(300), new OrderDeterminant(5, 7), new TimestampDeterminant(11L),
+			new RNGDeterminant(13), new BufferBuiltDeterminant(17), new SerializableDeterminant("value"),
+			new TypedSerializableDeterminant().replace(300, new byte[200], 200),
+			new TimerTriggerDeterminant(19, new ProcessingTimeCallbackID("timer"), 23L),
+			new TimerTriggerDeterminant(29, new ProcessingTimeCallbackID(ProcessingTimeCallbackID.Type.WATERMARK), 31L),
+			new SourceCheckpointDeterminant(37, 41L, 43L, CheckpointType.CHECKPOINT, new byte[]{1, 2}),
+			new SourceCheckpointDeterminant(47, 53L, 59L, CheckpointType.CHECKPOINT, null),
+			new IgnoreCheckpointDeterminant(61, 67L)};
+
+		for (DeterminantEncoder encoder : new DeterminantEncoder[]{
+			new SimpleDeterminantEncoder(), new SimpleDeterminantEncoder(true, true)}) {
+			for (Determinant determinant : determinants) {
+				ByteBuf buf = Unpooled.buffer();
+				encoder.encodeTo(determinant, buf);
+				int size = buf.readableBytes();
+				assertEquals(determinant.toString(), size, encoder.getEncodedSizeOfNext(buf));
+
+				// The size is either unknown or the full size for any received prefix
+				for (int prefix = 0; prefix < size; prefix++) {
+					int sizeOfPrefix = encoder.getEncodedSizeOfNext(buf.slice(0, prefix));
+					assertTrue(sizeOfPrefix == -1 || sizeOfPrefix == size);
+				}
+
+				encoder.decodeNext(buf);
+				assertFalse(buf.isReadable());
+			}
+		}
+	}
+
+	@Test
+	public void testTypedSerializableDeterminantByteArrayEncoding() {
+		DeterminantEncoder encoder = new SimpleDeterminantEncoder();
+		byte[] value = new byte[]{1, 2, 3};
+		TypedSerializableDeterminant determinant = new TypedSerializableDeterminant().replace(1, value, 3);
+
+		byte[] encoded = encoder.encode(determinant);
+		assertEquals(1 + 1 + 1 + 3, encoded.length);
+
+		TypedSerializableDeterminant decoded =
+			encoder.decodeNext(Unpooled.wrappedBuffer(encoded)).asTypedSerializableDeterminant();
+		assertEquals(1, decoded.getServiceID());
+		assertEquals(3, decoded.getLength());
+		assertEquals(3, decoded.getSerializedValue()[2]);
+	}
+}
@@ -0,0 +1,54 @@
+/*
+ *
+ *
+ *
+ *  * Licensed to the Apache Software Foundation (ASF) under one
+ *  * or more contributor license agreements.  See the NOTICE file
+ *  * distributed with this work for additional information
+ *  * regarding copyright ownership.  The ASF licenses this file
+ *  * to you under the Apache License, Version 2.0 (the
+ *  * "License"); you may not use this file except in compliance
+ *  * with the License.  You may obtain a copy of the License at
+ *  *
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ *
+ *
+ *
+ */
+
+package org.apache.flink.runtime.causal.log.job;
+
+import org.apache.flink.core.memory.DataInputDeserializer;
+import org.apache.flink.core.memory.DataOutputSerializer;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link CausalLogID}.
+ */
+public class CausalLogIDTest {
+
+	@Test
+	public void testSerializationOfSubpartitionIndexAboveByteRange() throws Exception {
+		CausalLogID id = new CausalLogID((short) 2, 11L, 13L, (short) 300);
+
+		DataOutputSerializer out = new DataOutputSerializer(64);
+		id.write(out);
+
+		CausalLogID read = new CausalLogID();
+		read.read(new DataInputDeserializer(out.getCopyOfBuffer()));
+
+		assertEquals(id, read);
+		assertEquals(300, read.getSubpartitionIndex());
+		assertTrue(read.isForSubpartition((short) 300));
+	}
+}
@@ -0,0 +1,217 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.causal.log.thread;
+
+import org.apache.flink.runtime.causal.determinant.BufferBuiltDeterminant;
+import org.apache.flink.runtime.causal.determinant.DeterminantEncoder;
+import org.apache.flink.runtime.causal.determinant.SimpleDeterminantEncoder;
+import org.apache.flink.runtime.causal.log.job.CausalLogID;
+import org.apache.flink.runtime.io.disk.iomanager.IOManager;
+import org.apache.flink.runtime.io.disk.iomanager.IOManagerAsync;
+import org.apache.flink.runtime.io.network.buffer.BufferPool;
+import org.apache.flink.runtime.io.network.buffer.NetworkBufferPool;
+import org.apache.flink.runtime.io.network.partition.consumer.InputChannelID;
+import org.apache.flink.shaded.netty4.io.netty.buffer.ByteBuf;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SingleWriterThreadCausalLogTest {
+
+	// Small segments, so that determinants (5 bytes each) regularly straddle two of them
+	private static final int SEGMENT_SIZE = 32;
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private NetworkBufferPool networkBufferPool;
+	private BufferPool bufferPool;
+	private DeterminantEncoder encoder;
+
+	@Before
+	public void setup() throws Exception {
+		networkBufferPool = new NetworkBufferPool(64, SEGMENT_SIZE);
+		bufferPool = networkBufferPool.createBufferPool(64, 64);
+		encoder = new SimpleDeterminantEncoder();
+	}
+
+	@After
+	public void teardown() {
+		bufferPool.lazyDestroy();
+		networkBufferPool.destroy();
+	}
+
+	@Test
+	public void testDeterminantsSpanningSegments() {
+		ThreadCausalLog log = new SingleWriterThreadCausalLog(bufferPool, new CausalLogID((short) 0), -1, encoder);
+
+		BufferBuiltDeterminant reuse = new BufferBuiltDeterminant();
+		for (int i = 0; i < 100; i++)
+			log.appendDeterminant(reuse.replace(i), 0);
+
+		assertEquals(100 * 5, log.logLength());
+
+		ByteBuf determinants = log.getDeterminants(0);
+		for (int i = 0; i < 100; i++)
+			assertEquals(i, encoder.decodeNext(determinants).asBufferBuiltDeterminant().getNumberOfBytes());
+		assertFalse(determinants.isReadable());
+		determinants.release();
+	}
+
+	@Test
+	public void testCheckpointCompletionReleasesSegments() {
+		ThreadCausalLog log = new SingleWriterThreadCausalLog(bufferPool, new CausalLogID((short) 0), -1, encoder);
+
+		BufferBuiltDeterminant reuse = new BufferBuiltDeterminant();
+		for (int i = 0; i < 100; i++)
+			log.appendDeterminant(reuse.replace(i), 0);
+		for (int i = 0; i < 3; i++)
+			log.appendDeterminant(reuse.replace(i), 1);
+
+		int availableBefore = bufferPool.getNumberOfAvailableMemorySegments();
+		log.notifyCheckpointComplete(1);
+		assertTrue(bufferPool.getNumberOfAvailableMemorySegments() >= availableBefore + 100 * 5 / SEGMENT_SIZE);
+
+		assertEquals(3 * 5, log.logLength());
+		ByteBuf determinants = log.getDeterminants(1);
+		for (int i = 0; i < 3; i++)
+			assertEquals(i, encoder.decodeNext(determinants).asBufferBuiltDeterminant().getNumberOfBytes());
+		assertFalse(determinants.isReadable());
+		determinants.release();
+	}
+
+	@Test
+	public void testConsumedSegmentsAreSpilledAndPagedBackIn() throws Exception {
+		IOManager ioManager = new IOManagerAsync(temporaryFolder.newFolder().getAbsolutePath());
+		ThreadCausalLog log = new SingleWriterThreadCausalLog(bufferPool, new CausalLogID((short) 0), -1, encoder);
+		InputChannelID consumer = new InputChannelID();
+
+		BufferBuiltDeterminant reuse = new BufferBuiltDeterminant();
+		for (long epoch = 0; epoch < 3; epoch++)
+			for (int i = 0; i < 100; i++)
+				log.appendDeterminant(reuse.replace(i), epoch);
+		int logLength = log.logLength();
+		long memory = log.getMemoryInBytes();
+
+		// The consumer did not receive anything yet
+		assertTrue(log.hasDeltaForConsumer(consumer, 0));
+		assertEquals(0, log.spillConsumedEpochs(ioManager.createChannelEnumerator()));
+
+		// Only the full segments of the received epoch are spilled
+		log.getDeltaForConsumer(consumer, 0).release();
+		int spilled = log.spillConsumedEpochs(ioManager.createChannelEnumerator());
+		assertEquals(100 * 5 / SEGMENT_SIZE * SEGMENT_SIZE, spilled);
+		assertEquals(spilled, log.getSpilledBytes());
+		assertEquals(memory - spilled, log.getMemoryInBytes());
+		assertEquals(logLength, log.logLength());
+		assertDeterminants(log.getDeterminants(0), 0);
+
+		// Epoch 1 starts after the spilled segments, which are dropped with the spill file
+		log.notifyCheckpointComplete(1);
+		assertEquals(0, log.getSpilledBytes());
+		assertDeterminants(log.getDeterminants(1), 1);
+
+		log.unregisterConsumer(consumer);
+		assertTrue(log.spillConsumedEpochs(ioManager.createChannelEnumerator()) > 0);
+		assertDeterminants(log.getDeterminants(1), 1);
+		log.notifyCheckpointComplete(2);
+		assertEquals(0, log.getSpilledBytes());
+		assertDeterminants(log.getDeterminants(2), 2);
+
+		log.close();
+		ioManager.shutdown();
+	}
+
+	@Test
+	public void testConcurrentDeltaConsumer() throws Exception {
+		ThreadCausalLog log = new SingleWriterThreadCausalLog(bufferPool, new CausalLogID((short) 0), -1, encoder);
+		InputChannelID consumer = new InputChannelID();
+		// Must fit in the buffer pool, as nothing is truncated
+		int numDeterminants = 300;
+
+		AtomicReference<Throwable> error = new AtomicReference<>();
+		Thread reader = new Thread(() -> {
+			try {
+				int expected = 0;
+				while (expected < numDeterminants) {
+					if (!log.hasDeltaForConsumer(consumer, 0))
+						continue;
+					assertEquals(expected * 5, log.getOffsetFromEpochForConsumer(consumer, 0));
+					ByteBuf delta = log.getDeltaForConsumer(consumer, 0);
+					// Only whole determinants are ever published
+					assertEquals(0, delta.readableBytes() % 5);
+					while (delta.isReadable())
+						assertEquals(expected++,
+							encoder.decodeNext(delta).asBufferBuiltDeterminant().getNumberOfBytes());
+					delta.release();
+				}
+			} catch (Throwable t) {
+				error.set(t);
+			}
+		});
+		reader.start();
+
+		BufferBuiltDeterminant reuse = new BufferBuiltDeterminant();
+		for (int i = 0; i < numDeterminants; i++)
+			log.appendDeterminant(reuse.replace(i), 0);
+
+		reader.join();
+		assertNull(error.get());
+	}
+
+	@Test
+	public void testInterruptedSegmentRequestIsPropagated() {
+		ThreadCausalLog log = new SingleWriterThreadCausalLog(bufferPool, new CausalLogID((short) 0), -1, encoder);
+
+		// Exhaust the buffer pool, nothing is truncated
+		BufferBuiltDeterminant reuse = new BufferBuiltDeterminant();
+		int numDeterminants = 64 * SEGMENT_SIZE / 5;
+		for (int i = 0; i < numDeterminants; i++)
+			log.appendDeterminant(reuse.replace(i), 0);
+
+		Thread.currentThread().interrupt();
+		try {
+			log.appendDeterminant(reuse.replace(0), 0);
+			fail("Appending without a free segment should have failed");
+		} catch (RuntimeException e) {
+			assertTrue(e.getCause() instanceof InterruptedException);
+		} finally {
+			// Clear the interrupt flag restored by the log
+			assertTrue(Thread.interrupted());
+		}
+	}
+
+	private void assertDeterminants(ByteBuf determinants, long fromEpoch) {
+		for (long epoch = fromEpoch; epoch < 3; epoch++)
+			for (int i = 0; i < 100; i++)
+				assertEquals(i, encoder.decodeNext(determinants).asBufferBuiltDeterminant().getNumberOfBytes());
+		assertFalse(determinants.isReadable());
+		determinants.release();
+	}
+}
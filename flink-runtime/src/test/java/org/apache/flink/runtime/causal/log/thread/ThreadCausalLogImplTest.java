@@ -0,0 +1,228 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.causal.log.thread;
+
+import org.apache.flink.runtime.causal.determinant.DeterminantEncoder;
+import org.apache.flink.runtime.causal.determinant.OrderDeterminant;
+import org.apache.flink.runtime.causal.determinant.SimpleDeterminantEncoder;
+import org.apache.flink.runtime.causal.determinant.TimestampDeterminant;
+import org.apache.flink.runtime.causal.log.job.CausalLogID;
+import org.apache.flink.runtime.io.disk.iomanager.IOManager;
+import org.apache.flink.runtime.io.disk.iomanager.IOManagerAsync;
+import org.apache.flink.runtime.io.network.buffer.BufferPool;
+import org.apache.flink.runtime.io.network.buffer.NetworkBufferPool;
+import org.apache.flink.shaded.netty4.io.netty.buffer.ByteBuf;
+import org.apache.flink.shaded.netty4.io.netty.buffer.Unpooled;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ThreadCausalLogImplTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private NetworkBufferPool networkBufferPool;
+	private BufferPool bufferPool;
+
+	@Before
+	public void setup() throws Exception {
+		networkBufferPool = new NetworkBufferPool(10, 1024);
+		bufferPool = networkBufferPool.createBufferPool(10, 10);
+	}
+
+	@After
+	public void teardown() {
+		bufferPool.lazyDestroy();
+		networkBufferPool.destroy();
+	}
+
+	@Test
+	public void testOrderDeterminantsAreRunLengthEncoded() {
+		DeterminantEncoder encoder = new SimpleDeterminantEncoder(true, false);
+		ThreadCausalLog log = new ThreadCausalLogImpl(bufferPool, new CausalLogID((short) 0), -1, encoder);
+
+		OrderDeterminant reuse = new OrderDeterminant();
+		for (int i = 0; i < 5; i++)
+			log.appendOrderDeterminant(reuse.replace((byte) 1), 0);
+		log.appendOrderDeterminant(reuse.replace((byte) 2), 0);
+		log.appendDeterminant(new TimestampDeterminant(42L), 0);
+
+		// run (4) + single order determinant (2) + timestamp (9)
+		assertEquals(4 + 2 + 9, log.logLength());
+
+		ByteBuf determinants = log.getDeterminants(0);
+		OrderDeterminant run = encoder.decodeNext(determinants).asOrderDeterminant();
+		assertEquals(1, run.getChannel());
+		assertEquals(5, run.getRunLength());
+		OrderDeterminant single = encoder.decodeNext(determinants).asOrderDeterminant();
+		assertEquals(2, single.getChannel());
+		assertFalse(single.isRun());
+		assertEquals(42L, encoder.decodeNext(determinants).asTimestampDeterminant().getTimestamp());
+		assertFalse(determinants.isReadable());
+		determinants.release();
+	}
+
+	@Test
+	public void testRunsAreBrokenAtEpochBoundaries() {
+		DeterminantEncoder encoder = new SimpleDeterminantEncoder(true, false);
+		ThreadCausalLog log = new ThreadCausalLogImpl(bufferPool, new CausalLogID((short) 0), -1, encoder);
+
+		OrderDeterminant reuse = new OrderDeterminant();
+		for (int i = 0; i < 3; i++)
+			log.appendOrderDeterminant(reuse.replace((byte) 1), 0);
+		for (int i = 0; i < 3; i++)
+			log.appendOrderDeterminant(reuse.replace((byte) 1), 1);
+
+		log.notifyCheckpointComplete(1);
+
+		ByteBuf determinants = log.getDeterminants(1);
+		OrderDeterminant run = encoder.decodeNext(determinants).asOrderDeterminant();
+		assertTrue(run.isRun());
+		assertEquals(3, run.getRunLength());
+		assertFalse(determinants.isReadable());
+		determinants.release();
+	}
+
+	@Test
+	public void testVarIntChannelIndexes() {
+		DeterminantEncoder encoder = SimpleDeterminantEncoder.forMaxNumberOfInputChannels(1024, true);
+		ThreadCausalLog log = new ThreadCausalLogImpl(bufferPool, new CausalLogID((short) 0), -1, encoder);
+
+		OrderDeterminant reuse = new OrderDeterminant();
+		log.appendOrderDeterminant(reuse.replace(5), 0);
+		log.appendOrderDeterminant(reuse.replace(300), 0);
+		log.appendOrderDeterminant(reuse.replace(300), 0);
+		log.appendOrderDeterminant(reuse.replace(1023), 0);
+
+		// single (1 + 1), run (1 + 2 + 2), single (1 + 2)
+		assertEquals(2 + 5 + 3, log.logLength());
+
+		ByteBuf determinants = log.getDeterminants(0);
+		assertEquals(5, encoder.decodeNext(determinants).asOrderDeterminant().getChannel());
+		OrderDeterminant run = encoder.decodeNext(determinants).asOrderDeterminant();
+		assertEquals(300, run.getChannel());
+		assertEquals(2, run.getRunLength());
+		assertEquals(1023, encoder.decodeNext(determinants).asOrderDeterminant().getChannel());
+		assertFalse(determinants.isReadable());
+		determinants.release();
+	}
+
+	@Test
+	public void testRunLengthEncodingDisabled() {
+		DeterminantEncoder encoder = new SimpleDeterminantEncoder();
+		ThreadCausalLog log = new ThreadCausalLogImpl(bufferPool, new CausalLogID((short) 0), -1, encoder);
+
+		OrderDeterminant reuse = new OrderDeterminant();
+		for (int i = 0; i < 5; i++)
+			log.appendOrderDeterminant(reuse.replace((byte) 1), 0);
+
+		assertEquals(5 * 2, log.logLength());
+	}
+
+	@Test
+	public void testUpstreamDeltasAreRetainedAndCompacted() {
+		ThreadCausalLog log = new ThreadCausalLogImpl(bufferPool, new CausalLogID((short) 0), -1);
+
+		ByteBuf[] received = new ByteBuf[100];
+		for (int i = 0; i < received.length; i++) {
+			received[i] = receiveDelta(log, 0, i * Integer.BYTES, i);
+			// A resent delta does not add determinants
+			receiveDelta(log, 0, i * Integer.BYTES, i);
+		}
+
+		// The first 64 deltas were compacted, the remaining ones are still retained
+		assertEquals(0, received[0].refCnt());
+		assertEquals(1, received[99].refCnt());
+
+		ByteBuf determinants = log.getDeterminants(0);
+		for (int i = 0; i < received.length; i++)
+			assertEquals(i, determinants.readInt());
+		assertFalse(determinants.isReadable());
+		determinants.release();
+
+		ByteBuf nextEpoch = receiveDelta(log, 1, 0, 100);
+		log.notifyCheckpointComplete(1);
+		assertEquals(0, received[99].refCnt());
+		assertEquals(1, nextEpoch.refCnt());
+
+		determinants = log.getDeterminants(1);
+		assertEquals(100, determinants.readInt());
+		assertFalse(determinants.isReadable());
+		determinants.release();
+	}
+
+	@Test
+	public void testConsumedEpochsAreSpilledAndPagedBackIn() throws Exception {
+		IOManager ioManager = new IOManagerAsync(temporaryFolder.newFolder().getAbsolutePath());
+		DeterminantEncoder encoder = new SimpleDeterminantEncoder();
+		ThreadCausalLog log = new ThreadCausalLogImpl(bufferPool, new CausalLogID((short) 0), -1, encoder);
+
+		// 9 bytes per timestamp, so that every epoch spans more than a 1024 byte component
+		for (long epoch = 0; epoch < 3; epoch++)
+			for (int i = 0; i < 150; i++)
+				log.appendDeterminant(new TimestampDeterminant(epoch * 1000 + i), epoch);
+		int logLength = log.logLength();
+		long memory = log.getMemoryInBytes();
+
+		int spilled = log.spillConsumedEpochs(ioManager.createChannelEnumerator());
+		assertTrue(spilled >= 150 * 9);
+		assertEquals(spilled, log.getSpilledBytes());
+		assertTrue(log.getMemoryInBytes() < memory);
+		assertEquals(logLength, log.logLength());
+		assertDeterminants(encoder, log.getDeterminants(0), 0);
+
+		// Nothing more can be spilled before the latest epoch
+		assertEquals(0, log.spillConsumedEpochs(ioManager.createChannelEnumerator()));
+
+		// Epoch 1 starts within the spilled determinants, those of epoch 0 are dropped from the spill file
+		log.notifyCheckpointComplete(1);
+		assertEquals(spilled - 150 * 9, log.getSpilledBytes());
+		assertDeterminants(encoder, log.getDeterminants(1), 1);
+		log.notifyCheckpointComplete(2);
+		assertEquals(0, log.getSpilledBytes());
+		assertDeterminants(encoder, log.getDeterminants(2), 2);
+
+		log.close();
+		ioManager.shutdown();
+	}
+
+	private static void assertDeterminants(DeterminantEncoder encoder, ByteBuf determinants, long fromEpoch) {
+		for (long epoch = fromEpoch; epoch < 3; epoch++)
+			for (int i = 0; i < 150; i++)
+				assertEquals(epoch * 1000 + i, encoder.decodeNext(determinants).asTimestampDeterminant().getTimestamp());
+		assertFalse(determinants.isReadable());
+		determinants.release();
+	}
+
+	private static ByteBuf receiveDelta(ThreadCausalLog log, long epochID, int offsetFromEpoch, int determinant) {
+		ByteBuf networkBuffer = Unpooled.directBuffer(Integer.BYTES);
+		networkBuffer.writeInt(determinant);
+		log.processUpstreamDelta(networkBuffer.slice(), offsetFromEpoch, epochID);
+		// Released by the decoder once the message is processed
+		networkBuffer.release();
+		return networkBuffer;
+	}
+}
@@ -0,0 +1,187 @@
+/*
+ *
+ *
+ *
+ *  * Licensed to the Apache Software Foundation (ASF) under one
+ *  * or more contributor license agreements.  See the NOTICE file
+ *  * distributed with this work for additional information
+ *  * regarding copyright ownership.  The ASF licenses this file
+ *  * to you under the Apache License, Version 2.0 (the
+ *  * "License"); you may not use this file except in compliance
+ *  * with the License.  You may obtain a copy of the License at
+ *  *
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ *
+ *
+ *
+ */
+
+package org.apache.flink.runtime.causal.recovery;
+
+import org.apache.flink.runtime.causal.DeterminantResponseEvent;
+import org.apache.flink.runtime.causal.VertexID;
+import org.apache.flink.runtime.causal.determinant.Determinant;
+import org.apache.flink.runtime.causal.determinant.DeterminantEncoder;
+import org.apache.flink.runtime.causal.determinant.IgnoreCheckpointDeterminant;
+import org.apache.flink.runtime.causal.determinant.OrderDeterminant;
+import org.apache.flink.runtime.causal.determinant.RNGDeterminant;
+import org.apache.flink.runtime.causal.determinant.SerializableDeterminant;
+import org.apache.flink.runtime.causal.determinant.SimpleDeterminantEncoder;
+import org.apache.flink.runtime.causal.determinant.TimestampDeterminant;
+import org.apache.flink.runtime.causal.log.job.CausalLogID;
+import org.apache.flink.shaded.netty4.io.netty.buffer.ByteBuf;
+import org.apache.flink.shaded.netty4.io.netty.buffer.Unpooled;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class DeterminantStreamsTest {
+
+	private static final CausalLogID LOG_ID = new CausalLogID((short) 1);
+
+	private final DeterminantEncoder encoder = new SimpleDeterminantEncoder();
+
+	private final DeterminantPool determinantPool = new DeterminantPool();
+
+	@Test
+	public void testChunksOfOverlappingResponses() throws Exception {
+		byte[] log = encode(new TimestampDeterminant(1L), new SerializableDeterminant("value"),
+			new TimestampDeterminant(2L));
+		DeterminantStreams streams = new DeterminantStreams(2);
+		DeterminantStream stream = streams.getStream(LOG_ID);
+
+		List<DeterminantResponseEvent> longer = response(log, log.length).split(7);
+		List<DeterminantResponseEvent> shorter = response(log, 12).split(4);
+		assertFalse(longer.get(0).isLastChunk());
+		assertTrue(longer.get(longer.size() - 1).isLastChunk());
+
+		for (int i = 0; i < Math.max(longer.size(), shorter.size()); i++) {
+			if (i < shorter.size())
+				streams.add(shorter.get(i));
+			if (i < longer.size())
+				streams.add(longer.get(i));
+		}
+		assertTrue(streams.isComplete());
+		assertEquals(log.length, stream.getLength());
+
+		assertEquals(1L, stream.awaitNext(encoder, determinantPool).asTimestampDeterminant().getTimestamp());
+		assertEquals("value", stream.awaitNext(encoder, determinantPool).asSerializableDeterminant().getDeterminant());
+		assertEquals(2L, stream.awaitNext(encoder, determinantPool).asTimestampDeterminant().getTimestamp());
+		assertNull(stream.awaitNext(encoder, determinantPool));
+		assertTrue(stream.isExhausted());
+		stream.release();
+	}
+
+	@Test
+	public void testReplayWaitsForIncompleteDeterminants() throws Exception {
+		byte[] log = encode(new SerializableDeterminant("value"), new TimestampDeterminant(3L));
+		DeterminantStreams streams = new DeterminantStreams(1);
+		DeterminantStream stream = streams.getStream(LOG_ID);
+		List<DeterminantResponseEvent> chunks = response(log, log.length).split(log.length - 4);
+
+		streams.add(chunks.get(0));
+		assertEquals(log.length - 4, streams.getReceivedBytes());
+		assertEquals(log.length - 4, streams.getRemainingBytes());
+		assertEquals("value", stream.pollNext(encoder, determinantPool).asSerializableDeterminant().getDeterminant());
+		// The timestamp determinant was only partially received
+		assertNull(stream.pollNext(encoder, determinantPool));
+		assertFalse(stream.isExhausted());
+
+		CompletableFuture<Determinant> awaited = CompletableFuture.supplyAsync(() -> {
+			try {
+				return stream.awaitNext(encoder, determinantPool);
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+		});
+		streams.add(chunks.get(1));
+		assertEquals(3L, awaited.get().asTimestampDeterminant().getTimestamp());
+		assertNull(stream.awaitNext(encoder, determinantPool));
+		assertEquals(log.length, streams.getReceivedBytes());
+		assertEquals(0, streams.getRemainingBytes());
+		stream.release();
+	}
+
+	@Test
+	public void testBatchDecoding() throws Exception {
+		byte[] log = encode(new OrderDeterminant(3), new OrderDeterminant(5, 7), new TimestampDeterminant(11L),
+			new IgnoreCheckpointDeterminant(13, 17L), new RNGDeterminant(19), new SerializableDeterminant("value"),
+			new TimestampDeterminant(23L));
+		DeterminantStreams streams = new DeterminantStreams(1);
+		DeterminantStream stream = streams.getStream(LOG_ID);
+		List<DeterminantResponseEvent> chunks = response(log, log.length).split(log.length - 4);
+		DecodedDeterminantBatch batch = new DecodedDeterminantBatch(4);
+
+		streams.add(chunks.get(0));
+		assertEquals(4, stream.pollBatch(encoder, determinantPool, batch));
+		assertTrue(batch.isFull());
+		assertEquals(Determinant.ORDER_DETERMINANT_TAG, batch.peekTag());
+		assertEquals(3, batch.peekChannel());
+		assertEquals(1, batch.peekRunLength());
+		batch.skipOrderDeterminant();
+		assertEquals(5, batch.peekChannel());
+		assertEquals(7, batch.peekRunLength());
+		batch.skipOrderDeterminant();
+		assertEquals(11L, batch.nextTimestamp());
+		assertTrue(batch.isNextAsync());
+		assertEquals(13, batch.peekAsyncRecordCount());
+		assertEquals(17L, batch.nextAsyncDeterminant().asIgnoreCheckpointDeterminant().getCheckpointID());
+		assertFalse(batch.hasNext());
+
+		// The last timestamp determinant was only partially received
+		batch.clear(determinantPool);
+		assertEquals(2, stream.pollBatch(encoder, determinantPool, batch));
+		assertEquals(19, batch.nextRandomInt());
+		assertEquals("value", batch.nextObject().asSerializableDeterminant().getDeterminant());
+		assertEquals(0, stream.pollBatch(encoder, determinantPool, batch));
+		assertFalse(stream.isExhausted());
+
+		batch.clear(determinantPool);
+		streams.add(chunks.get(1));
+		assertEquals(1, stream.awaitBatch(encoder, determinantPool, batch));
+		assertEquals(23L, batch.nextTimestamp());
+		batch.clear(determinantPool);
+		assertEquals(0, stream.awaitBatch(encoder, determinantPool, batch));
+		assertTrue(stream.isExhausted());
+		stream.release();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testCompleteLogEndingWithinDeterminant() {
+		byte[] log = encode(new SerializableDeterminant("value"), new TimestampDeterminant(3L));
+		DeterminantStreams streams = new DeterminantStreams(1);
+		DeterminantStream stream = streams.getStream(LOG_ID);
+
+		streams.add(response(log, log.length - 4));
+		assertEquals("value", stream.pollNext(encoder, determinantPool).asSerializableDeterminant().getDeterminant());
+		stream.pollNext(encoder, determinantPool);
+	}
+
+	private byte[] encode(Determinant... determinants) {
+		ByteBuf buf = Unpooled.buffer();
+		for (Determinant determinant : determinants)
+			encoder.encodeTo(determinant, buf);
+		byte[] bytes = new byte[buf.readableBytes()];
+		buf.readBytes(bytes);
+		return bytes;
+	}
+
+	private static DeterminantResponseEvent response(byte[] log, int prefixLength) {
+		DeterminantResponseEvent response = new DeterminantResponseEvent(true, new VertexID((short) 1));
+		response.getDeterminants().put(LOG_ID, Unpooled.wrappedBuffer(log, 0, prefixLength));
+		return response;
+	}
+}
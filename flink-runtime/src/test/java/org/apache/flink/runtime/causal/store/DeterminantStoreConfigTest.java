@@ -0,0 +1,57 @@
+/*
+ *
+ *
+ *
+ *  * Licensed to the Apache Software Foundation (ASF) under one
+ *  * or more contributor license agreements.  See the NOTICE file
+ *  * distributed with this work for additional information
+ *  * regarding copyright ownership.  The ASF licenses this file
+ *  * to you under the Apache License, Version 2.0 (the
+ *  * "License"); you may not use this file except in compliance
+ *  * with the License.  You may obtain a copy of the License at
+ *  *
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ *
+ *
+ *
+ */
+
+package org.apache.flink.runtime.causal.store;
+
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.configuration.IllegalConfigurationException;
+import org.apache.flink.runtime.causal.recovery.RecoveryManager;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for {@link DeterminantStoreConfig}.
+ */
+public class DeterminantStoreConfigTest {
+
+	@Test
+	public void testSinkRecoveryStrategy() {
+		Configuration configuration = new Configuration();
+		assertEquals(RecoveryManager.SinkRecoveryStrategy.TRANSACTIONAL,
+			new DeterminantStoreConfig(configuration).getSinkRecoveryStrategy());
+
+		configuration.setString(DeterminantStoreConfig.SINK_RECOVERY_STRATEGY, "determinant-store");
+		assertEquals(RecoveryManager.SinkRecoveryStrategy.DETERMINANT_STORE,
+			new DeterminantStoreConfig(configuration).getSinkRecoveryStrategy());
+	}
+
+	@Test(expected = IllegalConfigurationException.class)
+	public void testUnknownSinkRecoveryStrategy() {
+		Configuration configuration = new Configuration();
+		configuration.setString(DeterminantStoreConfig.SINK_RECOVERY_STRATEGY, "determinant_store");
+		new DeterminantStoreConfig(configuration).getSinkRecoveryStrategy();
+	}
+}
@@ -0,0 +1,125 @@
+/*
+ *
+ *
+ *
+ *  * Licensed to the Apache Software Foundation (ASF) under one
+ *  * or more contributor license agreements.  See the NOTICE file
+ *  * distributed with this work for additional information
+ *  * regarding copyright ownership.  The ASF licenses this file
+ *  * to you under the Apache License, Version 2.0 (the
+ *  * "License"); you may not use this file except in compliance
+ *  * with the License.  You may obtain a copy of the License at
+ *  *
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ *
+ *
+ *
+ */
+
+package org.apache.flink.runtime.causal.store;
+
+import org.apache.flink.core.fs.Path;
+import org.apache.flink.runtime.causal.log.job.CausalLogID;
+import org.apache.flink.shaded.netty4.io.netty.buffer.ByteBuf;
+import org.apache.flink.shaded.netty4.io.netty.buffer.Unpooled;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class FileSystemDeterminantStoreTest {
+
+	private static final CausalLogID LOG_ID = new CausalLogID((short) 3);
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void testReadMergesBatchesOfAllEpochs() throws Exception {
+		FileSystemDeterminantStore store = createStore();
+		append(store, 1, 0, 1, 2, 3);
+		append(store, 1, 3, 4);
+		append(store, 2, 0, 5, 6);
+
+		Map<CausalLogID, ByteBuf> determinants = store.read(1);
+		assertDeterminants(determinants, 1, 2, 3, 4, 5, 6);
+		determinants.get(LOG_ID).release();
+
+		determinants = store.read(2);
+		assertDeterminants(determinants, 5, 6);
+		determinants.get(LOG_ID).release();
+		store.close();
+	}
+
+	@Test
+	public void testOverlappingBatchesOfReexecutedAttempt() throws Exception {
+		FileSystemDeterminantStore failed = createStore();
+		append(failed, 1, 0, 1, 2);
+		append(failed, 1, 2, 3);
+		failed.close();
+
+		// The recovered attempt rebuilt the epoch and flushes it again, extending it
+		FileSystemDeterminantStore recovered = createStore();
+		append(recovered, 1, 0, 1, 2, 3, 4);
+		append(recovered, 1, 4, 5);
+
+		Map<CausalLogID, ByteBuf> determinants = recovered.read(1);
+		assertDeterminants(determinants, 1, 2, 3, 4, 5);
+		determinants.get(LOG_ID).release();
+		recovered.close();
+	}
+
+	@Test
+	public void testCheckpointCompletionTruncatesStore() throws Exception {
+		FileSystemDeterminantStore store = createStore();
+		append(store, 1, 0, 1);
+		append(store, 2, 0, 2);
+		append(store, 3, 0, 3);
+		assertEquals(3, temporaryFolder.getRoot().listFiles().length);
+
+		store.notifyCheckpointComplete(3);
+		assertEquals(1, temporaryFolder.getRoot().listFiles().length);
+
+		Map<CausalLogID, ByteBuf> determinants = store.read(1);
+		assertDeterminants(determinants, 3);
+		determinants.get(LOG_ID).release();
+		store.close();
+	}
+
+	private FileSystemDeterminantStore createStore() throws Exception {
+		return new FileSystemDeterminantStore(new Path(temporaryFolder.getRoot().toURI()));
+	}
+
+	private static void append(DeterminantStore store, long epochID, int offsetFromEpoch, int... determinants)
+		throws Exception {
+		DeterminantBatch batch = new DeterminantBatch(epochID);
+		byte[] bytes = new byte[determinants.length];
+		for (int i = 0; i < determinants.length; i++)
+			bytes[i] = (byte) determinants[i];
+		batch.add(LOG_ID, offsetFromEpoch, Unpooled.wrappedBuffer(bytes));
+		store.append(batch);
+		batch.release();
+	}
+
+	private static void assertDeterminants(Map<CausalLogID, ByteBuf> determinants, int... expected) {
+		assertEquals(1, determinants.size());
+		ByteBuf buf = determinants.get(LOG_ID);
+		byte[] bytes = new byte[buf.readableBytes()];
+		buf.getBytes(buf.readerIndex(), bytes);
+		byte[] expectedBytes = new byte[expected.length];
+		for (int i = 0; i < expected.length; i++)
+			expectedBytes[i] = (byte) expected[i];
+		assertArrayEquals(expectedBytes, bytes);
+	}
+}
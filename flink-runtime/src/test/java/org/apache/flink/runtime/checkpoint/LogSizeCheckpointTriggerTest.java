@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.checkpoint;
+
+import org.apache.flink.runtime.clusterframework.types.ResourceID;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for the {@link LogSizeCheckpointTrigger}.
+ */
+public class LogSizeCheckpointTriggerTest {
+
+	@Test
+	public void testDisabledByDefault() {
+		LogSizeCheckpointTrigger trigger = new LogSizeCheckpointTrigger(-1L, -1L, -1L, 1024L);
+		assertFalse(trigger.isEnabled());
+
+		trigger.reportLogSizes(ResourceID.generate(), Long.MAX_VALUE / 2, Long.MAX_VALUE / 2);
+		assertNull(trigger.getExceededBudget());
+	}
+
+	@Test
+	public void testBudgetsAggregateOverTaskManagers() {
+		LogSizeCheckpointTrigger trigger = new LogSizeCheckpointTrigger(100L, 1000L, -1L, 1024L);
+		ResourceID first = ResourceID.generate();
+		ResourceID second = ResourceID.generate();
+
+		trigger.reportLogSizes(first, 60L, 600L);
+		assertNull(trigger.getExceededBudget());
+
+		trigger.reportLogSizes(second, 60L, 0L);
+		assertNotNull(trigger.getExceededBudget());
+
+		// A newer report replaces the previous one
+		trigger.reportLogSizes(second, 0L, 600L);
+		assertTrue(trigger.getExceededBudget().startsWith("in-flight"));
+
+		trigger.removeTaskManager(second);
+		assertNull(trigger.getExceededBudget());
+	}
+
+	@Test
+	public void testRecoveryTimeObjectiveUsesLargestInFlightLog() {
+		// 1 KiB/s, so 1 KiB takes one second to replay
+		LogSizeCheckpointTrigger trigger = new LogSizeCheckpointTrigger(-1L, -1L, 1000L, 1024L);
+		trigger.reportLogSizes(ResourceID.generate(), -1L, 1024L);
+		trigger.reportLogSizes(ResourceID.generate(), -1L, 1024L);
+		assertNull(trigger.getExceededBudget());
+
+		trigger.reportLogSizes(ResourceID.generate(), -1L, 2048L);
+		assertNotNull(trigger.getExceededBudget());
+	}
+
+	@Test
+	public void testCheckpointIsTriggeredFromCoordinatorTimer() {
+		LogSizeCheckpointTrigger trigger = new LogSizeCheckpointTrigger(100L, -1L, -1L, 1024L);
+		CheckpointCoordinator coordinator = mock(CheckpointCoordinator.class);
+
+		trigger.reportLogSizes(ResourceID.generate(), 60L, 0L);
+		assertFalse(trigger.maybeTriggerCheckpoint(coordinator));
+
+		trigger.reportLogSizes(ResourceID.generate(), 60L, 0L);
+		assertTrue(trigger.maybeTriggerCheckpoint(coordinator));
+		verify(coordinator).triggerPeriodicCheckpointAsync();
+		verify(coordinator, never()).triggerCheckpoint(anyLong(), anyBoolean());
+
+		// The reports predate the requested checkpoint
+		assertFalse(trigger.maybeTriggerCheckpoint(coordinator));
+	}
+}
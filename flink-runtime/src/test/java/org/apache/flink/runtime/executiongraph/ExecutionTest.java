@@ -388,6 +388,45 @@ public class ExecutionTest extends TestLogger {
 		restartFuture.get();
 	}
 
+	/**
+	 * Tests that the state futures complete once the {@link Execution} reaches their state and fail once
+	 * it reaches a different terminal state.
+	 */
+	@Test
+	public void testStateFutures() throws Exception {
+		final JobVertex jobVertex = createNoOpJobVertex();
+		final JobVertexID jobVertexId = jobVertex.getID();
+
+		final ProgrammedSlotProvider slotProvider = createProgrammedSlotProvider(
+			1,
+			Collections.singleton(jobVertexId),
+			new SingleSlotTestingSlotOwner());
+
+		ExecutionGraph executionGraph = ExecutionGraphTestUtils.createSimpleTestGraph(
+			new JobID(),
+			slotProvider,
+			new NoRestartStrategy(),
+			jobVertex);
+
+		Execution execution = executionGraph.getJobVertex(jobVertexId).getTaskVertices()[0].getCurrentExecutionAttempt();
+
+		CompletableFuture<ExecutionState> runningFuture = execution.getStateFuture(ExecutionState.RUNNING);
+		CompletableFuture<ExecutionState> finishedFuture = execution.getStateFuture(ExecutionState.FINISHED);
+		assertFalse(runningFuture.isDone());
+
+		execution.setState(ExecutionState.DEPLOYING);
+		execution.setState(ExecutionState.RUNNING);
+		assertEquals(ExecutionState.RUNNING, runningFuture.get());
+		// futures requested after the state was reached complete right away
+		assertEquals(ExecutionState.DEPLOYING, execution.getStateFuture(ExecutionState.DEPLOYING).get());
+		assertFalse(finishedFuture.isDone());
+
+		execution.setState(ExecutionState.CANCELED);
+		assertTrue(finishedFuture.isCompletedExceptionally());
+		assertTrue(execution.getStateFuture(ExecutionState.STANDBY).isCompletedExceptionally());
+		assertEquals(ExecutionState.CANCELED, execution.getStateFuture(ExecutionState.CANCELED).get());
+	}
+
 	/**
 	 * Tests that the task restore state is nulled after the {@link Execution} has been
 	 * deployed. See FLINK-9693.
@@ -117,7 +117,7 @@ public class EpochCursorTest {
 	@Test
 	public void testAddingWhileReplaying(){
 		SortedMap<Long, SpillableSubpartitionInFlightLogger.Epoch> log = new TreeMap<>();
-		SpillableSubpartitionInFlightLogger.Epoch epoch0 = new SpillableSubpartitionInFlightLogger.Epoch(null, 0);
+		SpillableSubpartitionInFlightLogger.Epoch epoch0 = new SpillableSubpartitionInFlightLogger.Epoch(0);
 		epoch0.append(getBuffer(0));
 		epoch0.append(getBuffer(1));
 		epoch0.append(getBuffer(2));
@@ -145,7 +145,7 @@ public class EpochCursorTest {
 		assert cursor.next().asByteBuf().readInt() == 4;
 		assert !cursor.hasNext();
 
-		SpillableSubpartitionInFlightLogger.Epoch epoch1 = new SpillableSubpartitionInFlightLogger.Epoch(null, 1);
+		SpillableSubpartitionInFlightLogger.Epoch epoch1 = new SpillableSubpartitionInFlightLogger.Epoch(1);
 		epoch1.append(getBuffer(5));
 		log.put(1L, epoch1);
 		cursor.notifyNewBuffer(1);
@@ -159,17 +159,17 @@ public class EpochCursorTest {
 
 	private SpilledReplayIterator.EpochCursor getEpochCursor() {
 		SortedMap<Long, SpillableSubpartitionInFlightLogger.Epoch> log = new TreeMap<>();
-		SpillableSubpartitionInFlightLogger.Epoch epoch0 = new SpillableSubpartitionInFlightLogger.Epoch(null, 0);
+		SpillableSubpartitionInFlightLogger.Epoch epoch0 = new SpillableSubpartitionInFlightLogger.Epoch(0);
 		epoch0.append(getBuffer(0));
 		epoch0.append(getBuffer(1));
 		epoch0.append(getBuffer(2));
 
-		SpillableSubpartitionInFlightLogger.Epoch epoch1 = new SpillableSubpartitionInFlightLogger.Epoch(null, 0);
+		SpillableSubpartitionInFlightLogger.Epoch epoch1 = new SpillableSubpartitionInFlightLogger.Epoch(0);
 		epoch1.append(getBuffer(3));
 		epoch1.append(getBuffer(4));
 		epoch1.append(getBuffer(5));
 
-		SpillableSubpartitionInFlightLogger.Epoch epoch2 = new SpillableSubpartitionInFlightLogger.Epoch(null, 0);
+		SpillableSubpartitionInFlightLogger.Epoch epoch2 = new SpillableSubpartitionInFlightLogger.Epoch(0);
 		epoch2.append(getBuffer(6));
 		epoch2.append(getBuffer(7));
 		epoch2.append(getBuffer(8));
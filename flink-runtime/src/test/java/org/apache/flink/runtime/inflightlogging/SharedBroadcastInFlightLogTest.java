@@ -0,0 +1,154 @@
+/*
+ *
+ *
+ *
+ *  * Licensed to the Apache Software Foundation (ASF) under one
+ *  * or more contributor license agreements.  See the NOTICE file
+ *  * distributed with this work for additional information
+ *  * regarding copyright ownership.  The ASF licenses this file
+ *  * to you under the Apache License, Version 2.0 (the
+ *  * "License"); you may not use this file except in compliance
+ *  * with the License.  You may obtain a copy of the License at
+ *  *
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ *
+ *
+ *
+ */
+
+package org.apache.flink.runtime.inflightlogging;
+
+import org.apache.flink.core.memory.MemorySegmentFactory;
+import org.apache.flink.runtime.io.network.buffer.Buffer;
+import org.apache.flink.runtime.io.network.buffer.FreeingBufferRecycler;
+import org.apache.flink.runtime.io.network.buffer.NetworkBuffer;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SharedBroadcastInFlightLogTest {
+
+	private static final int BUFFER_SIZE = 64;
+
+	@Test
+	public void testBackingBuffersAreHeldOnce() throws Exception {
+		SharedBroadcastInFlightLog sharedLog = new SharedBroadcastInFlightLog(2);
+		InFlightLog first = sharedLog.getSubpartitionLog(0);
+		InFlightLog second = sharedLog.getSubpartitionLog(1);
+
+		Buffer backingBuffer = createBuffer(0);
+		// The subpartitions send the shared buffer in differently sized slices
+		log(first, backingBuffer, 0, BUFFER_SIZE / 2, 0);
+		log(first, backingBuffer, BUFFER_SIZE / 2, BUFFER_SIZE / 2, 0);
+		log(second, backingBuffer, 0, BUFFER_SIZE, 0);
+		log(second, createBuffer(1), 0, BUFFER_SIZE, 1);
+
+		assertEquals(2 * BUFFER_SIZE, sharedLog.getLogSizeInBytes());
+		assertEquals(BUFFER_SIZE, first.getLogSizeInBytes());
+		assertEquals(2 * BUFFER_SIZE, second.getLogSizeInBytes());
+
+		// The slices were recycled downstream, the log still holds the backing buffer
+		backingBuffer.recycleBuffer();
+		assertFalse(backingBuffer.isRecycled());
+
+		first.notifyCheckpointComplete(1);
+		second.notifyCheckpointComplete(1);
+		assertTrue(backingBuffer.isRecycled());
+		assertEquals(BUFFER_SIZE, sharedLog.getLogSizeInBytes());
+		assertEquals(0, first.getLogSizeInBytes());
+
+		first.close();
+		second.close();
+		assertEquals(0, sharedLog.getLogSizeInBytes());
+	}
+
+	@Test
+	public void testReplayOfSubpartitionSlices() {
+		SharedBroadcastInFlightLog sharedLog = new SharedBroadcastInFlightLog(2);
+		InFlightLog first = sharedLog.getSubpartitionLog(0);
+		InFlightLog second = sharedLog.getSubpartitionLog(1);
+
+		for (int epoch = 0; epoch < 3; epoch++) {
+			Buffer backingBuffer = createBuffer(epoch);
+			log(first, backingBuffer, 0, BUFFER_SIZE / 2, epoch);
+			log(second, backingBuffer, 0, BUFFER_SIZE / 4, epoch);
+			log(first, backingBuffer, BUFFER_SIZE / 2, BUFFER_SIZE / 2, epoch);
+			log(second, backingBuffer, BUFFER_SIZE / 4, 3 * BUFFER_SIZE / 4, epoch);
+			backingBuffer.recycleBuffer();
+		}
+
+		InFlightLogIterator<Buffer> iterator = first.getInFlightIterator(1, 1);
+		assertEquals(3, iterator.numberRemaining());
+		assertReplayed(iterator.next(), BUFFER_SIZE / 2, BUFFER_SIZE / 2, 1);
+		assertReplayed(iterator.next(), 0, BUFFER_SIZE / 2, 2);
+		assertReplayed(iterator.next(), BUFFER_SIZE / 2, BUFFER_SIZE / 2, 2);
+		assertFalse(iterator.hasNext());
+
+		iterator = second.getInFlightIterator(2, 0);
+		assertReplayed(iterator.next(), 0, BUFFER_SIZE / 4, 2);
+		assertReplayed(iterator.next(), BUFFER_SIZE / 4, 3 * BUFFER_SIZE / 4, 2);
+		assertFalse(iterator.hasNext());
+
+		first.close();
+		second.close();
+	}
+
+	@Test
+	public void testSubpartitionsTruncateIndependently() throws Exception {
+		SharedBroadcastInFlightLog sharedLog = new SharedBroadcastInFlightLog(2);
+		InFlightLog first = sharedLog.getSubpartitionLog(0);
+		InFlightLog second = sharedLog.getSubpartitionLog(1);
+
+		Buffer backingBuffer = createBuffer(0);
+		log(first, backingBuffer, 0, BUFFER_SIZE, 0);
+		log(second, backingBuffer, 0, BUFFER_SIZE, 0);
+		backingBuffer.recycleBuffer();
+
+		// The consumer of the second subpartition still references epoch 0 from its last checkpoint
+		first.notifyCheckpointComplete(1);
+		second.notifyCheckpointComplete(0);
+		assertFalse(backingBuffer.isRecycled());
+		assertEquals(0, first.getLogSizeInBytes());
+		InFlightLogIterator<Buffer> iterator = second.getInFlightIterator(0, 0);
+		assertReplayed(iterator.next(), 0, BUFFER_SIZE, 0);
+		assertFalse(iterator.hasNext());
+
+		second.notifyCheckpointComplete(1);
+		assertTrue(backingBuffer.isRecycled());
+		assertEquals(0, sharedLog.getLogSizeInBytes());
+
+		first.close();
+		second.close();
+	}
+
+	private static Buffer createBuffer(int epoch) {
+		Buffer buffer = new NetworkBuffer(MemorySegmentFactory.allocateUnpooledSegment(BUFFER_SIZE),
+			FreeingBufferRecycler.INSTANCE);
+		for (int i = 0; i < BUFFER_SIZE; i++)
+			buffer.asByteBuf().writeByte(epoch * BUFFER_SIZE + i);
+		return buffer;
+	}
+
+	private static void log(InFlightLog log, Buffer backingBuffer, int offset, int length, long epochID) {
+		Buffer slice = backingBuffer.readOnlySlice(offset, length).retainBuffer();
+		log.log(slice, epochID, offset + length == BUFFER_SIZE);
+		// The slice is sent downstream and recycled by the consumer
+		slice.recycleBuffer();
+	}
+
+	private static void assertReplayed(Buffer buffer, int offset, int length, int epoch) {
+		assertEquals(length, buffer.readableBytes());
+		for (int i = 0; i < length; i++)
+			assertEquals((byte) (epoch * BUFFER_SIZE + offset + i), buffer.asByteBuf().readByte());
+		buffer.recycleBuffer();
+	}
+}
@@ -0,0 +1,223 @@
+/*
+ *
+ *
+ *
+ *  * Licensed to the Apache Software Foundation (ASF) under one
+ *  * or more contributor license agreements.  See the NOTICE file
+ *  * distributed with this work for additional information
+ *  * regarding copyright ownership.  The ASF licenses this file
+ *  * to you under the Apache License, Version 2.0 (the
+ *  * "License"); you may not use this file except in compliance
+ *  * with the License.  You may obtain a copy of the License at
+ *  *
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ *
+ *
+ *
+ */
+
+package org.apache.flink.runtime.inflightlogging;
+
+import org.apache.flink.core.memory.MemorySegmentFactory;
+import org.apache.flink.runtime.io.network.buffer.Buffer;
+import org.apache.flink.runtime.io.network.buffer.BufferPool;
+import org.apache.flink.runtime.io.network.buffer.FreeingBufferRecycler;
+import org.apache.flink.runtime.io.network.buffer.NetworkBuffer;
+import org.apache.flink.runtime.io.network.buffer.NetworkBufferPool;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SpillableSubpartitionInFlightLoggerTest {
+
+	private static final int BUFFER_SIZE = 64;
+	private static final int BUFFERS_PER_EPOCH = 10;
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private File spillDirectory;
+	private NetworkBufferPool networkBufferPool;
+	private InFlightLogSpillService spillService;
+
+	@Before
+	public void setup() throws Exception {
+		spillDirectory = temporaryFolder.newFolder();
+		networkBufferPool = new NetworkBufferPool(64, BUFFER_SIZE);
+		// Small segments and batches, so that segments are rolled over
+		spillService = new InFlightLogSpillService(new File[]{spillDirectory}, 1024, 8, false, 2);
+	}
+
+	@After
+	public void teardown() {
+		spillService.shutdown();
+		networkBufferPool.destroy();
+	}
+
+	@Test
+	public void testReplayOfInterleavedSpilledLogs() throws Exception {
+		SpillableSubpartitionInFlightLogger first = createLogger();
+		SpillableSubpartitionInFlightLogger second = createLogger();
+
+		for (int epoch = 0; epoch < 3; epoch++) {
+			for (int i = 0; i < BUFFERS_PER_EPOCH; i++) {
+				log(first, epoch, i);
+				log(second, epoch, -i);
+			}
+		}
+		awaitSpilled(first);
+		awaitSpilled(second);
+
+		assertReplays(first, 1, 1);
+		assertReplays(second, 1, -1);
+
+		first.close();
+		second.close();
+	}
+
+	@Test
+	public void testCheckpointCompletionDeletesSegments() throws Exception {
+		SpillableSubpartitionInFlightLogger logger = createLogger();
+
+		for (int epoch = 0; epoch < 3; epoch++)
+			for (int i = 0; i < BUFFERS_PER_EPOCH; i++)
+				log(logger, epoch, i);
+		awaitSpilled(logger);
+		assertTrue(spillDirectory.listFiles().length > 1);
+
+		logger.notifyCheckpointComplete(3);
+		// Only the segment still being appended to remains
+		assertTrue(spillDirectory.listFiles().length <= 1);
+		assertFalse(logger.getSlicedLog().containsKey(2L));
+
+		logger.close();
+	}
+
+	@Test
+	public void testReplayOfCompressedLog() throws Exception {
+		spillService.shutdown();
+		spillService = new InFlightLogSpillService(new File[]{spillDirectory}, 1024, 8, true, 2);
+		SpillableSubpartitionInFlightLogger logger = createLogger();
+
+		for (int epoch = 0; epoch < 3; epoch++)
+			for (int i = 0; i < BUFFERS_PER_EPOCH; i++)
+				log(logger, epoch, i);
+		awaitSpilled(logger);
+
+		// Every buffer repeats a single value
+		assertTrue(spillService.getMetrics().getSpilledBytes() < 3 * BUFFERS_PER_EPOCH * BUFFER_SIZE / 2);
+		assertReplays(logger, 0, 1);
+
+		logger.close();
+	}
+
+	@Test
+	public void testEpochPolicyKeepsCurrentEpochInMemory() throws Exception {
+		SpillableSubpartitionInFlightLogger logger = createLogger(new EpochSpillPolicy());
+
+		for (int epoch = 0; epoch < 3; epoch++)
+			for (int i = 0; i < BUFFERS_PER_EPOCH; i++)
+				log(logger, epoch, i);
+		awaitSpilled(logger, 2);
+
+		for (int i = 0; i < BUFFERS_PER_EPOCH; i++)
+			assertNull(logger.getSlicedLog().get(2L).getSpillLocation(i));
+		assertEquals(2 * BUFFERS_PER_EPOCH * BUFFER_SIZE, spillService.getMetrics().getSpilledBytes());
+		assertReplays(logger, 1, 1);
+
+		logger.close();
+	}
+
+	@Test
+	public void testByteBudgetPolicy() throws Exception {
+		SpillableSubpartitionInFlightLogger logger = createLogger(new ByteBudgetSpillPolicy(4 * BUFFER_SIZE));
+
+		for (int i = 0; i < 4; i++)
+			log(logger, 0, i);
+		assertEquals(0, spillService.getMetrics().getSpilledBytes());
+
+		log(logger, 0, 4);
+		awaitSpilled(logger, 1);
+		assertEquals(5 * BUFFER_SIZE, spillService.getMetrics().getSpilledBytes());
+
+		logger.close();
+	}
+
+	@Test
+	public void testLogSizeIncludesSpilledBuffers() throws Exception {
+		SpillableSubpartitionInFlightLogger logger = createLogger();
+
+		for (int epoch = 0; epoch < 3; epoch++)
+			for (int i = 0; i < BUFFERS_PER_EPOCH; i++)
+				log(logger, epoch, i);
+		awaitSpilled(logger);
+		assertEquals(3 * BUFFERS_PER_EPOCH * BUFFER_SIZE, logger.getLogSizeInBytes());
+
+		logger.notifyCheckpointComplete(2);
+		assertEquals(BUFFERS_PER_EPOCH * BUFFER_SIZE, logger.getLogSizeInBytes());
+
+		logger.close();
+		assertEquals(0, logger.getLogSizeInBytes());
+	}
+
+	private SpillableSubpartitionInFlightLogger createLogger() throws Exception {
+		return createLogger(new EagerSpillPolicy());
+	}
+
+	private SpillableSubpartitionInFlightLogger createLogger(SpillPolicy spillPolicy) throws Exception {
+		BufferPool prefetchBufferPool = networkBufferPool.createBufferPool(8, 8);
+		return new SpillableSubpartitionInFlightLogger(spillService, prefetchBufferPool, spillPolicy);
+	}
+
+	private static void log(InFlightLog log, long epochID, int value) {
+		Buffer buffer = new NetworkBuffer(MemorySegmentFactory.allocateUnpooledSegment(BUFFER_SIZE),
+			FreeingBufferRecycler.INSTANCE);
+		for (int i = 0; i < BUFFER_SIZE / Integer.BYTES; i++)
+			buffer.asByteBuf().writeInt((int) epochID * 1000 + value);
+		log.log(buffer, epochID, true);
+		// The buffer is sent downstream and recycled by the consumer
+		buffer.recycleBuffer();
+	}
+
+	private static void awaitSpilled(SpillableSubpartitionInFlightLogger logger) throws InterruptedException {
+		awaitSpilled(logger, Long.MAX_VALUE);
+	}
+
+	private static void awaitSpilled(SpillableSubpartitionInFlightLogger logger, long untilEpoch)
+		throws InterruptedException {
+		for (SpillableSubpartitionInFlightLogger.Epoch epoch : logger.getSlicedLog().headMap(untilEpoch).values())
+			for (int i = 0; i < epoch.getEpochSize(); i++)
+				while (epoch.getSpillLocation(i) == null)
+					Thread.sleep(10);
+	}
+
+	private static void assertReplays(InFlightLog log, long fromEpoch, int sign) {
+		InFlightLogIterator<Buffer> iterator = log.getInFlightIterator(fromEpoch, 0);
+		assertEquals((3 - fromEpoch) * BUFFERS_PER_EPOCH, iterator.numberRemaining());
+		for (long epoch = fromEpoch; epoch < 3; epoch++) {
+			for (int i = 0; i < BUFFERS_PER_EPOCH; i++) {
+				Buffer buffer = iterator.next();
+				assertEquals(BUFFER_SIZE, buffer.readableBytes());
+				assertEquals((int) epoch * 1000 + sign * i, buffer.asByteBuf().getInt(BUFFER_SIZE - Integer.BYTES));
+				buffer.recycleBuffer();
+			}
+		}
+		assertFalse(iterator.hasNext());
+	}
+}
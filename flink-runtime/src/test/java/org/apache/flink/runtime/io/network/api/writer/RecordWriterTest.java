@@ -68,6 +68,7 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 
 import static org.apache.flink.runtime.io.network.buffer.BufferBuilderTestUtils.buildSingleBuffer;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
@@ -408,6 +409,52 @@ public class RecordWriterTest {
 		emitRecordWithBroadcastPartitionerOrBroadcastEmitRecord(true);
 	}
 
+	/**
+	 * Tests that records emitted with a broadcasting {@link ChannelSelector} are written once into buffers shared by
+	 * all channels, while randomly emitted records are written to a buffer of the selected channel only.
+	 */
+	@Test
+	public void testBroadcastModeSharesBuffers() throws Exception {
+		final int numChannels = 4;
+
+		@SuppressWarnings("unchecked")
+		final Queue<BufferConsumer>[] queues = new Queue[numChannels];
+		for (int i = 0; i < numChannels; i++) {
+			queues[i] = new ArrayDeque<>();
+		}
+
+		final TestPooledBufferProvider bufferProvider = new TestPooledBufferProvider(Integer.MAX_VALUE, 16);
+		final RecordWriter<IntValue> writer =
+			new RecordWriter<>(new CollectingPartitionWriter(queues, bufferProvider), new Broadcast<>());
+
+		writer.emit(new IntValue(0));
+		writer.randomEmit(new IntValue(1));
+		writer.emit(new IntValue(2));
+		writer.flushAll();
+
+		// one shared buffer before and one after the random record, which has a buffer of its own
+		assertEquals(3, bufferProvider.getNumberOfCreatedBuffers());
+
+		int numBuffers = 0;
+		MemorySegment[] sharedSegments = null;
+		for (int i = 0; i < numChannels; i++) {
+			List<MemorySegment> segments = new ArrayList<>();
+			for (BufferConsumer bufferConsumer : queues[i]) {
+				segments.add(bufferConsumer.getBackingBuffer().getMemorySegment());
+				bufferConsumer.close();
+			}
+			numBuffers += segments.size();
+
+			// every channel reads the shared buffers, only the selected one has the buffer of the random record
+			MemorySegment[] channelSharedSegments = {segments.get(0), segments.get(segments.size() - 1)};
+			if (sharedSegments == null) {
+				sharedSegments = channelSharedSegments;
+			}
+			assertArrayEquals(sharedSegments, channelSharedSegments);
+		}
+		assertEquals(2 * numChannels + 1, numBuffers);
+	}
+
 	/**
 	 * The results of emitting records via BroadcastPartitioner or broadcasting records directly are the same,
 	 * that is all the target channels can receive the whole outputs.
@@ -659,6 +706,11 @@ public class RecordWriterTest {
 			}
 		}
 
+		@Override
+		public boolean isBroadcast() {
+			return true;
+		}
+
 		@Override
 		public void setRandomService(RandomService randomService) {
 
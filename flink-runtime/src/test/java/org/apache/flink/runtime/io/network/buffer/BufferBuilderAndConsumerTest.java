@@ -69,6 +69,25 @@ public class BufferBuilderAndConsumerTest {
 		assertContent(bufferBuilder.createBufferConsumer(), intsToWrite);
 	}
 
+	@Test
+	public void trim() {
+		BufferBuilder bufferBuilder = createBufferBuilder();
+		BufferConsumer bufferConsumer = bufferBuilder.createBufferConsumer();
+
+		bufferBuilder.appendAndCommit(toByteBuffer(0, 1));
+		// the capacity never drops below the written bytes
+		bufferBuilder.trim(Integer.BYTES);
+		assertTrue(bufferBuilder.isFull());
+
+		bufferBuilder.trim(4 * Integer.BYTES);
+		assertEquals(2 * Integer.BYTES, bufferBuilder.appendAndCommit(toByteBuffer(2, 3, 42)));
+		assertTrue(bufferBuilder.isFull());
+		assertContent(bufferConsumer, 0, 1, 2, 3);
+
+		bufferBuilder.trim(Integer.MAX_VALUE);
+		assertEquals(BUFFER_SIZE, bufferBuilder.getMaxCapacity());
+	}
+
 	@Test
 	public void multipleAppends() {
 		BufferBuilder bufferBuilder = createBufferBuilder();
@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.network.buffer;
+
+import org.apache.flink.core.memory.MemorySegmentFactory;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the {@link BufferCompressor} and {@link BufferDecompressor}.
+ */
+public class BufferCompressorTest {
+
+	private static final int BUFFER_SIZE = 32 * 1024;
+
+	@Test
+	public void testRoundTripOfHeapAndOffHeapBuffers() throws Exception {
+		Buffer buffer = new NetworkBuffer(MemorySegmentFactory.allocateUnpooledSegment(BUFFER_SIZE),
+			FreeingBufferRecycler.INSTANCE);
+		for (int i = 0; i < BUFFER_SIZE / Integer.BYTES; i++) {
+			buffer.asByteBuf().writeInt(i % 16);
+		}
+		Buffer compressed = new NetworkBuffer(MemorySegmentFactory.allocateUnpooledOffHeapMemory(BUFFER_SIZE, null),
+			FreeingBufferRecycler.INSTANCE);
+
+		assertTrue(new BufferCompressor().compress(buffer.readOnlySlice(), compressed));
+		assertTrue(compressed.isCompressed());
+		assertTrue(compressed.readOnlySlice().isCompressed());
+		assertTrue(compressed.readableBytes() < BUFFER_SIZE / 2);
+
+		Buffer decompressed = new NetworkBuffer(MemorySegmentFactory.allocateUnpooledSegment(BUFFER_SIZE),
+			FreeingBufferRecycler.INSTANCE);
+		new BufferDecompressor().decompress(compressed.readOnlySlice(), decompressed);
+		assertFalse(decompressed.isCompressed());
+		assertEquals(BUFFER_SIZE, decompressed.readableBytes());
+		assertEquals(buffer.asByteBuf(), decompressed.asByteBuf());
+	}
+
+	@Test
+	public void testIncompressibleBufferIsNotCompressed() throws Exception {
+		byte[] data = new byte[BUFFER_SIZE];
+		new Random(42).nextBytes(data);
+		Buffer buffer = new NetworkBuffer(MemorySegmentFactory.wrap(data), FreeingBufferRecycler.INSTANCE, true,
+			BUFFER_SIZE);
+		Buffer target = new NetworkBuffer(MemorySegmentFactory.allocateUnpooledSegment(BUFFER_SIZE),
+			FreeingBufferRecycler.INSTANCE);
+
+		assertFalse(new BufferCompressor().compress(buffer, target));
+		assertFalse(target.isCompressed());
+		assertEquals(0, target.readableBytes());
+	}
+}
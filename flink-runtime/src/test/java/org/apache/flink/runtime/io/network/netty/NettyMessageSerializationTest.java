@@ -19,9 +19,12 @@
 package org.apache.flink.runtime.io.network.netty;
 
 import org.apache.flink.core.memory.MemorySegmentFactory;
+import org.apache.flink.runtime.causal.log.CausalLogManager;
 import org.apache.flink.runtime.event.task.IntegerTaskEvent;
 import org.apache.flink.runtime.executiongraph.ExecutionAttemptID;
 import org.apache.flink.runtime.io.network.buffer.Buffer;
+import org.apache.flink.runtime.io.network.buffer.BufferCompressor;
+import org.apache.flink.runtime.io.network.buffer.BufferDecompressor;
 import org.apache.flink.runtime.io.network.buffer.FreeingBufferRecycler;
 import org.apache.flink.runtime.io.network.buffer.NetworkBuffer;
 import org.apache.flink.runtime.io.network.partition.ResultPartitionID;
@@ -29,6 +32,7 @@ import org.apache.flink.runtime.io.network.partition.consumer.InputChannelID;
 import org.apache.flink.runtime.jobgraph.IntermediateResultPartitionID;
 
 import org.apache.flink.shaded.netty4.io.netty.buffer.ByteBuf;
+import org.apache.flink.shaded.netty4.io.netty.buffer.ByteBufAllocator;
 import org.apache.flink.shaded.netty4.io.netty.channel.embedded.EmbeddedChannel;
 
 import org.junit.Test;
@@ -39,6 +43,11 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 /**
  * Tests for the serialization and deserialization of the various {@link NettyMessage} sub-classes.
@@ -47,9 +56,13 @@ public class NettyMessageSerializationTest {
 
 	public static final boolean RESTORE_OLD_NETTY_BEHAVIOUR = false;
 
+	private static final int BUFFER_SIZE = 32 * 1024;
+
+	private final CausalLogManager causalLogManager = createCausalLogManager();
+
 	private final EmbeddedChannel channel = new EmbeddedChannel(
-			new NettyMessage.NettyMessageEncoder(), // outbound messages
-			new NettyMessage.NettyMessageDecoder(RESTORE_OLD_NETTY_BEHAVIOUR)); // inbound messages
+			new NettyMessage.NettyMessageEncoder(causalLogManager), // outbound messages
+			new NettyMessage.NettyMessageDecoder(RESTORE_OLD_NETTY_BEHAVIOUR, causalLogManager)); // inbound messages
 
 	private final Random random = new Random();
 
@@ -178,6 +191,73 @@ public class NettyMessageSerializationTest {
 		assertEquals(expected.backlog, actual.backlog);
 	}
 
+	@Test
+	public void testEncodeDecodeCompressedBuffer() throws Exception {
+		NetworkBuffer buffer = createCompressibleBuffer();
+		NetworkBuffer compressed = new NetworkBuffer(MemorySegmentFactory.allocateUnpooledSegment(BUFFER_SIZE),
+			FreeingBufferRecycler.INSTANCE);
+		assertTrue(new BufferCompressor().compress(buffer.readOnlySlice(), compressed));
+
+		NettyMessage.BufferResponse expected = new NettyMessage.BufferResponse(
+			compressed, random.nextInt(), new InputChannelID(), random.nextInt());
+		NettyMessage.BufferResponse actual = encodeAndDecode(expected);
+
+		assertTrue(actual.isBuffer());
+		assertTrue(actual.isCompressed());
+		assertEquals(compressed.readableBytes(), actual.getNettyBuffer().readableBytes());
+		assertEquals(buffer.asByteBuf(), readBuffer(actual));
+
+		actual.releaseBuffer();
+		assertTrue(compressed.isRecycled());
+	}
+
+	@Test
+	public void testEncodeDecodeUncompressedBufferWithDecompressor() throws Exception {
+		NetworkBuffer buffer = createCompressibleBuffer();
+
+		NettyMessage.BufferResponse expected = new NettyMessage.BufferResponse(
+			buffer.readOnlySlice().retainBuffer(), random.nextInt(), new InputChannelID(), random.nextInt());
+		NettyMessage.BufferResponse actual = encodeAndDecode(expected);
+
+		assertTrue(actual.isBuffer());
+		assertFalse(actual.isCompressed());
+		assertEquals(BUFFER_SIZE, actual.getNettyBuffer().readableBytes());
+		assertEquals(buffer.asByteBuf(), readBuffer(actual));
+
+		actual.releaseBuffer();
+		buffer.recycleBuffer();
+		assertTrue(buffer.isRecycled());
+	}
+
+	private static NetworkBuffer createCompressibleBuffer() {
+		NetworkBuffer buffer = new NetworkBuffer(MemorySegmentFactory.allocateUnpooledSegment(BUFFER_SIZE),
+			FreeingBufferRecycler.INSTANCE);
+		for (int i = 0; i < BUFFER_SIZE; i += 4) {
+			buffer.writeInt(i % 16);
+		}
+		return buffer;
+	}
+
+	private static ByteBuf readBuffer(NettyMessage.BufferResponse response) throws Exception {
+		Buffer target = new NetworkBuffer(MemorySegmentFactory.allocateUnpooledSegment(BUFFER_SIZE),
+			FreeingBufferRecycler.INSTANCE);
+		response.readBufferTo(target, new BufferDecompressor());
+		assertFalse(target.isCompressed());
+		assertEquals(BUFFER_SIZE, target.readableBytes());
+		return target.asByteBuf();
+	}
+
+	/**
+	 * Creates a {@link CausalLogManager} that neither adds nor consumes any causal log deltas.
+	 */
+	private static CausalLogManager createCausalLogManager() {
+		CausalLogManager causalLogManager = mock(CausalLogManager.class);
+		when(causalLogManager.enrichWithCausalLogDeltas(
+			any(ByteBuf.class), any(InputChannelID.class), anyLong(), anyBoolean(), any(ByteBufAllocator.class)))
+			.thenAnswer(invocation -> invocation.getArguments()[0]);
+		return causalLogManager;
+	}
+
 	@SuppressWarnings("unchecked")
 	private <T extends NettyMessage> T encodeAndDecode(T msg) {
 		channel.writeOutbound(msg);
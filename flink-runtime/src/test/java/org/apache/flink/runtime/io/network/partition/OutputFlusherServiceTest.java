@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.network.partition;
+
+import org.apache.flink.api.common.JobID;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.runtime.inflightlogging.InFlightLogConfig;
+import org.apache.flink.runtime.inflightlogging.InFlightLogFactoryImpl;
+import org.apache.flink.runtime.io.disk.iomanager.IOManager;
+import org.apache.flink.runtime.io.disk.iomanager.IOManagerAsync;
+import org.apache.flink.runtime.io.network.buffer.BufferBuilder;
+import org.apache.flink.runtime.io.network.buffer.BufferConsumer;
+import org.apache.flink.runtime.taskmanager.TaskActions;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.apache.flink.runtime.io.network.buffer.BufferBuilderTestUtils.createBufferBuilder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests for the {@link OutputFlusherService}.
+ */
+public class OutputFlusherServiceTest {
+
+	private static final int NUM_SUBPARTITIONS = 100;
+
+	private IOManager ioManager;
+
+	private OutputFlusherService flusherService;
+
+	@Before
+	public void setup() {
+		ioManager = new IOManagerAsync();
+		flusherService = new OutputFlusherService();
+	}
+
+	@After
+	public void teardown() {
+		flusherService.shutdown();
+		ioManager.shutdown();
+	}
+
+	@Test
+	public void testOnlyDirtySubpartitionsAreFlushed() throws Exception {
+		ResultPartition partition = createPartition();
+		// a timeout long enough for the test to flush by itself
+		assertTrue(partition.startPeriodicFlush(Long.MAX_VALUE / 2, t -> { }));
+		AwaitableBufferAvailablityListener[] listeners = new AwaitableBufferAvailablityListener[NUM_SUBPARTITIONS];
+		for (int i = 0; i < NUM_SUBPARTITIONS; i++) {
+			listeners[i] = new AwaitableBufferAvailablityListener();
+			partition.createSubpartitionView(i, listeners[i]);
+			listeners[i].resetNotificationCounters();
+		}
+
+		BufferBuilder first = addBufferBuilder(partition, 3);
+		BufferBuilder second = addBufferBuilder(partition, 70);
+		partition.flushDirtySubpartitions();
+		assertNotifications(listeners, 3, 70);
+
+		// data written to the current buffer of a subpartition is flushed with the next tick
+		first.appendAndCommit(ByteBuffer.allocate(4));
+		partition.notifyDataWritten(3);
+		partition.flushDirtySubpartitions();
+		assertNotifications(listeners, 3, 3, 70);
+
+		partition.flushDirtySubpartitions();
+		assertNotifications(listeners, 3, 3, 70);
+
+		// all subpartitions are flushed after a broadcast
+		partition.notifyDataWrittenToAll();
+		partition.flushDirtySubpartitions();
+		assertEquals(3, listeners[3].getNumNotifications());
+		assertEquals(2, listeners[70].getNumNotifications());
+
+		first.finish();
+		second.finish();
+		partition.release();
+	}
+
+	@Test
+	public void testPartitionsAreFlushedPeriodically() throws Exception {
+		ResultPartition fast = createPartition();
+		ResultPartition slow = createPartition();
+		AtomicReference<Throwable> error = new AtomicReference<>();
+		assertTrue(fast.startPeriodicFlush(1, error::set));
+		assertTrue(slow.startPeriodicFlush(Long.MAX_VALUE / 2, error::set));
+		assertEquals(2, flusherService.getNumberOfTicks());
+
+		addBufferBuilder(fast, 0).finish();
+		addBufferBuilder(slow, 0).finish();
+		while (!((PipelinedSubpartition) fast.getResultSubpartitions()[0]).isAvailable()) {
+			Thread.sleep(1);
+		}
+		// finished buffers are available without a flush, unfinished ones need one
+		addBufferBuilder(fast, 1);
+		addBufferBuilder(slow, 1);
+		while (!((PipelinedSubpartition) fast.getResultSubpartitions()[1]).isAvailable()) {
+			Thread.sleep(1);
+		}
+		assertFalse(((PipelinedSubpartition) slow.getResultSubpartitions()[1]).isAvailable());
+
+		fast.release();
+		slow.stopPeriodicFlush();
+		assertEquals(0, flusherService.getNumberOfTicks());
+		assertNull(error.get());
+		slow.release();
+	}
+
+	private ResultPartition createPartition() {
+		Configuration configuration = new Configuration();
+		configuration.setString(InFlightLogConfig.IN_FLIGHT_LOG_TYPE, "inmemory");
+		ResultPartition partition = new ResultPartition(
+			"TestTask",
+			mock(TaskActions.class),
+			new JobID(),
+			new ResultPartitionID(),
+			ResultPartitionType.PIPELINED,
+			NUM_SUBPARTITIONS,
+			NUM_SUBPARTITIONS,
+			mock(ResultPartitionManager.class),
+			new NoOpResultPartitionConsumableNotifier(),
+			ioManager,
+			new InFlightLogFactoryImpl(new InFlightLogConfig(configuration), ioManager, null),
+			false);
+		partition.setOutputFlusherService(flusherService);
+		return partition;
+	}
+
+	private static BufferBuilder addBufferBuilder(ResultPartition partition, int subpartitionIndex) throws Exception {
+		BufferBuilder bufferBuilder = createBufferBuilder();
+		BufferConsumer bufferConsumer = bufferBuilder.createBufferConsumer();
+		bufferBuilder.appendAndCommit(ByteBuffer.allocate(4));
+		partition.addBufferConsumer(bufferConsumer, subpartitionIndex);
+		return bufferBuilder;
+	}
+
+	private static void assertNotifications(AwaitableBufferAvailablityListener[] listeners, int... flushed) {
+		int[] expected = new int[listeners.length];
+		for (int subpartitionIndex : flushed) {
+			expected[subpartitionIndex]++;
+		}
+		for (int i = 0; i < listeners.length; i++) {
+			assertEquals("Notifications of subpartition " + i, expected[i], listeners[i].getNumNotifications());
+		}
+	}
+}
@@ -20,13 +20,27 @@ package org.apache.flink.runtime.io.network.partition;
 
 import org.apache.flink.core.memory.MemorySegment;
 import org.apache.flink.core.memory.MemorySegmentFactory;
+import org.apache.flink.runtime.causal.EpochTracker;
 import org.apache.flink.runtime.causal.EpochTrackerImpl;
+import org.apache.flink.runtime.causal.log.job.CausalLogID;
+import org.apache.flink.runtime.causal.log.job.JobCausalLog;
+import org.apache.flink.runtime.causal.log.thread.ThreadCausalLog;
+import org.apache.flink.runtime.causal.recovery.IRecoveryManager;
+import org.apache.flink.runtime.causal.recovery.IRecoveryManagerContext;
+import org.apache.flink.runtime.causal.recovery.RecoveryMetrics;
 import org.apache.flink.runtime.event.AbstractEvent;
+import org.apache.flink.runtime.event.InFlightLogPositionEvent;
+import org.apache.flink.runtime.inflightlogging.InFlightLog;
 import org.apache.flink.runtime.inflightlogging.InMemorySubpartitionInFlightLogger;
 import org.apache.flink.runtime.io.network.buffer.Buffer;
 import org.apache.flink.runtime.io.network.buffer.BufferBuilder;
 import org.apache.flink.runtime.io.network.buffer.BufferConsumer;
+import org.apache.flink.runtime.io.network.buffer.BufferDecompressor;
+import org.apache.flink.runtime.io.network.buffer.BufferPool;
 import org.apache.flink.runtime.io.network.buffer.BufferProvider;
+import org.apache.flink.runtime.io.network.buffer.FreeingBufferRecycler;
+import org.apache.flink.runtime.io.network.buffer.NetworkBuffer;
+import org.apache.flink.runtime.io.network.buffer.NetworkBufferPool;
 import org.apache.flink.runtime.io.network.util.TestConsumerCallback;
 import org.apache.flink.runtime.io.network.util.TestPooledBufferProvider;
 import org.apache.flink.runtime.io.network.util.TestProducerSource;
@@ -38,6 +52,7 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
@@ -48,8 +63,10 @@ import static org.apache.flink.util.Preconditions.checkState;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -309,4 +326,240 @@ public class PipelinedSubpartitionTest extends SubpartitionTestBase {
 		//partition.notifyCheckpointComplete(1);
 	}
 
+	/**
+	 * Tests that a replay starts at the position the consumer reported, relative to its last barrier or to the start
+	 * of the data it consumed.
+	 */
+	@Test
+	public void testReplayFromReportedPosition() throws Exception {
+		PipelinedSubpartition partition = createCausalSubpartition(null);
+
+		addAndPoll(partition, 1, 8, 1);
+		addAndPoll(partition, 1, 8, 2);
+		addAndPoll(partition, 2, 8, 3);
+
+		// one buffer after the barrier of checkpoint 1, which ended epoch 0
+		partition.notifyReplayPosition(3, 1, 1, 0);
+		// one buffer and two bytes after the start of the stream
+		partition.notifyReplayPosition(4, InFlightLogPositionEvent.NO_BARRIER, 1, 2);
+
+		partition.requestReplay(3, 0);
+		assertReplayedBuffer(partition.pollBuffer(), 8, 2);
+		assertReplayedBuffer(partition.pollBuffer(), 8, 3);
+		assertNull(partition.pollBuffer());
+
+		partition.requestReplay(4, 0);
+		assertReplayedBuffer(partition.pollBuffer(), 6, 2);
+		assertReplayedBuffer(partition.pollBuffer(), 8, 3);
+		assertNull(partition.pollBuffer());
+	}
+
+	@Test
+	public void testReplayFromPositionWithinBuffer() throws Exception {
+		PipelinedSubpartition partition = createCausalSubpartition(null);
+
+		addAndPoll(partition, 1, 8, 1);
+		addAndPoll(partition, 2, 8, 2);
+
+		partition.notifyReplayPosition(2, 1, 0, 5);
+
+		partition.requestReplay(2, 0);
+		assertReplayedBuffer(partition.pollBuffer(), 3, 1);
+		assertReplayedBuffer(partition.pollBuffer(), 8, 2);
+		assertNull(partition.pollBuffer());
+	}
+
+	/**
+	 * Tests that the in-flight log keeps the uncompressed buffer of a buffer sent compressed, so that a replay can
+	 * start within it, and that the replayed rest is compressed again.
+	 */
+	@Test
+	public void testReplayFromPositionWithinCompressedBuffer() throws Exception {
+		final int bufferSize = 32 * 1024;
+		NetworkBufferPool networkBufferPool = new NetworkBufferPool(4, bufferSize);
+		try {
+			BufferPool bufferPool = networkBufferPool.createBufferPool(4, 4);
+			PipelinedSubpartition partition = createCausalSubpartition(bufferPool);
+			BufferAvailabilityListener listener = mock(BufferAvailabilityListener.class);
+			when(listener.isRemote()).thenReturn(true);
+			partition.createReadView(listener);
+
+			byte[] data = new byte[bufferSize];
+			for (int i = 0; i < bufferSize; i++) {
+				data[i] = (byte) (i % 7);
+			}
+			partition.add(new BufferConsumer(MemorySegmentFactory.wrap(data), FreeingBufferRecycler.INSTANCE, true, 1));
+			Buffer sent = partition.pollBuffer().buffer();
+			assertTrue(sent.isCompressed());
+			assertEquals(1, bufferPool.bestEffortGetNumOfUsedBuffers());
+			sent.recycleBuffer();
+			// the in-flight log keeps the uncompressed buffer
+			assertEquals(0, bufferPool.bestEffortGetNumOfUsedBuffers());
+
+			partition.notifyReplayPosition(2, 1, 0, 10);
+			partition.requestReplay(2, 0);
+
+			Buffer replayed = partition.pollBuffer().buffer();
+			assertTrue(replayed.isCompressed());
+			Buffer decompressed = new NetworkBuffer(MemorySegmentFactory.allocateUnpooledSegment(bufferSize),
+				FreeingBufferRecycler.INSTANCE);
+			new BufferDecompressor().decompress(replayed, decompressed);
+			assertEquals(bufferSize - 10, decompressed.readableBytes());
+			ByteBuffer bytes = decompressed.getNioBufferReadable();
+			for (int i = 0; i < bytes.remaining(); i++) {
+				assertEquals((byte) ((i + 10) % 7), bytes.get(i));
+			}
+			decompressed.recycleBuffer();
+
+			replayed.recycleBuffer();
+			assertEquals(0, bufferPool.bestEffortGetNumOfUsedBuffers());
+			assertNull(partition.pollBuffer());
+		} finally {
+			networkBufferPool.destroyAllBufferPools();
+			networkBufferPool.destroy();
+		}
+	}
+
+	/**
+	 * Tests that a completed checkpoint does not truncate the epochs that its position or the positions of later
+	 * checkpoints are in.
+	 */
+	@Test
+	public void testCompletedCheckpointKeepsReferencedEpochs() throws Exception {
+		PipelinedSubpartition partition = createCausalSubpartition(null);
+		InFlightLog inFlightLog = partition.getInFlightLog();
+
+		addAndPoll(partition, 1, 8, 1);
+		addAndPoll(partition, 2, 8, 2);
+		addAndPoll(partition, 3, 8, 3);
+
+		partition.notifyReplayPosition(3, 2, 0, 4);
+		partition.notifyReplayPosition(4, 2, 1, 0);
+		partition.notifyCheckpointComplete(3);
+		assertEquals(16, inFlightLog.getLogSizeInBytes());
+
+		partition.notifyCheckpointComplete(4);
+		assertEquals(16, inFlightLog.getLogSizeInBytes());
+
+		partition.requestReplay(4, 0);
+		assertReplayedBuffer(partition.pollBuffer(), 8, 3);
+		assertNull(partition.pollBuffer());
+	}
+
+	/**
+	 * Tests that the log is not truncated for a completed unaligned checkpoint before its position arrived, which
+	 * may be in any epoch after the previous completed checkpoint.
+	 */
+	@Test
+	public void testTruncationWaitsForPositionOfCompletedCheckpoint() throws Exception {
+		PipelinedSubpartition partition = createCausalSubpartition(null);
+		partition.setUnalignedCheckpointsEnabled(true);
+		InFlightLog inFlightLog = partition.getInFlightLog();
+
+		addAndPoll(partition, 1, 8, 1);
+		addAndPoll(partition, 2, 8, 2);
+		addAndPoll(partition, 3, 8, 3);
+
+		partition.notifyCheckpointComplete(3);
+		assertEquals(24, inFlightLog.getLogSizeInBytes());
+
+		// the position was sent before the checkpoint was acknowledged, but arrives late
+		partition.notifyReplayPosition(3, 2, 0, 4);
+		assertEquals(16, inFlightLog.getLogSizeInBytes());
+
+		// positions of subsumed checkpoints are dropped
+		partition.notifyReplayPosition(2, 1, 0, 0);
+		partition.requestReplay(2, 0);
+		assertReplayedBuffer(partition.pollBuffer(), 8, 2);
+		assertReplayedBuffer(partition.pollBuffer(), 8, 3);
+		assertNull(partition.pollBuffer());
+
+		partition.requestReplay(3, 0);
+		assertReplayedBuffer(partition.pollBuffer(), 4, 2);
+		assertReplayedBuffer(partition.pollBuffer(), 8, 3);
+		assertNull(partition.pollBuffer());
+	}
+
+	@Test
+	public void testReplayWithoutPositionOfCompletedUnalignedCheckpointFails() throws Exception {
+		PipelinedSubpartition partition = createCausalSubpartition(null);
+		partition.setUnalignedCheckpointsEnabled(true);
+
+		addAndPoll(partition, 1, 8, 1);
+		partition.notifyCheckpointComplete(2);
+
+		try {
+			partition.requestReplay(2, 0);
+			fail("Replayed without knowing where the consumer stopped processing.");
+		} catch (IllegalStateException expected) {
+		}
+	}
+
+	@Test
+	public void testReplayFromTruncatedPositionFails() throws Exception {
+		PipelinedSubpartition partition = createCausalSubpartition(null);
+
+		addAndPoll(partition, 1, 8, 1);
+		addAndPoll(partition, 2, 8, 2);
+		addAndPoll(partition, 3, 8, 3);
+
+		// aligned checkpoints truncate right away
+		partition.notifyCheckpointComplete(3);
+		partition.notifyReplayPosition(4, 1, 0, 4);
+
+		try {
+			partition.requestReplay(4, 0);
+			fail("Replayed from a position in a truncated epoch.");
+		} catch (IllegalStateException expected) {
+		}
+
+		// skipping buffers of a truncated epoch would skip them in the next one
+		try {
+			partition.requestReplay(2, 1);
+			fail("Skipped buffers of a truncated epoch.");
+		} catch (IllegalStateException expected) {
+		}
+	}
+
+	/**
+	 * Creates a subpartition with an in-memory in-flight log, whose causal components accept any determinant.
+	 */
+	private static PipelinedSubpartition createCausalSubpartition(BufferPool bufferPool) {
+		ResultPartition parent = mock(ResultPartition.class);
+		when(parent.getPartitionId()).thenReturn(new ResultPartitionID());
+		when(parent.getBufferPool()).thenReturn(bufferPool);
+		when(parent.isBufferCompressionEnabled()).thenReturn(bufferPool != null);
+
+		IRecoveryManagerContext context = mock(IRecoveryManagerContext.class);
+		when(context.getEpochTracker()).thenReturn(mock(EpochTracker.class));
+		when(context.getRecoveryMetrics()).thenReturn(new RecoveryMetrics());
+		IRecoveryManager recoveryManager = mock(IRecoveryManager.class);
+		when(recoveryManager.getContext()).thenReturn(context);
+		JobCausalLog causalLog = mock(JobCausalLog.class);
+		when(causalLog.getThreadCausalLog(any(CausalLogID.class))).thenReturn(mock(ThreadCausalLog.class));
+
+		PipelinedSubpartition partition =
+			new PipelinedSubpartition(0, parent, new InMemorySubpartitionInFlightLogger());
+		partition.setCausalComponents(recoveryManager, causalLog);
+		return partition;
+	}
+
+	private static void addAndPoll(PipelinedSubpartition partition, long epochID, int size, int value) {
+		byte[] data = new byte[size];
+		Arrays.fill(data, (byte) value);
+		partition.add(new BufferConsumer(MemorySegmentFactory.wrap(data), FreeingBufferRecycler.INSTANCE, true,
+			epochID));
+		partition.pollBuffer().buffer().recycleBuffer();
+	}
+
+	private static void assertReplayedBuffer(ResultSubpartition.BufferAndBacklog next, int size, int value) {
+		assertNotNull(next);
+		Buffer buffer = next.buffer();
+		assertEquals(size, buffer.readableBytes());
+		ByteBuffer bytes = buffer.getNioBufferReadable();
+		for (int i = 0; i < bytes.remaining(); i++) {
+			assertEquals((byte) value, bytes.get(i));
+		}
+		buffer.recycleBuffer();
+	}
 }
@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.network.partition.consumer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the {@link BufferDebloater}.
+ */
+public class BufferDebloaterTest {
+
+	private static final long MILLIS = 1_000_000L;
+
+	@Test
+	public void testBufferSizeFollowsThroughput() {
+		BufferDebloater debloater = new BufferDebloater(256, 32 * 1024, 1000, 100);
+
+		// 100 KB consumed in 100 ms
+		assertFalse(debloater.onBufferConsumed(50 * 1024, 0));
+		assertEquals(-1, debloater.recalculateBufferSize(10));
+		assertTrue(debloater.onBufferConsumed(50 * 1024, 100 * MILLIS));
+		assertEquals(1_024_000, (long) debloater.getThroughput());
+		// no announcement of the full buffer size, which producers start with
+		assertEquals(-1, debloater.recalculateBufferSize(10));
+		assertEquals(1_024_000 / 64, debloater.recalculateBufferSize(64));
+
+		// the throughput drops to a tenth, which is smoothed
+		assertTrue(debloater.onBufferConsumed(10 * 1024, 200 * MILLIS));
+		assertEquals(563_200, (long) debloater.getThroughput());
+		assertEquals(563_200 / 64, debloater.recalculateBufferSize(64));
+	}
+
+	@Test
+	public void testSmallChangesAreNotAnnounced() {
+		BufferDebloater debloater = new BufferDebloater(256, 32 * 1024, 1000, 100);
+
+		debloater.onBufferConsumed(0, 0);
+		debloater.onBufferConsumed(100 * 1024, 100 * MILLIS);
+		assertEquals(1_024_000 / 64, debloater.recalculateBufferSize(64));
+		assertEquals(-1, debloater.recalculateBufferSize(70));
+		assertEquals(1_024_000 / 128, debloater.recalculateBufferSize(128));
+	}
+
+	@Test
+	public void testBufferSizeIsBounded() {
+		BufferDebloater debloater = new BufferDebloater(256, 32 * 1024, 1000, 100);
+
+		debloater.onBufferConsumed(0, 0);
+		debloater.onBufferConsumed(1024, 100 * MILLIS);
+		assertEquals(256, debloater.recalculateBufferSize(100));
+		debloater.onBufferConsumed(1024 * 1024 * 1024, 200 * MILLIS);
+		assertEquals(32 * 1024, debloater.recalculateBufferSize(100));
+	}
+}
@@ -19,13 +19,18 @@
 package org.apache.flink.runtime.io.network.partition.consumer;
 
 import org.apache.flink.api.common.JobID;
+import org.apache.flink.core.memory.MemorySegmentFactory;
 import org.apache.flink.runtime.execution.CancelTaskException;
 import org.apache.flink.runtime.inflightlogging.InMemoryInFlightLogFactory;
 import org.apache.flink.runtime.io.disk.iomanager.IOManager;
 import org.apache.flink.runtime.io.network.TaskEventDispatcher;
+import org.apache.flink.runtime.io.network.buffer.Buffer;
 import org.apache.flink.runtime.io.network.buffer.BufferBuilder;
+import org.apache.flink.runtime.io.network.buffer.BufferCompressor;
 import org.apache.flink.runtime.io.network.buffer.BufferPool;
 import org.apache.flink.runtime.io.network.buffer.BufferProvider;
+import org.apache.flink.runtime.io.network.buffer.FreeingBufferRecycler;
+import org.apache.flink.runtime.io.network.buffer.NetworkBuffer;
 import org.apache.flink.runtime.io.network.buffer.NetworkBufferPool;
 import org.apache.flink.runtime.io.network.partition.BufferAvailabilityListener;
 import org.apache.flink.runtime.io.network.partition.NoOpResultPartitionConsumableNotifier;
@@ -35,6 +40,7 @@ import org.apache.flink.runtime.io.network.partition.ResultPartitionConsumableNo
 import org.apache.flink.runtime.io.network.partition.ResultPartitionID;
 import org.apache.flink.runtime.io.network.partition.ResultPartitionManager;
 import org.apache.flink.runtime.io.network.partition.ResultPartitionType;
+import org.apache.flink.runtime.io.network.partition.ResultSubpartition.BufferAndBacklog;
 import org.apache.flink.runtime.io.network.partition.ResultSubpartitionView;
 import org.apache.flink.runtime.io.network.util.TestBufferFactory;
 import org.apache.flink.runtime.io.network.util.TestPartitionProducer;
@@ -66,7 +72,9 @@ import scala.Tuple2;
 
 import static org.apache.flink.util.FutureUtil.waitForAll;
 import static org.apache.flink.util.Preconditions.checkArgument;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyInt;
@@ -404,6 +412,56 @@ public class LocalInputChannelTest {
 		assertFalse(channel.getNextBuffer().isPresent());
 	}
 
+	/**
+	 * Tests that compressed buffers of the local subpartition are handed out decompressed.
+	 */
+	@Test
+	public void testGetNextDecompressesCompressedBuffer() throws Exception {
+		final int bufferSize = 32 * 1024;
+		ResultSubpartitionView reader = mock(ResultSubpartitionView.class);
+		ResultPartitionManager partitionManager = mock(ResultPartitionManager.class);
+
+		when(partitionManager.createSubpartitionView(
+			any(ResultPartitionID.class),
+			anyInt(),
+			any(BufferAvailabilityListener.class))).thenReturn(reader);
+
+		LocalInputChannel channel = new LocalInputChannel(
+			mock(SingleInputGate.class),
+			0,
+			new ResultPartitionID(),
+			partitionManager,
+			new TaskEventDispatcher(),
+			UnregisteredMetricGroups.createUnregisteredTaskMetricGroup().getIOMetricGroup());
+
+		channel.requestSubpartition(0);
+
+		Buffer original = new NetworkBuffer(MemorySegmentFactory.allocateUnpooledSegment(bufferSize),
+			FreeingBufferRecycler.INSTANCE);
+		for (int i = 0; i < bufferSize; i += 4) {
+			original.asByteBuf().writeInt(i % 16);
+		}
+		Buffer compressed = new NetworkBuffer(MemorySegmentFactory.allocateUnpooledSegment(bufferSize),
+			FreeingBufferRecycler.INSTANCE);
+		assertTrue(new BufferCompressor().compress(original.readOnlySlice(), compressed));
+
+		when(reader.getNextBuffer()).thenReturn(new BufferAndBacklog(compressed, true, 1, false));
+
+		InputChannel.BufferAndAvailability next = channel.getNextBuffer().get();
+		Buffer decompressed = next.buffer();
+
+		assertTrue(compressed.isRecycled());
+		assertTrue(decompressed.isBuffer());
+		assertFalse(decompressed.isCompressed());
+		assertEquals(bufferSize, decompressed.readableBytes());
+		assertEquals(original.asByteBuf(), decompressed.asByteBuf());
+		assertTrue(next.moreAvailable());
+		assertEquals(1, next.buffersInBacklog());
+
+		decompressed.recycleBuffer();
+		channel.releaseAllResources();
+	}
+
 	// ---------------------------------------------------------------------------------------------
 
 	private LocalInputChannel createLocalInputChannel(
@@ -0,0 +1,41 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.rest.messages;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests that the {@link JobVertexRecoveryInfo} can be marshalled and unmarshalled.
+ */
+public class JobVertexRecoveryInfoTest extends RestResponseMarshallingTestBase<JobVertexRecoveryInfo> {
+	@Override
+	protected Class<JobVertexRecoveryInfo> getTestResponseClass() {
+		return JobVertexRecoveryInfo.class;
+	}
+
+	@Override
+	protected JobVertexRecoveryInfo getTestResponseInstance() throws Exception {
+		List<JobVertexRecoveryInfo.SubtaskRecoveryInfo> subtaskList = new ArrayList<>();
+		subtaskList.add(new JobVertexRecoveryInfo.SubtaskRecoveryInfo(0, "RunningState", 0L, 12L, 5L, 310L, 2048L, 0L, 0.0, 0.0));
+		subtaskList.add(new JobVertexRecoveryInfo.SubtaskRecoveryInfo(1, "ReplayingState", 1000L, 8L, 3L, 42L, 1024L, 512L, 120.5, 33.0));
+		subtaskList.add(new JobVertexRecoveryInfo.SubtaskRecoveryInfo(2, null, 0L, 0L, 0L, 0L, 0L, 0L, 0.0, 0.0));
+		return new JobVertexRecoveryInfo(System.currentTimeMillis(), subtaskList);
+	}
+}
@@ -106,6 +106,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -239,6 +240,10 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 	/** The native metrics monitor. */
 	private RocksDBNativeMetricMonitor nativeMetricMonitor;
 
+	/** Cache of the sst files downloaded by previous restores of this operator, null if disabled. */
+	@Nullable
+	private final RocksDBRestoreFileCache restoreFileCache;
+
 	public RocksDBKeyedStateBackend(
 		String operatorIdentifier,
 		ClassLoader userCodeClassLoader,
@@ -257,6 +262,30 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 		RocksDBNativeMetricOptions metricOptions,
 		MetricGroup metricGroup
 	) throws IOException {
+		this(operatorIdentifier, userCodeClassLoader, instanceBasePath, dbOptions, columnFamilyOptions, kvStateRegistry,
+			keySerializer, numberOfKeyGroups, keyGroupRange, executionConfig, enableIncrementalCheckpointing,
+			localRecoveryConfig, priorityQueueStateType, ttlTimeProvider, metricOptions, metricGroup, null);
+	}
+
+	public RocksDBKeyedStateBackend(
+		String operatorIdentifier,
+		ClassLoader userCodeClassLoader,
+		File instanceBasePath,
+		DBOptions dbOptions,
+		ColumnFamilyOptions columnFamilyOptions,
+		TaskKvStateRegistry kvStateRegistry,
+		TypeSerializer<K> keySerializer,
+		int numberOfKeyGroups,
+		KeyGroupRange keyGroupRange,
+		ExecutionConfig executionConfig,
+		boolean enableIncrementalCheckpointing,
+		LocalRecoveryConfig localRecoveryConfig,
+		RocksDBStateBackend.PriorityQueueStateType priorityQueueStateType,
+		TtlTimeProvider ttlTimeProvider,
+		RocksDBNativeMetricOptions metricOptions,
+		MetricGroup metricGroup,
+		@Nullable RocksDBRestoreFileCache restoreFileCache
+	) throws IOException {
 
 		super(kvStateRegistry, keySerializer, userCodeClassLoader,
 			numberOfKeyGroups, keyGroupRange, executionConfig, ttlTimeProvider);
@@ -292,6 +321,7 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 
 		this.metricOptions = metricOptions;
 		this.metricGroup = metricGroup;
+		this.restoreFileCache = restoreFileCache;
 
 		switch (priorityQueueStateType) {
 			case HEAP:
@@ -417,6 +447,10 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 
 			cleanInstanceBasePath();
 		}
+
+		if (restoreFileCache != null) {
+			restoreFileCache.release();
+		}
 	}
 
 	@Nonnull
@@ -906,6 +940,11 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 					localKeyedStateHandle,
 					columnFamilyDescriptors,
 					stateMetaInfoSnapshots);
+
+				if (stateBackend.restoreFileCache != null && rawStateHandle instanceof IncrementalKeyedStateHandle) {
+					stateBackend.restoreFileCache.retainOnly(
+						((IncrementalKeyedStateHandle) rawStateHandle).getSharedState().values());
+				}
 			} finally {
 				FileSystem restoreFileSystem = temporaryRestoreInstancePath.getFileSystem();
 				if (restoreFileSystem.exists(temporaryRestoreInstancePath)) {
@@ -981,6 +1020,14 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 					}
 				}
 			}
+
+			if (stateBackend.restoreFileCache != null) {
+				List<StreamStateHandle> restoredFiles = new ArrayList<>();
+				for (KeyedStateHandle rawStateHandle : restoreStateHandles) {
+					restoredFiles.addAll(((IncrementalKeyedStateHandle) rawStateHandle).getSharedState().values());
+				}
+				stateBackend.restoreFileCache.retainOnly(restoredFiles);
+			}
 		}
 
 		private class RestoredDBInstance implements AutoCloseable {
@@ -1284,10 +1331,41 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 			final Map<StateHandleID, StreamStateHandle> miscFiles =
 				restoreStateHandle.getPrivateState();
 
-			transferAllDataFromStateHandles(sstFiles, dest);
+			if (stateBackend.restoreFileCache != null) {
+				transferSstFilesThroughCache(sstFiles, dest, stateBackend.restoreFileCache);
+			} else {
+				transferAllDataFromStateHandles(sstFiles, dest);
+			}
 			transferAllDataFromStateHandles(miscFiles, dest);
 		}
 
+		/**
+		 * Links the sst files that previous restores already downloaded and only copies the new ones, which are then
+		 * added to the cache.
+		 */
+		private void transferSstFilesThroughCache(
+			Map<StateHandleID, StreamStateHandle> sstFiles,
+			Path restoreInstancePath,
+			RocksDBRestoreFileCache restoreFileCache) throws IOException {
+
+			Files.createDirectories(Paths.get(restoreInstancePath.getPath()));
+
+			int numCachedFiles = 0;
+			for (Map.Entry<StateHandleID, StreamStateHandle> entry : sstFiles.entrySet()) {
+				Path restoreFilePath = new Path(restoreInstancePath, entry.getKey().toString());
+				java.nio.file.Path localFilePath = Paths.get(restoreFilePath.getPath());
+				if (restoreFileCache.linkTo(entry.getValue(), localFilePath)) {
+					numCachedFiles++;
+				} else {
+					copyStateDataHandleData(restoreFilePath, entry.getValue());
+					restoreFileCache.add(entry.getValue(), localFilePath);
+				}
+			}
+
+			LOG.info("Restored {} of {} sst files of {} from the local restore file cache.",
+				numCachedFiles, sstFiles.size(), stateBackend.operatorIdentifier);
+		}
+
 		/**
 		 * Copies all the files from the given stream state handles to the given path, renaming the files w.r.t. their
 		 * {@link StateHandleID}.
@@ -45,4 +45,15 @@ public class RocksDBOptions {
 		.withDescription(String.format("This determines the factory for timer service state implementation. Options " +
 			"are either %s (heap-based, default) or %s for an implementation based on RocksDB .",
 			HEAP.name(), ROCKSDB.name()));
+
+	/**
+	 * Whether sst files downloaded while restoring are kept to speed up later restores of the same operator.
+	 */
+	public static final ConfigOption<Boolean> CACHE_RESTORED_FILES = ConfigOptions
+		.key("state.backend.rocksdb.restore.cache-files")
+		.defaultValue(false)
+		.withDescription("If enabled, the sst files downloaded while restoring an incremental checkpoint are kept in " +
+			"a local cache, so that a later restore of the same operator on the TaskManager only downloads the files " +
+			"added since. Standby tasks restore every completed checkpoint, which makes this worthwhile for large " +
+			"state.");
 }
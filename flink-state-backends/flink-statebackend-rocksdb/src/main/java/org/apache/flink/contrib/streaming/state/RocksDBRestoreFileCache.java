@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.contrib.streaming.state;
+
+import org.apache.flink.runtime.state.StreamStateHandle;
+import org.apache.flink.runtime.state.filesystem.FileStateHandle;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.apache.flink.contrib.streaming.state.snapshot.RocksSnapshotUtil.SST_FILE_SUFFIX;
+
+/**
+ * A local cache of the immutable sst files downloaded while restoring an incremental checkpoint. It outlives the
+ * {@link RocksDBKeyedStateBackend} that restored them, so that a later restore of the same operator instance, e.g.
+ * a standby task restoring each completed checkpoint, only downloads the files that were added since.
+ *
+ * <p>Files are identified by the location of their remote copy and are shared with the restored instances through
+ * hard links, so removing them from the cache never affects a running instance.
+ *
+ * <p>Every backend of the operator instance has its own cache object on the same directory. The directory records
+ * which of them restored last, so that disposing an older backend does not evict the files of a newer one.
+ */
+public class RocksDBRestoreFileCache {
+
+	private static final Logger LOG = LoggerFactory.getLogger(RocksDBRestoreFileCache.class);
+
+	/** The file recording the owner of the last restore, which is never evicted with the cached files. */
+	private static final String OWNER_FILE_NAME = "OWNER";
+
+	/** The directory holding the cached files. */
+	private final File cacheDirectory;
+
+	/** Identifies this cache object, i.e. the backend it belongs to, in the owner file. */
+	private final String ownerId = UUID.randomUUID().toString();
+
+	public RocksDBRestoreFileCache(@Nonnull File cacheDirectory) throws IOException {
+		this.cacheDirectory = cacheDirectory;
+		if (!cacheDirectory.exists() && !cacheDirectory.mkdirs()) {
+			throw new IOException("Could not create restore file cache directory " + cacheDirectory + '.');
+		}
+	}
+
+	/**
+	 * Links the cached copy of the given remote file to the target path.
+	 *
+	 * @return true if the file was cached and linked, false if it has to be downloaded.
+	 */
+	public boolean linkTo(StreamStateHandle remoteFileHandle, Path target) {
+		final File cachedFile = getCachedFile(remoteFileHandle);
+		if (cachedFile == null || !cachedFile.exists()) {
+			return false;
+		}
+
+		try {
+			Files.createLink(target, cachedFile.toPath());
+			return true;
+		} catch (IOException e) {
+			// the file was evicted concurrently or lives on another file system
+			LOG.debug("Could not link cached file {} to {}.", cachedFile, target, e);
+			return false;
+		}
+	}
+
+	/**
+	 * Adds a freshly downloaded copy of the given remote file to the cache.
+	 */
+	public void add(StreamStateHandle remoteFileHandle, Path downloadedFile) {
+		final File cachedFile = getCachedFile(remoteFileHandle);
+		if (cachedFile == null || cachedFile.exists()) {
+			return;
+		}
+
+		try {
+			Files.createLink(cachedFile.toPath(), downloadedFile);
+		} catch (IOException e) {
+			LOG.debug("Could not cache downloaded file {}.", downloadedFile, e);
+		}
+	}
+
+	/**
+	 * Evicts all files except the ones of the given remote files, i.e. the ones of the last restored checkpoint, and
+	 * records this cache object as the owner of the last restore.
+	 */
+	public void retainOnly(Collection<StreamStateHandle> remoteFileHandles) {
+		final Set<String> retained = new HashSet<>(remoteFileHandles.size() + 1);
+		retained.add(OWNER_FILE_NAME);
+		for (StreamStateHandle remoteFileHandle : remoteFileHandles) {
+			final File cachedFile = getCachedFile(remoteFileHandle);
+			if (cachedFile != null) {
+				retained.add(cachedFile.getName());
+			}
+		}
+
+		evictAllExcept(retained);
+
+		try {
+			Files.write(getOwnerFile().toPath(), ownerId.getBytes(StandardCharsets.UTF_8));
+		} catch (IOException e) {
+			LOG.debug("Could not record the owner of restore file cache {}.", cacheDirectory, e);
+		}
+	}
+
+	/**
+	 * Evicts all files, unless another cache object has restored through the same directory since this one did, e.g.
+	 * the backend replacing a disposed one on a standby task.
+	 */
+	public void release() {
+		final File ownerFile = getOwnerFile();
+		try {
+			if (ownerFile.exists() &&
+				!ownerId.equals(new String(Files.readAllBytes(ownerFile.toPath()), StandardCharsets.UTF_8))) {
+				return;
+			}
+		} catch (IOException e) {
+			LOG.debug("Could not read the owner of restore file cache {}.", cacheDirectory, e);
+			return;
+		}
+
+		evictAllExcept(Collections.emptySet());
+		if (!cacheDirectory.delete()) {
+			LOG.debug("Could not delete restore file cache directory {}.", cacheDirectory);
+		}
+	}
+
+	public File getCacheDirectory() {
+		return cacheDirectory;
+	}
+
+	private void evictAllExcept(Set<String> retained) {
+		final File[] cachedFiles = cacheDirectory.listFiles();
+		if (cachedFiles == null) {
+			return;
+		}
+		for (File cachedFile : cachedFiles) {
+			if (!retained.contains(cachedFile.getName()) && !cachedFile.delete()) {
+				LOG.debug("Could not evict cached file {}.", cachedFile);
+			}
+		}
+	}
+
+	private File getOwnerFile() {
+		return new File(cacheDirectory, OWNER_FILE_NAME);
+	}
+
+	/**
+	 * Only files with a stable remote location can be cached. Small in-line handles are always transferred.
+	 */
+	@Nullable
+	private File getCachedFile(StreamStateHandle remoteFileHandle) {
+		if (!(remoteFileHandle instanceof FileStateHandle)) {
+			return null;
+		}
+
+		final String remotePath = ((FileStateHandle) remoteFileHandle).getFilePath().toString();
+		return new File(cacheDirectory, UUID.nameUUIDFromBytes(remotePath.getBytes(StandardCharsets.UTF_8)) +
+			SST_FILE_SUFFIX);
+	}
+}
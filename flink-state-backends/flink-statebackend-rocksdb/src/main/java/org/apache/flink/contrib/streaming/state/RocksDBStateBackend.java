@@ -126,6 +126,9 @@ public class RocksDBStateBackend extends AbstractStateBackend implements Configu
 	/** The default rocksdb metrics options. */
 	private final RocksDBNativeMetricOptions defaultMetricOptions;
 
+	/** This determines if the sst files downloaded during restores are cached for later restores. */
+	private final boolean cacheRestoredFiles;
+
 	// -- runtime values, set on TaskManager when initializing / using the backend
 
 	/** Base paths for RocksDB directory, as initialized. */
@@ -241,6 +244,7 @@ public class RocksDBStateBackend extends AbstractStateBackend implements Configu
 		// for now, we use still the heap-based implementation as default
 		this.priorityQueueStateType = PriorityQueueStateType.HEAP;
 		this.defaultMetricOptions = new RocksDBNativeMetricOptions();
+		this.cacheRestoredFiles = RocksDBOptions.CACHE_RESTORED_FILES.defaultValue();
 	}
 
 	/**
@@ -303,6 +307,9 @@ public class RocksDBStateBackend extends AbstractStateBackend implements Configu
 		// configure metric options
 		this.defaultMetricOptions = RocksDBNativeMetricOptions.fromConfig(config);
 
+		this.cacheRestoredFiles = config.contains(RocksDBOptions.CACHE_RESTORED_FILES) ?
+			config.getBoolean(RocksDBOptions.CACHE_RESTORED_FILES) : original.cacheRestoredFiles;
+
 		// copy remaining settings
 		this.predefinedOptions = original.predefinedOptions;
 		this.optionsFactory = original.optionsFactory;
@@ -433,8 +440,21 @@ public class RocksDBStateBackend extends AbstractStateBackend implements Configu
 
 		lazyInitializeForJob(env, fileCompatibleIdentifier);
 
+		// the cache is linked into the instance directory, so both have to live on the same storage path
+		RocksDBRestoreFileCache restoreFileCache = null;
+		File storagePath;
+		if (cacheRestoredFiles) {
+			storagePath = initializedDbBasePaths[
+				Math.abs(fileCompatibleIdentifier.hashCode() % initializedDbBasePaths.length)];
+			restoreFileCache = new RocksDBRestoreFileCache(new File(
+				storagePath,
+				"job_" + jobId + "_op_" + fileCompatibleIdentifier + "_restore_cache"));
+		} else {
+			storagePath = getNextStoragePath();
+		}
+
 		File instanceBasePath = new File(
-			getNextStoragePath(),
+			storagePath,
 			"job_" + jobId + "_op_" + fileCompatibleIdentifier + "_uuid_" + UUID.randomUUID());
 
 		LocalRecoveryConfig localRecoveryConfig =
@@ -456,7 +476,8 @@ public class RocksDBStateBackend extends AbstractStateBackend implements Configu
 				priorityQueueStateType,
 				ttlTimeProvider,
 				getMemoryWatcherOptions(),
-				metricGroup);
+				metricGroup,
+				restoreFileCache);
 	}
 
 	@Override
@@ -587,6 +608,13 @@ public class RocksDBStateBackend extends AbstractStateBackend implements Configu
 		return enableIncrementalCheckpointing.getOrDefault(CheckpointingOptions.INCREMENTAL_CHECKPOINTS.defaultValue());
 	}
 
+	/**
+	 * Gets whether the sst files downloaded during restores are cached for later restores of the same operator.
+	 */
+	public boolean isRestoredFileCachingEnabled() {
+		return cacheRestoredFiles;
+	}
+
 	// ------------------------------------------------------------------------
 	//  Parametrize with RocksDB Options
 	// ------------------------------------------------------------------------
@@ -696,6 +724,7 @@ public class RocksDBStateBackend extends AbstractStateBackend implements Configu
 				"checkpointStreamBackend=" + checkpointStreamBackend +
 				", localRocksDbDirectories=" + Arrays.toString(localRocksDbDirectories) +
 				", enableIncrementalCheckpointing=" + enableIncrementalCheckpointing +
+			", cacheRestoredFiles=" + cacheRestoredFiles +
 				'}';
 	}
 
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.contrib.streaming.state;
+
+import org.apache.flink.core.fs.Path;
+import org.apache.flink.runtime.state.StreamStateHandle;
+import org.apache.flink.runtime.state.filesystem.FileStateHandle;
+import org.apache.flink.runtime.state.memory.ByteStreamStateHandle;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the {@link RocksDBRestoreFileCache}.
+ */
+public class RocksDBRestoreFileCacheTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void testCachedFilesAreLinkedOnLaterRestores() throws Exception {
+		RocksDBRestoreFileCache cache = new RocksDBRestoreFileCache(temporaryFolder.newFolder());
+		File firstRestore = temporaryFolder.newFolder();
+		File secondRestore = temporaryFolder.newFolder();
+		StreamStateHandle remoteFile = new FileStateHandle(new Path("file:///checkpoints/shared/000012.sst"), 5L);
+
+		java.nio.file.Path downloaded = new File(firstRestore, "000012.sst").toPath();
+		assertFalse(cache.linkTo(remoteFile, downloaded));
+		Files.write(downloaded, "bytes".getBytes(StandardCharsets.UTF_8));
+		cache.add(remoteFile, downloaded);
+
+		// the first restore cleans up its directory, the cache keeps its own link
+		Files.delete(downloaded);
+		java.nio.file.Path linked = new File(secondRestore, "000012.sst").toPath();
+		assertTrue(cache.linkTo(remoteFile, linked));
+		assertArrayEquals("bytes".getBytes(StandardCharsets.UTF_8), Files.readAllBytes(linked));
+	}
+
+	@Test
+	public void testRetainOnlyEvictsUnreferencedFiles() throws Exception {
+		RocksDBRestoreFileCache cache = new RocksDBRestoreFileCache(temporaryFolder.newFolder());
+		File restore = temporaryFolder.newFolder();
+		StreamStateHandle oldFile = new FileStateHandle(new Path("file:///checkpoints/shared/000010.sst"), 1L);
+		StreamStateHandle newFile = new FileStateHandle(new Path("file:///checkpoints/shared/000011.sst"), 1L);
+
+		for (StreamStateHandle remoteFile : new StreamStateHandle[]{oldFile, newFile}) {
+			java.nio.file.Path downloaded = Files.createTempFile(restore.toPath(), "download", ".sst");
+			cache.add(remoteFile, downloaded);
+		}
+		assertEquals(2, cache.getCacheDirectory().listFiles().length);
+
+		cache.retainOnly(Collections.singletonList(newFile));
+		// the retained file and the owner of the restore
+		assertEquals(2, cache.getCacheDirectory().listFiles().length);
+		assertFalse(cache.linkTo(oldFile, new File(restore, "old.sst").toPath()));
+		assertTrue(cache.linkTo(newFile, new File(restore, "new.sst").toPath()));
+	}
+
+	@Test
+	public void testReleaseKeepsFilesOfLaterRestore() throws Exception {
+		File cacheDirectory = temporaryFolder.newFolder();
+		RocksDBRestoreFileCache previous = new RocksDBRestoreFileCache(cacheDirectory);
+		RocksDBRestoreFileCache latest = new RocksDBRestoreFileCache(cacheDirectory);
+		StreamStateHandle remoteFile = new FileStateHandle(new Path("file:///checkpoints/shared/000014.sst"), 1L);
+		java.nio.file.Path downloaded = temporaryFolder.newFile().toPath();
+
+		previous.retainOnly(Collections.singletonList(remoteFile));
+		latest.add(remoteFile, downloaded);
+		latest.retainOnly(Collections.singletonList(remoteFile));
+
+		// the backend replaced by a later restore is disposed
+		previous.release();
+		assertTrue(latest.linkTo(remoteFile, new File(temporaryFolder.newFolder(), "000014.sst").toPath()));
+
+		latest.release();
+		assertFalse(cacheDirectory.exists());
+	}
+
+	@Test
+	public void testInlineHandlesAreNotCached() throws Exception {
+		RocksDBRestoreFileCache cache = new RocksDBRestoreFileCache(temporaryFolder.newFolder());
+		StreamStateHandle inlineFile = new ByteStreamStateHandle("000013.sst", new byte[]{1, 2, 3});
+		java.nio.file.Path downloaded = temporaryFolder.newFile().toPath();
+
+		cache.add(inlineFile, downloaded);
+		assertEquals(0, cache.getCacheDirectory().listFiles().length);
+	}
+}
@@ -57,6 +57,7 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.startsWith;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
@@ -490,6 +491,22 @@ public class RocksDBStateBackendConfigTest {
 		assertEquals(checkpointBackend.getSavepointPath(), copyCheckpointBackend.getSavepointPath());
 	}
 
+	@Test
+	public void testConfiguredRestoredFileCachingOverridesExistingValue() throws Exception {
+		final RocksDBStateBackend original = new RocksDBStateBackend(tempFolder.newFolder().toURI().toString());
+		assertFalse(original.isRestoredFileCachingEnabled());
+
+		final Configuration enabled = new Configuration();
+		enabled.setBoolean(RocksDBOptions.CACHE_RESTORED_FILES, true);
+		final RocksDBStateBackend caching = original.configure(enabled);
+		assertTrue(caching.isRestoredFileCachingEnabled());
+		assertTrue(caching.configure(new Configuration()).isRestoredFileCachingEnabled());
+
+		final Configuration disabled = new Configuration();
+		disabled.setBoolean(RocksDBOptions.CACHE_RESTORED_FILES, false);
+		assertFalse(caching.configure(disabled).isRestoredFileCachingEnabled());
+	}
+
 	// ------------------------------------------------------------------------
 	//  Contained Non-partitioned State Backend
 	// ------------------------------------------------------------------------
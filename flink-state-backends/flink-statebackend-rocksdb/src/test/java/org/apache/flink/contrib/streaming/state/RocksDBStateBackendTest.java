@@ -27,6 +27,7 @@ import org.apache.flink.configuration.Configuration;
 import org.apache.flink.core.testutils.OneShotLatch;
 import org.apache.flink.metrics.groups.UnregisteredMetricsGroup;
 import org.apache.flink.runtime.checkpoint.CheckpointOptions;
+import org.apache.flink.runtime.checkpoint.StateObjectCollection;
 import org.apache.flink.runtime.execution.Environment;
 import org.apache.flink.runtime.operators.testutils.DummyEnvironment;
 import org.apache.flink.runtime.query.TaskKvStateRegistry;
@@ -74,6 +75,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -83,6 +85,7 @@ import java.util.concurrent.RunnableFuture;
 
 import static junit.framework.TestCase.assertNotNull;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
@@ -505,6 +508,104 @@ public class RocksDBStateBackendTest extends StateBackendTestBase<RocksDBStateBa
 		}
 	}
 
+	@Test
+	public void testRestoreFileCacheIsSharedBetweenRestores() throws Exception {
+		if (!enableIncrementalCheckpointing) {
+			return;
+		}
+
+		dbPath = tempFolder.newFolder().getAbsolutePath();
+		// a threshold of zero stores every sst file in its own file, which is what the cache keys on
+		RocksDBStateBackend stateBackend = new RocksDBStateBackend(
+			new FsStateBackend(tempFolder.newFolder().toURI(), 0), true);
+		Configuration configuration = new Configuration();
+		configuration.setBoolean(RocksDBOptions.CACHE_RESTORED_FILES, true);
+		stateBackend = stateBackend.configure(configuration);
+		stateBackend.setDbStoragePath(dbPath);
+
+		Environment env = new DummyEnvironment();
+		ValueStateDescriptor<String> kvId = new ValueStateDescriptor<>("id", String.class, null);
+		kvId.initializeSerializerUnlessSet(new ExecutionConfig());
+
+		AbstractKeyedStateBackend<Integer> source = createCachingKeyedBackend(stateBackend, env);
+		IncrementalKeyedStateHandle stateHandle;
+		try {
+			source.restore(null);
+			ValueState<String> state =
+				source.getPartitionedState(VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, kvId);
+			for (int key = 0; key < 10; key++) {
+				source.setCurrentKey(key);
+				state.update("Hello-" + key);
+			}
+
+			RunnableFuture<SnapshotResult<KeyedStateHandle>> snapshot = source.snapshot(
+				1L,
+				1L,
+				stateBackend.createCheckpointStorage(env.getJobID()).initializeLocationForCheckpoint(1L),
+				CheckpointOptions.forCheckpointWithDefaultLocation());
+			snapshot.run();
+			stateHandle = (IncrementalKeyedStateHandle) snapshot.get().getJobManagerOwnedSnapshot();
+		} finally {
+			IOUtils.closeQuietly(source);
+			source.dispose();
+		}
+
+		int numSstFiles = stateHandle.getSharedState().size();
+		assertTrue(numSstFiles > 0);
+		File cacheDirectory = new File(dbPath, "job_" + env.getJobID() + "_op_test_op_restore_cache");
+
+		AbstractKeyedStateBackend<Integer> first = createCachingKeyedBackend(stateBackend, env);
+		AbstractKeyedStateBackend<Integer> second = null;
+		try {
+			first.restore(new StateObjectCollection<>(Collections.singletonList(stateHandle)));
+			// the downloaded sst files and the owner of the last restore
+			assertEquals(numSstFiles + 1, cacheDirectory.list().length);
+
+			second = createCachingKeyedBackend(stateBackend, env);
+			second.restore(new StateObjectCollection<>(Collections.singletonList(stateHandle)));
+			assertEquals(numSstFiles + 1, cacheDirectory.list().length);
+
+			ValueState<String> state =
+				second.getPartitionedState(VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, kvId);
+			for (int key = 0; key < 10; key++) {
+				second.setCurrentKey(key);
+				assertEquals("Hello-" + key, state.value());
+			}
+
+			// the second backend restored last, so disposing the first one keeps its files
+			IOUtils.closeQuietly(first);
+			first.dispose();
+			first = null;
+			assertEquals(numSstFiles + 1, cacheDirectory.list().length);
+		} finally {
+			if (first != null) {
+				IOUtils.closeQuietly(first);
+				first.dispose();
+			}
+			if (second != null) {
+				IOUtils.closeQuietly(second);
+				second.dispose();
+			}
+		}
+
+		assertFalse(cacheDirectory.exists());
+	}
+
+	private AbstractKeyedStateBackend<Integer> createCachingKeyedBackend(
+		RocksDBStateBackend stateBackend,
+		Environment env) throws Exception {
+
+		return stateBackend.createKeyedStateBackend(
+			env,
+			env.getJobID(),
+			"test_op",
+			IntSerializer.INSTANCE,
+			10,
+			new KeyGroupRange(0, 9),
+			env.getTaskKvStateRegistry(),
+			TtlTimeProvider.DEFAULT);
+	}
+
 	private void checkRemove(IncrementalKeyedStateHandle remove, SharedStateRegistry registry) throws Exception {
 		for (StateHandleID id : remove.getSharedState().keySet()) {
 			verify(registry, times(0)).unregisterReference(
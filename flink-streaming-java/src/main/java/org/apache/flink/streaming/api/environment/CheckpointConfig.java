@@ -72,6 +72,9 @@ public class CheckpointConfig implements java.io.Serializable {
 	/** Determines if a tasks are failed or not if there is an error in their checkpointing. Default: true */
 	private boolean failOnCheckpointingErrors = true;
 
+	/** Flag to take exactly-once checkpoints without aligning the barriers of the inputs. */
+	private boolean unalignedCheckpointsEnabled;
+
 	// ------------------------------------------------------------------------
 
 	/**
@@ -249,6 +252,27 @@ public class CheckpointConfig implements java.io.Serializable {
 		this.failOnCheckpointingErrors = failOnCheckpointingErrors;
 	}
 
+	/**
+	 * Enables unaligned checkpoints for the exactly-once mode. Tasks take their checkpoint as soon as the first
+	 * barrier arrives instead of blocking the inputs that already delivered it until all barriers arrived, so no
+	 * input is blocked and nothing is spilled for the alignment. The barriers do not overtake the buffers queued
+	 * before them and tasks acknowledge the checkpoint only once the last barrier arrived, so backpressure still
+	 * delays the completion of checkpoints. The data that is still in flight on the other inputs belongs to the
+	 * checkpoint, it is referenced in the in-flight logs of the upstream tasks and replayed from there on recovery.
+	 */
+	@PublicEvolving
+	public void enableUnalignedCheckpoints() {
+		this.unalignedCheckpointsEnabled = true;
+	}
+
+	/**
+	 * Returns whether unaligned checkpoints are enabled.
+	 */
+	@PublicEvolving
+	public boolean isUnalignedCheckpointsEnabled() {
+		return unalignedCheckpointsEnabled;
+	}
+
 	/**
 	 * Enables checkpoints to be persisted externally.
 	 *
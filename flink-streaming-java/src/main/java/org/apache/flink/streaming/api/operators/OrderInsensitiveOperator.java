@@ -0,0 +1,45 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.api.operators;
+
+import org.apache.flink.annotation.PublicEvolving;
+
+/**
+ * Stream operators can implement this interface to declare that their results do not depend on how the channels of
+ * an input are interleaved within an epoch, e.g. because their state and output are driven only by event time and
+ * watermarks, or their output order is irrelevant to all downstream operators and sinks.
+ *
+ * <p>Operators which emit from timers are not order-insensitive: a timer fires between whichever records were
+ * processed before it, so its output still depends on the interleaving.
+ *
+ * <p>If all inputs of all operators of a task's chain are order-insensitive, the task does not record order
+ * determinants for the channels it reads from, and during causal recovery it processes the replayed channels in
+ * whatever order their buffers arrive. Declaring an input order-insensitive when the operator's state or output does
+ * depend on the interleaving makes a recovered task diverge from the failed one.
+ */
+@PublicEvolving
+public interface OrderInsensitiveOperator {
+
+	/**
+	 * Whether the results of the operator do not depend on the interleaving of the channels of the given input.
+	 *
+	 * @param input The input, 1 for one input operators, 1 or 2 for two input operators.
+	 */
+	boolean isInputOrderInsensitive(int input);
+}
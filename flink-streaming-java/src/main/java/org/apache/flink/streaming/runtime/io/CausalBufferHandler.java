@@ -27,6 +27,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * A wrapper around a {@link CheckpointBarrierHandler} which uses a {@link CausalBufferOrderService} to ensure
@@ -50,11 +51,12 @@ public class CausalBufferHandler implements CheckpointBarrierHandler {
 		IRecoveryManager recoveryManager,
 		CheckpointBarrierHandler wrapped,
 		int numInputChannels,
+		boolean orderInsensitive,
 		Object checkpointLock) {
 		this.wrapped = wrapped;
 		this.lock = checkpointLock;
 		this.bufferOrderService = new CausalBufferOrderService(causalLog, recoveryManager, wrapped,
-			numInputChannels);
+			numInputChannels, orderInsensitive);
 	}
 
 
@@ -93,6 +95,11 @@ public class CausalBufferHandler implements CheckpointBarrierHandler {
 		wrapped.ignoreCheckpoint(checkpointID);
 	}
 
+	@Override
+	public CompletableFuture<Void> getAllBarriersReceivedFuture(long checkpointId) {
+		return wrapped.getAllBarriersReceivedFuture(checkpointId);
+	}
+
 	@Override
 	public void unblockChannelIfBlocked(int absoluteChannelIndex) {
 		this.wrapped.unblockChannelIfBlocked(absoluteChannelIndex);
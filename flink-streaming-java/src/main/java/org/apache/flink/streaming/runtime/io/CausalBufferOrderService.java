@@ -28,6 +28,7 @@ package org.apache.flink.streaming.runtime.io;
 import org.apache.flink.runtime.causal.determinant.OrderDeterminant;
 import org.apache.flink.runtime.causal.log.job.JobCausalLog;
 import org.apache.flink.runtime.causal.recovery.IRecoveryManager;
+import org.apache.flink.runtime.causal.recovery.LogReplayer;
 import org.apache.flink.runtime.causal.services.AbstractCausalService;
 import org.apache.flink.runtime.causal.services.BufferOrderService;
 import org.apache.flink.runtime.io.network.api.DeterminantRequestEvent;
@@ -61,18 +62,28 @@ public class CausalBufferOrderService extends AbstractCausalService implements B
 	// The number of input channels this task has. Important for buffering and exception cases such as = 1
 	private final int numInputChannels;
 
+	// Whether the operator declared that the interleaving of its input channels does not affect its results
+	private final boolean orderInsensitive;
+
 	// If there are any buffered buffers, we need to check the queues
 	private int numBufferedBuffers;
 
 	public CausalBufferOrderService(JobCausalLog jobCausalLog, IRecoveryManager recoveryManager,
 									CheckpointBarrierHandler bufferSource,
 									int numInputChannels) {
+		this(jobCausalLog, recoveryManager, bufferSource, numInputChannels, false);
+	}
+
+	public CausalBufferOrderService(JobCausalLog jobCausalLog, IRecoveryManager recoveryManager,
+									CheckpointBarrierHandler bufferSource,
+									int numInputChannels, boolean orderInsensitive) {
 		super(jobCausalLog, recoveryManager);
 		this.bufferSource = bufferSource;
 		this.bufferedBuffersPerChannel = new ArrayDeque[numInputChannels];
 		for (int i = 0; i < numInputChannels; i++)
 			bufferedBuffersPerChannel[i] = new ArrayDeque<>(100);
 		this.numInputChannels = numInputChannels;
+		this.orderInsensitive = orderInsensitive;
 		this.numBufferedBuffers = 0;
 		this.reuseOrderDeterminant = new OrderDeterminant();
 	}
@@ -84,8 +95,9 @@ public class CausalBufferOrderService extends AbstractCausalService implements B
 		if(LOG.isDebugEnabled())
 			LOG.debug("Request next buffer");
 		//Simple case, when there is only one channel we do not need to store order determinants, nor
-		// do any special replay logic, because everything is deterministic.
-		if (numInputChannels == 1) {
+		// do any special replay logic, because everything is deterministic. The same holds if the operator does not
+		// care about the order, in which case replayed channels are simply processed in arrival order.
+		if (numInputChannels == 1 || orderInsensitive) {
 			return getNewBuffer();
 		}
 
@@ -93,7 +105,8 @@ public class CausalBufferOrderService extends AbstractCausalService implements B
 		if (isRecovering()) {
 			if(LOG.isDebugEnabled())
 				LOG.debug("Get replayed buffer");
-			toReturn = getNextNonBlockedReplayed();
+			//Replayed order determinants are appended as they were recorded by getNextNonBlockedReplayed
+			return getNextNonBlockedReplayed();
 		} else {
 			if(LOG.isDebugEnabled())
 				LOG.debug("Get new buffer");
@@ -109,7 +122,7 @@ public class CausalBufferOrderService extends AbstractCausalService implements B
 		}
 
 		if (toReturn != null)
-			threadCausalLog.appendDeterminant(reuseOrderDeterminant.replace((byte) toReturn.getChannelIndex()),
+			threadCausalLog.appendOrderDeterminant(reuseOrderDeterminant.replace(toReturn.getChannelIndex()),
 				epochTracker.getCurrentEpoch());
 
 		return toReturn;
@@ -117,7 +130,9 @@ public class CausalBufferOrderService extends AbstractCausalService implements B
 
 	private BufferOrEvent getNextNonBlockedReplayed() throws Exception {
 		BufferOrEvent toReturn;
-		byte channel = recoveryManager.getLogReplayer().replayNextChannel();
+		LogReplayer logReplayer = recoveryManager.getLogReplayer();
+		int recordedRunLength = logReplayer.getNextOrderRunLength();
+		int channel = logReplayer.replayNextChannel();
 		LOG.debug("Determinant says next channel is {}!", channel);
 		if (bufferedBuffersPerChannel[channel].isEmpty()) {
 			toReturn = processUntilFindBufferForChannel(channel);
@@ -125,6 +140,10 @@ public class CausalBufferOrderService extends AbstractCausalService implements B
 			toReturn = bufferedBuffersPerChannel[channel].remove();
 			numBufferedBuffers--;
 		}
+		//A recorded run is appended once, when its first decision is replayed, so that the log is rebuilt exactly
+		if (recordedRunLength != 0)
+			threadCausalLog.appendDeterminant(reuseOrderDeterminant.replace(channel, recordedRunLength),
+				epochTracker.getCurrentEpoch());
 		return toReturn;
 	}
 
@@ -139,7 +158,7 @@ public class CausalBufferOrderService extends AbstractCausalService implements B
 		return null;//unrecheable
 	}
 
-	private BufferOrEvent processUntilFindBufferForChannel(byte channel) throws Exception {
+	private BufferOrEvent processUntilFindBufferForChannel(int channel) throws Exception {
 		LOG.debug("Found no buffered buffers for channel {}. Processing buffers until I find one", channel);
 		while (true) {
 			BufferOrEvent newBufferOrEvent = getNewBuffer();
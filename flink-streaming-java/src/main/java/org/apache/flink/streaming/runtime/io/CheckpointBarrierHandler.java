@@ -23,6 +23,7 @@ import org.apache.flink.runtime.io.network.partition.consumer.BufferOrEvent;
 import org.apache.flink.runtime.jobgraph.tasks.AbstractInvokable;
 
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * The CheckpointBarrierHandler reacts to checkpoint barrier arriving from the input channels.
@@ -77,6 +78,15 @@ public interface CheckpointBarrierHandler {
 	 */
 	long getAlignmentDurationNanos();
 
+	/**
+	 * Returns a future that completes once the barriers of the given checkpoint arrived on all input channels, or
+	 * the checkpoint was aborted. The task only acknowledges the checkpoint then. Handlers which trigger checkpoints
+	 * only after all barriers arrived return a completed future.
+	 */
+	default CompletableFuture<Void> getAllBarriersReceivedFuture(long checkpointId) {
+		return CompletableFuture.completedFuture(null);
+	}
+
 	void ignoreCheckpoint(long checkpointID) throws IOException;
 
     void unblockChannelIfBlocked(int absoluteChannelIndex);
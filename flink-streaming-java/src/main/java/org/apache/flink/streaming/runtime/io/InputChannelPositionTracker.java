@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.runtime.io;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.runtime.event.InFlightLogPositionEvent;
+
+import java.util.Arrays;
+
+/**
+ * Tracks up to which position the input channels of a task were processed, for the unaligned checkpoints taken by
+ * the {@link UnalignedBarrierHandler}. A position is the number of buffers and events received on the channel since
+ * its last barrier, or since the start of the stream or replay if none arrived yet. These are the entries of the
+ * in-flight log of the upstream subpartition, which logs the barrier as the last entry of the epoch before it.
+ *
+ * <p>A record spanning over several buffers is only processed once it is complete, so while such a record is pending
+ * the position is where it starts: the buffer and the offset within it.
+ */
+@Internal
+public class InputChannelPositionTracker {
+
+	/** The last barrier received on each channel. */
+	private final long[] lastBarrierIds;
+
+	/** The buffers and events received on each channel since its last barrier. */
+	private final int[] numberOfEntries;
+
+	/** The entry the pending spanning record of each channel starts in, -1 if there is none. */
+	private final int[] partialRecordEntries;
+
+	/** The offset within its entry the pending spanning record of each channel starts at. */
+	private final int[] partialRecordOffsets;
+
+	public InputChannelPositionTracker(int numberOfChannels) {
+		this.lastBarrierIds = new long[numberOfChannels];
+		this.numberOfEntries = new int[numberOfChannels];
+		this.partialRecordEntries = new int[numberOfChannels];
+		this.partialRecordOffsets = new int[numberOfChannels];
+		Arrays.fill(lastBarrierIds, InFlightLogPositionEvent.NO_BARRIER);
+		Arrays.fill(partialRecordEntries, -1);
+	}
+
+	void onEntry(int channel) {
+		numberOfEntries[channel]++;
+	}
+
+	void onBarrier(int channel, long checkpointId) {
+		lastBarrierIds[channel] = checkpointId;
+		numberOfEntries[channel] = 0;
+		partialRecordEntries[channel] = -1;
+	}
+
+	/**
+	 * The channel starts over with the replay of a recovered producer, which dropped the pending record.
+	 */
+	void onChannelReset(int channel) {
+		lastBarrierIds[channel] = InFlightLogPositionEvent.NO_BARRIER;
+		numberOfEntries[channel] = 0;
+		partialRecordEntries[channel] = -1;
+	}
+
+	/**
+	 * Called when a buffer of the channel was consumed without completing the record it ends with.
+	 *
+	 * @param bufferSize the size of the consumed buffer
+	 * @param numberOfPartialRecordBytes the bytes of the pending record gathered so far
+	 */
+	public void onPartialRecord(int channel, int bufferSize, int numberOfPartialRecordBytes) {
+		if (partialRecordEntries[channel] < 0) {
+			// the record starts in the buffer just consumed, which is the last entry received
+			partialRecordEntries[channel] = numberOfEntries[channel] - 1;
+			partialRecordOffsets[channel] = bufferSize - numberOfPartialRecordBytes;
+		}
+	}
+
+	public void onRecordCompleted(int channel) {
+		partialRecordEntries[channel] = -1;
+	}
+
+	long getLastBarrierId(int channel) {
+		return lastBarrierIds[channel];
+	}
+
+	int getNumberOfBuffers(int channel) {
+		return partialRecordEntries[channel] >= 0 ? partialRecordEntries[channel] : numberOfEntries[channel];
+	}
+
+	int getNumberOfBytes(int channel) {
+		return partialRecordEntries[channel] >= 0 ? partialRecordOffsets[channel] : 0;
+	}
+}
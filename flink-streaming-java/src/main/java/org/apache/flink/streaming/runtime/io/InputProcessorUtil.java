@@ -26,6 +26,8 @@ import org.apache.flink.runtime.io.network.partition.consumer.InputGate;
 import org.apache.flink.streaming.api.CheckpointingMode;
 import org.apache.flink.streaming.runtime.tasks.StreamTask;
 
+import javax.annotation.Nullable;
+
 import java.io.IOException;
 
 /**
@@ -41,9 +43,26 @@ public class InputProcessorUtil {
 			IOManager ioManager,
 			InputGate inputGate,
 			Configuration taskManagerConfig) throws IOException {
+		return createCheckpointBarrierHandler(checkpointedTask, checkpointMode, ioManager, inputGate, taskManagerConfig,
+			null);
+	}
+
+	/**
+	 * Creates the barrier handler, which takes unaligned exactly-once checkpoints if a tracker of the positions the
+	 * input channels were processed up to is given.
+	 */
+	public static CheckpointBarrierHandler createCheckpointBarrierHandler(
+			StreamTask<?, ?> checkpointedTask,
+			CheckpointingMode checkpointMode,
+			IOManager ioManager,
+			InputGate inputGate,
+			Configuration taskManagerConfig,
+			@Nullable InputChannelPositionTracker positionTracker) throws IOException {
 
 		CheckpointBarrierHandler barrierHandler;
-		if (checkpointMode == CheckpointingMode.EXACTLY_ONCE) {
+		if (checkpointMode == CheckpointingMode.EXACTLY_ONCE && positionTracker != null) {
+			barrierHandler = new UnalignedBarrierHandler(inputGate, positionTracker, checkpointedTask.getCheckpointLock());
+		} else if (checkpointMode == CheckpointingMode.EXACTLY_ONCE) {
 			long maxAlign = taskManagerConfig.getLong(TaskManagerOptions.TASK_CHECKPOINT_ALIGNMENT_BYTES_LIMIT);
 			if (!(maxAlign == -1 || maxAlign > 0)) {
 				throw new IllegalConfigurationException(
@@ -66,6 +85,6 @@ public class InputProcessorUtil {
 			barrierHandler.registerCheckpointEventHandler(checkpointedTask);
 		}
 
-		return new CausalBufferHandler(checkpointedTask.getCausalLog(), checkpointedTask.getRecoveryManager(), barrierHandler, inputGate.getNumberOfInputChannels(), checkpointedTask.getCheckpointLock());
+		return new CausalBufferHandler(checkpointedTask.getCausalLog(), checkpointedTask.getRecoveryManager(), barrierHandler, inputGate.getNumberOfInputChannels(), checkpointedTask.isInputOrderInsensitive(), checkpointedTask.getCheckpointLock());
 	}
 }
@@ -53,6 +53,8 @@ import org.apache.flink.streaming.runtime.tasks.StreamTask;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+
 import java.io.IOException;
 
 import static org.apache.flink.util.Preconditions.checkNotNull;
@@ -101,6 +103,10 @@ public class StreamInputProcessor<IN> {
 	 */
 	private int currentChannel = -1;
 
+	/** Tracks the position up to which each channel was processed for unaligned checkpoints, null otherwise. */
+	@Nullable
+	private final InputChannelPositionTracker positionTracker;
+
 	private final StreamStatusMaintainer streamStatusMaintainer;
 
 	private final OneInputStreamOperator<IN, ?> streamOperator;
@@ -134,8 +140,12 @@ public class StreamInputProcessor<IN> {
 		inputGate = InputGateUtil.createInputGate(inputGates);
 		checkpointedTask.getRecoveryManager().getContext().setInputGate(inputGate);
 
+		// unaligned checkpoints reference the unprocessed input by the position the channels were processed up to
+		this.positionTracker = checkpointMode == CheckpointingMode.EXACTLY_ONCE &&
+			checkpointedTask.getConfiguration().isUnalignedCheckpointsEnabled() ?
+			new InputChannelPositionTracker(inputGate.getNumberOfInputChannels()) : null;
 		this.barrierHandler = InputProcessorUtil.createCheckpointBarrierHandler(
-			checkpointedTask, checkpointMode, ioManager, inputGate, taskManagerConfig);
+			checkpointedTask, checkpointMode, ioManager, inputGate, taskManagerConfig, positionTracker);
 
 		this.lock = checkNotNull(lock);
 
@@ -184,6 +194,10 @@ public class StreamInputProcessor<IN> {
 		if (currentRecordDeserializer != null) {
 			DeserializationResult result = currentRecordDeserializer.getNextRecord(deserializationDelegate);
 
+			if (positionTracker != null) {
+				trackPosition(result);
+			}
+
 			if (result.isBufferConsumed()) {
 				currentRecordDeserializer.getCurrentBuffer().recycleBuffer();
 				currentRecordDeserializer = null;
@@ -307,6 +321,15 @@ public class StreamInputProcessor<IN> {
 		}
 	}
 
+	private void trackPosition(DeserializationResult result) {
+		if (result.isFullRecord()) {
+			positionTracker.onRecordCompleted(currentChannel);
+		} else {
+			positionTracker.onPartialRecord(currentChannel, currentRecordDeserializer.getCurrentBuffer().getSize(),
+				currentRecordDeserializer.getNumPartialRecordBytes());
+		}
+	}
+
 	public void resetInputChannelDeserializer(InputGate gate, int channelIndex) {
 		int absoluteChannelIndex = this.inputGate.getAbsoluteChannelIndex(gate, channelIndex);
 
@@ -35,8 +35,9 @@ import org.slf4j.LoggerFactory;
 import static org.apache.flink.util.Preconditions.checkArgument;
 
 /**
- * This record writer keeps data in buffers at most for a certain timeout. It spawns a separate thread
- * that flushes the outputs in a defined interval, to make sure data does not linger in the buffers for too long.
+ * This record writer keeps data in buffers at most for a certain timeout. The outputs are flushed in a defined
+ * interval by the flusher the task manager shares among all writers, or by a separate thread if the partition has
+ * no shared flusher, to make sure data does not linger in the buffers for too long.
  *
  * @param <T> The type of elements written.
  */
@@ -49,11 +50,14 @@ public class StreamRecordWriter<T extends IOReadableWritable> extends RecordWrit
 	private static final String DEFAULT_OUTPUT_FLUSH_THREAD_NAME = "OutputFlusher";
 
 
-	/** The thread that periodically flushes the output, to give an upper latency bound. */
+	/** The thread that periodically flushes the output if there is no shared flusher, to give an upper latency bound. */
 	private final OutputFlusher outputFlusher;
 
+	/** Whether the output is flushed by the flusher shared among the writers of the task manager. */
+	private final boolean isFlushedPeriodically;
+
 	/** The exception encountered in the flushing thread. */
-	private Throwable flusherException;
+	private volatile Throwable flusherException;
 
 	public StreamRecordWriter(ResultPartitionWriter writer, ChannelSelector<T> channelSelector, long timeout) {
 		this(writer, channelSelector, timeout, null, new SimpleRandomService(), new EpochTrackerImpl());
@@ -70,11 +74,19 @@ public class StreamRecordWriter<T extends IOReadableWritable> extends RecordWrit
 
 		if (timeout == -1) {
 			outputFlusher = null;
+			isFlushedPeriodically = false;
 		}
 		else if (timeout == 0) {
 			outputFlusher = null;
+			isFlushedPeriodically = false;
+		}
+		else if (writer.startPeriodicFlush(timeout, this::notifyFlusherException)) {
+			outputFlusher = null;
+			isFlushedPeriodically = true;
 		}
 		else {
+			isFlushedPeriodically = false;
+
 			String threadName = taskName == null ?
 				DEFAULT_OUTPUT_FLUSH_THREAD_NAME :
 				DEFAULT_OUTPUT_FLUSH_THREAD_NAME + " for " + taskName;
@@ -108,6 +120,9 @@ public class StreamRecordWriter<T extends IOReadableWritable> extends RecordWrit
 	public void close() throws IOException, InterruptedException {
 		LOG.info("Close writer {}.", this);
 		clearBuffers();
+		if (isFlushedPeriodically) {
+			targetPartition.stopPeriodicFlush();
+		}
 		// make sure we terminate the thread in any case
 		if (outputFlusher != null) {
 			outputFlusher.terminate();
@@ -52,6 +52,8 @@ import org.apache.flink.streaming.runtime.tasks.TwoInputStreamTask;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+
 import java.io.IOException;
 import java.util.Collection;
 
@@ -120,6 +122,10 @@ public class StreamTwoInputProcessor<IN1, IN2> {
 	 */
 	private int currentChannel = -1;
 
+	/** Tracks the position up to which each channel was processed for unaligned checkpoints, null otherwise. */
+	@Nullable
+	private final InputChannelPositionTracker positionTracker;
+
 	private String taskName;
 
 	private final StreamStatusMaintainer streamStatusMaintainer;
@@ -162,8 +168,12 @@ public class StreamTwoInputProcessor<IN1, IN2> {
 		this.taskName = inputGate.getOwningTaskName();
 
 
+		// unaligned checkpoints reference the unprocessed input by the position the channels were processed up to
+		this.positionTracker = checkpointMode == CheckpointingMode.EXACTLY_ONCE &&
+			checkpointedTask.getConfiguration().isUnalignedCheckpointsEnabled() ?
+			new InputChannelPositionTracker(inputGate.getNumberOfInputChannels()) : null;
 		this.barrierHandler = InputProcessorUtil.createCheckpointBarrierHandler(
-			checkpointedTask, checkpointMode, ioManager, inputGate, taskManagerConfig);
+			checkpointedTask, checkpointMode, ioManager, inputGate, taskManagerConfig, positionTracker);
 
 		this.recordWriterOutputs = recordWriterOutputs;
 
@@ -233,6 +243,10 @@ public class StreamTwoInputProcessor<IN1, IN2> {
 				result = currentRecordDeserializer.getNextRecord(deserializationDelegate2);
 			}
 
+			if (positionTracker != null) {
+				trackPosition(result);
+			}
+
 			if (result.isBufferConsumed()) {
 				currentRecordDeserializer.getCurrentBuffer().recycleBuffer();
 				currentRecordDeserializer = null;
@@ -446,6 +460,15 @@ public class StreamTwoInputProcessor<IN1, IN2> {
 	}
 
 
+	private void trackPosition(DeserializationResult result) {
+		if (result.isFullRecord()) {
+			positionTracker.onRecordCompleted(currentChannel);
+		} else {
+			positionTracker.onPartialRecord(currentChannel, currentRecordDeserializer.getCurrentBuffer().getSize(),
+				currentRecordDeserializer.getNumPartialRecordBytes());
+		}
+	}
+
 	public void resetInputChannelDeserializer(InputGate gate, int channelIndex) {
 		int absoluteChannelIndex = this.inputGate.getAbsoluteChannelIndex(gate, channelIndex);
 
@@ -0,0 +1,431 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.runtime.io;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.runtime.checkpoint.CheckpointMetaData;
+import org.apache.flink.runtime.checkpoint.CheckpointMetrics;
+import org.apache.flink.runtime.checkpoint.decline.CheckpointDeclineException;
+import org.apache.flink.runtime.checkpoint.decline.CheckpointDeclineOnCancellationBarrierException;
+import org.apache.flink.runtime.checkpoint.decline.CheckpointDeclineSubsumedException;
+import org.apache.flink.runtime.checkpoint.decline.InFlightDataUnreferencedException;
+import org.apache.flink.runtime.checkpoint.decline.InputEndOfStreamException;
+import org.apache.flink.runtime.event.InFlightLogPositionEvent;
+import org.apache.flink.runtime.io.network.api.CancelCheckpointMarker;
+import org.apache.flink.runtime.io.network.api.CheckpointBarrier;
+import org.apache.flink.runtime.io.network.api.DeterminantRequestEvent;
+import org.apache.flink.runtime.io.network.api.EndOfPartitionEvent;
+import org.apache.flink.runtime.io.network.partition.consumer.BufferOrEvent;
+import org.apache.flink.runtime.io.network.partition.consumer.InputChannel;
+import org.apache.flink.runtime.io.network.partition.consumer.InputGate;
+import org.apache.flink.runtime.jobgraph.tasks.AbstractInvokable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * The UnalignedBarrierHandler is the {@link CheckpointBarrierHandler} for exactly-once checkpoints that does not
+ * align the barriers of its inputs. The checkpoint is triggered by the first barrier that arrives and no channel is
+ * ever blocked, so nothing is spilled for alignment. The barriers still queue behind the buffers in flight and the
+ * checkpoint is only acknowledged once the last one arrived, so backpressure still delays its completion.
+ *
+ * <p>The data that is still in flight on the channels whose barrier did not arrive yet belongs to the checkpoint. It
+ * is not persisted with the state of the task, it is referenced in the in-flight log of the upstream subpartition
+ * instead: when the checkpoint is triggered, an {@link InFlightLogPositionEvent} tells each of these subpartitions
+ * how far the channel was processed, see {@link InputChannelPositionTracker}. A replay for the checkpoint starts at
+ * that position instead of at the barrier. The channel that triggered the checkpoint reports the position of its
+ * barrier, since the upstream subpartitions only truncate their logs for a completed checkpoint once its position
+ * arrived.
+ *
+ * <p>The data before a barrier is only logged by the upstream task, so the checkpoint must not complete before it was
+ * received and the task may only acknowledge it once all barriers arrived, see
+ * {@link #getAllBarriersReceivedFuture(long)}. The input keeps flowing meanwhile.
+ *
+ * <p>NOTE: This implementation strictly assumes that newer checkpoints have higher checkpoint IDs.
+ */
+@Internal
+public class UnalignedBarrierHandler implements CheckpointBarrierHandler {
+
+	private static final Logger LOG = LoggerFactory.getLogger(UnalignedBarrierHandler.class);
+
+	/** The gate that the buffers and events are drawn from, and the positions are sent through. */
+	private final InputGate inputGate;
+
+	private final int totalNumberOfInputChannels;
+
+	private final InputChannelPositionTracker positionTracker;
+
+	private final Object lock;
+
+	/** Flags that indicate whether the barrier of the pending checkpoint arrived on a channel. */
+	private final boolean[] barrierReceived;
+
+	/** Flags that indicate whether a channel reached the end of its partition. */
+	private final boolean[] closedChannels;
+
+	private int numClosedChannels;
+
+	/** The channels that received the barrier of the pending checkpoint or are closed. */
+	private int numChannelsDone;
+
+	/** The listener to be notified on triggered checkpoints. */
+	private AbstractInvokable toNotifyOnCheckpoint;
+
+	/** The ID of the checkpoint for which we expect barriers. */
+	private long currentCheckpointId = -1L;
+
+	/**
+	 * Completes once all barriers of the current checkpoint arrived. Null if the checkpoint is not pending, either
+	 * because all barriers arrived or because it was aborted.
+	 */
+	private CompletableFuture<Void> allBarriersReceived;
+
+	/** Set when a channel is reset while the checkpoint is pending, which loses its position upstream. */
+	private volatile boolean pendingCheckpointInvalidated;
+
+	/** The time at which the pending checkpoint was triggered. */
+	private long startOfCheckpointTimestamp;
+
+	/** The time it took the latest checkpoint for all barriers to arrive, after it was triggered. */
+	private long latestBarrierDelayNanos;
+
+	public UnalignedBarrierHandler(InputGate inputGate, InputChannelPositionTracker positionTracker, Object lock) {
+		this.inputGate = checkNotNull(inputGate);
+		this.totalNumberOfInputChannels = inputGate.getNumberOfInputChannels();
+		this.positionTracker = checkNotNull(positionTracker);
+		this.lock = checkNotNull(lock);
+		this.barrierReceived = new boolean[totalNumberOfInputChannels];
+		this.closedChannels = new boolean[totalNumberOfInputChannels];
+	}
+
+	// ------------------------------------------------------------------------
+	//  Buffer and barrier handling
+	// ------------------------------------------------------------------------
+
+	@Override
+	public BufferOrEvent getNextNonBlocked() throws Exception {
+		while (true) {
+			if (pendingCheckpointInvalidated) {
+				synchronized (lock) {
+					abortPendingCheckpoint(new InFlightDataUnreferencedException(
+						"An input channel was reset before the checkpoint barrier arrived."));
+				}
+			}
+
+			Optional<BufferOrEvent> next = inputGate.getNextBufferOrEvent();
+			if (!next.isPresent()) {
+				// end of input stream
+				return null;
+			}
+
+			BufferOrEvent bufferOrEvent = next.get();
+			boolean forward;
+			synchronized (lock) {
+				forward = processBufferOrEvent(bufferOrEvent);
+			}
+			if (forward) {
+				return bufferOrEvent;
+			}
+		}
+	}
+
+	private boolean processBufferOrEvent(BufferOrEvent bufferOrEvent) throws Exception {
+		int channelIndex = bufferOrEvent.getChannelIndex();
+		if (bufferOrEvent.isBuffer()) {
+			positionTracker.onEntry(channelIndex);
+			return true;
+		}
+
+		Class<?> eventClass = bufferOrEvent.getEvent().getClass();
+		if (eventClass == CheckpointBarrier.class) {
+			CheckpointBarrier barrier = (CheckpointBarrier) bufferOrEvent.getEvent();
+			positionTracker.onBarrier(channelIndex, barrier.getId());
+			processBarrier(barrier, channelIndex);
+			return false;
+		} else if (eventClass == CancelCheckpointMarker.class) {
+			positionTracker.onEntry(channelIndex);
+			processCancellationBarrier((CancelCheckpointMarker) bufferOrEvent.getEvent());
+			return false;
+		} else if (eventClass == DeterminantRequestEvent.class) {
+			// determinant requests bypass the in-flight log
+			return true;
+		} else {
+			positionTracker.onEntry(channelIndex);
+			if (eventClass == EndOfPartitionEvent.class) {
+				processEndOfPartition(channelIndex);
+			}
+			return true;
+		}
+	}
+
+	private void processBarrier(CheckpointBarrier receivedBarrier, int channelIndex) throws Exception {
+		final long barrierId = receivedBarrier.getId();
+
+		if (barrierId > currentCheckpointId) {
+			if (allBarriersReceived != null) {
+				// we did not receive all barriers of the current checkpoint, another started before
+				LOG.warn("{}: Received checkpoint barrier for checkpoint {} before receiving all barriers of " +
+						"checkpoint {}. Skipping current checkpoint.",
+					inputGate.getOwningTaskName(),
+					barrierId,
+					currentCheckpointId);
+
+				abortPendingCheckpoint(new CheckpointDeclineSubsumedException(barrierId));
+			}
+			startCheckpoint(receivedBarrier, channelIndex);
+		} else if (barrierId == currentCheckpointId && allBarriersReceived != null) {
+			if (barrierReceived[channelIndex]) {
+				throw new IOException("Stream corrupt: Repeated barrier for same checkpoint on input " + channelIndex);
+			}
+			barrierReceived[channelIndex] = true;
+			onChannelDone();
+		}
+
+		// else: trailing barrier from either
+		//   - a previous (subsumed) checkpoint
+		//   - the current checkpoint if it was already canceled
+	}
+
+	private void startCheckpoint(CheckpointBarrier barrier, int channelIndex) throws Exception {
+		final long checkpointId = barrier.getId();
+		currentCheckpointId = checkpointId;
+		Arrays.fill(barrierReceived, false);
+		barrierReceived[channelIndex] = true;
+		numChannelsDone = numClosedChannels;
+		startOfCheckpointTimestamp = System.nanoTime();
+		allBarriersReceived = new CompletableFuture<>();
+		pendingCheckpointInvalidated = false;
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("{}: Triggering unaligned checkpoint {} on barrier from channel {}.",
+				inputGate.getOwningTaskName(), checkpointId, channelIndex);
+		}
+
+		try {
+			sendInFlightLogPositions(checkpointId);
+		} catch (IOException e) {
+			LOG.warn("{}: Could not reference the in-flight data of checkpoint {} upstream.",
+				inputGate.getOwningTaskName(), checkpointId, e);
+			abortPendingCheckpoint(new InFlightDataUnreferencedException(
+				"Could not reference the in-flight data of the checkpoint upstream.", e));
+			return;
+		}
+
+		// completes right away for a single channel, so that the checkpoint is acknowledged right away
+		onChannelDone();
+		notifyCheckpoint(barrier);
+	}
+
+	private void sendInFlightLogPositions(long checkpointId) throws IOException, InterruptedException {
+		for (int channelIndex = 0; channelIndex < totalNumberOfInputChannels; channelIndex++) {
+			if (closedChannels[channelIndex]) {
+				continue;
+			}
+
+			InputChannel inputChannel = inputGate.getInputChannel(channelIndex);
+			InFlightLogPositionEvent event = new InFlightLogPositionEvent(
+				inputChannel.getPartitionId().getPartitionId(),
+				inputChannel.getInputGate().getConsumedSubpartitionIndex(),
+				checkpointId,
+				positionTracker.getLastBarrierId(channelIndex),
+				positionTracker.getNumberOfBuffers(channelIndex),
+				positionTracker.getNumberOfBytes(channelIndex));
+			LOG.debug("Sending {} through channel {}.", event, channelIndex);
+			inputChannel.sendTaskEvent(event);
+		}
+	}
+
+	private void processCancellationBarrier(CancelCheckpointMarker cancelBarrier) throws Exception {
+		final long barrierId = cancelBarrier.getCheckpointId();
+
+		if (barrierId > currentCheckpointId) {
+			if (allBarriersReceived != null) {
+				LOG.warn("{}: Received cancellation barrier for checkpoint {} before receiving all barriers of " +
+						"checkpoint {}. Skipping current checkpoint.",
+					inputGate.getOwningTaskName(),
+					barrierId,
+					currentCheckpointId);
+
+				abortPendingCheckpoint(new CheckpointDeclineSubsumedException(barrierId));
+			}
+
+			// the next checkpoint starts as canceled
+			currentCheckpointId = barrierId;
+			notifyAbort(barrierId, new CheckpointDeclineOnCancellationBarrierException());
+		} else if (barrierId == currentCheckpointId && allBarriersReceived != null) {
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("{}: Checkpoint {} canceled, aborting it.", inputGate.getOwningTaskName(), barrierId);
+			}
+			abortPendingCheckpoint(new CheckpointDeclineOnCancellationBarrierException());
+		}
+
+		// else: trailing cancellation barrier from an earlier or the already canceled checkpoint
+	}
+
+	private void processEndOfPartition(int channelIndex) throws Exception {
+		closedChannels[channelIndex] = true;
+		numClosedChannels++;
+
+		if (allBarriersReceived != null && !barrierReceived[channelIndex]) {
+			// the barrier will never arrive on this channel
+			abortPendingCheckpoint(new InputEndOfStreamException());
+		}
+	}
+
+	private void onChannelDone() {
+		if (++numChannelsDone == totalNumberOfInputChannels) {
+			latestBarrierDelayNanos = System.nanoTime() - startOfCheckpointTimestamp;
+			completePendingCheckpoint();
+		}
+	}
+
+	private void abortPendingCheckpoint(CheckpointDeclineException cause) throws Exception {
+		pendingCheckpointInvalidated = false;
+		if (allBarriersReceived != null) {
+			completePendingCheckpoint();
+			notifyAbort(currentCheckpointId, cause);
+		}
+	}
+
+	private void completePendingCheckpoint() {
+		CompletableFuture<Void> future = allBarriersReceived;
+		allBarriersReceived = null;
+		future.complete(null);
+	}
+
+	private void notifyCheckpoint(CheckpointBarrier checkpointBarrier) throws Exception {
+		if (toNotifyOnCheckpoint != null) {
+			CheckpointMetaData checkpointMetaData =
+				new CheckpointMetaData(checkpointBarrier.getId(), checkpointBarrier.getTimestamp());
+
+			// nothing is aligned or buffered
+			CheckpointMetrics checkpointMetrics = new CheckpointMetrics()
+				.setBytesBufferedInAlignment(0L)
+				.setAlignmentDurationNanos(0L);
+
+			toNotifyOnCheckpoint.triggerCheckpointOnBarrier(
+				checkpointMetaData,
+				checkpointBarrier.getCheckpointOptions(),
+				checkpointMetrics);
+		}
+	}
+
+	private void notifyAbort(long checkpointId, CheckpointDeclineException cause) throws Exception {
+		if (toNotifyOnCheckpoint != null) {
+			toNotifyOnCheckpoint.abortCheckpointOnBarrier(checkpointId, cause);
+		}
+	}
+
+	// ------------------------------------------------------------------------
+	//  Setup and teardown
+	// ------------------------------------------------------------------------
+
+	@Override
+	public void registerCheckpointEventHandler(AbstractInvokable toNotifyOnCheckpoint) {
+		if (this.toNotifyOnCheckpoint == null) {
+			this.toNotifyOnCheckpoint = toNotifyOnCheckpoint;
+		} else {
+			throw new IllegalStateException("UnalignedBarrierHandler already has a registered checkpoint notifyee");
+		}
+	}
+
+	@Override
+	public void cleanup() throws IOException {
+		// the checkpoint can no longer complete, the task does not wait for it
+		synchronized (lock) {
+			if (allBarriersReceived != null) {
+				completePendingCheckpoint();
+			}
+		}
+	}
+
+	@Override
+	public boolean isEmpty() {
+		// nothing is ever buffered
+		return true;
+	}
+
+	@Override
+	public long getAlignmentDurationNanos() {
+		return allBarriersReceived != null ?
+			System.nanoTime() - startOfCheckpointTimestamp :
+			latestBarrierDelayNanos;
+	}
+
+	@Override
+	public CompletableFuture<Void> getAllBarriersReceivedFuture(long checkpointId) {
+		synchronized (lock) {
+			return allBarriersReceived != null && checkpointId == currentCheckpointId ?
+				allBarriersReceived :
+				CompletableFuture.completedFuture(null);
+		}
+	}
+
+	@Override
+	public void ignoreCheckpoint(long checkpointID) throws IOException {
+		synchronized (lock) {
+			if (checkpointID == currentCheckpointId && allBarriersReceived != null) {
+				if (LOG.isDebugEnabled()) {
+					LOG.debug("Checkpoint {} ignored, no longer waiting for its barriers", checkpointID);
+				}
+				completePendingCheckpoint();
+			} else if (checkpointID > currentCheckpointId) {
+				if (allBarriersReceived != null) {
+					LOG.warn("Received ignore request for checkpoint {} before receiving all barriers of " +
+						"checkpoint {}. Skipping current checkpoint.", checkpointID, currentCheckpointId);
+					try {
+						abortPendingCheckpoint(new CheckpointDeclineSubsumedException(checkpointID));
+					} catch (Exception e) {
+						throw new IOException("Could not abort checkpoint " + currentCheckpointId, e);
+					}
+				}
+
+				// the next checkpoint starts as canceled
+				currentCheckpointId = checkpointID;
+			}
+		}
+	}
+
+	@Override
+	public void unblockChannelIfBlocked(int absoluteChannelIndex) {
+		synchronized (lock) {
+			// nothing is blocked, but the channel starts over with the replay of the recovered producer
+			positionTracker.onChannelReset(absoluteChannelIndex);
+			if (allBarriersReceived != null && !barrierReceived[absoluteChannelIndex]) {
+				pendingCheckpointInvalidated = true;
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s: last checkpoint: %d, current barriers: %d, closed channels: %d",
+			inputGate.getOwningTaskName(),
+			currentCheckpointId,
+			numChannelsDone,
+			numClosedChannels);
+	}
+}
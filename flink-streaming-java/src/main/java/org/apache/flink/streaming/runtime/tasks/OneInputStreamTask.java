@@ -35,6 +35,8 @@ import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * A {@link StreamTask} for executing a {@link OneInputStreamOperator}.
  */
@@ -131,6 +133,11 @@ public class OneInputStreamTask<IN, OUT> extends StreamTask<OUT, OneInputStreamO
 		return inputProcessor.getCheckpointBarrierHandlers();
 	}
 
+	@Override
+	protected CompletableFuture<Void> getAllBarriersReceivedFuture(long checkpointId) {
+		return getCheckpointBarrierHandler().getAllBarriersReceivedFuture(checkpointId);
+	}
+
 	@Override
 	public void resetInputChannelDeserializer(InputGate gate, int channelIndex){
 		 inputProcessor.resetInputChannelDeserializer(gate, channelIndex);
@@ -35,6 +35,8 @@ import org.apache.flink.runtime.causal.log.thread.ThreadCausalLog;
 import org.apache.flink.runtime.causal.recovery.IRecoveryManager;
 import org.apache.flink.runtime.causal.recovery.RecoveryManager;
 import org.apache.flink.runtime.causal.recovery.RecoveryManagerContext;
+import org.apache.flink.runtime.causal.store.DeterminantStoreConfig;
+import org.apache.flink.runtime.causal.store.DeterminantStoreWriter;
 import org.apache.flink.api.common.services.RandomService;
 import org.apache.flink.api.common.services.TimeService;
 import org.apache.flink.runtime.causal.services.CausalSerializableServiceFactory;
@@ -45,6 +47,7 @@ import org.apache.flink.runtime.checkpoint.CheckpointMetrics;
 import org.apache.flink.runtime.checkpoint.CheckpointOptions;
 import org.apache.flink.runtime.checkpoint.TaskStateSnapshot;
 import org.apache.flink.runtime.event.DeterminantResponseEventListener;
+import org.apache.flink.runtime.event.InFlightLogPositionEvent;
 import org.apache.flink.runtime.event.InFlightLogRequestEvent;
 import org.apache.flink.runtime.event.InFlightLogRequestEventListener;
 import org.apache.flink.runtime.execution.CancelTaskException;
@@ -61,6 +64,7 @@ import org.apache.flink.runtime.plugable.DeserializationDelegate;
 import org.apache.flink.runtime.plugable.SerializationDelegate;
 import org.apache.flink.runtime.state.*;
 import org.apache.flink.runtime.taskmanager.DispatcherThreadFactory;
+import org.apache.flink.streaming.api.CheckpointingMode;
 import org.apache.flink.streaming.api.TimeCharacteristic;
 import org.apache.flink.streaming.api.graph.StreamConfig;
 import org.apache.flink.streaming.api.graph.StreamEdge;
@@ -73,12 +77,14 @@ import org.apache.flink.streaming.runtime.partitioner.StreamPartitioner;
 import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
 import org.apache.flink.streaming.runtime.streamstatus.StreamStatusMaintainer;
 import org.apache.flink.util.ExceptionUtils;
+import org.apache.flink.util.FlinkRuntimeException;
 import org.apache.flink.util.Preconditions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
 import java.io.Closeable;
+import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicLong;
@@ -238,6 +244,10 @@ public abstract class StreamTask<OUT, OP extends StreamOperator<OUT>>
 	private final SerializableServiceFactory serializableServiceFactory;
 	private final EpochTracker epochTracker;
 
+	// Only set for sinks which store their determinants
+	@Nullable
+	private final DeterminantStoreWriter determinantStoreWriter;
+
 	private final SourceCheckpointDeterminant reuseSourceCheckpointDeterminant;
 	private final IgnoreCheckpointDeterminant ignoreCheckpointReuseDeterminant;
 
@@ -295,11 +305,32 @@ public abstract class StreamTask<OUT, OP extends StreamOperator<OUT>>
 		this.mainThreadCausalLog =
 			causalLog.getThreadCausalLog(new CausalLogID(vertexGraphInformation.getThisTasksVertexID().getVertexID()));
 
+		DeterminantStoreConfig determinantStoreConfig =
+			new DeterminantStoreConfig(environment.getTaskManagerInfo().getConfiguration());
+		RecoveryManager.SinkRecoveryStrategy sinkRecoveryStrategy = determinantStoreConfig.getSinkRecoveryStrategy();
+		if (!vertexGraphInformation.hasDownstream() && getExecutionConfig().getDeterminantSharingDepth() != 0 &&
+			sinkRecoveryStrategy == RecoveryManager.SinkRecoveryStrategy.DETERMINANT_STORE) {
+			try {
+				this.determinantStoreWriter = new DeterminantStoreWriter(
+					determinantStoreConfig.createDeterminantStore(environment.getJobID(),
+						vertexGraphInformation.getThisTasksVertexID(), environment.getUserClassLoader()),
+					Collections.singletonList(mainThreadCausalLog), determinantStoreConfig.getFlushInterval(),
+					getName());
+			} catch (IOException e) {
+				throw new FlinkRuntimeException("Could not create the determinant store of " + getName(), e);
+			}
+			epochTracker.subscribeToEpochStartEvents(determinantStoreWriter);
+			epochTracker.subscribeToCheckpointCompleteEvents(determinantStoreWriter);
+		} else
+			this.determinantStoreWriter = null;
+
 		RecoveryManagerContext rmContext = new RecoveryManagerContext(this, causalLog,
 			readyToReplayFuture, vertexGraphInformation, epochTracker,
-			this, environment.getContainingTask().getProducedPartitions());
+			this, environment.getContainingTask().getProducedPartitions(), sinkRecoveryStrategy,
+			determinantStoreWriter);
 
 		this.recoveryManager = new RecoveryManager(rmContext);
+		rmContext.getRecoveryMetrics().registerMetrics(environment.getMetricGroup());
 		epochTracker.setRecoveryManager(recoveryManager);
 
 		this.timeService = new PeriodicCausalTimeService(causalLog, recoveryManager,
@@ -322,8 +353,7 @@ public abstract class StreamTask<OUT, OP extends StreamOperator<OUT>>
 				((PipelinedSubpartition) subpartition).setCausalComponents(recoveryManager, causalLog);
 			}
 			DeterminantResponseEventListener edel =
-				new DeterminantResponseEventListener(environment.getUserClassLoader(), recoveryManager,
-					getCheckpointLock());
+				new DeterminantResponseEventListener(environment.getUserClassLoader(), recoveryManager);
 			environment.getTaskEventDispatcher().subscribeToEvent(partition.getPartitionId(), edel,
 				DeterminantResponseEvent.class);
 			LOG.info("Set DeterminantResponseEventListener {} for resultPartition {}.", edel, partition);
@@ -332,6 +362,8 @@ public abstract class StreamTask<OUT, OP extends StreamOperator<OUT>>
 				new InFlightLogRequestEventListener(environment.getUserClassLoader(), recoveryManager);
 			environment.getTaskEventDispatcher().subscribeToEvent(partition.getPartitionId(), iflrel,
 				InFlightLogRequestEvent.class);
+			environment.getTaskEventDispatcher().subscribeToEvent(partition.getPartitionId(), iflrel,
+				InFlightLogPositionEvent.class);
 			LOG.info("Set InFlightLogRequestEventListener {} for resultPartition {}.", iflrel, partition);
 		}
 
@@ -511,6 +543,15 @@ public abstract class StreamTask<OUT, OP extends StreamOperator<OUT>>
 			// stop all timers and threads
 			tryShutdownTimerService();
 
+			if (determinantStoreWriter != null) {
+				try {
+					determinantStoreWriter.close();
+				} catch (Throwable t) {
+					// catch and log the exception to not replace the original exception
+					LOG.error("Could not close the determinant store writer", t);
+				}
+			}
+
 			// stop all asynchronous checkpoint threads
 			try {
 				cancelables.close();
@@ -802,6 +843,29 @@ public abstract class StreamTask<OUT, OP extends StreamOperator<OUT>>
 		return this.causalLog;
 	}
 
+	/**
+	 * Whether every operator of the chain declared all of its inputs order-insensitive, see
+	 * {@link OrderInsensitiveOperator}. The chained operators only see the interleaving through their predecessors,
+	 * so a single order-sensitive operator anywhere in the chain makes the task input order-sensitive.
+	 */
+	public boolean isInputOrderInsensitive() {
+		for (StreamOperator<?> operator : operatorChain.getAllOperators()) {
+			if (operator == null) {
+				continue;
+			}
+			if (!(operator instanceof OrderInsensitiveOperator)) {
+				return false;
+			}
+			int numInputs = operator instanceof TwoInputStreamOperator ? 2 : 1;
+			for (int input = 1; input <= numInputs; input++) {
+				if (!((OrderInsensitiveOperator) operator).isInputOrderInsensitive(input)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
 	public IRecoveryManager getRecoveryManager() {
 		return recoveryManager;
 	}
@@ -911,6 +975,14 @@ public abstract class StreamTask<OUT, OP extends StreamOperator<OUT>>
 
 	}
 
+	/**
+	 * Returns a future that completes once the inputs received all barriers of the given checkpoint. Unaligned
+	 * checkpoints are triggered before, but only acknowledged then. Tasks without inputs never wait.
+	 */
+	protected CompletableFuture<Void> getAllBarriersReceivedFuture(long checkpointId) {
+		return CompletableFuture.completedFuture(null);
+	}
+
 	protected CheckpointBarrierHandler getCheckpointBarrierHandler() {
 		//default implementation
 		throw new UnsupportedOperationException("Method must be overriden by stream task types using a barrier " +
@@ -1111,6 +1183,9 @@ public abstract class StreamTask<OUT, OP extends StreamOperator<OUT>>
 
 		private final long asyncStartNanos;
 
+		/** The checkpoint is only acknowledged once the data before all of its barriers was received. */
+		private final CompletableFuture<Void> allBarriersReceived;
+
 		private final AtomicReference<CheckpointingOperation.AsyncCheckpointState> asyncCheckpointState =
 			new AtomicReference<>(
 				CheckpointingOperation.AsyncCheckpointState.RUNNING);
@@ -1120,13 +1195,15 @@ public abstract class StreamTask<OUT, OP extends StreamOperator<OUT>>
 			Map<OperatorID, OperatorSnapshotFutures> operatorSnapshotsInProgress,
 			CheckpointMetaData checkpointMetaData,
 			CheckpointMetrics checkpointMetrics,
-			long asyncStartNanos) {
+			long asyncStartNanos,
+			CompletableFuture<Void> allBarriersReceived) {
 
 			this.owner = Preconditions.checkNotNull(owner);
 			this.operatorSnapshotsInProgress = Preconditions.checkNotNull(operatorSnapshotsInProgress);
 			this.checkpointMetaData = Preconditions.checkNotNull(checkpointMetaData);
 			this.checkpointMetrics = Preconditions.checkNotNull(checkpointMetrics);
 			this.asyncStartNanos = asyncStartNanos;
+			this.allBarriersReceived = Preconditions.checkNotNull(allBarriersReceived);
 		}
 
 		@Override
@@ -1163,6 +1240,10 @@ public abstract class StreamTask<OUT, OP extends StreamOperator<OUT>>
 
 				checkpointMetrics.setAsyncDurationMillis(asyncDurationMillis);
 
+				// an aborted checkpoint is declined already, acknowledging it anyway lets the coordinator
+				// discard the state
+				allBarriersReceived.get();
+
 				if (asyncCheckpointState.compareAndSet(CheckpointingOperation.AsyncCheckpointState.RUNNING,
 					CheckpointingOperation.AsyncCheckpointState.COMPLETED)) {
 
@@ -1369,7 +1450,8 @@ public abstract class StreamTask<OUT, OP extends StreamOperator<OUT>>
 					operatorSnapshotsInProgress,
 					checkpointMetaData,
 					checkpointMetrics,
-					startAsyncPartNano);
+					startAsyncPartNano,
+					owner.getAllBarriersReceivedFuture(checkpointMetaData.getCheckpointId()));
 
 				owner.cancelables.registerCloseable(asyncCheckpointRunnable);
 				owner.asyncOperationsThreadPool.submit(asyncCheckpointRunnable);
@@ -1467,6 +1549,9 @@ public abstract class StreamTask<OUT, OP extends StreamOperator<OUT>>
 		List<StreamEdge> outEdgesInOrder = configuration.getOutEdgesInOrder(environment.getUserClassLoader());
 		Map<Integer, StreamConfig> chainedConfigs =
 			configuration.getTransitiveChainedTaskConfigsWithSelf(environment.getUserClassLoader());
+		//The consumers take the same kind of checkpoints as this task
+		boolean unalignedCheckpointsEnabled = configuration.getCheckpointMode() == CheckpointingMode.EXACTLY_ONCE &&
+			configuration.isUnalignedCheckpointsEnabled();
 
 		for (int i = 0; i < outEdgesInOrder.size(); i++) {
 			StreamEdge edge = outEdgesInOrder.get(i);
@@ -1480,9 +1565,12 @@ public abstract class StreamTask<OUT, OP extends StreamOperator<OUT>>
 			streamRecordWriters.add(newRecordWriter);
 
 			//TODO do not love this cast.
+			//The subpartitions truncate their in-flight logs, keeping what unaligned checkpoints reference
 			for(ResultSubpartition ps :  newRecordWriter.getResultPartition().getResultSubpartitions())
-				if(ps instanceof PipelinedSubpartition)
-					epochTracker.subscribeToCheckpointCompleteEvents(((PipelinedSubpartition) ps).getInFlightLog());
+				if(ps instanceof PipelinedSubpartition) {
+					((PipelinedSubpartition) ps).setUnalignedCheckpointsEnabled(unalignedCheckpointsEnabled);
+					epochTracker.subscribeToCheckpointCompleteEvents((PipelinedSubpartition) ps);
+				}
 		}
 		return streamRecordWriters;
 	}
@@ -33,6 +33,7 @@ import org.apache.flink.streaming.runtime.metrics.WatermarkGauge;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * A {@link StreamTask} for executing a {@link TwoInputStreamOperator}.
@@ -138,6 +139,11 @@ public class TwoInputStreamTask<IN1, IN2, OUT> extends StreamTask<OUT, TwoInputS
 		return inputProcessor.getCheckpointBarrierHandlers();
 	}
 
+	@Override
+	protected CompletableFuture<Void> getAllBarriersReceivedFuture(long checkpointId) {
+		return getCheckpointBarrierHandler().getAllBarriersReceivedFuture(checkpointId);
+	}
+
 
 	@Override
 	public void resetInputChannelDeserializer(InputGate gate, int channelIndex){
@@ -25,15 +25,19 @@
 
 package org.apache.flink.streaming.runtime.io;
 
+import org.apache.flink.api.common.typeutils.TypeSerializer;
 import org.apache.flink.runtime.causal.*;
 import org.apache.flink.runtime.causal.determinant.AsyncDeterminant;
 import org.apache.flink.runtime.causal.determinant.Determinant;
 import org.apache.flink.runtime.causal.determinant.DeterminantEncoder;
+import org.apache.flink.runtime.causal.determinant.OrderDeterminant;
 import org.apache.flink.runtime.causal.log.job.CausalLogID;
 import org.apache.flink.runtime.causal.log.job.JobCausalLog;
 import org.apache.flink.runtime.causal.log.thread.ThreadCausalLog;
 import org.apache.flink.runtime.causal.recovery.*;
+import org.apache.flink.runtime.event.InFlightLogPositionEvent;
 import org.apache.flink.runtime.event.InFlightLogRequestEvent;
+import org.apache.flink.runtime.io.disk.iomanager.FileIOChannel;
 import org.apache.flink.runtime.io.network.api.DeterminantRequestEvent;
 import org.apache.flink.runtime.io.network.api.writer.ResultPartitionWriter;
 import org.apache.flink.runtime.io.network.buffer.Buffer;
@@ -71,6 +75,16 @@ public class QueueTest {
 
 	}
 
+	@Test
+	public void testOrderInsensitiveChannelsAreReadInArrivalOrder() throws Exception {
+		// The recovery manager is recovering, but there are no order determinants to replay
+		CausalBufferOrderService bos = new CausalBufferOrderService(new JCL(), new RM(), new CBH(), 3, true);
+
+		assert (bos.getNextBuffer().getChannelIndex() == 0);
+		assert (bos.getNextBuffer().getChannelIndex() == 2);
+		assert (bos.getNextBuffer().getChannelIndex() == 0);
+	}
+
 	static class CBH implements CheckpointBarrierHandler {
 		List<BufferOrEvent> list;
 		NetworkBufferPool nbp = new NetworkBufferPool(100, 32768);
@@ -167,10 +181,15 @@ public class QueueTest {
 		}
 
 		@Override
-		public byte replayNextChannel() {
+		public int replayNextChannel() {
 			return channelReplay.remove(0);
 		}
 
+		@Override
+		public int getNextOrderRunLength() {
+			return 1;
+		}
+
 		@Override
 		public long replayNextTimestamp() {
 			return 0;
@@ -185,6 +204,11 @@ public class QueueTest {
 		public Object replaySerializableDeterminant() {
 			return null;
 		}
+
+		@Override
+		public <T> T replayTypedSerializableDeterminant(int serviceID, TypeSerializer<T> serializer) {
+			return null;
+		}
 	}
 
 	class RM implements IRecoveryManager {
@@ -205,6 +229,11 @@ public class QueueTest {
 
 		}
 
+		@Override
+		public void notifyInFlightLogPositionEvent(InFlightLogPositionEvent e) {
+
+		}
+
 		@Override
 		public void notifyDeterminantResponseEvent(DeterminantResponseEvent e) {
 
@@ -297,6 +326,11 @@ public class QueueTest {
 				public int getNumberOfDirectDownstreamNeighbourVertexes() {
 					return 0;
 				}
+
+				@Override
+				public RecoveryMetrics getRecoveryMetrics() {
+					return new RecoveryMetrics();
+				}
 			};
 		}
 
@@ -331,6 +365,21 @@ public class QueueTest {
 					return 0;
 				}
 
+				@Override
+				public int spillConsumedEpochs(FileIOChannel.Enumerator spillFileEnumerator) {
+					return 0;
+				}
+
+				@Override
+				public long getMemoryInBytes() {
+					return 0;
+				}
+
+				@Override
+				public long getSpilledBytes() {
+					return 0;
+				}
+
 				@Override
 				public void processUpstreamDelta(ByteBuf delta, int offsetFromEpoch, long epochID) {
 
@@ -341,6 +390,11 @@ public class QueueTest {
 
 				}
 
+				@Override
+				public void appendOrderDeterminant(OrderDeterminant determinant, long epochID) {
+
+				}
+
 				@Override
 				public boolean hasDeltaForConsumer(InputChannelID outputChannelID, long epochID) {
 					return false;
@@ -379,7 +433,7 @@ public class QueueTest {
 		}
 
 		@Override
-		public ByteBuf enrichWithCausalLogDelta(ByteBuf serialized, InputChannelID inputChannelID, long epochID, ByteBufAllocator alloc) {
+		public ByteBuf enrichWithCausalLogDelta(ByteBuf serialized, InputChannelID inputChannelID, long epochID, boolean forceFlush, ByteBufAllocator alloc) {
 			return null;
 		}
 
@@ -403,6 +457,21 @@ public class QueueTest {
 			return 0;
 		}
 
+		@Override
+		public long totalLogLength() {
+			return 0;
+		}
+
+		@Override
+		public long getDeterminantMemoryInBytes() {
+			return 0;
+		}
+
+		@Override
+		public long getSpilledDeterminantBytes() {
+			return 0;
+		}
+
 		@Override
 		public boolean unregisterTask(JobVertexID jobVertexId) {
 			return false;
@@ -0,0 +1,264 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.runtime.io;
+
+import org.apache.flink.core.memory.MemorySegmentFactory;
+import org.apache.flink.runtime.checkpoint.CheckpointMetaData;
+import org.apache.flink.runtime.checkpoint.CheckpointMetrics;
+import org.apache.flink.runtime.checkpoint.CheckpointOptions;
+import org.apache.flink.runtime.checkpoint.decline.CheckpointDeclineOnCancellationBarrierException;
+import org.apache.flink.runtime.checkpoint.decline.CheckpointDeclineSubsumedException;
+import org.apache.flink.runtime.checkpoint.decline.InputEndOfStreamException;
+import org.apache.flink.runtime.event.InFlightLogPositionEvent;
+import org.apache.flink.runtime.event.TaskEvent;
+import org.apache.flink.runtime.io.network.api.CancelCheckpointMarker;
+import org.apache.flink.runtime.io.network.api.CheckpointBarrier;
+import org.apache.flink.runtime.io.network.api.EndOfPartitionEvent;
+import org.apache.flink.runtime.io.network.buffer.FreeingBufferRecycler;
+import org.apache.flink.runtime.io.network.buffer.NetworkBuffer;
+import org.apache.flink.runtime.io.network.partition.ResultPartitionID;
+import org.apache.flink.runtime.io.network.partition.consumer.BufferOrEvent;
+import org.apache.flink.runtime.io.network.partition.consumer.InputChannel;
+import org.apache.flink.runtime.io.network.partition.consumer.SingleInputGate;
+import org.apache.flink.runtime.jobgraph.tasks.AbstractInvokable;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for the {@link UnalignedBarrierHandler}.
+ */
+public class UnalignedBarrierHandlerTest {
+
+	private static final int PAGE_SIZE = 512;
+
+	@Test
+	public void testCheckpointIsTriggeredByFirstBarrier() throws Exception {
+		BufferOrEvent[] sequence = {
+			createBuffer(0), createBuffer(1), createBuffer(1),
+			createBarrier(1, 0),
+			createBuffer(0), createBuffer(1), createBuffer(2),
+			createBarrier(1, 1), createBarrier(1, 2),
+			createBuffer(0)
+		};
+		InputChannel[] channels = createInputChannels(3);
+		UnalignedBarrierHandler handler = createHandler(channels, sequence);
+		AbstractInvokable task = mock(AbstractInvokable.class);
+		handler.registerCheckpointEventHandler(task);
+
+		// nothing is blocked, every buffer is returned in arrival order
+		for (int i = 0; i < 3; i++)
+			assertEquals(sequence[i], handler.getNextNonBlocked());
+		assertEquals(sequence[4], handler.getNextNonBlocked());
+		verify(task).triggerCheckpointOnBarrier(any(CheckpointMetaData.class), any(CheckpointOptions.class),
+			any(CheckpointMetrics.class));
+		CompletableFuture<Void> allBarriersReceived = handler.getAllBarriersReceivedFuture(1L);
+		assertFalse(allBarriersReceived.isDone());
+
+		// the unprocessed data of the other channels is referenced upstream, the triggering channel is at its barrier
+		assertPosition(channels[0], 1L, 1L, 0, 0);
+		assertPosition(channels[1], 1L, InFlightLogPositionEvent.NO_BARRIER, 2, 0);
+		assertPosition(channels[2], 1L, InFlightLogPositionEvent.NO_BARRIER, 0, 0);
+
+		assertEquals(sequence[5], handler.getNextNonBlocked());
+		assertEquals(sequence[6], handler.getNextNonBlocked());
+		assertEquals(sequence[9], handler.getNextNonBlocked());
+		assertTrue(allBarriersReceived.isDone());
+		assertNull(handler.getNextNonBlocked());
+		verify(task, never()).abortCheckpointOnBarrier(anyLong(), any(Throwable.class));
+	}
+
+	@Test
+	public void testPositionIsRelativeToLastBarrier() throws Exception {
+		BufferOrEvent[] sequence = {
+			createBarrier(1, 0), createBarrier(1, 1),
+			createBuffer(1), createBuffer(1),
+			createBarrier(2, 0),
+			createBuffer(0)
+		};
+		InputChannel[] channels = createInputChannels(2);
+		InputChannelPositionTracker positionTracker = new InputChannelPositionTracker(2);
+		UnalignedBarrierHandler handler = new UnalignedBarrierHandler(createInputGate(channels, sequence),
+			positionTracker, new Object());
+		handler.registerCheckpointEventHandler(mock(AbstractInvokable.class));
+
+		assertEquals(sequence[2], handler.getNextNonBlocked());
+		assertEquals(sequence[3], handler.getNextNonBlocked());
+		// the second buffer ends with the first byte of a record
+		positionTracker.onPartialRecord(1, 2, 1);
+		assertEquals(sequence[5], handler.getNextNonBlocked());
+
+		// the next checkpoint is replayed from the start of the pending record
+		assertPosition(channels[1], 2L, 1L, 1, 1);
+		assertFalse(handler.getAllBarriersReceivedFuture(2L).isDone());
+	}
+
+	@Test
+	public void testSubsumedCheckpointIsAborted() throws Exception {
+		BufferOrEvent[] sequence = {
+			createBarrier(1, 0), createBuffer(0),
+			createBarrier(2, 0), createBuffer(0),
+			createBarrier(1, 1), createBarrier(2, 1), createBuffer(1)
+		};
+		UnalignedBarrierHandler handler = createHandler(createInputChannels(2), sequence);
+		AbstractInvokable task = mock(AbstractInvokable.class);
+		handler.registerCheckpointEventHandler(task);
+
+		assertEquals(sequence[1], handler.getNextNonBlocked());
+		CompletableFuture<Void> firstBarriersReceived = handler.getAllBarriersReceivedFuture(1L);
+		assertEquals(sequence[3], handler.getNextNonBlocked());
+		// the task does not wait for the aborted checkpoint
+		assertTrue(firstBarriersReceived.isDone());
+		verify(task).abortCheckpointOnBarrier(eq(1L), any(CheckpointDeclineSubsumedException.class));
+
+		// the trailing barrier of the first checkpoint is ignored
+		assertEquals(sequence[6], handler.getNextNonBlocked());
+		assertTrue(handler.getAllBarriersReceivedFuture(2L).isDone());
+		verify(task, times(2)).triggerCheckpointOnBarrier(any(CheckpointMetaData.class),
+			any(CheckpointOptions.class), any(CheckpointMetrics.class));
+	}
+
+	@Test
+	public void testIgnoringNewerCheckpointAbortsPendingCheckpoint() throws Exception {
+		BufferOrEvent[] sequence = {
+			createBarrier(1, 0), createBuffer(0),
+			createBarrier(1, 1), createBarrier(2, 1), createBuffer(1)
+		};
+		UnalignedBarrierHandler handler = createHandler(createInputChannels(2), sequence);
+		AbstractInvokable task = mock(AbstractInvokable.class);
+		handler.registerCheckpointEventHandler(task);
+
+		assertEquals(sequence[1], handler.getNextNonBlocked());
+		CompletableFuture<Void> firstBarriersReceived = handler.getAllBarriersReceivedFuture(1L);
+		handler.ignoreCheckpoint(2L);
+		assertTrue(firstBarriersReceived.isDone());
+		verify(task).abortCheckpointOnBarrier(eq(1L), any(CheckpointDeclineSubsumedException.class));
+
+		// the barriers of both checkpoints are ignored
+		assertEquals(sequence[4], handler.getNextNonBlocked());
+		verify(task).triggerCheckpointOnBarrier(any(CheckpointMetaData.class), any(CheckpointOptions.class),
+			any(CheckpointMetrics.class));
+	}
+
+	@Test
+	public void testCancellationAndEndOfPartitionAbortPendingCheckpoint() throws Exception {
+		BufferOrEvent[] sequence = {
+			createBarrier(1, 0), createBuffer(0),
+			createCancellationBarrier(1, 1), createBuffer(1),
+			createBarrier(2, 1), createBuffer(1),
+			createEndOfPartition(0)
+		};
+		UnalignedBarrierHandler handler = createHandler(createInputChannels(2), sequence);
+		AbstractInvokable task = mock(AbstractInvokable.class);
+		handler.registerCheckpointEventHandler(task);
+
+		assertEquals(sequence[1], handler.getNextNonBlocked());
+		assertEquals(sequence[3], handler.getNextNonBlocked());
+		verify(task).abortCheckpointOnBarrier(eq(1L), any(CheckpointDeclineOnCancellationBarrierException.class));
+		assertTrue(handler.getAllBarriersReceivedFuture(1L).isDone());
+
+		assertEquals(sequence[5], handler.getNextNonBlocked());
+		CompletableFuture<Void> allBarriersReceived = handler.getAllBarriersReceivedFuture(2L);
+		assertEquals(sequence[6], handler.getNextNonBlocked());
+		verify(task).abortCheckpointOnBarrier(eq(2L), any(InputEndOfStreamException.class));
+		assertTrue(allBarriersReceived.isDone());
+	}
+
+	// ------------------------------------------------------------------------
+	//  Utils
+	// ------------------------------------------------------------------------
+
+	private static UnalignedBarrierHandler createHandler(InputChannel[] channels, BufferOrEvent[] sequence) {
+		return new UnalignedBarrierHandler(createInputGate(channels, sequence),
+			new InputChannelPositionTracker(channels.length), new Object());
+	}
+
+	private static MockInputGate createInputGate(InputChannel[] channels, BufferOrEvent[] sequence) {
+		return new MockInputGate(PAGE_SIZE, channels.length, Arrays.asList(sequence)) {
+			@Override
+			public InputChannel getInputChannel(int i) {
+				return channels[i];
+			}
+		};
+	}
+
+	private static InputChannel[] createInputChannels(int numberOfChannels) {
+		SingleInputGate inputGate = mock(SingleInputGate.class);
+		when(inputGate.getConsumedSubpartitionIndex()).thenReturn(3);
+
+		InputChannel[] channels = new InputChannel[numberOfChannels];
+		for (int i = 0; i < numberOfChannels; i++) {
+			channels[i] = mock(InputChannel.class);
+			when(channels[i].getPartitionId()).thenReturn(new ResultPartitionID());
+			when(channels[i].getInputGate()).thenReturn(inputGate);
+		}
+		return channels;
+	}
+
+	private static void assertPosition(InputChannel channel, long checkpointId, long afterCheckpointId,
+									   int numberOfBuffers, int numberOfBytes) throws Exception {
+		ArgumentCaptor<TaskEvent> captor = ArgumentCaptor.forClass(TaskEvent.class);
+		verify(channel, atLeastOnce()).sendTaskEvent(captor.capture());
+		List<TaskEvent> events = captor.getAllValues();
+		InFlightLogPositionEvent event = (InFlightLogPositionEvent) events.get(events.size() - 1);
+
+		assertEquals(channel.getPartitionId().getPartitionId(), event.getIntermediateResultPartitionID());
+		assertEquals(3, event.getSubpartitionIndex());
+		assertEquals(checkpointId, event.getCheckpointId());
+		assertEquals(afterCheckpointId, event.getAfterCheckpointId());
+		assertEquals(numberOfBuffers, event.getNumberOfBuffers());
+		assertEquals(numberOfBytes, event.getNumberOfBytes());
+	}
+
+	private static BufferOrEvent createBarrier(long id, int channel) {
+		return new BufferOrEvent(new CheckpointBarrier(
+			id, System.currentTimeMillis(), CheckpointOptions.forCheckpointWithDefaultLocation()), channel);
+	}
+
+	private static BufferOrEvent createCancellationBarrier(long id, int channel) {
+		return new BufferOrEvent(new CancelCheckpointMarker(id), channel);
+	}
+
+	private static BufferOrEvent createEndOfPartition(int channel) {
+		return new BufferOrEvent(EndOfPartitionEvent.INSTANCE, channel);
+	}
+
+	private static BufferOrEvent createBuffer(int channel) {
+		return new BufferOrEvent(
+			new NetworkBuffer(MemorySegmentFactory.wrap(new byte[]{1, 2}), FreeingBufferRecycler.INSTANCE), channel);
+	}
+}